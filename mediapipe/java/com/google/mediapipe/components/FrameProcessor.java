@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
 import com.google.mediapipe.framework.AndroidAssetUtil;
 import com.google.mediapipe.framework.AndroidPacketCreator;
+import com.google.mediapipe.framework.CallbackDispatcher;
 import com.google.mediapipe.framework.Graph;
 import com.google.mediapipe.framework.GraphService;
 import com.google.mediapipe.framework.MediaPipeException;
@@ -58,6 +59,7 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
   private AndroidPacketCreator packetCreator;
   private OnWillAddFrameListener addFrameListener;
   private ErrorListener asyncErrorListener;
+  private volatile CallbackDispatcher consumerDispatcher;
   private String videoInputStream;
   private String videoInputStreamCpu;
   private String videoOutputStream;
@@ -192,6 +194,17 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
             });
   }
 
+  /**
+   * Sets a {@link CallbackDispatcher} to deliver the output video frames and audio data to the
+   * consumers on, instead of the graph thread. A video frame discarded by the dispatcher is
+   * released without reaching its consumer.
+   *
+   * @param dispatcher the dispatcher, or null to call the consumers on the graph thread.
+   */
+  public void setConsumerDispatcher(@Nullable CallbackDispatcher dispatcher) {
+    this.consumerDispatcher = dispatcher;
+  }
+
   /**
    * Adds input streams to process video data and output streams that output processed video data.
    *
@@ -230,7 +243,12 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
                           "Output tex: %d width: %d height: %d to consumer %h",
                           frame.getTextureName(), frame.getWidth(), frame.getHeight(), consumer));
                 }
-                consumer.onNewFrame(frame);
+                CallbackDispatcher dispatcher = consumerDispatcher;
+                if (dispatcher == null) {
+                  consumer.onNewFrame(frame);
+                } else {
+                  dispatcher.dispatch(() -> consumer.onNewFrame(frame), frame::release);
+                }
               }
             }
           });
@@ -286,7 +304,14 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
               for (AudioDataConsumer consumer : currentAudioConsumers) {
                 byte[] buffer = PacketGetter.getAudioByteData(packet);
                 ByteBuffer audioData = ByteBuffer.wrap(buffer);
-                consumer.onNewAudioData(audioData, packet.getTimestamp(), audioFormat);
+                long timestamp = packet.getTimestamp();
+                CallbackDispatcher dispatcher = consumerDispatcher;
+                if (dispatcher == null) {
+                  consumer.onNewAudioData(audioData, timestamp, audioFormat);
+                } else {
+                  dispatcher.dispatch(
+                      () -> consumer.onNewAudioData(audioData, timestamp, audioFormat), null);
+                }
               }
             }
           });
@@ -0,0 +1,28 @@
+// Copyright 2019 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A callback that gets invoked when a {@link ByteBuffer} wrapped by a packet is no longer in use.
+ */
+public interface BufferReleaseCallback {
+  /**
+   * Called when the last packet referencing the buffer has been released. The buffer can be
+   * reused or overwritten after this call. This may be invoked on a MediaPipe worker thread.
+   */
+  void release(ByteBuffer buffer);
+}
@@ -0,0 +1,226 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import com.google.common.flogger.FluentLogger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nullable;
+
+/**
+ * Hands callbacks, such as result listeners, over to an {@link Executor} through a bounded queue,
+ * so that a slow callback doesn't stall the graph thread that produced its data.
+ *
+ * <p>The callbacks are run one at a time in the order of their dispatch, even on a multi-threaded
+ * executor. When the queue is full, the {@link OverflowPolicy} decides whether a callback is
+ * discarded or the dispatching thread waits. A discarded callback has its discard action run
+ * instead, to release the data it holds. If the executor rejects the callbacks, e.g. after it's
+ * shut down, the queued callbacks are discarded as well.
+ */
+public final class CallbackDispatcher {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** What happens to a callback dispatched while the queue is full. */
+  public enum OverflowPolicy {
+    /** Discards the oldest queued callback to make room for the new one. */
+    DROP_OLDEST,
+    /** Discards the new callback. */
+    DROP_NEWEST,
+    /** Blocks the dispatching thread until there is room in the queue. */
+    BLOCK,
+  }
+
+  /** A dispatched callback and the action that releases its data if it's discarded. */
+  private static final class PendingCallback {
+    final Runnable callback;
+    @Nullable final Runnable discardAction;
+
+    PendingCallback(Runnable callback, @Nullable Runnable discardAction) {
+      this.callback = callback;
+      this.discardAction = discardAction;
+    }
+
+    void discard() {
+      if (discardAction != null) {
+        discardAction.run();
+      }
+    }
+  }
+
+  private final Executor executor;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final Runnable drainer =
+      new Runnable() {
+        @Override
+        public void run() {
+          drain();
+        }
+      };
+  // Guarded by this.
+  private final ArrayDeque<PendingCallback> queue = new ArrayDeque<>();
+  private boolean draining = false;
+  private int peakQueueDepth = 0;
+  private long droppedCallbackCount = 0;
+
+  /**
+   * Creates a {@link CallbackDispatcher} instance.
+   *
+   * @param executor the {@link Executor} that runs the callbacks.
+   * @param capacity the maximum number of callbacks waiting to run, must be > 0.
+   * @param overflowPolicy what happens to a callback dispatched while the queue is full.
+   */
+  public static CallbackDispatcher create(
+      Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The queue capacity should be greater than 0.");
+    }
+    return new CallbackDispatcher(executor, capacity, overflowPolicy);
+  }
+
+  private CallbackDispatcher(Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+    this.executor = executor;
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Queues a callback to run on the executor, applying the {@link OverflowPolicy} if the queue is
+   * full.
+   *
+   * @param callback the callback to run.
+   * @param discardAction run instead of the callback if it's discarded, or null.
+   */
+  public void dispatch(Runnable callback, @Nullable Runnable discardAction) {
+    PendingCallback pendingCallback = new PendingCallback(callback, discardAction);
+    PendingCallback discardedCallback = null;
+    boolean startDraining = false;
+    synchronized (this) {
+      if (queue.size() >= capacity) {
+        switch (overflowPolicy) {
+          case DROP_NEWEST:
+            discardedCallback = pendingCallback;
+            break;
+          case DROP_OLDEST:
+            discardedCallback = queue.poll();
+            break;
+          case BLOCK:
+            boolean interrupted = false;
+            while (queue.size() >= capacity) {
+              try {
+                wait();
+              } catch (InterruptedException e) {
+                interrupted = true;
+              }
+            }
+            if (interrupted) {
+              Thread.currentThread().interrupt();
+            }
+            break;
+        }
+      }
+      if (discardedCallback != null) {
+        ++droppedCallbackCount;
+      }
+      if (discardedCallback != pendingCallback) {
+        queue.add(pendingCallback);
+        peakQueueDepth = Math.max(peakQueueDepth, queue.size());
+        if (!draining) {
+          draining = true;
+          startDraining = true;
+        }
+      }
+    }
+    if (discardedCallback != null) {
+      discardedCallback.discard();
+    }
+    if (startDraining) {
+      try {
+        executor.execute(drainer);
+      } catch (RejectedExecutionException e) {
+        logger.atSevere().withCause(e).log("Executor rejected the callbacks, discarding them.");
+        discardAll();
+      }
+    }
+  }
+
+  /** Discards all the queued callbacks, e.g. when the executor has been shut down. */
+  private void discardAll() {
+    List<PendingCallback> discardedCallbacks;
+    synchronized (this) {
+      discardedCallbacks = new ArrayList<>(queue);
+      queue.clear();
+      droppedCallbackCount += discardedCallbacks.size();
+      draining = false;
+      // Wakes up the threads blocked on a full queue.
+      notifyAll();
+    }
+    for (PendingCallback pendingCallback : discardedCallbacks) {
+      pendingCallback.discard();
+    }
+  }
+
+  /** Returns the number of callbacks waiting to run. */
+  public synchronized int getQueueDepth() {
+    return queue.size();
+  }
+
+  /** Returns the highest number of callbacks that waited to run at once. */
+  public synchronized int getPeakQueueDepth() {
+    return peakQueueDepth;
+  }
+
+  /**
+   * Returns the number of callbacks discarded by the {@link OverflowPolicy} or rejected by the
+   * executor.
+   */
+  public synchronized long getDroppedCallbackCount() {
+    return droppedCallbackCount;
+  }
+
+  private void drain() {
+    boolean drained = false;
+    try {
+      while (true) {
+        PendingCallback pendingCallback;
+        synchronized (this) {
+          pendingCallback = queue.poll();
+          if (pendingCallback == null) {
+            draining = false;
+            drained = true;
+            return;
+          }
+          // Wakes up the threads blocked on a full queue.
+          notifyAll();
+        }
+        try {
+          pendingCallback.callback.run();
+        } catch (RuntimeException e) {
+          logger.atSevere().withCause(e).log("Dispatched callback failed.");
+        }
+      }
+    } finally {
+      if (!drained) {
+        // An Error thrown by a callback stops the drainer, so the next dispatched callback starts a
+        // new one for the callbacks left in the queue.
+        synchronized (this) {
+          draining = false;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,335 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import com.google.mediapipe.proto.CalculatorProfileProto.GraphTrace;
+import com.google.mediapipe.proto.CalculatorProfileProto.GraphTrace.CalculatorTrace;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Opt-in tracer of the time spent on the Java side of processing a frame.
+ *
+ * <p>When tracing is enabled, the frame processing steps of the framework and the tasks, such as
+ * the packet creation, the packet addition into the graph and the output conversion, record spans
+ * keyed by the packet timestamp of the frame. {@link #writeChromeTrace} merges the recorded spans
+ * with the calculator timings of a {@link GraphProfiler} into a Chrome trace-event JSON file,
+ * which can be opened in chrome://tracing or Perfetto. The spans and the calculator timings of a
+ * frame are linked by flow events, so the time of a frame can be split between Java, the graph
+ * queues and the calculators. The calculator timings require {@code trace_enabled} in the {@code
+ * profiler_config} of the graph.
+ *
+ * <p>Tracing costs a clock read and a small allocation per span, so it is meant for debugging.
+ */
+public final class FrameTracer {
+  private static final int JAVA_PROCESS_ID = 1;
+  private static final int GRAPH_PROCESS_ID = 2;
+  // Aligns System.nanoTime() with the Unix epoch time used by the graph profiler.
+  private static final long EPOCH_TIME_USEC = System.currentTimeMillis() * 1000;
+  private static final long EPOCH_NANO_TIME = System.nanoTime();
+
+  /** A span recorded on a Java thread. */
+  static final class Span {
+    final String name;
+    final long packetTimestamp;
+    final long beginTimeUsec;
+    final long durationUsec;
+    final long threadId;
+    final String threadName;
+
+    Span(
+        String name, long packetTimestamp, long beginTimeUsec, long durationUsec, Thread thread) {
+      this.name = name;
+      this.packetTimestamp = packetTimestamp;
+      this.beginTimeUsec = beginTimeUsec;
+      this.durationUsec = durationUsec;
+      this.threadId = thread.getId();
+      this.threadName = thread.getName();
+    }
+  }
+
+  /** A ring buffer of the most recent spans. */
+  private static final class SpanBuffer {
+    private final Span[] spans;
+    private int next = 0;
+    private boolean full = false;
+
+    SpanBuffer(int capacity) {
+      spans = new Span[capacity];
+    }
+
+    synchronized void add(Span span) {
+      spans[next] = span;
+      next = (next + 1) % spans.length;
+      full |= next == 0;
+    }
+
+    synchronized List<Span> snapshot() {
+      List<Span> snapshot = new ArrayList<>(spans.length);
+      int start = full ? next : 0;
+      int count = full ? spans.length : next;
+      for (int i = 0; i < count; ++i) {
+        snapshot.add(spans[(start + i) % spans.length]);
+      }
+      return snapshot;
+    }
+  }
+
+  // The recorded spans, or null when tracing is disabled.
+  @Nullable private static volatile SpanBuffer spanBuffer;
+
+  private FrameTracer() {}
+
+  /**
+   * Enables tracing, discarding the spans recorded previously.
+   *
+   * @param capacity the maximum number of spans kept. The oldest spans are discarded first.
+   */
+  public static void enable(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The span capacity must be positive.");
+    }
+    spanBuffer = new SpanBuffer(capacity);
+  }
+
+  /** Disables tracing and discards the recorded spans. */
+  public static void disable() {
+    spanBuffer = null;
+  }
+
+  /** Returns true if tracing is enabled. */
+  public static boolean isEnabled() {
+    return spanBuffer != null;
+  }
+
+  /**
+   * Starts a span. Returns the start time to pass to {@link #endSpan}, or 0 if tracing is disabled.
+   */
+  public static long beginSpan() {
+    return spanBuffer == null ? 0 : nowUsec();
+  }
+
+  /**
+   * Ends a span started by {@link #beginSpan}. No-op if tracing was disabled when the span started.
+   *
+   * @param name the name of the span.
+   * @param packetTimestamp the timestamp of the packets of the frame.
+   * @param beginTimeUsec the value returned by {@link #beginSpan}.
+   */
+  public static void endSpan(String name, long packetTimestamp, long beginTimeUsec) {
+    SpanBuffer buffer = spanBuffer;
+    if (buffer == null || beginTimeUsec == 0) {
+      return;
+    }
+    buffer.add(
+        new Span(
+            name,
+            packetTimestamp,
+            beginTimeUsec,
+            nowUsec() - beginTimeUsec,
+            Thread.currentThread()));
+  }
+
+  /**
+   * Writes the recorded spans as a Chrome trace-event JSON file.
+   *
+   * @param file the output file.
+   * @param profiler the profiler of the graph whose calculator timings are merged with the spans
+   *     over the time range of the spans, or null to write the spans only.
+   * @throws IOException if the file can't be written.
+   */
+  public static void writeChromeTrace(File file, @Nullable GraphProfiler profiler)
+      throws IOException {
+    SpanBuffer buffer = spanBuffer;
+    List<Span> spans = buffer == null ? Collections.<Span>emptyList() : buffer.snapshot();
+    GraphTrace graphTrace = GraphTrace.getDefaultInstance();
+    if (profiler != null && !spans.isEmpty()) {
+      long beginTimeUsec = Long.MAX_VALUE;
+      for (Span span : spans) {
+        beginTimeUsec = Math.min(beginTimeUsec, span.beginTimeUsec);
+      }
+      graphTrace = profiler.getGraphTrace(beginTimeUsec, nowUsec() + 1);
+    }
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(toChromeTraceJson(spans, graphTrace));
+    }
+  }
+
+  static String toChromeTraceJson(List<Span> spans, GraphTrace graphTrace) {
+    List<TraceEvent> events = new ArrayList<>();
+    Map<Long, String> threadNames = new LinkedHashMap<>();
+    for (Span span : spans) {
+      threadNames.put(span.threadId, span.threadName);
+      events.add(
+          new TraceEvent(
+              span.name,
+              "java",
+              JAVA_PROCESS_ID,
+              span.threadId,
+              span.beginTimeUsec,
+              span.durationUsec,
+              span.packetTimestamp));
+    }
+    for (CalculatorTrace calculatorTrace : graphTrace.getCalculatorTraceList()) {
+      if (!calculatorTrace.hasStartTime() || !calculatorTrace.hasFinishTime()) {
+        continue;
+      }
+      int nodeId = calculatorTrace.getNodeId();
+      String name =
+          nodeId < graphTrace.getCalculatorNameCount()
+              ? graphTrace.getCalculatorName(nodeId)
+              : "node_" + nodeId;
+      boolean isProcess = calculatorTrace.getEventType() == GraphTrace.EventType.PROCESS;
+      events.add(
+          new TraceEvent(
+              name,
+              calculatorTrace.getEventType().name().toLowerCase(),
+              GRAPH_PROCESS_ID,
+              calculatorTrace.getThreadId(),
+              graphTrace.getBaseTime() + calculatorTrace.getStartTime(),
+              calculatorTrace.getFinishTime() - calculatorTrace.getStartTime(),
+              // Only Process() runs at the timestamp of a frame.
+              isProcess
+                  ? graphTrace.getBaseTimestamp() + calculatorTrace.getInputTimestamp()
+                  : null));
+    }
+    Collections.sort(
+        events,
+        new Comparator<TraceEvent>() {
+          @Override
+          public int compare(TraceEvent a, TraceEvent b) {
+            return Long.compare(a.beginTimeUsec, b.beginTimeUsec);
+          }
+        });
+
+    StringBuilder json = new StringBuilder("{\"traceEvents\":[");
+    appendProcessName(json, JAVA_PROCESS_ID, "Java");
+    json.append(',');
+    appendProcessName(json, GRAPH_PROCESS_ID, "MediaPipe graph");
+    for (Map.Entry<Long, String> threadName : threadNames.entrySet()) {
+      json.append(",{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":")
+          .append(JAVA_PROCESS_ID)
+          .append(",\"tid\":")
+          .append(threadName.getKey())
+          .append(",\"args\":{\"name\":");
+      JsonLinesGraphProfileSink.appendJsonString(json, threadName.getValue());
+      json.append("}}");
+    }
+    // Links the events of each frame in time order with a flow.
+    Map<Long, Integer> remainingFrameEvents = new HashMap<>();
+    for (TraceEvent event : events) {
+      if (event.packetTimestamp != null) {
+        Integer count = remainingFrameEvents.get(event.packetTimestamp);
+        remainingFrameEvents.put(event.packetTimestamp, count == null ? 1 : count + 1);
+      }
+    }
+    Map<Long, Boolean> startedFrames = new HashMap<>();
+    for (TraceEvent event : events) {
+      json.append(",{\"name\":");
+      JsonLinesGraphProfileSink.appendJsonString(json, event.name);
+      json.append(",\"cat\":\"")
+          .append(event.category)
+          .append("\",\"ph\":\"X\",\"pid\":")
+          .append(event.processId)
+          .append(",\"tid\":")
+          .append(event.threadId)
+          .append(",\"ts\":")
+          .append(event.beginTimeUsec)
+          .append(",\"dur\":")
+          .append(event.durationUsec);
+      if (event.packetTimestamp == null) {
+        json.append('}');
+        continue;
+      }
+      json.append(",\"args\":{\"packet_timestamp\":").append(event.packetTimestamp).append("}}");
+      int remaining = remainingFrameEvents.get(event.packetTimestamp) - 1;
+      remainingFrameEvents.put(event.packetTimestamp, remaining);
+      String phase;
+      if (startedFrames.put(event.packetTimestamp, true) == null) {
+        if (remaining == 0) {
+          // A single event doesn't need a flow.
+          continue;
+        }
+        phase = "s";
+      } else {
+        phase = remaining == 0 ? "f" : "t";
+      }
+      json.append(",{\"name\":\"frame\",\"cat\":\"frame\",\"ph\":\"")
+          .append(phase)
+          .append("\",\"bp\":\"e\",\"id\":")
+          .append(event.packetTimestamp)
+          .append(",\"pid\":")
+          .append(event.processId)
+          .append(",\"tid\":")
+          .append(event.threadId)
+          .append(",\"ts\":")
+          .append(event.beginTimeUsec)
+          .append('}');
+    }
+    return json.append("]}").toString();
+  }
+
+  private static void appendProcessName(StringBuilder json, int processId, String name) {
+    json.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":")
+        .append(processId)
+        .append(",\"args\":{\"name\":\"")
+        .append(name)
+        .append("\"}}");
+  }
+
+  private static long nowUsec() {
+    return EPOCH_TIME_USEC + (System.nanoTime() - EPOCH_NANO_TIME) / 1000;
+  }
+
+  /** A complete event of the Chrome trace. */
+  private static final class TraceEvent {
+    final String name;
+    final String category;
+    final int processId;
+    final long threadId;
+    final long beginTimeUsec;
+    final long durationUsec;
+    @Nullable final Long packetTimestamp;
+
+    TraceEvent(
+        String name,
+        String category,
+        int processId,
+        long threadId,
+        long beginTimeUsec,
+        long durationUsec,
+        @Nullable Long packetTimestamp) {
+      this.name = name;
+      this.category = category;
+      this.processId = processId;
+      this.threadId = threadId;
+      this.beginTimeUsec = beginTimeUsec;
+      this.durationUsec = durationUsec;
+      this.packetTimestamp = packetTimestamp;
+    }
+  }
+}
@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * MediaPipe-related context.
@@ -43,10 +45,12 @@ public class Graph {
   // The mode of running used by this context.
   // Based on the value of this mode, the caller can use {@link waitUntilIdle} to synchronize with
   // the mediapipe native graph runner.
-  private boolean stepMode = false;
+  private volatile boolean stepMode = false;
 
   private boolean startRunningGraphCalled = false;
   private boolean graphRunning = false;
+  // Identifies the current run of the graph, incremented each time the graph starts running.
+  private long runId = 0;
 
   /** Helper class for a buffered Packet and its timestamp. */
   private static class PacketBufferItem {
@@ -61,25 +65,30 @@ public class Graph {
 
   private Map<String, ArrayList<PacketBufferItem>> packetBuffers = new HashMap<>();
 
-  // This is used for methods that need to ensure the native context is alive
-  // while still allowing other methods of this class to execute concurrently.
-  // Note: if a method needs to acquire both this lock and the Graph intrinsic monitor,
-  // it must acquire the intrinsic monitor first.
-  private final Object terminationLock = new Object();
+  // Guards the lifecycle of the native context. The methods that set up, start, stop or tear down
+  // the graph hold the write lock, while the methods that only need the running graph to be alive,
+  // such as adding packets to it or waiting for it to be idle, share the read lock so that they
+  // don't block each other.
+  private final ReentrantReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
 
   public Graph() {
     nativeGraphHandle = nativeCreateGraph();
   }
 
-  public synchronized long getNativeHandle() {
-    return nativeGraphHandle;
+  public long getNativeHandle() {
+    lifecycleLock.readLock().lock();
+    try {
+      return nativeGraphHandle;
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
   }
 
-  public synchronized void setStepMode(boolean stepMode) {
+  public void setStepMode(boolean stepMode) {
     this.stepMode = stepMode;
   }
 
-  public synchronized boolean getStepMode() {
+  public boolean getStepMode() {
     return stepMode;
   }
 
@@ -89,37 +98,62 @@ public class Graph {
    * @param path An absolute file path to a mediapipe graph. An absolute file path can be obtained
    *     from asset file using {@link AssetCache}.
    */
-  public synchronized void loadBinaryGraph(String path) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    nativeLoadBinaryGraph(nativeGraphHandle, path);
+  public void loadBinaryGraph(String path) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      nativeLoadBinaryGraph(nativeGraphHandle, path);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /** Loads a binary mediapipe graph from a byte array. */
-  public synchronized void loadBinaryGraph(byte[] data) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    nativeLoadBinaryGraphBytes(nativeGraphHandle, data);
+  public void loadBinaryGraph(byte[] data) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      nativeLoadBinaryGraphBytes(nativeGraphHandle, data);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /** Specifies a CalculatorGraphConfig for a mediapipe graph or subgraph. */
-  public synchronized void loadBinaryGraph(CalculatorGraphConfig config) {
+  public void loadBinaryGraph(CalculatorGraphConfig config) {
     loadBinaryGraph(config.toByteArray());
   }
 
   /** Specifies a CalculatorGraphTemplate for a mediapipe graph or subgraph. */
-  public synchronized void loadBinaryGraphTemplate(CalculatorGraphTemplate template) {
-    nativeLoadBinaryGraphTemplate(nativeGraphHandle, template.toByteArray());
+  public void loadBinaryGraphTemplate(CalculatorGraphTemplate template) {
+    lifecycleLock.writeLock().lock();
+    try {
+      nativeLoadBinaryGraphTemplate(nativeGraphHandle, template.toByteArray());
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /** Specifies the CalculatorGraphConfig::type of the top level graph. */
-  public synchronized void setGraphType(String graphType) {
-    nativeSetGraphType(nativeGraphHandle, graphType);
+  public void setGraphType(String graphType) {
+    lifecycleLock.writeLock().lock();
+    try {
+      nativeSetGraphType(nativeGraphHandle, graphType);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /** Specifies options such as template arguments for the graph. */
-  public synchronized void setGraphOptions(CalculatorGraphConfig.Node options) {
-    nativeSetGraphOptions(nativeGraphHandle, options.toByteArray());
+  public void setGraphOptions(CalculatorGraphConfig.Node options) {
+    lifecycleLock.writeLock().lock();
+    try {
+      nativeSetGraphOptions(nativeGraphHandle, options.toByteArray());
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -128,25 +162,29 @@ public class Graph {
    * <p>Additionally allows specifying an extension registry so that proto extensions will be parsed
    * correctly.
    */
-  public synchronized CalculatorGraphConfig getCalculatorGraphConfig(
-      ExtensionRegistryLite registry) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    byte[] data = nativeGetCalculatorGraphConfig(nativeGraphHandle);
-    if (data != null) {
-      try {
-        return CalculatorGraphConfig.parseFrom(data, registry);
-      } catch (InvalidProtocolBufferException e) {
-        throw new RuntimeException(e);
+  public CalculatorGraphConfig getCalculatorGraphConfig(ExtensionRegistryLite registry) {
+    lifecycleLock.readLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      byte[] data = nativeGetCalculatorGraphConfig(nativeGraphHandle);
+      if (data != null) {
+        try {
+          return CalculatorGraphConfig.parseFrom(data, registry);
+        } catch (InvalidProtocolBufferException e) {
+          throw new RuntimeException(e);
+        }
       }
+      return null;
+    } finally {
+      lifecycleLock.readLock().unlock();
     }
-    return null;
   }
 
   /**
    * Returns the canonicalized CalculatorGraphConfig with subgraphs and graph templates expanded.
    */
-  public synchronized CalculatorGraphConfig getCalculatorGraphConfig() {
+  public CalculatorGraphConfig getCalculatorGraphConfig() {
     return getCalculatorGraphConfig(ProtoUtil.getExtensionRegistry());
   }
 
@@ -157,14 +195,19 @@ public class Graph {
    * @param callback The callback for handling the call when output stream gets a {@link Packet}.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void addPacketCallback(String streamName, PacketCallback callback) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    Preconditions.checkNotNull(streamName);
-    Preconditions.checkNotNull(callback);
-    Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
-    callbacks.add(callback);
-    nativeAddPacketCallback(nativeGraphHandle, streamName, callback);
+  public void addPacketCallback(String streamName, PacketCallback callback) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      Preconditions.checkNotNull(streamName);
+      Preconditions.checkNotNull(callback);
+      Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
+      callbacks.add(callback);
+      nativeAddPacketCallback(nativeGraphHandle, streamName, callback);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -175,8 +218,7 @@ public class Graph {
    *     streamNames get {@link Packet}.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void addMultiStreamCallback(
-      List<String> streamNames, PacketListCallback callback) {
+  public void addMultiStreamCallback(List<String> streamNames, PacketListCallback callback) {
     addMultiStreamCallback(streamNames, callback, false);
   }
 
@@ -191,15 +233,21 @@ public class Graph {
    *     corresponding output packet is immediately generated.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void addMultiStreamCallback(
+  public void addMultiStreamCallback(
       List<String> streamNames, PacketListCallback callback, boolean observeTimestampBounds) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    Preconditions.checkNotNull(streamNames);
-    Preconditions.checkNotNull(callback);
-    Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
-    callbacks.add(callback);
-    nativeAddMultiStreamCallback(nativeGraphHandle, streamNames, callback, observeTimestampBounds);
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      Preconditions.checkNotNull(streamNames);
+      Preconditions.checkNotNull(callback);
+      Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
+      callbacks.add(callback);
+      nativeAddMultiStreamCallback(
+          nativeGraphHandle, streamNames, callback, observeTimestampBounds);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -210,14 +258,19 @@ public class Graph {
    * @param streamName The output stream name in the graph.
    * @return a new SurfaceOutput.
    */
-  public synchronized SurfaceOutput addSurfaceOutput(String streamName) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    Preconditions.checkNotNull(streamName);
-    Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
-    // TODO: check if graph is loaded.
-    return new SurfaceOutput(
-        this, Packet.create(nativeAddSurfaceOutput(nativeGraphHandle, streamName)));
+  public SurfaceOutput addSurfaceOutput(String streamName) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      Preconditions.checkNotNull(streamName);
+      Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
+      // TODO: check if graph is loaded.
+      return new SurfaceOutput(
+          this, Packet.create(nativeAddSurfaceOutput(nativeGraphHandle, streamName)));
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -225,17 +278,27 @@ public class Graph {
    *
    * @param sidePackets MediaPipe input side packet name to {@link Packet} map.
    */
-  public synchronized void setInputSidePackets(Map<String, Packet> sidePackets) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
-    for (Map.Entry<String, Packet> entry : sidePackets.entrySet()) {
-      this.sidePackets.put(entry.getKey(), entry.getValue().copy());
+  public void setInputSidePackets(Map<String, Packet> sidePackets) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
+      for (Map.Entry<String, Packet> entry : sidePackets.entrySet()) {
+        this.sidePackets.put(entry.getKey(), entry.getValue().copy());
+      }
+    } finally {
+      lifecycleLock.writeLock().unlock();
     }
   }
 
-  public synchronized <T> void setServiceObject(GraphService<T> service, T object) {
-    service.installServiceObject(nativeGraphHandle, object);
+  public <T> void setServiceObject(GraphService<T> service, T object) {
+    lifecycleLock.writeLock().lock();
+    try {
+      service.installServiceObject(nativeGraphHandle, object);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -246,9 +309,14 @@ public class Graph {
    * graph is running, we need to have this to synchronize the running of graph with the
    * availability of the header streams.
    */
-  public synchronized void addStreamNameExpectingHeader(String streamName) {
-    Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
-    streamHeaders.put(streamName, null);
+  public void addStreamNameExpectingHeader(String streamName) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
+      streamHeaders.put(streamName, null);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -259,7 +327,7 @@ public class Graph {
    * <p>Note: If streamHeader is already being set, this call will not override the previous set
    * value. To override, call the function below instead.
    */
-  public synchronized void setStreamHeader(String streamName, Packet streamHeader) {
+  public void setStreamHeader(String streamName, Packet streamHeader) {
     setStreamHeader(streamName, streamHeader, false);
   }
 
@@ -271,24 +339,28 @@ public class Graph {
    * @param override if true, override the previous set header, however, if graph is running, {@link
    *     IllegalArgumentException} will be thrown.
    */
-  public synchronized void setStreamHeader(
-      String streamName, Packet streamHeader, boolean override) {
-    Packet header = streamHeaders.get(streamName);
-    if (header != null) {
-      if (override) {
-        if (graphRunning) {
-          throw new IllegalArgumentException(
-              "Can't override an existing stream header, after graph started running.");
+  public void setStreamHeader(String streamName, Packet streamHeader, boolean override) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Packet header = streamHeaders.get(streamName);
+      if (header != null) {
+        if (override) {
+          if (graphRunning) {
+            throw new IllegalArgumentException(
+                "Can't override an existing stream header, after graph started running.");
+          }
+          header.release();
+        } else {
+          // Don't override, so just return since header is set already.
+          return;
         }
-        header.release();
-      } else {
-        // Don't override, so just return since header is set already.
-        return;
       }
-    }
-    streamHeaders.put(streamName, streamHeader.copy());
-    if (!graphRunning && startRunningGraphCalled && hasAllStreamHeaders()) {
-      startRunningGraph();
+      streamHeaders.put(streamName, streamHeader.copy());
+      if (!graphRunning && startRunningGraphCalled && hasAllStreamHeaders()) {
+        startRunningGraph();
+      }
+    } finally {
+      lifecycleLock.writeLock().unlock();
     }
   }
 
@@ -298,14 +370,19 @@ public class Graph {
    * <p>Side packets that are needed by the graph should be set using {@link setInputSidePackets}.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void runGraphUntilClose() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    Preconditions.checkNotNull(sidePackets);
-    String[] streamNames = new String[sidePackets.size()];
-    long[] packets = new long[sidePackets.size()];
-    splitStreamNamePacketMap(sidePackets, streamNames, packets);
-    nativeRunGraphUntilClose(nativeGraphHandle, streamNames, packets);
+  public void runGraphUntilClose() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      Preconditions.checkNotNull(sidePackets);
+      String[] streamNames = new String[sidePackets.size()];
+      long[] packets = new long[sidePackets.size()];
+      splitStreamNamePacketMap(sidePackets, streamNames, packets);
+      nativeRunGraphUntilClose(nativeGraphHandle, streamNames, packets);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -316,33 +393,39 @@ public class Graph {
    * <p>Side packets that are needed by the graph should be set using {@link setInputSidePackets}.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void startRunningGraph() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    startRunningGraphCalled = true;
-    if (!hasAllStreamHeaders()) {
-      // Graph will be runned later when all stream headers are assembled.
-      logger.atInfo().log("MediaPipe graph won't start until all stream headers are available.");
-      return;
-    }
-    // Prepare the side packets.
-    String[] sidePacketNames = new String[sidePackets.size()];
-    long[] sidePacketHandles = new long[sidePackets.size()];
-    splitStreamNamePacketMap(sidePackets, sidePacketNames, sidePacketHandles);
-    // Prepare the Stream headers.
-    String[] streamNamesWithHeader = new String[streamHeaders.size()];
-    long[] streamHeaderHandles = new long[streamHeaders.size()];
-    splitStreamNamePacketMap(streamHeaders, streamNamesWithHeader, streamHeaderHandles);
-    nativeStartRunningGraph(
-        nativeGraphHandle,
-        sidePacketNames,
-        sidePacketHandles,
-        streamNamesWithHeader,
-        streamHeaderHandles);
-    // Packets can be buffered before the actual mediapipe graph starts. Send them in now, if we
-    // started successfully.
-    graphRunning = true;
-    moveBufferedPacketsToInputStream();
+  public void startRunningGraph() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      startRunningGraphCalled = true;
+      if (!hasAllStreamHeaders()) {
+        // Graph will be runned later when all stream headers are assembled.
+        logger.atInfo().log("MediaPipe graph won't start until all stream headers are available.");
+        return;
+      }
+      // Prepare the side packets.
+      String[] sidePacketNames = new String[sidePackets.size()];
+      long[] sidePacketHandles = new long[sidePackets.size()];
+      splitStreamNamePacketMap(sidePackets, sidePacketNames, sidePacketHandles);
+      // Prepare the Stream headers.
+      String[] streamNamesWithHeader = new String[streamHeaders.size()];
+      long[] streamHeaderHandles = new long[streamHeaders.size()];
+      splitStreamNamePacketMap(streamHeaders, streamNamesWithHeader, streamHeaderHandles);
+      nativeStartRunningGraph(
+          nativeGraphHandle,
+          sidePacketNames,
+          sidePacketHandles,
+          streamNamesWithHeader,
+          streamHeaderHandles);
+      // Packets can be buffered before the actual mediapipe graph starts. Send them in now, if we
+      // started successfully.
+      graphRunning = true;
+      ++runId;
+      moveBufferedPacketsToInputStream();
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -352,11 +435,16 @@ public class Graph {
    * not add a packet if any dependent input stream is full. To add a packet unconditionally, set
    * the maximum queue size to -1 in the graph config.
    */
-  public synchronized void setGraphInputStreamBlockingMode(boolean mode) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    Preconditions.checkState(!graphRunning);
-    nativeSetGraphInputStreamBlockingMode(nativeGraphHandle, mode);
+  public void setGraphInputStreamBlockingMode(boolean mode) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      Preconditions.checkState(!graphRunning);
+      nativeSetGraphInputStreamBlockingMode(nativeGraphHandle, mode);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
@@ -368,15 +456,19 @@ public class Graph {
    *     microsecond.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void addPacketToInputStream(
-      String streamName, Packet packet, long timestamp) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    if (!graphRunning) {
-      addPacketToBuffer(streamName, packet.copy(), timestamp);
-    } else {
-      nativeAddPacketToInputStream(
-          nativeGraphHandle, streamName, packet.getNativeHandle(), timestamp);
+  public void addPacketToInputStream(String streamName, Packet packet, long timestamp) {
+    Lock lock = lockForPacketAddition();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      if (!graphRunning) {
+        addPacketToBuffer(streamName, packet.copy(), timestamp);
+      } else {
+        nativeAddPacketToInputStream(
+            nativeGraphHandle, streamName, packet.getNativeHandle(), timestamp);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -393,22 +485,84 @@ public class Graph {
    *     microsecond.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void addConsumablePacketToInputStream(
-      String streamName, Packet packet, long timestamp) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    if (!graphRunning) {
-      addPacketToBuffer(streamName, packet.copy(), timestamp);
-      // Release current packet to honor move semantics.
-      packet.release();
-    } else {
+  public void addConsumablePacketToInputStream(String streamName, Packet packet, long timestamp) {
+    long spanBeginTimeUsec = FrameTracer.beginSpan();
+    Lock lock = lockForPacketAddition();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      if (!graphRunning) {
+        addPacketToBuffer(streamName, packet.copy(), timestamp);
+        // Release current packet to honor move semantics.
+        packet.release();
+      } else {
 
-      // We move the packet here into native, allowing it to take full control.
-      nativeMovePacketToInputStream(
-          nativeGraphHandle, streamName, packet.getNativeHandle(), timestamp);
-      // The Java handle is released now if the packet was successfully moved. Otherwise the Java
-      // handle continues to own the packet contents.
-      packet.release();
+        // We move the packet here into native, allowing it to take full control.
+        nativeMovePacketToInputStream(
+            nativeGraphHandle, streamName, packet.getNativeHandle(), timestamp);
+        // The Java handle is released now if the packet was successfully moved. Otherwise the Java
+        // handle continues to own the packet contents.
+        packet.release();
+      }
+    } finally {
+      lock.unlock();
+      FrameTracer.endSpan("Graph.addConsumablePacketToInputStream", timestamp, spanBeginTimeUsec);
+    }
+  }
+
+  /**
+   * Adds packets into several graph input streams at the same timestamp in a single native call,
+   * and yields their ownership over to the graph streams like {@link
+   * #addConsumablePacketToInputStream}. When the function ends normally, all the packets will be
+   * consumed and should no longer be referenced.
+   *
+   * <p>The stream names and the timestamp are checked before any packet is added, so an unknown or
+   * duplicated stream name, or a reserved timestamp, fails without consuming any packet. The
+   * addition itself isn't atomic though: when a later failure happens, for example a timestamp that
+   * doesn't increase in one of the streams or a full stream, the packets that were added before the
+   * failure are consumed and the remaining packets are unaffected.
+   *
+   * @param streamNames the names of the input streams.
+   * @param packets the mediapipe packets, one per input stream.
+   * @param timestamp the timestamp of the packets, although not enforced, the unit is normally
+   *     microsecond.
+   * @throws MediaPipeException for any error status.
+   */
+  public void addConsumablePacketsToInputStreams(
+      String[] streamNames, Packet[] packets, long timestamp) {
+    long spanBeginTimeUsec = FrameTracer.beginSpan();
+    Lock lock = lockForPacketAddition();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      Preconditions.checkArgument(
+          streamNames.length == packets.length, "Number of streams and packets doesn't match.");
+      if (!graphRunning) {
+        for (int i = 0; i < packets.length; ++i) {
+          addPacketToBuffer(streamNames[i], packets[i].copy(), timestamp);
+          // Release current packet to honor move semantics.
+          packets[i].release();
+        }
+        return;
+      }
+      long[] packetHandles = new long[packets.length];
+      for (int i = 0; i < packets.length; ++i) {
+        packetHandles[i] = packets[i].getNativeHandle();
+      }
+      try {
+        nativeMovePacketsToInputStreams(nativeGraphHandle, streamNames, packetHandles, timestamp);
+      } finally {
+        // The native call resets the handles of the packets that were moved into the graph.
+        for (int i = 0; i < packets.length; ++i) {
+          if (packetHandles[i] == 0) {
+            packets[i].release();
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
+      FrameTracer.endSpan(
+          "Graph.addConsumablePacketsToInputStreams", timestamp, spanBeginTimeUsec);
     }
   }
 
@@ -416,81 +570,112 @@ public class Graph {
    * Closes the specified input stream.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void closeInputStream(String streamName) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    nativeCloseInputStream(nativeGraphHandle, streamName);
+  public void closeInputStream(String streamName) {
+    lifecycleLock.readLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      nativeCloseInputStream(nativeGraphHandle, streamName);
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
   }
 
   /**
    * Closes all the input streams in the mediapipe graph.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void closeAllInputStreams() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    nativeCloseAllInputStreams(nativeGraphHandle);
+  public void closeAllInputStreams() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      nativeCloseAllInputStreams(nativeGraphHandle);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
    * Closes all the input streams and source calculators in the mediapipe graph.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void closeAllPacketSources() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    nativeCloseAllPacketSources(nativeGraphHandle);
+  public void closeAllPacketSources() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      nativeCloseAllPacketSources(nativeGraphHandle);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
    * Waits until the graph is done processing.
    *
-   * <p>This should be called after all sources and input streams are closed.
+   * <p>This should be called after all sources and input streams are closed. Once it returns, the
+   * graph is no longer running, and the packets added to it are buffered until it's started again.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void waitUntilGraphDone() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    nativeWaitUntilGraphDone(nativeGraphHandle);
+  public void waitUntilGraphDone() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      nativeWaitUntilGraphDone(nativeGraphHandle);
+    } finally {
+      // The native graph is released once it's done, even if it failed.
+      graphRunning = false;
+      startRunningGraphCalled = false;
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
    * Waits until the graph runner is idle.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void waitUntilGraphIdle() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
-    nativeWaitUntilGraphIdle(nativeGraphHandle);
+  public void waitUntilGraphIdle() {
+    lifecycleLock.readLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+      nativeWaitUntilGraphIdle(nativeGraphHandle);
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
   }
 
   /** Releases the native mediapipe context. */
-  public synchronized void tearDown() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    for (Map.Entry<String, Packet> entry : sidePackets.entrySet()) {
-      entry.getValue().release();
-    }
-    sidePackets.clear();
-    for (Map.Entry<String, Packet> entry : streamHeaders.entrySet()) {
-      if (entry.getValue() != null) {
+  public void tearDown() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      for (Map.Entry<String, Packet> entry : sidePackets.entrySet()) {
         entry.getValue().release();
       }
-    }
-    streamHeaders.clear();
-    for (Map.Entry<String, ArrayList<PacketBufferItem>> entry : packetBuffers.entrySet()) {
-      for (PacketBufferItem item : entry.getValue()) {
-        item.packet.release();
+      sidePackets.clear();
+      for (Map.Entry<String, Packet> entry : streamHeaders.entrySet()) {
+        if (entry.getValue() != null) {
+          entry.getValue().release();
+        }
       }
-    }
-    packetBuffers.clear();
-    synchronized (terminationLock) {
-      if (nativeGraphHandle != 0) {
-        nativeReleaseGraph(nativeGraphHandle);
-        nativeGraphHandle = 0;
+      streamHeaders.clear();
+      for (Map.Entry<String, ArrayList<PacketBufferItem>> entry : packetBuffers.entrySet()) {
+        for (PacketBufferItem item : entry.getValue()) {
+          item.packet.release();
+        }
       }
+      packetBuffers.clear();
+      PacketLeakTracker.onGraphTearDown(nativeGraphHandle);
+      nativeReleaseGraph(nativeGraphHandle);
+      nativeGraphHandle = 0;
+      callbacks.clear();
+    } finally {
+      lifecycleLock.writeLock().unlock();
     }
-    callbacks.clear();
   }
 
   /**
@@ -505,11 +690,16 @@ public class Graph {
    * @param referencePacket a mediapipe packet that has the value type Packet*.
    * @param newPacket the new value for the reference packet to hold.
    */
-  public synchronized void updatePacketReference(Packet referencePacket, Packet newPacket) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    nativeUpdatePacketReference(
-        referencePacket.getNativeHandle(), newPacket.getNativeHandle());
+  public void updatePacketReference(Packet referencePacket, Packet newPacket) {
+    lifecycleLock.readLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      nativeUpdatePacketReference(
+          referencePacket.getNativeHandle(), newPacket.getNativeHandle());
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
   }
 
   /**
@@ -522,7 +712,7 @@ public class Graph {
    *     from that, GL is set up automatically.
    */
   @Deprecated
-  public synchronized void createGlRunner(String name, long javaGlContext) {
+  public void createGlRunner(String name, long javaGlContext) {
     Preconditions.checkState(
         nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
     Preconditions.checkArgument(name.equals("gpu_shared"));
@@ -536,27 +726,77 @@ public class Graph {
    * <p>Cannot be called after the graph has been started.
    * @throws MediaPipeException for any error status.
    */
-  public synchronized void setParentGlContext(long javaGlContext) {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    Preconditions.checkState(!graphRunning);
-    nativeSetParentGlContext(nativeGraphHandle, javaGlContext);
+  public void setParentGlContext(long javaGlContext) {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      Preconditions.checkState(!graphRunning);
+      nativeSetParentGlContext(nativeGraphHandle, javaGlContext);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
   /**
    * Cancels the running graph.
    */
-  public synchronized void cancelGraph() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    nativeCancelGraph(nativeGraphHandle);
+  public void cancelGraph() {
+    lifecycleLock.writeLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      nativeCancelGraph(nativeGraphHandle);
+    } finally {
+      lifecycleLock.writeLock().unlock();
+    }
   }
 
-  /** Returns {@link GraphProfiler}. */
+  /**
+   * Returns the {@link GraphProfiler} of the current graph run. The profiler can only be used while
+   * the graph is running, and not once the run has stopped.
+   */
   public GraphProfiler getProfiler() {
-    Preconditions.checkState(
-        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
-    return new GraphProfiler(nativeGetProfiler(nativeGraphHandle), this);
+    lifecycleLock.readLock().lock();
+    try {
+      Preconditions.checkState(
+          nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+      return new GraphProfiler(nativeGetProfiler(nativeGraphHandle), this, runId);
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
+  }
+
+  /** Returns the lock that keeps the native context alive, for the helper classes of the graph. */
+  Lock getLifecycleReadLock() {
+    return lifecycleLock.readLock();
+  }
+
+  /**
+   * Returns true if the graph is still in the given run. Must be called with the lifecycle lock
+   * held.
+   */
+  boolean isInRun(long runId) {
+    return nativeGraphHandle != 0 && graphRunning && this.runId == runId;
+  }
+
+  /**
+   * Acquires the lock for adding packets to the graph. Once the graph is running, the native graph
+   * accepts packets concurrently, so the read lock is enough. Before that, the packets are buffered
+   * in Java, which requires the write lock.
+   */
+  private Lock lockForPacketAddition() {
+    Lock readLock = lifecycleLock.readLock();
+    readLock.lock();
+    // The graph only stops running under the write lock, so it keeps running while the read lock
+    // is held.
+    if (graphRunning) {
+      return readLock;
+    }
+    readLock.unlock();
+    Lock writeLock = lifecycleLock.writeLock();
+    writeLock.lock();
+    return writeLock;
   }
 
   private boolean addPacketToBuffer(String streamName, Packet packet, long timestamp) {
@@ -662,6 +902,9 @@ public class Graph {
   private native void nativeMovePacketToInputStream(
       long context, String streamName, long packet, long timestamp);
 
+  private native void nativeMovePacketsToInputStreams(
+      long context, String[] streamNames, long[] packets, long timestamp);
+
   private native void nativeSetGraphInputStreamBlockingMode(long context, boolean mode);
 
   private native void nativeCloseInputStream(long context, String streamName);
@@ -0,0 +1,113 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The calculator activity of a graph over one sampling interval of a {@link GraphProfileSampler}.
+ */
+public final class GraphProfileReport {
+  /** The activity of a single calculator over the sampling interval. */
+  public static final class CalculatorDelta {
+    private final String calculatorName;
+    private final long processCalls;
+    private final long processTimeUsec;
+    private final long openTimeUsec;
+    private final long closeTimeUsec;
+    private final long histogramIntervalUsec;
+    private final long[] processTimeHistogram;
+
+    CalculatorDelta(
+        String calculatorName,
+        long processCalls,
+        long processTimeUsec,
+        long openTimeUsec,
+        long closeTimeUsec,
+        long histogramIntervalUsec,
+        long[] processTimeHistogram) {
+      this.calculatorName = calculatorName;
+      this.processCalls = processCalls;
+      this.processTimeUsec = processTimeUsec;
+      this.openTimeUsec = openTimeUsec;
+      this.closeTimeUsec = closeTimeUsec;
+      this.histogramIntervalUsec = histogramIntervalUsec;
+      this.processTimeHistogram = processTimeHistogram;
+    }
+
+    /** Returns the name of the calculator. */
+    public String getCalculatorName() {
+      return calculatorName;
+    }
+
+    /** Returns the number of Process() calls during the interval. */
+    public long getProcessCalls() {
+      return processCalls;
+    }
+
+    /** Returns the total time spent in Process() during the interval, in microseconds. */
+    public long getProcessTimeUsec() {
+      return processTimeUsec;
+    }
+
+    /** Returns the time the calculator spent in Open(), in microseconds. */
+    public long getOpenTimeUsec() {
+      return openTimeUsec;
+    }
+
+    /** Returns the time the calculator spent in Close(), in microseconds. */
+    public long getCloseTimeUsec() {
+      return closeTimeUsec;
+    }
+
+    /** Returns the width of the buckets of the Process() time histogram, in microseconds. */
+    public long getHistogramIntervalUsec() {
+      return histogramIntervalUsec;
+    }
+
+    /**
+     * Returns the number of Process() calls during the interval in each bucket of the Process()
+     * time histogram. The last bucket extends to infinity.
+     */
+    public long[] getProcessTimeHistogram() {
+      return processTimeHistogram.clone();
+    }
+  }
+
+  private final long timestampMs;
+  private final long intervalMs;
+  private final List<CalculatorDelta> calculatorDeltas;
+
+  GraphProfileReport(long timestampMs, long intervalMs, List<CalculatorDelta> calculatorDeltas) {
+    this.timestampMs = timestampMs;
+    this.intervalMs = intervalMs;
+    this.calculatorDeltas = Collections.unmodifiableList(calculatorDeltas);
+  }
+
+  /** Returns the wall-clock time at the end of the interval, in milliseconds since the epoch. */
+  public long getTimestampMs() {
+    return timestampMs;
+  }
+
+  /** Returns the length of the interval in milliseconds. */
+  public long getIntervalMs() {
+    return intervalMs;
+  }
+
+  /** Returns the activity of each calculator of the graph during the interval. */
+  public List<CalculatorDelta> getCalculatorDeltas() {
+    return calculatorDeltas;
+  }
+}
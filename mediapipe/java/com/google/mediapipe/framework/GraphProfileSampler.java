@@ -0,0 +1,219 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.mediapipe.proto.CalculatorProfileProto.CalculatorProfile;
+import com.google.mediapipe.proto.CalculatorProfileProto.TimeHistogram;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples a {@link GraphProfiler} and publishes the per-calculator deltas to a list
+ * of {@link GraphProfileSink}s.
+ *
+ * <p>Every sample reports the Process() calls, the Process() time and the Process() time histogram
+ * of each calculator since the previous sample, so that regressions under load show up without
+ * resetting the profiler. A {@link GraphProfiler#reset} between two samples is detected and the
+ * counts since the reset are reported.
+ *
+ * <p>The graph must be configured with {@code profiler_config { enable_profiler: true }} for the
+ * profiles to be collected.
+ */
+public final class GraphProfileSampler implements AutoCloseable {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final GraphProfiler profiler;
+  private final List<GraphProfileSink> sinks;
+  private final long intervalMs;
+  private final ScheduledExecutorService executor;
+  // The cumulative profiles of the previous sample, keyed by calculator name.
+  private Map<String, CalculatorProfile> previousProfiles = new HashMap<>();
+  private long previousSampleTimeMs;
+  private boolean started = false;
+  private boolean closed = false;
+
+  /**
+   * Creates a {@link GraphProfileSampler} instance. Call {@link #start} to start sampling.
+   *
+   * @param profiler the {@link GraphProfiler} of the graph to sample.
+   * @param intervalMs the sampling interval in milliseconds, must be > 0.
+   * @param sinks the sinks that receive the reports. They are closed along with the sampler.
+   */
+  public GraphProfileSampler(
+      GraphProfiler profiler, long intervalMs, List<GraphProfileSink> sinks) {
+    if (intervalMs <= 0) {
+      throw new IllegalArgumentException("The sampling interval should be greater than 0.");
+    }
+    this.profiler = profiler;
+    this.intervalMs = intervalMs;
+    this.sinks = new ArrayList<>(sinks);
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "GraphProfileSampler");
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+  }
+
+  /** Takes the baseline sample and starts publishing a report every interval. */
+  public synchronized void start() {
+    if (started || closed) {
+      return;
+    }
+    started = true;
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            takeBaseline();
+          }
+        });
+    executor.scheduleAtFixedRate(
+        new Runnable() {
+          @Override
+          public void run() {
+            sample();
+          }
+        },
+        intervalMs,
+        intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops sampling, publishes a last report, and closes the sinks. The graph must still be alive
+   * for the last report to be published.
+   */
+  @Override
+  public void close() {
+    boolean wasStarted;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      wasStarted = started;
+    }
+    executor.shutdown();
+    try {
+      // Lets a sample in progress publish its report before the sinks are closed.
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (wasStarted) {
+      sample();
+    }
+    for (GraphProfileSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to close a graph profile sink.");
+      }
+    }
+  }
+
+  private synchronized void takeBaseline() {
+    try {
+      previousProfiles = indexByName(profiler.getCalculatorProfiles());
+      previousSampleTimeMs = System.currentTimeMillis();
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log("Failed to sample the graph profiler.");
+    }
+  }
+
+  private synchronized void sample() {
+    List<CalculatorProfile> profiles;
+    try {
+      profiles = profiler.getCalculatorProfiles();
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log("Failed to sample the graph profiler.");
+      if (e instanceof IllegalStateException) {
+        // The graph has been torn down.
+        executor.shutdown();
+      }
+      return;
+    }
+    long sampleTimeMs = System.currentTimeMillis();
+    List<GraphProfileReport.CalculatorDelta> deltas = new ArrayList<>(profiles.size());
+    for (CalculatorProfile profile : profiles) {
+      deltas.add(computeDelta(profile, previousProfiles.get(profile.getName())));
+    }
+    GraphProfileReport report =
+        new GraphProfileReport(sampleTimeMs, sampleTimeMs - previousSampleTimeMs, deltas);
+    previousProfiles = indexByName(profiles);
+    previousSampleTimeMs = sampleTimeMs;
+    for (GraphProfileSink sink : sinks) {
+      try {
+        sink.publish(report);
+      } catch (IOException | RuntimeException e) {
+        logger.atWarning().withCause(e).log("Failed to publish a graph profile report.");
+      }
+    }
+  }
+
+  /**
+   * Computes the activity of a calculator since its previous profile, or since the profiler reset
+   * if the counters of the current profile are lower.
+   */
+  static GraphProfileReport.CalculatorDelta computeDelta(
+      CalculatorProfile current, CalculatorProfile previous) {
+    TimeHistogram currentRuntime = current.getProcessRuntime();
+    TimeHistogram previousRuntime =
+        previous == null ? TimeHistogram.getDefaultInstance() : previous.getProcessRuntime();
+    long[] histogram = new long[currentRuntime.getCountCount()];
+    // The profiler has been reset since the previous sample if any of its counters decreased.
+    boolean wasReset =
+        previousRuntime.getCountCount() != histogram.length
+            || previousRuntime.getTotal() > currentRuntime.getTotal();
+    for (int i = 0; i < histogram.length && !wasReset; ++i) {
+      wasReset = previousRuntime.getCount(i) > currentRuntime.getCount(i);
+    }
+    long calls = 0;
+    for (int i = 0; i < histogram.length; ++i) {
+      histogram[i] = currentRuntime.getCount(i) - (wasReset ? 0 : previousRuntime.getCount(i));
+      calls += histogram[i];
+    }
+    long processTimeUsec =
+        currentRuntime.getTotal() - (wasReset ? 0 : previousRuntime.getTotal());
+    return new GraphProfileReport.CalculatorDelta(
+        current.getName(),
+        calls,
+        processTimeUsec,
+        current.getOpenRuntime(),
+        current.getCloseRuntime(),
+        currentRuntime.getIntervalSizeUsec(),
+        histogram);
+  }
+
+  private static Map<String, CalculatorProfile> indexByName(List<CalculatorProfile> profiles) {
+    Map<String, CalculatorProfile> profilesByName = new HashMap<>();
+    for (CalculatorProfile profile : profiles) {
+      profilesByName.put(profile.getName(), profile);
+    }
+    return profilesByName;
+  }
+}
@@ -0,0 +1,25 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import java.io.IOException;
+
+/** Receives the periodic reports of a {@link GraphProfileSampler}. */
+public interface GraphProfileSink {
+  /** Publishes a report. Called on the sampler thread. */
+  void publish(GraphProfileReport report) throws IOException;
+
+  /** Releases the resources of the sink once the sampler is stopped. */
+  void close() throws IOException;
+}
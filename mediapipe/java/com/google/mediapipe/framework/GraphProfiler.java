@@ -16,56 +16,95 @@ package com.google.mediapipe.framework;
 
 import com.google.common.base.Preconditions;
 import com.google.mediapipe.proto.CalculatorProfileProto.CalculatorProfile;
+import com.google.mediapipe.proto.CalculatorProfileProto.GraphTrace;
+import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
-/** MediaPipe Profiler Java API. */
+/**
+ * MediaPipe Profiler Java API.
+ *
+ * <p>A profiler can only be used while the graph run during which it was obtained is running. Its
+ * methods throw {@link IllegalStateException} if it was obtained before the graph started running,
+ * and once the run has stopped, e.g. after {@link Graph#waitUntilGraphDone} or {@link
+ * Graph#tearDown}. Obtain a new profiler from {@link Graph#getProfiler} after restarting the graph.
+ */
 public class GraphProfiler {
   private final long nativeProfilerHandle;
   private final Graph mediapipeGraph;
+  // The run of the graph that owns the native profiler.
+  private final long graphRunId;
 
-  GraphProfiler(long nativeProfilerHandle, Graph mediapipeGraph) {
+  GraphProfiler(long nativeProfilerHandle, Graph mediapipeGraph, long graphRunId) {
     Preconditions.checkState(
           nativeProfilerHandle != 0,
           "Invalid profiler, tearDown() might have been called already.");
     this.nativeProfilerHandle = nativeProfilerHandle;
     this.mediapipeGraph = mediapipeGraph;
+    this.graphRunId = graphRunId;
   }
 
   /**
    * Resets all the calculator profilers in the graph. This only resets the information about
    * Process() and does NOT affect information for Open() and Close() methods.
+   *
+   * @throws IllegalStateException if the graph run of the profiler isn't running.
    */
   public void reset() {
-    synchronized (mediapipeGraph) {
+    Lock lock = mediapipeGraph.getLifecycleReadLock();
+    lock.lock();
+    try {
       checkContext();
       nativeReset(nativeProfilerHandle);
+    } finally {
+      lock.unlock();
     }
   }
 
-  /** Resumes all the calculator profilers in the graph. No-op if already profiling. */
+  /**
+   * Resumes all the calculator profilers in the graph. No-op if already profiling.
+   *
+   * @throws IllegalStateException if the graph run of the profiler isn't running.
+   */
   public void resume() {
-    synchronized (mediapipeGraph) {
+    Lock lock = mediapipeGraph.getLifecycleReadLock();
+    lock.lock();
+    try {
       checkContext();
       nativeResume(nativeProfilerHandle);
+    } finally {
+      lock.unlock();
     }
   }
 
-  /** Pauses all the calculator profilers in the graph. No-op if already paused. */
+  /**
+   * Pauses all the calculator profilers in the graph. No-op if already paused.
+   *
+   * @throws IllegalStateException if the graph run of the profiler isn't running.
+   */
   public void pause() {
-    synchronized (mediapipeGraph) {
+    Lock lock = mediapipeGraph.getLifecycleReadLock();
+    lock.lock();
+    try {
       checkContext();
       nativePause(nativeProfilerHandle);
+    } finally {
+      lock.unlock();
     }
   }
 
   /**
    * Collects the runtime profile for Open(), Process(), and Close() of each calculator in the
-   * graph. May be called at any time after the graph has been initialized.
+   * graph. May be called at any time while the graph run of the profiler is running.
+   *
+   * @throws IllegalStateException if the graph run of the profiler isn't running.
    */
   public List<CalculatorProfile> getCalculatorProfiles() {
-    synchronized (mediapipeGraph) {
+    Lock lock = mediapipeGraph.getLifecycleReadLock();
+    lock.lock();
+    try {
       checkContext();
       byte[][] profileBytes = nativeGetCalculatorProfiles(nativeProfilerHandle);
       List<CalculatorProfile> profileList = new ArrayList<>();
@@ -81,13 +120,54 @@ public class GraphProfiler {
         }
       }
       return profileList;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Collects the trace events of the calculators in the graph that were recorded between the given
+   * times, in microseconds since the Unix epoch. The calculator names of the trace are filled from
+   * the graph config. The trace is empty unless the tracer is enabled by {@code trace_enabled} in
+   * the {@code profiler_config} of the graph.
+   *
+   * @param beginTimeUsec the start of the time range, inclusive.
+   * @param endTimeUsec the end of the time range, exclusive.
+   * @throws IllegalStateException if the graph run of the profiler isn't running.
+   */
+  public GraphTrace getGraphTrace(long beginTimeUsec, long endTimeUsec) {
+    GraphTrace trace;
+    Lock lock = mediapipeGraph.getLifecycleReadLock();
+    lock.lock();
+    try {
+      checkContext();
+      byte[] traceBytes = nativeGetGraphTrace(nativeProfilerHandle, beginTimeUsec, endTimeUsec);
+      if (traceBytes == null) {
+        return GraphTrace.getDefaultInstance();
+      }
+      try {
+        trace = GraphTrace.parseFrom(traceBytes);
+      } catch (InvalidProtocolBufferException e) {
+        throw new RuntimeException(e);
+      }
+    } finally {
+      lock.unlock();
+    }
+    // The node ids of the trace index the nodes of the expanded graph config.
+    GraphTrace.Builder traceBuilder = trace.toBuilder().clearCalculatorName();
+    CalculatorGraphConfig config = mediapipeGraph.getCalculatorGraphConfig();
+    for (CalculatorGraphConfig.Node node : config.getNodeList()) {
+      traceBuilder.addCalculatorName(
+          node.getName().isEmpty() ? node.getCalculator() : node.getName());
     }
+    return traceBuilder.build();
   }
 
   private void checkContext() {
+    // The native profiler is released with the graph run it belongs to.
     Preconditions.checkState(
-        mediapipeGraph.getNativeHandle() != 0,
-        "Invalid context, tearDown() might have been called already.");
+        mediapipeGraph.isInRun(graphRunId),
+        "Invalid profiler, the graph has stopped running since the profiler was created.");
   }
 
   private native void nativeReset(long profilingContextHandle);
@@ -97,4 +177,7 @@ public class GraphProfiler {
   private native void nativePause(long profilingContextHandle);
 
   private native byte[][] nativeGetCalculatorProfiles(long profilingContextHandle);
+
+  private native byte[] nativeGetGraphTrace(
+      long profilingContextHandle, long beginTimeUsec, long endTimeUsec);
 }
@@ -0,0 +1,134 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link GraphProfileSink} that appends every report as a line of JSON to a file.
+ *
+ * <p>When the file would grow beyond its maximum size, it is renamed with a ".1" suffix, replacing
+ * the previous one, and a new file is started. The disk usage is therefore bounded by twice the
+ * maximum file size.
+ */
+public final class JsonLinesGraphProfileSink implements GraphProfileSink {
+  private final File file;
+  private final File rolledFile;
+  private final long maxFileBytes;
+  private OutputStream output;
+  private long fileBytes;
+
+  /**
+   * Creates a {@link JsonLinesGraphProfileSink} instance that appends to the given file.
+   *
+   * @param file the file to append the reports to.
+   * @param maxFileBytes the size after which the file is rolled over, must be > 0.
+   */
+  public JsonLinesGraphProfileSink(File file, long maxFileBytes) throws IOException {
+    if (maxFileBytes <= 0) {
+      throw new IllegalArgumentException("The maximum file size should be greater than 0.");
+    }
+    this.file = file;
+    this.rolledFile = new File(file.getPath() + ".1");
+    this.maxFileBytes = maxFileBytes;
+    this.output = new FileOutputStream(file, /* append= */ true);
+    this.fileBytes = file.length();
+  }
+
+  @Override
+  public synchronized void publish(GraphProfileReport report) throws IOException {
+    byte[] line = (toJson(report) + "\n").getBytes(StandardCharsets.UTF_8);
+    if (fileBytes > 0 && fileBytes + line.length > maxFileBytes) {
+      rollOver();
+    }
+    output.write(line);
+    output.flush();
+    fileBytes += line.length;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    output.close();
+  }
+
+  private void rollOver() throws IOException {
+    output.close();
+    if (rolledFile.exists() && !rolledFile.delete()) {
+      throw new IOException("Failed to delete " + rolledFile);
+    }
+    if (!file.renameTo(rolledFile)) {
+      throw new IOException("Failed to rename " + file + " to " + rolledFile);
+    }
+    output = new FileOutputStream(file, /* append= */ false);
+    fileBytes = 0;
+  }
+
+  /** Returns the single-line JSON representation of a report. */
+  static String toJson(GraphProfileReport report) {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"timestamp_ms\":")
+        .append(report.getTimestampMs())
+        .append(",\"interval_ms\":")
+        .append(report.getIntervalMs())
+        .append(",\"calculators\":[");
+    boolean first = true;
+    for (GraphProfileReport.CalculatorDelta delta : report.getCalculatorDeltas()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      json.append("{\"name\":");
+      appendJsonString(json, delta.getCalculatorName());
+      json.append(",\"process_calls\":")
+          .append(delta.getProcessCalls())
+          .append(",\"process_time_usec\":")
+          .append(delta.getProcessTimeUsec())
+          .append(",\"open_time_usec\":")
+          .append(delta.getOpenTimeUsec())
+          .append(",\"close_time_usec\":")
+          .append(delta.getCloseTimeUsec())
+          .append(",\"histogram_interval_usec\":")
+          .append(delta.getHistogramIntervalUsec())
+          .append(",\"process_time_histogram\":[");
+      long[] histogram = delta.getProcessTimeHistogram();
+      for (int i = 0; i < histogram.length; ++i) {
+        if (i > 0) {
+          json.append(',');
+        }
+        json.append(histogram[i]);
+      }
+      json.append("]}");
+    }
+    return json.append("]}").toString();
+  }
+
+  static void appendJsonString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+}
@@ -27,6 +27,8 @@ package com.google.mediapipe.framework;
 public class Packet {
   // Points to a native Packet.
   private long nativePacketHandle;
+  // Non-null while the packet is tracked by PacketLeakTracker.
+  private PacketLeakTracker.Sentinel leakSentinel;
 
   /**
    * Creates a Java packet from a native mediapipe packet handle.
@@ -34,6 +36,20 @@ public class Packet {
    * Returns a Packet from a native internal::PacketWithContext handle.
    */
   public static Packet create(long nativeHandle) {
+    Packet packet = new Packet(nativeHandle);
+    if (PacketLeakTracker.isEnabled() && nativeHandle != 0) {
+      packet.leakSentinel = PacketLeakTracker.track(packet);
+    }
+    return packet;
+  }
+
+  /**
+   * Creates a Java packet for a graph callback from a native internal::PacketWithContext handle.
+   *
+   * <p>The graph releases the native packet once the callback returns, without calling {@link
+   * #release}, so the packet is not tracked by {@link PacketLeakTracker}.
+   */
+  static Packet createForCallback(long nativeHandle) {
     return new Packet(nativeHandle);
   }
 
@@ -60,7 +76,7 @@ public class Packet {
    *     native mediapipe packet.
    */
   public Packet copy() {
-    return new Packet(nativeCopyPacket(nativePacketHandle));
+    return create(nativeCopyPacket(nativePacketHandle));
   }
 
   /**
@@ -74,6 +90,25 @@ public class Packet {
       nativeReleasePacket(nativePacketHandle);
       nativePacketHandle = 0;
     }
+    if (leakSentinel != null) {
+      PacketLeakTracker.untrack(leakSentinel);
+      leakSentinel = null;
+    }
+  }
+
+  /** Returns the native handle of the graph that owns the packet. */
+  long getGraphHandle() {
+    return nativeGetGraphHandle(nativePacketHandle);
+  }
+
+  /**
+   * Returns the estimated size of the packet payload in bytes, or 0 if it can't be estimated.
+   *
+   * <p>The size is only estimated for images and matrices. The size of a GPU image is estimated
+   * from its dimensions and format, without reading the image back to the CPU.
+   */
+  public long getPayloadSizeBytes() {
+    return nativeGetPayloadSizeBytes(nativePacketHandle);
   }
 
   // Packet is not intended to be constructed directly.
@@ -86,6 +121,10 @@ public class Packet {
 
   private native long nativeCopyPacket(long packetHandle);
 
+  private native long nativeGetGraphHandle(long packetHandle);
+
+  private native long nativeGetPayloadSizeBytes(long packetHandle);
+
   private native long nativeGetTimestamp(long packetHandle);
 
   private native boolean nativeIsEmpty(long packetHandle);
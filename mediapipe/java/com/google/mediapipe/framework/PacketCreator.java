@@ -17,6 +17,7 @@ package com.google.mediapipe.framework;
 import com.google.mediapipe.framework.ProtoUtil.SerializedMessage;
 import com.google.protobuf.MessageLite;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
 // TODO: use Preconditions in this file.
@@ -91,7 +92,7 @@ public class PacketCreator {
    */
   public Packet createAudioPacket(ByteBuffer data, int numChannels, int numSamples) {
     checkAudioDataSize(data.remaining(), numChannels, numSamples);
-    if (data.isDirect()) {
+    if (data.isDirect() && data.order() == ByteOrder.nativeOrder()) {
       return Packet.create(
           nativeCreateAudioPacketDirect(
               mediapipeGraph.getNativeHandle(), data.slice(), numChannels, numSamples));
@@ -218,7 +219,7 @@ public class PacketCreator {
   }
 
   public Packet createInt32Vector(int[] data) {
-    throw new UnsupportedOperationException("Not implemented yet");
+    return Packet.create(nativeCreateInt32Vector(mediapipeGraph.getNativeHandle(), data));
   }
 
   public Packet createInt64Vector(long[] data) {
@@ -270,6 +271,35 @@ public class PacketCreator {
     return Packet.create(nativeCreateMatrix(mediapipeGraph.getNativeHandle(), rows, cols, data));
   }
 
+  /**
+   * Creates a mediapipe::Matrix packet from the remaining floats of the buffer in column major
+   * order. The buffer position is not changed.
+   *
+   * <p>Use {@link ByteBuffer#allocateDirect} with {@link ByteOrder#nativeOrder()} when allocating
+   * the buffer, so the floats are copied into the matrix directly without an intermediate Java
+   * array. Other buffers are copied through a Java array.
+   *
+   * @param rows number of rows of the matrix.
+   * @param cols number of columns of the matrix.
+   * @param data the matrix data in column major order.
+   */
+  public Packet createMatrix(int rows, int cols, FloatBuffer data) {
+    if (data.remaining() != rows * cols) {
+      throw new IllegalArgumentException(
+          "Please check the matrix data size, has to be rows * cols = "
+              + rows * cols
+              + " but was "
+              + data.remaining());
+    }
+    if (data.isDirect() && data.order() == ByteOrder.nativeOrder()) {
+      return Packet.create(
+          nativeCreateMatrixDirect(mediapipeGraph.getNativeHandle(), rows, cols, data.slice()));
+    }
+    float[] array = new float[rows * cols];
+    data.duplicate().get(array);
+    return createMatrix(rows, cols, array);
+  }
+
   /** Creates a {@link Packet} containing the serialized proto string. */
   public Packet createSerializedProto(MessageLite message) {
     return Packet.create(
@@ -370,6 +400,52 @@ public class PacketCreator {
    * <p>For 3 and 4 channel images, the pixel rows should have 4-byte alignment.
    */
   public Packet createImage(ByteBuffer buffer, int width, int height, int numChannels) {
+    int widthStep = getImageWidthStep(buffer, width, height, numChannels);
+    return Packet.create(
+        nativeCreateCpuImage(
+            mediapipeGraph.getNativeHandle(), buffer, width, height, widthStep, numChannels));
+  }
+
+  /**
+   * Creates a 1, 3, or 4 channel 8-bit Image packet that wraps a U8, RGB, or RGBA direct byte
+   * buffer without copying the pixel data.
+   *
+   * <p>The buffer must not be modified until {@code releaseCallback} is invoked, which happens once
+   * the last packet referencing the image, inside or outside of the graph, has been released.
+   *
+   * <p>For 3 and 4 channel images, the pixel rows should have 4-byte alignment.
+   *
+   * @param buffer a direct byte buffer holding the pixel data.
+   * @param width the width in pixels.
+   * @param height the height in pixels.
+   * @param numChannels the number of channels, either 1, 3, or 4.
+   * @param releaseCallback a callback to be invoked when the buffer is no longer used by MediaPipe.
+   *     Can be null.
+   */
+  public Packet createImage(
+      ByteBuffer buffer,
+      int width,
+      int height,
+      int numChannels,
+      BufferReleaseCallback releaseCallback) {
+    if (!buffer.isDirect()) {
+      throw new IllegalArgumentException(
+          "The buffer should be created using ByteBuffer#allocateDirect.");
+    }
+    int widthStep = getImageWidthStep(buffer, width, height, numChannels);
+    return Packet.create(
+        nativeCreateCpuImageWithoutCopy(
+            mediapipeGraph.getNativeHandle(),
+            buffer,
+            width,
+            height,
+            widthStep,
+            numChannels,
+            releaseCallback));
+  }
+
+  private static int getImageWidthStep(
+      ByteBuffer buffer, int width, int height, int numChannels) {
     int widthStep;
     if (numChannels == 4) {
       widthStep = width * 4;
@@ -385,9 +461,7 @@ public class PacketCreator {
       throw new IllegalArgumentException(
           "The size of the buffer should be: " + expectedSize + " but is " + buffer.capacity());
     }
-    return Packet.create(
-        nativeCreateCpuImage(
-            mediapipeGraph.getNativeHandle(), buffer, width, height, widthStep, numChannels));
+    return widthStep;
   }
 
   /** Helper callback adaptor to create the Java {@link GlSyncToken}. This is called by JNI code. */
@@ -438,6 +512,9 @@ public class PacketCreator {
 
   private native long nativeCreateMatrix(long context, int rows, int cols, float[] data);
 
+  private native long nativeCreateMatrixDirect(
+      long context, int rows, int cols, FloatBuffer data);
+
   private native long nativeCreateGpuBuffer(
       long context, int name, int width, int height, TextureReleaseCallback releaseCallback);
 
@@ -447,12 +524,23 @@ public class PacketCreator {
   private native long nativeCreateCpuImage(
       long context, ByteBuffer buffer, int width, int height, int rowBytes, int numChannels);
 
+  private native long nativeCreateCpuImageWithoutCopy(
+      long context,
+      ByteBuffer buffer,
+      int width,
+      int height,
+      int rowBytes,
+      int numChannels,
+      BufferReleaseCallback releaseCallback);
+
   private native long nativeCreateInt32Array(long context, int[] data);
 
   private native long nativeCreateFloat32Array(long context, float[] data);
 
   private native long nativeCreateFloat32Vector(long context, float[] data);
 
+  private native long nativeCreateInt32Vector(long context, int[] data);
+
   private native long nativeCreateStringFromByteArray(long context, byte[] data);
 
   private native long nativeCreateProto(long context, SerializedMessage data);
@@ -14,14 +14,20 @@
 
 package com.google.mediapipe.framework;
 
-import com.google.common.base.Preconditions;
 import com.google.common.flogger.FluentLogger;
 import com.google.mediapipe.framework.ProtoUtil.SerializedMessage;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Internal;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
 import com.google.protobuf.Parser;
+import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,6 +41,12 @@ import java.util.List;
  */
 public final class PacketGetter {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int MIN_PROTO_VECTOR_BUFFER_SIZE = 4096;
+  // Larger buffers are not kept, so that a single large vector doesn't pin its buffer for the
+  // lifetime of the thread.
+  static final int MAX_RETAINED_PROTO_VECTOR_BUFFER_SIZE = 1 << 20;
+  // Reused by getProtoVector, so that each call doesn't need to allocate a direct buffer.
+  private static final ThreadLocal<ByteBuffer> protoVectorBuffer = new ThreadLocal<>();
 
   /** Helper class for a list of exactly two Packets. */
   public static class PacketPair {
@@ -144,6 +156,50 @@ public final class PacketGetter {
     return nativeGetInt32Vector(packet.getNativeHandle());
   }
 
+  /**
+   * Copies the values of a {@code std::vector<int>} packet into {@code dst} starting at {@code
+   * offset}, and returns the number of values copied.
+   *
+   * @throws MediaPipeException if {@code dst} is too small to hold the values.
+   */
+  public static int getInt32Vector(final Packet packet, int[] dst, int offset) {
+    checkArrayOffset(dst.length, offset);
+    return nativeCopyInt32Vector(packet.getNativeHandle(), dst, offset, dst.length - offset);
+  }
+
+  /**
+   * Copies the values of a {@code std::vector<int>} packet into {@code dst} at its current
+   * position, advances the position, and returns the number of values copied.
+   *
+   * @throws MediaPipeException if {@code dst} doesn't have enough remaining room for the values.
+   */
+  public static int getInt32Vector(final Packet packet, IntBuffer dst) {
+    int count;
+    if (dst.hasArray()) {
+      count =
+          nativeCopyInt32Vector(
+              packet.getNativeHandle(),
+              dst.array(),
+              dst.arrayOffset() + dst.position(),
+              dst.remaining());
+    } else {
+      checkDirectBuffer(dst, dst.order());
+      count =
+          nativeCopyInt32VectorToBuffer(
+              packet.getNativeHandle(), dst, dst.position(), dst.remaining());
+    }
+    dst.position(dst.position() + count);
+    return count;
+  }
+
+  /**
+   * Returns a read-only view of the values of a {@code std::vector<int>} packet, without copying
+   * them. The view is only valid as long as the packet is not released.
+   */
+  public static IntBuffer getInt32VectorView(final Packet packet) {
+    return asReadOnlyNativeOrder(nativeGetInt32VectorView(packet.getNativeHandle())).asIntBuffer();
+  }
+
   public static long[] getInt64Vector(final Packet packet) {
     return nativeGetInt64Vector(packet.getNativeHandle());
   }
@@ -152,22 +208,102 @@ public final class PacketGetter {
     return nativeGetFloat32Vector(packet.getNativeHandle());
   }
 
+  /**
+   * Copies the values of a {@code std::vector<float>} packet into {@code dst} starting at {@code
+   * offset}, and returns the number of values copied.
+   *
+   * @throws MediaPipeException if {@code dst} is too small to hold the values.
+   */
+  public static int getFloat32Vector(final Packet packet, float[] dst, int offset) {
+    checkArrayOffset(dst.length, offset);
+    return nativeCopyFloat32Vector(packet.getNativeHandle(), dst, offset, dst.length - offset);
+  }
+
+  /**
+   * Copies the values of a {@code std::vector<float>} packet into {@code dst} at its current
+   * position, advances the position, and returns the number of values copied.
+   *
+   * @throws MediaPipeException if {@code dst} doesn't have enough remaining room for the values.
+   */
+  public static int getFloat32Vector(final Packet packet, FloatBuffer dst) {
+    int count;
+    if (dst.hasArray()) {
+      count =
+          nativeCopyFloat32Vector(
+              packet.getNativeHandle(),
+              dst.array(),
+              dst.arrayOffset() + dst.position(),
+              dst.remaining());
+    } else {
+      checkDirectBuffer(dst, dst.order());
+      count =
+          nativeCopyFloat32VectorToBuffer(
+              packet.getNativeHandle(), dst, dst.position(), dst.remaining());
+    }
+    dst.position(dst.position() + count);
+    return count;
+  }
+
+  /**
+   * Returns a read-only view of the values of a {@code std::vector<float>} packet, without copying
+   * them. The view is only valid as long as the packet is not released.
+   */
+  public static FloatBuffer getFloat32VectorView(final Packet packet) {
+    return asReadOnlyNativeOrder(nativeGetFloat32VectorView(packet.getNativeHandle()))
+        .asFloatBuffer();
+  }
+
   public static double[] getFloat64Vector(final Packet packet) {
     return nativeGetFloat64Vector(packet.getNativeHandle());
   }
 
+  /**
+   * Returns the protos of a packet holding a vector of protos.
+   *
+   * <p>All messages are serialized into a single direct buffer, which is reused by the calling
+   * thread, and parsed from it without intermediate byte arrays.
+   */
   public static <T> List<T> getProtoVector(final Packet packet, Parser<T> messageParser) {
-    byte[][] protoVector = nativeGetProtoVector(packet.getNativeHandle());
-    Preconditions.checkNotNull(
-        protoVector, "Vector of protocol buffer objects should not be null!");
+    long nativeHandle = packet.getNativeHandle();
+    int serializedSize = nativeGetProtoVectorSerializedSize(nativeHandle);
+    ByteBuffer buffer = getProtoVectorBuffer(serializedSize);
+    int numMessages = nativeGetProtoVectorSerialized(nativeHandle, buffer);
+    return parseProtoVector(buffer, serializedSize, numMessages, messageParser);
+  }
+
+  /**
+   * Returns a direct buffer of at least the given size. The buffers up to {@link
+   * #MAX_RETAINED_PROTO_VECTOR_BUFFER_SIZE} are reused by the calling thread, and the larger ones
+   * are allocated for a single call.
+   */
+  static ByteBuffer getProtoVectorBuffer(int size) {
+    ByteBuffer buffer = protoVectorBuffer.get();
+    if (buffer != null && buffer.capacity() >= size) {
+      return buffer;
+    }
+    if (size > MAX_RETAINED_PROTO_VECTOR_BUFFER_SIZE) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    buffer = ByteBuffer.allocateDirect(Math.max(size, MIN_PROTO_VECTOR_BUFFER_SIZE));
+    protoVectorBuffer.set(buffer);
+    return buffer;
+  }
+
+  /** Parses the length-delimited messages written at the start of the buffer. */
+  static <T> List<T> parseProtoVector(
+      ByteBuffer buffer, int serializedSize, int numMessages, Parser<T> messageParser) {
+    buffer.clear();
+    buffer.limit(serializedSize);
+    CodedInputStream input = CodedInputStream.newInstance(buffer);
     try {
-      List<T> parsedMessageList = new ArrayList<>();
-      for (byte[] message : protoVector) {
-        T parsedMessage = messageParser.parseFrom(message);
-        parsedMessageList.add(parsedMessage);
+      List<T> parsedMessageList = new ArrayList<>(numMessages);
+      for (int i = 0; i < numMessages; ++i) {
+        int oldLimit = input.pushLimit(input.readRawVarint32());
+        parsedMessageList.add(messageParser.parseFrom(input));
+        input.popLimit(oldLimit);
       }
       return parsedMessageList;
-    } catch (InvalidProtocolBufferException e) {
+    } catch (IOException e) {
       throw new IllegalArgumentException(e);
     }
   }
@@ -296,6 +432,51 @@ public final class PacketGetter {
     return nativeGetMatrixData(packet.getNativeHandle());
   }
 
+  /**
+   * Copies the column major data of the mediapipe Matrix into {@code dst} starting at {@code
+   * offset}, and returns the number of values copied.
+   *
+   * @throws MediaPipeException if {@code dst} is too small to hold the matrix.
+   */
+  public static int getMatrixData(final Packet packet, float[] dst, int offset) {
+    checkArrayOffset(dst.length, offset);
+    return nativeCopyMatrixData(packet.getNativeHandle(), dst, offset, dst.length - offset);
+  }
+
+  /**
+   * Copies the column major data of the mediapipe Matrix into {@code dst} at its current position,
+   * advances the position, and returns the number of values copied.
+   *
+   * @throws MediaPipeException if {@code dst} doesn't have enough remaining room for the matrix.
+   */
+  public static int getMatrixData(final Packet packet, FloatBuffer dst) {
+    int count;
+    if (dst.hasArray()) {
+      count =
+          nativeCopyMatrixData(
+              packet.getNativeHandle(),
+              dst.array(),
+              dst.arrayOffset() + dst.position(),
+              dst.remaining());
+    } else {
+      checkDirectBuffer(dst, dst.order());
+      count =
+          nativeCopyMatrixDataToBuffer(
+              packet.getNativeHandle(), dst, dst.position(), dst.remaining());
+    }
+    dst.position(dst.position() + count);
+    return count;
+  }
+
+  /**
+   * Returns a read-only view of the column major data of the mediapipe Matrix, without copying it.
+   * The view is only valid as long as the packet is not released.
+   */
+  public static FloatBuffer getMatrixDataView(final Packet packet) {
+    return asReadOnlyNativeOrder(nativeGetMatrixDataView(packet.getNativeHandle()))
+        .asFloatBuffer();
+  }
+
   public static int getMatrixRows(final Packet packet) {
     return nativeGetMatrixRows(packet.getNativeHandle());
   }
@@ -358,6 +539,29 @@ public final class PacketGetter {
 
   private static native double nativeGetFloat64(long nativePacketHandle);
 
+  private static void checkArrayOffset(int length, int offset) {
+    if (offset < 0 || offset > length) {
+      throw new IndexOutOfBoundsException(
+          "Offset " + offset + " is out of bounds for an array of length " + length);
+    }
+  }
+
+  private static void checkDirectBuffer(Buffer buffer, ByteOrder order) {
+    if (buffer.isReadOnly()) {
+      throw new ReadOnlyBufferException();
+    }
+    if (!buffer.isDirect()) {
+      throw new IllegalArgumentException("The buffer should either be direct or have an array.");
+    }
+    if (order != ByteOrder.nativeOrder()) {
+      throw new IllegalArgumentException("The buffer should use the native byte order.");
+    }
+  }
+
+  private static ByteBuffer asReadOnlyNativeOrder(ByteBuffer buffer) {
+    return buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+  }
+
   private static native boolean nativeGetBool(long nativePacketHandle);
 
   private static native String nativeGetString(long nativePacketHandle);
@@ -376,9 +580,28 @@ public final class PacketGetter {
 
   private static native float[] nativeGetFloat32Vector(long nativePacketHandle);
 
+  private static native int nativeCopyInt32Vector(
+      long nativePacketHandle, int[] array, int offset, int capacity);
+
+  private static native int nativeCopyInt32VectorToBuffer(
+      long nativePacketHandle, IntBuffer buffer, int offset, int capacity);
+
+  private static native ByteBuffer nativeGetInt32VectorView(long nativePacketHandle);
+
+  private static native int nativeCopyFloat32Vector(
+      long nativePacketHandle, float[] array, int offset, int capacity);
+
+  private static native int nativeCopyFloat32VectorToBuffer(
+      long nativePacketHandle, FloatBuffer buffer, int offset, int capacity);
+
+  private static native ByteBuffer nativeGetFloat32VectorView(long nativePacketHandle);
+
   private static native double[] nativeGetFloat64Vector(long nativePacketHandle);
 
-  private static native byte[][] nativeGetProtoVector(long nativePacketHandle);
+  private static native int nativeGetProtoVectorSerializedSize(long nativePacketHandle);
+
+  private static native int nativeGetProtoVectorSerialized(
+      long nativePacketHandle, ByteBuffer buffer);
 
   private static native int nativeGetImageWidth(long nativePacketHandle);
 
@@ -406,6 +629,14 @@ public final class PacketGetter {
   // Native helper functions to access the MediaPipe Matrix data.
   private static native float[] nativeGetMatrixData(long nativePacketHandle);
 
+  private static native int nativeCopyMatrixData(
+      long nativePacketHandle, float[] array, int offset, int capacity);
+
+  private static native int nativeCopyMatrixDataToBuffer(
+      long nativePacketHandle, FloatBuffer buffer, int offset, int capacity);
+
+  private static native ByteBuffer nativeGetMatrixDataView(long nativePacketHandle);
+
   private static native int nativeGetMatrixRows(long nativePacketHandle);
 
   private static native int nativeGetMatrixCols(long nativePacketHandle);
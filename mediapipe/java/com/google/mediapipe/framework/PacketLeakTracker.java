@@ -0,0 +1,264 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import com.google.common.flogger.FluentLogger;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Opt-in tracker of the {@link Packet}s that are garbage collected without being released.
+ *
+ * <p>A {@link Packet} pins its native payload until {@link Packet#release} is called, or until its
+ * {@link Graph} is torn down. When tracking is enabled, every packet created afterwards is followed
+ * by a phantom reference, and the packets found unreachable before being released are reported to
+ * the {@link LeakListener}, with the stack trace of their creation if it was sampled. Leaks are
+ * reported whenever packets are created or {@link #reportLeaks} is called.
+ *
+ * <p>Tracking costs two native calls per packet, plus a stack capture for the sampled packets, so
+ * it is meant for debugging and for monitoring long-running applications.
+ */
+public final class PacketLeakTracker {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Receives the packets that were garbage collected without being released. */
+  public interface LeakListener {
+    void onPacketLeaked(LeakReport report);
+  }
+
+  /** Describes a packet that was garbage collected without being released. */
+  public static final class LeakReport {
+    private final long sizeBytes;
+    @Nullable private final Throwable creationSite;
+
+    private LeakReport(long sizeBytes, @Nullable Throwable creationSite) {
+      this.sizeBytes = sizeBytes;
+      this.creationSite = creationSite;
+    }
+
+    /** Returns the estimated payload size of the leaked packet in bytes. */
+    public long getSizeBytes() {
+      return sizeBytes;
+    }
+
+    /** Returns the stack trace of the packet creation, or null if it wasn't sampled. */
+    @Nullable
+    public Throwable getCreationSite() {
+      return creationSite;
+    }
+  }
+
+  /** The tracked packets of a {@link Graph}. */
+  public static final class GraphStats {
+    private final long livePacketCount;
+    private final long liveBytes;
+    private final long leakedPacketCount;
+    private final long leakedBytes;
+
+    private GraphStats(
+        long livePacketCount, long liveBytes, long leakedPacketCount, long leakedBytes) {
+      this.livePacketCount = livePacketCount;
+      this.liveBytes = liveBytes;
+      this.leakedPacketCount = leakedPacketCount;
+      this.leakedBytes = leakedBytes;
+    }
+
+    /** Returns the number of tracked packets that are not released, leaked ones included. */
+    public long getLivePacketCount() {
+      return livePacketCount;
+    }
+
+    /** Returns the estimated payload size of the live packets in bytes. */
+    public long getLiveBytes() {
+      return liveBytes;
+    }
+
+    /** Returns the number of packets that were garbage collected without being released. */
+    public long getLeakedPacketCount() {
+      return leakedPacketCount;
+    }
+
+    /** Returns the estimated payload size of the leaked packets in bytes. */
+    public long getLeakedBytes() {
+      return leakedBytes;
+    }
+  }
+
+  /** Follows a tracked packet until it is released or garbage collected. */
+  static final class Sentinel extends PhantomReference<Packet> {
+    private final long graphHandle;
+    private final long sizeBytes;
+    @Nullable private final Throwable creationSite;
+
+    private Sentinel(
+        Packet packet,
+        ReferenceQueue<Packet> queue,
+        long graphHandle,
+        long sizeBytes,
+        @Nullable Throwable creationSite) {
+      super(packet, queue);
+      this.graphHandle = graphHandle;
+      this.sizeBytes = sizeBytes;
+      this.creationSite = creationSite;
+    }
+  }
+
+  private static final class GraphCounters {
+    final AtomicLong livePacketCount = new AtomicLong();
+    final AtomicLong liveBytes = new AtomicLong();
+    final AtomicLong leakedPacketCount = new AtomicLong();
+    final AtomicLong leakedBytes = new AtomicLong();
+  }
+
+  private static final LeakListener LOGGING_LEAK_LISTENER =
+      new LeakListener() {
+        @Override
+        public void onPacketLeaked(LeakReport report) {
+          logger.atWarning().withCause(report.getCreationSite()).log(
+              "A packet of %d bytes was garbage collected without being released.",
+              report.getSizeBytes());
+        }
+      };
+
+  private static final ReferenceQueue<Packet> referenceQueue = new ReferenceQueue<>();
+  // Keeps the sentinels reachable until their packets are released or reported.
+  private static final Set<Sentinel> sentinels =
+      Collections.newSetFromMap(new ConcurrentHashMap<Sentinel, Boolean>());
+  private static final Map<Long, GraphCounters> graphCounters = new ConcurrentHashMap<>();
+  private static final AtomicLong trackedPacketCount = new AtomicLong();
+
+  private static volatile boolean enabled = false;
+  private static volatile int stackSampleInterval = 1;
+  private static volatile LeakListener leakListener = LOGGING_LEAK_LISTENER;
+
+  /**
+   * Starts tracking the packets created from now on.
+   *
+   * @param stackSampleInterval captures the creation stack trace of one in every {@code
+   *     stackSampleInterval} packets. 0 disables the stack capture.
+   */
+  public static void enable(int stackSampleInterval) {
+    if (stackSampleInterval < 0) {
+      throw new IllegalArgumentException("The stack sample interval should not be negative.");
+    }
+    PacketLeakTracker.stackSampleInterval = stackSampleInterval;
+    enabled = true;
+  }
+
+  /** Stops tracking new packets. The packets that are already tracked are still reported. */
+  public static void disable() {
+    enabled = false;
+  }
+
+  /** Returns true if the packets created from now on are tracked. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Sets the listener of the leaked packets. By default, the leaks are logged as warnings. */
+  public static void setLeakListener(@Nullable LeakListener listener) {
+    leakListener = listener != null ? listener : LOGGING_LEAK_LISTENER;
+  }
+
+  /** Returns the tracked packets of a graph. */
+  public static GraphStats getGraphStats(Graph graph) {
+    reportLeaks();
+    GraphCounters counters = graphCounters.get(graph.getNativeHandle());
+    if (counters == null) {
+      return new GraphStats(0, 0, 0, 0);
+    }
+    return new GraphStats(
+        counters.livePacketCount.get(),
+        counters.liveBytes.get(),
+        counters.leakedPacketCount.get(),
+        counters.leakedBytes.get());
+  }
+
+  /**
+   * Reports the packets that have been garbage collected without being released since the last
+   * report, and returns their number.
+   */
+  public static int reportLeaks() {
+    int numLeaks = 0;
+    Sentinel sentinel;
+    while ((sentinel = (Sentinel) referenceQueue.poll()) != null) {
+      // Sentinels removed by a graph tear down were released along with the graph.
+      if (!sentinels.remove(sentinel)) {
+        continue;
+      }
+      GraphCounters counters = graphCounters.get(sentinel.graphHandle);
+      if (counters != null) {
+        counters.leakedPacketCount.incrementAndGet();
+        counters.leakedBytes.addAndGet(sentinel.sizeBytes);
+      }
+      leakListener.onPacketLeaked(new LeakReport(sentinel.sizeBytes, sentinel.creationSite));
+      ++numLeaks;
+    }
+    return numLeaks;
+  }
+
+  static Sentinel track(Packet packet) {
+    reportLeaks();
+    int interval = stackSampleInterval;
+    Throwable creationSite =
+        interval > 0 && trackedPacketCount.getAndIncrement() % interval == 0
+            ? new Throwable("Packet creation site")
+            : null;
+    long graphHandle = packet.getGraphHandle();
+    Sentinel sentinel =
+        new Sentinel(
+            packet, referenceQueue, graphHandle, packet.getPayloadSizeBytes(), creationSite);
+    sentinels.add(sentinel);
+    GraphCounters counters = graphCounters.get(graphHandle);
+    if (counters == null) {
+      graphCounters.putIfAbsent(graphHandle, new GraphCounters());
+      counters = graphCounters.get(graphHandle);
+    }
+    counters.livePacketCount.incrementAndGet();
+    counters.liveBytes.addAndGet(sentinel.sizeBytes);
+    return sentinel;
+  }
+
+  static void untrack(Sentinel sentinel) {
+    sentinel.clear();
+    if (!sentinels.remove(sentinel)) {
+      return;
+    }
+    GraphCounters counters = graphCounters.get(sentinel.graphHandle);
+    if (counters != null) {
+      counters.livePacketCount.decrementAndGet();
+      counters.liveBytes.addAndGet(-sentinel.sizeBytes);
+    }
+  }
+
+  /** Forgets the packets of a graph, since tearing the graph down releases all of them. */
+  static void onGraphTearDown(long graphHandle) {
+    graphCounters.remove(graphHandle);
+    for (Sentinel sentinel : sentinels) {
+      if (sentinel.graphHandle == graphHandle) {
+        sentinels.remove(sentinel);
+        sentinel.clear();
+      }
+    }
+  }
+
+  private PacketLeakTracker() {}
+}
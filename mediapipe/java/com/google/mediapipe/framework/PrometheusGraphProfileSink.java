@@ -0,0 +1,222 @@
+// Copyright 2022 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.mediapipe.framework;
+
+import com.google.common.flogger.FluentLogger;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link GraphProfileSink} that serves the accumulated reports in the Prometheus text exposition
+ * format over HTTP on the loopback interface.
+ *
+ * <p>The Process() calls and time of each calculator are exported as a histogram named {@code
+ * mediapipe_calculator_process_time_usec}, and the Open() and Close() times as gauges. The
+ * counters accumulate the deltas of the reports, so they keep increasing across profiler resets.
+ */
+public final class PrometheusGraphProfileSink implements GraphProfileSink {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  // How long a client may take to send its request before the connection is dropped.
+  private static final int READ_TIMEOUT_MS = 5000;
+  // How long close() waits for the server thread to exit.
+  private static final long CLOSE_TIMEOUT_MS = 1000;
+
+  /** The accumulated metrics of a calculator. */
+  private static final class CalculatorMetrics {
+    long processCalls;
+    long processTimeUsec;
+    long openTimeUsec;
+    long closeTimeUsec;
+    long histogramIntervalUsec;
+    long[] processTimeHistogram = new long[0];
+  }
+
+  private final ServerSocket serverSocket;
+  private final Thread serverThread;
+  // The connection being served, closed along with the sink so that close() doesn't wait for it.
+  private volatile Socket activeSocket;
+  // The metrics of each calculator, keyed by calculator name, guarded by this.
+  private final Map<String, CalculatorMetrics> metrics = new LinkedHashMap<>();
+
+  /**
+   * Creates a {@link PrometheusGraphProfileSink} instance that listens on the given port of the
+   * loopback interface.
+   *
+   * @param port the port to listen on, or 0 to pick any free port. See {@link #getPort}.
+   */
+  public PrometheusGraphProfileSink(int port) throws IOException {
+    serverSocket = new ServerSocket(port, /* backlog= */ 4, InetAddress.getByName(null));
+    serverThread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                serve();
+              }
+            },
+            "PrometheusGraphProfileSink");
+    serverThread.setDaemon(true);
+    serverThread.start();
+  }
+
+  /** Returns the port the sink listens on. */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  @Override
+  public synchronized void publish(GraphProfileReport report) {
+    for (GraphProfileReport.CalculatorDelta delta : report.getCalculatorDeltas()) {
+      CalculatorMetrics calculatorMetrics = metrics.get(delta.getCalculatorName());
+      if (calculatorMetrics == null) {
+        calculatorMetrics = new CalculatorMetrics();
+        metrics.put(delta.getCalculatorName(), calculatorMetrics);
+      }
+      long[] histogram = delta.getProcessTimeHistogram();
+      if (calculatorMetrics.processTimeHistogram.length != histogram.length
+          || calculatorMetrics.histogramIntervalUsec != delta.getHistogramIntervalUsec()) {
+        // The buckets changed, so the previous counts can't be carried over.
+        calculatorMetrics.processTimeHistogram = new long[histogram.length];
+        calculatorMetrics.histogramIntervalUsec = delta.getHistogramIntervalUsec();
+      }
+      for (int i = 0; i < histogram.length; ++i) {
+        calculatorMetrics.processTimeHistogram[i] += histogram[i];
+      }
+      calculatorMetrics.processCalls += delta.getProcessCalls();
+      calculatorMetrics.processTimeUsec += delta.getProcessTimeUsec();
+      calculatorMetrics.openTimeUsec = delta.getOpenTimeUsec();
+      calculatorMetrics.closeTimeUsec = delta.getCloseTimeUsec();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    Socket socket = activeSocket;
+    if (socket != null) {
+      socket.close();
+    }
+    try {
+      serverThread.join(CLOSE_TIMEOUT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (serverThread.isAlive()) {
+      logger.atWarning().log("The graph profile metrics server didn't stop in time.");
+    }
+  }
+
+  /** Returns the metrics in the Prometheus text exposition format. */
+  synchronized String toPrometheusText() {
+    StringBuilder text = new StringBuilder();
+    text.append("# TYPE mediapipe_calculator_process_time_usec histogram\n");
+    for (Map.Entry<String, CalculatorMetrics> entry : metrics.entrySet()) {
+      String label = "calculator=\"" + escapeLabelValue(entry.getKey()) + "\"";
+      CalculatorMetrics calculatorMetrics = entry.getValue();
+      long cumulativeCount = 0;
+      for (int i = 0; i < calculatorMetrics.processTimeHistogram.length; ++i) {
+        cumulativeCount += calculatorMetrics.processTimeHistogram[i];
+        String upperBound =
+            i == calculatorMetrics.processTimeHistogram.length - 1
+                ? "+Inf"
+                : Long.toString((i + 1) * calculatorMetrics.histogramIntervalUsec);
+        appendSample(
+            text,
+            "mediapipe_calculator_process_time_usec_bucket",
+            label + ",le=\"" + upperBound + "\"",
+            cumulativeCount);
+      }
+      appendSample(
+          text,
+          "mediapipe_calculator_process_time_usec_sum",
+          label,
+          calculatorMetrics.processTimeUsec);
+      appendSample(
+          text,
+          "mediapipe_calculator_process_time_usec_count",
+          label,
+          calculatorMetrics.processCalls);
+    }
+    text.append("# TYPE mediapipe_calculator_open_time_usec gauge\n");
+    for (Map.Entry<String, CalculatorMetrics> entry : metrics.entrySet()) {
+      appendSample(
+          text,
+          "mediapipe_calculator_open_time_usec",
+          "calculator=\"" + escapeLabelValue(entry.getKey()) + "\"",
+          entry.getValue().openTimeUsec);
+    }
+    text.append("# TYPE mediapipe_calculator_close_time_usec gauge\n");
+    for (Map.Entry<String, CalculatorMetrics> entry : metrics.entrySet()) {
+      appendSample(
+          text,
+          "mediapipe_calculator_close_time_usec",
+          "calculator=\"" + escapeLabelValue(entry.getKey()) + "\"",
+          entry.getValue().closeTimeUsec);
+    }
+    return text.toString();
+  }
+
+  private void serve() {
+    while (!serverSocket.isClosed()) {
+      try (Socket socket = serverSocket.accept()) {
+        activeSocket = socket;
+        if (serverSocket.isClosed()) {
+          // Closed between the accept and the assignment, so close() may have missed the socket.
+          return;
+        }
+        socket.setSoTimeout(READ_TIMEOUT_MS);
+        BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        // Skips the request, every path serves the metrics.
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {}
+        byte[] body = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        OutputStream output = socket.getOutputStream();
+        output.write(
+            ("HTTP/1.0 200 OK\r\nContent-Type: "
+                    + CONTENT_TYPE
+                    + "\r\nContent-Length: "
+                    + body.length
+                    + "\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        output.write(body);
+        output.flush();
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          logger.atWarning().withCause(e).log("Failed to serve the graph profile metrics.");
+        }
+      } finally {
+        activeSocket = null;
+      }
+    }
+  }
+
+  private static void appendSample(StringBuilder text, String name, String labels, long value) {
+    text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+  }
+
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
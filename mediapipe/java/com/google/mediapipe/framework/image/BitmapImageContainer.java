@@ -20,7 +20,9 @@ import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
 
 class BitmapImageContainer implements MPImageContainer {
 
-  private final Bitmap bitmap;
+  private Bitmap bitmap;
+  // The source to decode the bitmap from on first access. Null once the bitmap is available.
+  private LazyBitmapImageBuilder.BitmapSource bitmapSource;
   private final MPImageProperties properties;
 
   public BitmapImageContainer(Bitmap bitmap) {
@@ -32,7 +34,23 @@ class BitmapImageContainer implements MPImageContainer {
             .build();
   }
 
-  public Bitmap getBitmap() {
+  BitmapImageContainer(LazyBitmapImageBuilder.BitmapSource bitmapSource) {
+    this.bitmapSource = bitmapSource;
+    this.properties =
+        MPImageProperties.builder()
+            .setImageFormat(MPImage.IMAGE_FORMAT_RGBA)
+            .setStorageType(MPImage.STORAGE_TYPE_BITMAP)
+            .build();
+  }
+
+  public synchronized Bitmap getBitmap() {
+    if (bitmap == null) {
+      if (bitmapSource == null) {
+        throw new IllegalStateException("The image has been closed before it was decoded.");
+      }
+      bitmap = bitmapSource.decode();
+      bitmapSource = null;
+    }
     return bitmap;
   }
 
@@ -42,8 +60,13 @@ class BitmapImageContainer implements MPImageContainer {
   }
 
   @Override
-  public void close() {
-    bitmap.recycle();
+  public synchronized void close() {
+    if (bitmap != null) {
+      bitmap.recycle();
+    } else if (bitmapSource != null) {
+      bitmapSource.release();
+      bitmapSource = null;
+    }
   }
 
   @MPImageFormat
@@ -0,0 +1,76 @@
+/* Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package com.google.mediapipe.framework.image;
+
+import android.graphics.Bitmap;
+
+/**
+ * Builds {@link MPImage} whose {@link android.graphics.Bitmap} is only decoded when it is first
+ * accessed.
+ *
+ * <p>The built {@link MPImage} has {@link MPImage#STORAGE_TYPE_BITMAP} and {@link
+ * MPImage#IMAGE_FORMAT_RGBA}. Use {@link BitmapExtractor} to decode and get the {@link
+ * android.graphics.Bitmap}. If the image is closed before its pixels are accessed, the {@link
+ * BitmapSource} is released without being decoded.
+ */
+public class LazyBitmapImageBuilder {
+
+  /** Interface for the source that a lazy {@link MPImage} decodes its pixels from. */
+  public interface BitmapSource {
+    /**
+     * Decodes the pixels into a new ARGB_8888 {@link android.graphics.Bitmap}. Called at most once.
+     *
+     * @throws IllegalStateException if the source is no longer available.
+     */
+    Bitmap decode();
+
+    /** Releases the source when the image is closed without being decoded. */
+    void release();
+  }
+
+  // Mandatory fields.
+  private final BitmapSource bitmapSource;
+  private final int width;
+  private final int height;
+
+  // Optional fields.
+  private long timestamp;
+
+  /**
+   * Creates the builder with a mandatory {@link BitmapSource} and the image size.
+   *
+   * @param bitmapSource the source to decode the pixels from on first access.
+   * @param width the width of the decoded image.
+   * @param height the height of the decoded image.
+   */
+  public LazyBitmapImageBuilder(BitmapSource bitmapSource, int width, int height) {
+    this.bitmapSource = bitmapSource;
+    this.width = width;
+    this.height = height;
+    timestamp = 0;
+  }
+
+  /** Sets value for {@link MPImage#getTimestamp()}. */
+  LazyBitmapImageBuilder setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+    return this;
+  }
+
+  /** Builds a {@link MPImage} instance. */
+  public MPImage build() {
+    return new MPImage(new BitmapImageContainer(bitmapSource), timestamp, width, height);
+  }
+}
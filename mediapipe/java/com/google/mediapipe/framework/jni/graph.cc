@@ -18,6 +18,7 @@
 
 #include <vector>
 
+#include "absl/container/flat_hash_set.h"
 #include "absl/strings/str_cat.h"
 #include "absl/strings/str_format.h"
 #include "absl/synchronization/mutex.h"
@@ -314,7 +315,7 @@ void Graph::CallbackToJava(JNIEnv* env, jobject java_callback_obj,
   // Creates a Java Packet.
   VLOG(2) << "Creating java packet preparing for callback to java.";
   jobject java_packet =
-      CreateJavaPacket(env, global_java_packet_cls_, packet_handle);
+      CreateJavaCallbackPacket(env, global_java_packet_cls_, packet_handle);
   VLOG(2) << "Calling java callback.";
   env->CallVoidMethod(java_callback_obj, processMethod, java_packet);
   // release the packet after callback.
@@ -344,9 +345,10 @@ void Graph::CallbackToJava(JNIEnv* env, jobject java_callback_obj,
   int64_t header_packet_handle = WrapPacketIntoContext(header_packet);
   // Creates a Java Packet.
   jobject java_packet =
-      CreateJavaPacket(env, global_java_packet_cls_, packet_handle);
+      CreateJavaCallbackPacket(env, global_java_packet_cls_, packet_handle);
   jobject java_header_packet =
-      CreateJavaPacket(env, global_java_packet_cls_, header_packet_handle);
+      CreateJavaCallbackPacket(env, global_java_packet_cls_,
+                               header_packet_handle);
   env->CallVoidMethod(java_callback_obj, processMethod, java_packet,
                       java_header_packet);
   // release the packet after callback.
@@ -379,7 +381,7 @@ void Graph::CallbackToJava(JNIEnv* env, jobject java_callback_obj,
     int64_t packet_handle = WrapPacketIntoContext(packet);
     packet_handles.push_back(packet_handle);
     jobject java_packet =
-        CreateJavaPacket(env, global_java_packet_cls_, packet_handle);
+        CreateJavaCallbackPacket(env, global_java_packet_cls_, packet_handle);
     env->CallBooleanMethod(java_list, add_method, java_packet);
     env->DeleteLocalRef(java_packet);
   }
@@ -498,6 +500,29 @@ absl::Status Graph::SetTimestampAndMovePacketToInputStream(
   return AddPacketToInputStream(stream_name, std::move(packet));
 }
 
+absl::Status Graph::ValidatePacketsForInputStreams(
+    const std::vector<std::string>& stream_names, int64_t timestamp) {
+  if (!running_graph_) {
+    return absl::FailedPreconditionError("Graph must be running.");
+  }
+  if (!Timestamp::CreateNoErrorChecking(timestamp).IsAllowedInStream()) {
+    return absl::InvalidArgumentError(
+        absl::StrCat("Timestamp ", timestamp, " is not allowed in a stream."));
+  }
+  absl::flat_hash_set<std::string> seen_stream_names;
+  for (const std::string& stream_name : stream_names) {
+    if (!running_graph_->HasInputStream(stream_name)) {
+      return absl::InvalidArgumentError(
+          absl::StrCat("Graph has no input stream \"", stream_name, "\"."));
+    }
+    if (!seen_stream_names.insert(stream_name).second) {
+      return absl::InvalidArgumentError(absl::StrCat(
+          "Input stream \"", stream_name, "\" is given more than once."));
+    }
+  }
+  return absl::OkStatus();
+}
+
 absl::Status Graph::AddPacketToInputStream(const std::string& stream_name,
                                            const Packet& packet) {
   if (!running_graph_) {
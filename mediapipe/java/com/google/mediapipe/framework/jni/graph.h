@@ -106,6 +106,12 @@ class Graph {
   // and then tries to move the Packet into the given input stream.
   absl::Status SetTimestampAndMovePacketToInputStream(
       const std::string& stream_name, int64_t packet_handle, int64_t timestamp);
+  // Checks that packets can be added at the timestamp into the given input
+  // streams: the graph is running, the streams exist and are distinct, and the
+  // timestamp is allowed in a stream. Doesn't check the timestamps of the
+  // previous packets or the stream queue sizes.
+  absl::Status ValidatePacketsForInputStreams(
+      const std::vector<std::string>& stream_names, int64_t timestamp);
 
   // Sets the mode for adding packets to a graph input stream.
   void SetGraphInputStreamAddMode(
@@ -16,6 +16,7 @@
 
 #include <memory>
 #include <string>
+#include <vector>
 
 #include "mediapipe/framework/calculator_framework.h"
 #include "mediapipe/framework/port/canonical_errors.h"
@@ -283,6 +284,47 @@ JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketToInputStream)(
                static_cast<int64_t>(packet), static_cast<int64_t>(timestamp)));
 }
 
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketsToInputStreams)(
+    JNIEnv* env, jobject thiz, jlong context, jobjectArray stream_names,
+    jlongArray packets, jlong timestamp) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  jsize num_packets = env->GetArrayLength(stream_names);
+  if (num_packets != env->GetArrayLength(packets)) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "Number of streams and packets doesn't match!"));
+    return;
+  }
+  std::vector<std::string> names;
+  names.reserve(num_packets);
+  for (jsize i = 0; i < num_packets; ++i) {
+    jstring name =
+        reinterpret_cast<jstring>(env->GetObjectArrayElement(stream_names, i));
+    names.push_back(JStringToStdString(env, name));
+    env->DeleteLocalRef(name);
+  }
+  // Rejects the bad stream names and timestamps before any packet is moved.
+  absl::Status status = mediapipe_graph->ValidatePacketsForInputStreams(
+      names, static_cast<int64_t>(timestamp));
+  if (!status.ok()) {
+    ThrowIfError(env, status);
+    return;
+  }
+  jlong* packets_array_ref = env->GetLongArrayElements(packets, nullptr);
+  for (jsize i = 0; i < num_packets && status.ok(); ++i) {
+    status = mediapipe_graph->SetTimestampAndMovePacketToInputStream(
+        names[i], static_cast<int64_t>(packets_array_ref[i]),
+        static_cast<int64_t>(timestamp));
+    if (status.ok()) {
+      // Tells the Java side that the packet has been consumed.
+      packets_array_ref[i] = 0;
+    }
+  }
+  // Copies the consumed handles back into the Java array.
+  env->ReleaseLongArrayElements(packets, packets_array_ref, 0);
+  ThrowIfError(env, status);
+}
+
 JNIEXPORT void JNICALL GRAPH_METHOD(nativeSetGraphInputStreamBlockingMode)(
     JNIEnv* env, jobject thiz, jlong context, jboolean mode) {
   mediapipe::android::Graph* mediapipe_graph =
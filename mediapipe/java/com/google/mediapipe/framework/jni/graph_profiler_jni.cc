@@ -14,6 +14,7 @@
 
 #include "mediapipe/java/com/google/mediapipe/framework/jni/graph_profiler_jni.h"
 
+#include "absl/time/time.h"
 #include "mediapipe/framework/calculator_framework.h"
 #include "mediapipe/framework/calculator_profile.pb.h"
 
@@ -76,3 +77,24 @@ JNIEXPORT jobjectArray JNICALL GRAPH_PROFILER_METHOD(
 
   return profiles;
 }
+
+JNIEXPORT jbyteArray JNICALL GRAPH_PROFILER_METHOD(nativeGetGraphTrace)(
+    JNIEnv* env, jobject thiz, jlong handle, jlong begin_time_usec,
+    jlong end_time_usec) {
+  mediapipe::ProfilingContext* profiling_context =
+      reinterpret_cast<mediapipe::ProfilingContext*>(handle);
+  mediapipe::GraphTracer* tracer = profiling_context->tracer();
+  if (tracer == nullptr) {
+    return nullptr;
+  }
+  mediapipe::GraphTrace trace;
+  tracer->GetTrace(absl::FromUnixMicros(begin_time_usec),
+                   absl::FromUnixMicros(end_time_usec), &trace);
+
+  int size = trace.ByteSize();
+  jbyteArray byteArray = env->NewByteArray(size);
+  jbyte* byteArrayBuffer = env->GetByteArrayElements(byteArray, nullptr);
+  trace.SerializeToArray(byteArrayBuffer, size);
+  env->ReleaseByteArrayElements(byteArray, byteArrayBuffer, 0);
+  return byteArray;
+}
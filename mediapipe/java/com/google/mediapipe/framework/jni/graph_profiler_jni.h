@@ -37,6 +37,10 @@ JNIEXPORT jobjectArray JNICALL GRAPH_PROFILER_METHOD(
     nativeGetCalculatorProfiles)(JNIEnv* env, jobject thiz,
                                  jlong profiling_context);
 
+JNIEXPORT jbyteArray JNICALL GRAPH_PROFILER_METHOD(nativeGetGraphTrace)(
+    JNIEnv* env, jobject thiz, jlong profiling_context, jlong begin_time_usec,
+    jlong end_time_usec);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
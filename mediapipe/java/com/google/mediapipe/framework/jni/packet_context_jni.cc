@@ -15,6 +15,9 @@
 #include "mediapipe/java/com/google/mediapipe/framework/jni/packet_context_jni.h"
 
 #include "absl/strings/str_format.h"
+#include "mediapipe/framework/formats/image.h"
+#include "mediapipe/framework/formats/image_frame.h"
+#include "mediapipe/framework/formats/matrix.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/class_registry.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/graph.h"
 
@@ -50,16 +53,71 @@ JNIEXPORT jlong JNICALL PACKET_METHOD(nativeCopyPacket)(JNIEnv* env,
   return mediapipe_graph->WrapPacketIntoContext(mediapipe_packet);
 }
 
-jobject CreateJavaPacket(JNIEnv* env, jclass packet_cls, jlong packet) {
+JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetGraphHandle)(JNIEnv* env,
+                                                            jobject thiz,
+                                                            jlong packet) {
+  return reinterpret_cast<jlong>(
+      mediapipe::android::Graph::GetContextFromHandle(packet));
+}
+
+namespace {
+
+// The bytes per pixel assumed for the GPU images of an unknown format (RGBA).
+constexpr jlong kDefaultGpuBytesPerPixel = 4;
+
+// Creates a java Packet through the given static factory method of the class.
+jobject CallJavaPacketFactory(JNIEnv* env, jclass packet_cls, jlong packet,
+                              const std::string& factory_name) {
   auto& class_registry = mediapipe::android::ClassRegistry::GetInstance();
 
   std::string packet_class_name = class_registry.GetClassName(
       mediapipe::android::ClassRegistry::kPacketClassName);
   std::string create_method_name = class_registry.GetMethodName(
-      mediapipe::android::ClassRegistry::kPacketClassName, "create");
+      mediapipe::android::ClassRegistry::kPacketClassName, factory_name);
 
   std::string signature = absl::StrFormat("(J)L%s;", packet_class_name);
   jmethodID createMethod = env->GetStaticMethodID(
       packet_cls, create_method_name.c_str(), signature.c_str());
   return env->CallStaticObjectMethod(packet_cls, createMethod, packet);
 }
+
+}  // namespace
+
+// Estimates the size of the payload of a packet holding an image or a matrix.
+// Returns 0 for other payload types.
+JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetPayloadSizeBytes)(
+    JNIEnv* env, jobject thiz, jlong packet) {
+  const mediapipe::Packet& mediapipe_packet =
+      mediapipe::android::Graph::GetPacketFromHandle(packet);
+  if (mediapipe_packet.ValidateAsType<mediapipe::ImageFrame>().ok()) {
+    return mediapipe_packet.Get<mediapipe::ImageFrame>().PixelDataSize();
+  }
+  if (mediapipe_packet.ValidateAsType<mediapipe::Image>().ok()) {
+    const mediapipe::Image& image = mediapipe_packet.Get<mediapipe::Image>();
+    const jlong num_pixels = static_cast<jlong>(image.width()) * image.height();
+    if (image.UsesGpu()) {
+      // Image::step() reads the GPU texture back to the CPU, so the size is
+      // estimated from the format instead.
+      const mediapipe::ImageFormat::Format format = image.image_format();
+      if (format == mediapipe::ImageFormat::UNKNOWN) {
+        return num_pixels * kDefaultGpuBytesPerPixel;
+      }
+      return num_pixels *
+             mediapipe::ImageFrame::NumberOfChannelsForFormat(format) *
+             mediapipe::ImageFrame::ByteDepthForFormat(format);
+    }
+    return static_cast<jlong>(image.step()) * image.height();
+  }
+  if (mediapipe_packet.ValidateAsType<mediapipe::Matrix>().ok()) {
+    return mediapipe_packet.Get<mediapipe::Matrix>().size() * sizeof(float);
+  }
+  return 0;
+}
+
+jobject CreateJavaPacket(JNIEnv* env, jclass packet_cls, jlong packet) {
+  return CallJavaPacketFactory(env, packet_cls, packet, "create");
+}
+
+jobject CreateJavaCallbackPacket(JNIEnv* env, jclass packet_cls, jlong packet) {
+  return CallJavaPacketFactory(env, packet_cls, packet, "createForCallback");
+}
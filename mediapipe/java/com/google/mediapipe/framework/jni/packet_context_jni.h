@@ -44,6 +44,15 @@ JNIEXPORT jlong JNICALL PACKET_METHOD(nativeCopyPacket)(JNIEnv* env,
                                                         jobject thiz,
                                                         jlong packet);
 
+// Returns the native handle of the graph that owns a packet.
+JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetGraphHandle)(JNIEnv* env,
+                                                            jobject thiz,
+                                                            jlong packet);
+
+// Returns the estimated payload size of a packet in bytes.
+JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetPayloadSizeBytes)(
+    JNIEnv* env, jobject thiz, jlong packet);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
@@ -51,4 +60,9 @@ JNIEXPORT jlong JNICALL PACKET_METHOD(nativeCopyPacket)(JNIEnv* env,
 // Calls the java method to create an instance of java Packet.
 jobject CreateJavaPacket(JNIEnv* env, jclass packet_cls, jlong packet);
 
+// Calls the java method to create an instance of java Packet for a graph
+// callback. The caller releases the native packet once the callback returns, so
+// the java Packet isn't tracked by PacketLeakTracker.
+jobject CreateJavaCallbackPacket(JNIEnv* env, jclass packet_cls, jlong packet);
+
 #endif  // JAVA_COM_GOOGLE_MEDIAPIPE_FRAMEWORK_JNI_PACKET_CONTEXT_JNI_H_
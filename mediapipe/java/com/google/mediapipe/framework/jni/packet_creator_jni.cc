@@ -127,10 +127,9 @@ CreateImageFrameFromByteBuffer(JNIEnv* env, jobject byte_buffer, jint width,
       << " but is: " << buffer_size;
 
   auto image_frame = std::make_unique<mediapipe::ImageFrame>();
-  // TODO: we could retain the buffer with a special deleter and use
-  // the data directly without a copy. May need a new Java API since existing
-  // code might expect to be able to overwrite the buffer after creating an
-  // ImageFrame from it.
+  // Copies the pixel data, since callers may overwrite the buffer right after
+  // creating the packet. nativeCreateCpuImageWithoutCopy wraps the buffer
+  // instead, for the callers that pass a BufferReleaseCallback.
   image_frame->CopyPixelData(
       format, width, height, width_step, static_cast<const uint8*>(buffer_data),
       mediapipe::ImageFrame::kGlDefaultAlignmentBoundary);
@@ -138,6 +137,22 @@ CreateImageFrameFromByteBuffer(JNIEnv* env, jobject byte_buffer, jint width,
   return image_frame;
 }
 
+// Returns the 8-bit ImageFormat of a 1, 3, or 4 channel CPU image.
+absl::StatusOr<mediapipe::ImageFormat::Format> GetCpuImageFormat(
+    jint num_channels) {
+  switch (num_channels) {
+    case 4:
+      return mediapipe::ImageFormat::SRGBA;
+    case 3:
+      return mediapipe::ImageFormat::SRGB;
+    case 1:
+      return mediapipe::ImageFormat::GRAY8;
+    default:
+      return absl::InvalidArgumentError(absl::StrCat(
+          "Channels must be either 1, 3, or 4, but are ", num_channels));
+  }
+}
+
 }  // namespace
 
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateReferencePacket)(
@@ -369,29 +384,38 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateMatrix)(
   return CreatePacketWithContext(context, packet);
 }
 
+JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateMatrixDirect)(
+    JNIEnv* env, jobject thiz, jlong context, jint rows, jint cols,
+    jobject data) {
+  const float* data_ref =
+      reinterpret_cast<const float*>(env->GetDirectBufferAddress(data));
+  if (!data_ref) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "Cannot get direct access to the input buffer. It "
+                          "should be created using allocateDirect."));
+    return 0L;
+  }
+  if (env->GetDirectBufferCapacity(data) < rows * cols) {
+    ThrowIfError(
+        env, absl::InvalidArgumentError(absl::StrCat(
+                 "Please check the matrix data size, has to be rows * cols = ",
+                 rows * cols)));
+    return 0L;
+  }
+  std::unique_ptr<mediapipe::Matrix> matrix(new mediapipe::Matrix(rows, cols));
+  std::memcpy(matrix->data(), data_ref, rows * cols * sizeof(float));
+  mediapipe::Packet packet = mediapipe::Adopt(matrix.release());
+  return CreatePacketWithContext(context, packet);
+}
+
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateCpuImage)(
     JNIEnv* env, jobject thiz, jlong context, jobject byte_buffer, jint width,
     jint height, jint width_step, jint num_channels) {
-  mediapipe::ImageFormat::Format format;
-  switch (num_channels) {
-    case 4:
-      format = mediapipe::ImageFormat::SRGBA;
-      break;
-    case 3:
-      format = mediapipe::ImageFormat::SRGB;
-      break;
-    case 1:
-      format = mediapipe::ImageFormat::GRAY8;
-      break;
-    default:
-      ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
-                            "Channels must be either 1, 3, or 4, but are ",
-                            num_channels)));
-      return 0L;
-  }
+  auto format_or = GetCpuImageFormat(num_channels);
+  if (ThrowIfError(env, format_or.status())) return 0L;
 
   auto image_frame_or = CreateImageFrameFromByteBuffer(
-      env, byte_buffer, width, height, width_step, format);
+      env, byte_buffer, width, height, width_step, *format_or);
   if (ThrowIfError(env, image_frame_or.status())) return 0L;
 
   mediapipe::Packet packet =
@@ -399,6 +423,74 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateCpuImage)(
   return CreatePacketWithContext(context, packet);
 }
 
+JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateCpuImageWithoutCopy)(
+    JNIEnv* env, jobject thiz, jlong context, jobject byte_buffer, jint width,
+    jint height, jint width_step, jint num_channels,
+    jobject buffer_release_callback) {
+  auto format_or = GetCpuImageFormat(num_channels);
+  if (ThrowIfError(env, format_or.status())) return 0L;
+
+  const int64_t buffer_size = env->GetDirectBufferCapacity(byte_buffer);
+  uint8* buffer_data =
+      static_cast<uint8*>(env->GetDirectBufferAddress(byte_buffer));
+  if (buffer_data == nullptr || buffer_size < 0) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "Cannot get direct access to the input buffer. It "
+                          "should be created using allocateDirect."));
+    return 0L;
+  }
+  const int64_t expected_buffer_size =
+      static_cast<int64_t>(height) * width_step;
+  if (buffer_size != expected_buffer_size) {
+    ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                          "Input buffer size should be ", expected_buffer_size,
+                          " but is: ", buffer_size)));
+    return 0L;
+  }
+
+  jmethodID release_method = nullptr;
+  if (buffer_release_callback) {
+    // Resolved here since the release may happen on a thread that can't look
+    // up application classes.
+    jclass callback_class = env->FindClass(
+        "com/google/mediapipe/framework/BufferReleaseCallback");
+    release_method = env->GetMethodID(callback_class, "release",
+                                      "(Ljava/nio/ByteBuffer;)V");
+    env->DeleteLocalRef(callback_class);
+    if (release_method == nullptr) {
+      ThrowIfError(env, absl::InternalError(
+                            "Cannot find BufferReleaseCallback#release."));
+      return 0L;
+    }
+  }
+
+  // The global reference keeps the Java buffer, and therefore the pixel data,
+  // alive until the ImageFrame is destroyed.
+  jobject java_buffer = env->NewGlobalRef(byte_buffer);
+  jobject java_callback = buffer_release_callback
+                              ? env->NewGlobalRef(buffer_release_callback)
+                              : nullptr;
+  mediapipe::ImageFrame::Deleter deleter = [java_buffer, java_callback,
+                                            release_method](uint8*) {
+    JNIEnv* env = mediapipe::java::GetJNIEnv();
+    if (java_callback) {
+      env->CallVoidMethod(java_callback, release_method, java_buffer);
+      if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+      }
+      env->DeleteGlobalRef(java_callback);
+    }
+    env->DeleteGlobalRef(java_buffer);
+  };
+
+  auto image_frame = std::make_unique<mediapipe::ImageFrame>(
+      *format_or, width, height, width_step, buffer_data, std::move(deleter));
+  mediapipe::Packet packet =
+      mediapipe::MakePacket<mediapipe::Image>(std::move(image_frame));
+  return CreatePacketWithContext(context, packet);
+}
+
 #if !MEDIAPIPE_DISABLE_GPU
 
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateGpuImage)(
@@ -464,6 +556,19 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateFloat32Vector)(
   return CreatePacketWithContext(context, packet);
 }
 
+JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateInt32Vector)(
+    JNIEnv* env, jobject thiz, jlong context, jintArray data) {
+  jsize count = env->GetArrayLength(data);
+  jint* data_ref = env->GetIntArrayElements(data, nullptr);
+  static_assert(std::is_same<int, jint>::value, "jint must be int");
+  std::unique_ptr<std::vector<int>> ints =
+      absl::make_unique<std::vector<int>>(data_ref, data_ref + count);
+
+  env->ReleaseIntArrayElements(data, data_ref, JNI_ABORT);
+  mediapipe::Packet packet = mediapipe::Adopt(ints.release());
+  return CreatePacketWithContext(context, packet);
+}
+
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateInt32Array)(
     JNIEnv* env, jobject thiz, jlong context, jintArray data) {
   jsize count = env->GetArrayLength(data);
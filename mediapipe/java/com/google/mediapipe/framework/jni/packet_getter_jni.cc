@@ -14,6 +14,8 @@
 
 #include "mediapipe/java/com/google/mediapipe/framework/jni/packet_getter_jni.h"
 
+#include <cstring>
+
 #include "absl/status/status.h"
 #include "absl/strings/str_cat.h"
 #include "mediapipe/framework/calculator.pb.h"
@@ -22,6 +24,7 @@
 #include "mediapipe/framework/formats/matrix.h"
 #include "mediapipe/framework/formats/time_series_header.pb.h"
 #include "mediapipe/framework/formats/video_stream_header.h"
+#include "mediapipe/framework/port/advanced_proto_lite_inc.h"
 #include "mediapipe/framework/port/core_proto_inc.h"
 #include "mediapipe/framework/port/proto_ns.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/colorspace.h"
@@ -35,12 +38,47 @@
 namespace {
 using mediapipe::android::SerializedMessageIds;
 using mediapipe::android::ThrowIfError;
+using mediapipe::proto_ns::io::CodedOutputStream;
 
 template <typename T>
 const T& GetFromNativeHandle(int64_t packet_handle) {
   return mediapipe::android::Graph::GetPacketFromHandle(packet_handle).Get<T>();
 }
 
+// Checks that `size` values fit in `capacity` values, and throws otherwise.
+bool CheckOutputCapacity(JNIEnv* env, size_t size, jint capacity) {
+  if (capacity < 0 || static_cast<size_t>(capacity) < size) {
+    ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                          "The output has room for ", capacity,
+                          " values, but the packet holds ", size, ".")));
+    return false;
+  }
+  return true;
+}
+
+// Copies `size` values into a direct buffer, starting at the value `offset`.
+// Returns the number of values copied.
+template <typename T>
+jint CopyToDirectBuffer(JNIEnv* env, const T* data, size_t size,
+                        jobject buffer, jint offset, jint capacity) {
+  if (!CheckOutputCapacity(env, size, capacity)) return 0;
+  T* buffer_data = static_cast<T*>(env->GetDirectBufferAddress(buffer));
+  if (buffer_data == nullptr) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "output buffer does not support direct access"));
+    return 0;
+  }
+  std::memcpy(buffer_data + offset, data, size * sizeof(T));
+  return size;
+}
+
+// Returns a direct byte buffer over the values, without copying them. The
+// buffer is only valid while the packet holding the values is alive.
+template <typename T>
+jobject CreateDirectView(JNIEnv* env, const T* data, size_t size) {
+  return env->NewDirectByteBuffer(const_cast<T*>(data), size * sizeof(T));
+}
+
 bool CopyImageDataToByteBuffer(JNIEnv* env, const mediapipe::ImageFrame& image,
                                jobject byte_buffer) {
   int64_t buffer_size = env->GetDirectBufferCapacity(byte_buffer);
@@ -222,38 +260,58 @@ JNIEXPORT void JNICALL PACKET_GETTER_METHOD(nativeGetProto)(JNIEnv* env,
   }
 }
 
-JNIEXPORT jobjectArray JNICALL PACKET_GETTER_METHOD(nativeGetProtoVector)(
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetProtoVectorSerializedSize)(
     JNIEnv* env, jobject thiz, jlong packet) {
   mediapipe::Packet mediapipe_packet =
       mediapipe::android::Graph::GetPacketFromHandle(packet);
   auto get_proto_vector = mediapipe_packet.GetVectorOfProtoMessageLitePtrs();
-  if (!get_proto_vector.ok()) {
-    env->Throw(mediapipe::android::CreateMediaPipeException(
-        env, get_proto_vector.status()));
+  if (ThrowIfError(env, get_proto_vector.status())) return 0;
+  size_t serialized_size = 0;
+  for (const ::mediapipe::proto_ns::MessageLite* proto_message :
+       get_proto_vector.value()) {
+    const size_t message_size = proto_message->ByteSizeLong();
+    serialized_size +=
+        CodedOutputStream::VarintSize32(message_size) + message_size;
   }
+  return serialized_size;
+}
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetProtoVectorSerialized)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject byte_buffer) {
+  mediapipe::Packet mediapipe_packet =
+      mediapipe::android::Graph::GetPacketFromHandle(packet);
+  auto get_proto_vector = mediapipe_packet.GetVectorOfProtoMessageLitePtrs();
+  if (ThrowIfError(env, get_proto_vector.status())) return 0;
   const std::vector<const ::mediapipe::proto_ns::MessageLite*>& proto_vector =
       get_proto_vector.value();
-  // TODO: move to register natives.
-  jclass byte_array_cls = env->FindClass("[B");
-  jobjectArray proto_array =
-      env->NewObjectArray(proto_vector.size(), byte_array_cls, nullptr);
-  env->DeleteLocalRef(byte_array_cls);
-  for (int i = 0; i < proto_vector.size(); ++i) {
-    const ::mediapipe::proto_ns::MessageLite* proto_message = proto_vector[i];
-
-    // Convert the proto object into a Java byte array.
-    std::string serialized;
-    proto_message->SerializeToString(&serialized);
-    jbyteArray byte_array = env->NewByteArray(serialized.size());
-    env->SetByteArrayRegion(byte_array, 0, serialized.size(),
-                            reinterpret_cast<const jbyte*>(serialized.c_str()));
-
-    // Add the serialized proto byte_array to the output array.
-    env->SetObjectArrayElement(proto_array, i, byte_array);
-    env->DeleteLocalRef(byte_array);
+
+  uint8_t* buffer_data =
+      static_cast<uint8_t*>(env->GetDirectBufferAddress(byte_buffer));
+  const int64_t buffer_size = env->GetDirectBufferCapacity(byte_buffer);
+  if (buffer_data == nullptr || buffer_size < 0) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "Cannot get direct access to the output buffer. It "
+                          "should be created using allocateDirect."));
+    return 0;
   }
 
-  return proto_array;
+  // Writes the messages length-delimited, one after the other.
+  uint8_t* position = buffer_data;
+  const uint8_t* buffer_end = buffer_data + buffer_size;
+  for (const ::mediapipe::proto_ns::MessageLite* proto_message : proto_vector) {
+    const size_t message_size = proto_message->ByteSizeLong();
+    if (static_cast<size_t>(buffer_end - position) <
+        CodedOutputStream::VarintSize32(message_size) + message_size) {
+      ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                            "The output buffer of ", buffer_size,
+                            " bytes is too small for the vector of protos.")));
+      return 0;
+    }
+    position = CodedOutputStream::WriteVarint32ToArray(message_size, position);
+    proto_message->SerializeToArray(position, message_size);
+    position += message_size;
+  }
+  return proto_vector.size();
 }
 
 JNIEXPORT jshortArray JNICALL PACKET_GETTER_METHOD(nativeGetInt16Vector)(
@@ -296,6 +354,58 @@ JNIEXPORT jfloatArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat32Vector)(
   return result;
 }
 
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyInt32Vector)(
+    JNIEnv* env, jobject thiz, jlong packet, jintArray array, jint offset,
+    jint capacity) {
+  const std::vector<int>& values =
+      GetFromNativeHandle<std::vector<int>>(packet);
+  if (!CheckOutputCapacity(env, values.size(), capacity)) return 0;
+  env->SetIntArrayRegion(array, offset, values.size(), values.data());
+  return values.size();
+}
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyInt32VectorToBuffer)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject buffer, jint offset,
+    jint capacity) {
+  const std::vector<int>& values =
+      GetFromNativeHandle<std::vector<int>>(packet);
+  return CopyToDirectBuffer(env, values.data(), values.size(), buffer, offset,
+                            capacity);
+}
+
+JNIEXPORT jobject JNICALL PACKET_GETTER_METHOD(nativeGetInt32VectorView)(
+    JNIEnv* env, jobject thiz, jlong packet) {
+  const std::vector<int>& values =
+      GetFromNativeHandle<std::vector<int>>(packet);
+  return CreateDirectView(env, values.data(), values.size());
+}
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyFloat32Vector)(
+    JNIEnv* env, jobject thiz, jlong packet, jfloatArray array, jint offset,
+    jint capacity) {
+  const std::vector<float>& values =
+      GetFromNativeHandle<std::vector<float>>(packet);
+  if (!CheckOutputCapacity(env, values.size(), capacity)) return 0;
+  env->SetFloatArrayRegion(array, offset, values.size(), values.data());
+  return values.size();
+}
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyFloat32VectorToBuffer)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject buffer, jint offset,
+    jint capacity) {
+  const std::vector<float>& values =
+      GetFromNativeHandle<std::vector<float>>(packet);
+  return CopyToDirectBuffer(env, values.data(), values.size(), buffer, offset,
+                            capacity);
+}
+
+JNIEXPORT jobject JNICALL PACKET_GETTER_METHOD(nativeGetFloat32VectorView)(
+    JNIEnv* env, jobject thiz, jlong packet) {
+  const std::vector<float>& values =
+      GetFromNativeHandle<std::vector<float>>(packet);
+  return CreateDirectView(env, values.data(), values.size());
+}
+
 JNIEXPORT jdoubleArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat64Vector)(
     JNIEnv* env, jobject thiz, jlong packet) {
   const std::vector<double>& values =
@@ -489,6 +599,33 @@ JNIEXPORT jfloatArray JNICALL PACKET_GETTER_METHOD(nativeGetMatrixData)(
   return float_data;
 }
 
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyMatrixData)(
+    JNIEnv* env, jobject thiz, jlong packet, jfloatArray array, jint offset,
+    jint capacity) {
+  const mediapipe::Matrix& matrix =
+      GetFromNativeHandle<mediapipe::Matrix>(packet);
+  if (!CheckOutputCapacity(env, matrix.size(), capacity)) return 0;
+  env->SetFloatArrayRegion(array, offset, matrix.size(),
+                           reinterpret_cast<const jfloat*>(matrix.data()));
+  return matrix.size();
+}
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyMatrixDataToBuffer)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject buffer, jint offset,
+    jint capacity) {
+  const mediapipe::Matrix& matrix =
+      GetFromNativeHandle<mediapipe::Matrix>(packet);
+  return CopyToDirectBuffer(env, matrix.data(), matrix.size(), buffer, offset,
+                            capacity);
+}
+
+JNIEXPORT jobject JNICALL PACKET_GETTER_METHOD(nativeGetMatrixDataView)(
+    JNIEnv* env, jobject thiz, jlong packet) {
+  const mediapipe::Matrix& matrix =
+      GetFromNativeHandle<mediapipe::Matrix>(packet);
+  return CreateDirectView(env, matrix.data(), matrix.size());
+}
+
 JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetMatrixRows)(JNIEnv* env,
                                                                  jobject thiz,
                                                                  jlong packet) {
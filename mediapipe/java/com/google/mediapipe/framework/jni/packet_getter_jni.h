@@ -74,9 +74,16 @@ JNIEXPORT void JNICALL PACKET_GETTER_METHOD(nativeGetProto)(JNIEnv* env,
                                                             jlong packet,
                                                             jobject result);
 
-JNIEXPORT jobjectArray JNICALL PACKET_GETTER_METHOD(nativeGetProtoVector)(
+// Returns the number of bytes needed to serialize a vector of protos with
+// nativeGetProtoVectorSerialized.
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetProtoVectorSerializedSize)(
     JNIEnv* env, jobject thiz, jlong packet);
 
+// Serializes a vector of protos into a direct byte buffer as consecutive
+// length-delimited messages, and returns the number of messages.
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetProtoVectorSerialized)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject byte_buffer);
+
 JNIEXPORT jshortArray JNICALL PACKET_GETTER_METHOD(nativeGetInt16Vector)(
     JNIEnv* env, jobject thiz, jlong packet);
 
@@ -89,6 +96,34 @@ JNIEXPORT jlongArray JNICALL PACKET_GETTER_METHOD(nativeGetInt64Vector)(
 JNIEXPORT jfloatArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat32Vector)(
     JNIEnv* env, jobject thiz, jlong packet);
 
+// Copies a vector of int32 values into a Java array or a direct buffer
+// starting at `offset`, and returns the number of values copied.
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyInt32Vector)(
+    JNIEnv* env, jobject thiz, jlong packet, jintArray array, jint offset,
+    jint capacity);
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyInt32VectorToBuffer)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject buffer, jint offset,
+    jint capacity);
+
+// Returns a direct byte buffer over a vector of int32 values.
+JNIEXPORT jobject JNICALL PACKET_GETTER_METHOD(nativeGetInt32VectorView)(
+    JNIEnv* env, jobject thiz, jlong packet);
+
+// Copies a vector of float values into a Java array or a direct buffer
+// starting at `offset`, and returns the number of values copied.
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyFloat32Vector)(
+    JNIEnv* env, jobject thiz, jlong packet, jfloatArray array, jint offset,
+    jint capacity);
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyFloat32VectorToBuffer)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject buffer, jint offset,
+    jint capacity);
+
+// Returns a direct byte buffer over a vector of float values.
+JNIEXPORT jobject JNICALL PACKET_GETTER_METHOD(nativeGetFloat32VectorView)(
+    JNIEnv* env, jobject thiz, jlong packet);
+
 JNIEXPORT jdoubleArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat64Vector)(
     JNIEnv* env, jobject thiz, jlong packet);
 
@@ -149,6 +184,21 @@ JNIEXPORT jdouble JNICALL PACKET_GETTER_METHOD(
 JNIEXPORT jfloatArray JNICALL PACKET_GETTER_METHOD(nativeGetMatrixData)(
     JNIEnv* env, jobject thiz, jlong packet);
 
+// Copies the column major data of a MediaPipe::Matrix into a Java array or a
+// direct buffer starting at `offset`, and returns the number of values copied.
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyMatrixData)(
+    JNIEnv* env, jobject thiz, jlong packet, jfloatArray array, jint offset,
+    jint capacity);
+
+JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeCopyMatrixDataToBuffer)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject buffer, jint offset,
+    jint capacity);
+
+// Returns a direct byte buffer over the column major data of a
+// MediaPipe::Matrix.
+JNIEXPORT jobject JNICALL PACKET_GETTER_METHOD(nativeGetMatrixDataView)(
+    JNIEnv* env, jobject thiz, jlong packet);
+
 // Returns the number of rows of the matrix.
 JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetMatrixRows)(JNIEnv* env,
                                                                  jobject thiz,
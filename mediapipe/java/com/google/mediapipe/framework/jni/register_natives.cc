@@ -122,6 +122,9 @@ void RegisterGraphNatives(JNIEnv *env) {
   AddJNINativeMethod(&graph_methods, graph, "nativeMovePacketToInputStream",
                      "(JLjava/lang/String;JJ)V",
                      (void *)&GRAPH_METHOD(nativeMovePacketToInputStream));
+  AddJNINativeMethod(&graph_methods, graph, "nativeMovePacketsToInputStreams",
+                     "(J[Ljava/lang/String;[JJ)V",
+                     (void *)&GRAPH_METHOD(nativeMovePacketsToInputStreams));
   AddJNINativeMethod(&graph_methods, graph, "nativeStartRunningGraph",
                      "(J[Ljava/lang/String;[J[Ljava/lang/String;[J)V",
                      (void *)&GRAPH_METHOD(nativeStartRunningGraph));
@@ -156,6 +159,9 @@ void RegisterGraphProfilerNatives(JNIEnv *env) {
   AddJNINativeMethod(
       &graph_profiler_methods, graph_profiler, "nativeGetCalculatorProfiles",
       "(J)[[B", (void *)&GRAPH_PROFILER_METHOD(nativeGetCalculatorProfiles));
+  AddJNINativeMethod(&graph_profiler_methods, graph_profiler,
+                     "nativeGetGraphTrace", "(JJJ)[B",
+                     (void *)&GRAPH_PROFILER_METHOD(nativeGetGraphTrace));
   RegisterNativesVector(env, graph_profiler_class, graph_profiler_methods);
   env->DeleteLocalRef(graph_profiler_class);
 }
@@ -277,9 +283,14 @@ void RegisterPacketGetterNatives(JNIEnv *env) {
   AddJNINativeMethod(&packet_getter_methods, packet_getter,
                      "nativeGetFloat32Vector", "(J)[F",
                      (void *)&PACKET_GETTER_METHOD(nativeGetFloat32Vector));
-  AddJNINativeMethod(&packet_getter_methods, packet_getter,
-                     "nativeGetProtoVector", "(J)[[B",
-                     (void *)&PACKET_GETTER_METHOD(nativeGetProtoVector));
+  AddJNINativeMethod(
+      &packet_getter_methods, packet_getter,
+      "nativeGetProtoVectorSerializedSize", "(J)I",
+      (void *)&PACKET_GETTER_METHOD(nativeGetProtoVectorSerializedSize));
+  AddJNINativeMethod(
+      &packet_getter_methods, packet_getter, "nativeGetProtoVectorSerialized",
+      "(JLjava/nio/ByteBuffer;)I",
+      (void *)&PACKET_GETTER_METHOD(nativeGetProtoVectorSerialized));
   AddJNINativeMethod(&packet_getter_methods, packet_getter,
                      "nativeGetRgbaFromRgb", "(JLjava/nio/ByteBuffer;)Z",
                      (void *)&PACKET_GETTER_METHOD(nativeGetRgbaFromRgb));
@@ -298,6 +309,10 @@ void RegisterPacketNatives(JNIEnv *env) {
                      (void *)&PACKET_METHOD(nativeReleasePacket));
   AddJNINativeMethod(&packet_methods, packet, "nativeCopyPacket", "(J)J",
                      (void *)&PACKET_METHOD(nativeCopyPacket));
+  AddJNINativeMethod(&packet_methods, packet, "nativeGetGraphHandle", "(J)J",
+                     (void *)&PACKET_METHOD(nativeGetGraphHandle));
+  AddJNINativeMethod(&packet_methods, packet, "nativeGetPayloadSizeBytes",
+                     "(J)J", (void *)&PACKET_METHOD(nativeGetPayloadSizeBytes));
   AddJNINativeMethod(&packet_methods, packet, "nativeGetTimestamp", "(J)J",
                      (void *)&PACKET_METHOD(nativeGetTimestamp));
   AddJNINativeMethod(&packet_methods, packet, "nativeIsEmpty", "(J)Z",
@@ -0,0 +1,252 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.CallbackDispatcher.OverflowPolicy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link CallbackDispatcher}. */
+@RunWith(AndroidJUnit4.class)
+public final class CallbackDispatcherTest {
+
+  /** An {@link Executor} that runs the tasks only when asked to. */
+  private static final class ManualExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+
+  @Test
+  public void create_failsWithNonPositiveCapacity() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> CallbackDispatcher.create(new ManualExecutor(), 0, OverflowPolicy.DROP_OLDEST));
+  }
+
+  @Test
+  public void dispatch_runsCallbacksInOrder() {
+    ManualExecutor executor = new ManualExecutor();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 4, OverflowPolicy.DROP_OLDEST);
+    List<Integer> ran = new ArrayList<>();
+
+    for (int i = 0; i < 3; ++i) {
+      int value = i;
+      dispatcher.dispatch(() -> ran.add(value), /* discardAction= */ null);
+    }
+    assertThat(dispatcher.getQueueDepth()).isEqualTo(3);
+    executor.runAll();
+
+    assertThat(ran).containsExactly(0, 1, 2).inOrder();
+    assertThat(dispatcher.getQueueDepth()).isEqualTo(0);
+    assertThat(dispatcher.getPeakQueueDepth()).isEqualTo(3);
+    assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void dispatch_dropOldestDiscardsTheOldestCallback() {
+    ManualExecutor executor = new ManualExecutor();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 2, OverflowPolicy.DROP_OLDEST);
+    List<Integer> ran = new ArrayList<>();
+    List<Integer> discarded = new ArrayList<>();
+
+    for (int i = 0; i < 3; ++i) {
+      int value = i;
+      dispatcher.dispatch(() -> ran.add(value), () -> discarded.add(value));
+    }
+    executor.runAll();
+
+    assertThat(ran).containsExactly(1, 2).inOrder();
+    assertThat(discarded).containsExactly(0);
+    assertThat(dispatcher.getPeakQueueDepth()).isEqualTo(2);
+    assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void dispatch_dropNewestDiscardsTheNewCallback() {
+    ManualExecutor executor = new ManualExecutor();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 2, OverflowPolicy.DROP_NEWEST);
+    List<Integer> ran = new ArrayList<>();
+    List<Integer> discarded = new ArrayList<>();
+
+    for (int i = 0; i < 3; ++i) {
+      int value = i;
+      dispatcher.dispatch(() -> ran.add(value), () -> discarded.add(value));
+    }
+    executor.runAll();
+
+    assertThat(ran).containsExactly(0, 1).inOrder();
+    assertThat(discarded).containsExactly(2);
+    assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void dispatch_blockWaitsForRoomInTheQueue() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 1, OverflowPolicy.BLOCK);
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirst = new CountDownLatch(1);
+    CountDownLatch allRan = new CountDownLatch(3);
+    try {
+      dispatcher.dispatch(
+          () -> {
+            firstStarted.countDown();
+            awaitUninterruptibly(releaseFirst);
+            allRan.countDown();
+          },
+          /* discardAction= */ null);
+      assertThat(firstStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      // Fills the queue while the first callback is running.
+      dispatcher.dispatch(allRan::countDown, /* discardAction= */ null);
+
+      Thread blockedThread =
+          new Thread(() -> dispatcher.dispatch(allRan::countDown, /* discardAction= */ null));
+      blockedThread.start();
+      while (blockedThread.getState() != Thread.State.WAITING) {
+        Thread.sleep(1);
+      }
+      assertThat(dispatcher.getQueueDepth()).isEqualTo(1);
+
+      releaseFirst.countDown();
+      blockedThread.join();
+      assertThat(allRan.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(0L);
+    } finally {
+      releaseFirst.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void dispatch_keepsRunningAfterAFailingCallback() {
+    ManualExecutor executor = new ManualExecutor();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 2, OverflowPolicy.DROP_OLDEST);
+    List<Integer> ran = new ArrayList<>();
+
+    dispatcher.dispatch(
+        () -> {
+          throw new IllegalStateException("Callback failure.");
+        },
+        /* discardAction= */ null);
+    dispatcher.dispatch(() -> ran.add(1), /* discardAction= */ null);
+    executor.runAll();
+
+    assertThat(ran).containsExactly(1);
+  }
+
+  @Test
+  public void dispatch_restartsDrainingAfterACallbackThrowsAnError() {
+    ManualExecutor executor = new ManualExecutor();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 2, OverflowPolicy.DROP_OLDEST);
+    List<Integer> ran = new ArrayList<>();
+
+    dispatcher.dispatch(
+        () -> {
+          throw new AssertionError("Callback error.");
+        },
+        /* discardAction= */ null);
+    dispatcher.dispatch(() -> ran.add(1), /* discardAction= */ null);
+    assertThrows(AssertionError.class, executor::runAll);
+    dispatcher.dispatch(() -> ran.add(2), /* discardAction= */ null);
+    executor.runAll();
+
+    assertThat(ran).containsExactly(1, 2).inOrder();
+    assertThat(dispatcher.getQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void dispatch_discardsCallbacksRejectedByTheExecutor() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 2, OverflowPolicy.BLOCK);
+    List<Integer> ran = new ArrayList<>();
+    List<Integer> discarded = new ArrayList<>();
+
+    dispatcher.dispatch(() -> ran.add(0), () -> discarded.add(0));
+    dispatcher.dispatch(() -> ran.add(1), () -> discarded.add(1));
+
+    // Neither call blocks nor throws, and the dispatcher retries the executor on each dispatch.
+    assertThat(ran).isEmpty();
+    assertThat(discarded).containsExactly(0, 1).inOrder();
+    assertThat(dispatcher.getQueueDepth()).isEqualTo(0);
+    assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void dispatch_recoversOnceTheExecutorAcceptsAgain() {
+    ManualExecutor manualExecutor = new ManualExecutor();
+    boolean[] reject = {true};
+    Executor executor =
+        task -> {
+          if (reject[0]) {
+            throw new RejectedExecutionException("Rejected.");
+          }
+          manualExecutor.execute(task);
+        };
+    CallbackDispatcher dispatcher =
+        CallbackDispatcher.create(executor, /* capacity= */ 2, OverflowPolicy.DROP_OLDEST);
+    List<Integer> ran = new ArrayList<>();
+
+    dispatcher.dispatch(() -> ran.add(0), /* discardAction= */ null);
+    reject[0] = false;
+    dispatcher.dispatch(() -> ran.add(1), /* discardAction= */ null);
+    manualExecutor.runAll();
+
+    assertThat(ran).containsExactly(1);
+    assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(1L);
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    while (true) {
+      try {
+        latch.await();
+        return;
+      } catch (InterruptedException e) {
+        // Keeps waiting.
+      }
+    }
+  }
+}
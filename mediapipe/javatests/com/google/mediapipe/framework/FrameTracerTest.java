@@ -0,0 +1,205 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorProfileProto.GraphTrace;
+import com.google.mediapipe.proto.CalculatorProfileProto.GraphTrace.CalculatorTrace;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link FrameTracer}. */
+@RunWith(AndroidJUnit4.class)
+public final class FrameTracerTest {
+  private static final String PROCESS_NAMES =
+      "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"Java\"}},"
+          + "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":2,"
+          + "\"args\":{\"name\":\"MediaPipe graph\"}}";
+
+  @After
+  public void tearDown() {
+    FrameTracer.disable();
+  }
+
+  @Test
+  public void toChromeTraceJson_writesASpanWithoutFlow() {
+    Thread thread = new Thread("worker \"1\"");
+    long threadId = thread.getId();
+    List<FrameTracer.Span> spans = new ArrayList<>();
+    spans.add(
+        new FrameTracer.Span(
+            "create \"packet\"",
+            /* packetTimestamp= */ 7,
+            /* beginTimeUsec= */ 100,
+            /* durationUsec= */ 20,
+            thread));
+
+    String json = FrameTracer.toChromeTraceJson(spans, GraphTrace.getDefaultInstance());
+
+    assertThat(json)
+        .isEqualTo(
+            "{\"traceEvents\":["
+                + PROCESS_NAMES
+                + ",{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":"
+                + threadId
+                + ",\"args\":{\"name\":\"worker \\\"1\\\"\"}},"
+                + "{\"name\":\"create \\\"packet\\\"\",\"cat\":\"java\",\"ph\":\"X\",\"pid\":1,"
+                + "\"tid\":"
+                + threadId
+                + ",\"ts\":100,\"dur\":20,\"args\":{\"packet_timestamp\":7}}]}");
+  }
+
+  @Test
+  public void toChromeTraceJson_mergesAndLinksTheEventsOfAFrame() {
+    Thread thread = new Thread("worker");
+    long threadId = thread.getId();
+    // Added out of time order, as the spans are recorded when they end.
+    List<FrameTracer.Span> spans =
+        Arrays.asList(
+            new FrameTracer.Span("convert", /* packetTimestamp= */ 5, 200, 5, thread),
+            new FrameTracer.Span("add_packet", /* packetTimestamp= */ 5, 100, 10, thread));
+    GraphTrace graphTrace =
+        GraphTrace.newBuilder()
+            .setBaseTime(1000)
+            .setBaseTimestamp(2)
+            .addCalculatorName("CalcA")
+            .addCalculatorTrace(
+                CalculatorTrace.newBuilder()
+                    .setNodeId(0)
+                    .setEventType(GraphTrace.EventType.PROCESS)
+                    .setInputTimestamp(3)
+                    .setStartTime(-850)
+                    .setFinishTime(-820)
+                    .setThreadId(9))
+            .addCalculatorTrace(
+                CalculatorTrace.newBuilder()
+                    .setNodeId(1)
+                    .setEventType(GraphTrace.EventType.OPEN)
+                    .setStartTime(-990)
+                    .setFinishTime(-980)
+                    .setThreadId(9))
+            // Skipped, since it didn't finish.
+            .addCalculatorTrace(
+                CalculatorTrace.newBuilder()
+                    .setNodeId(0)
+                    .setEventType(GraphTrace.EventType.PROCESS)
+                    .setInputTimestamp(4)
+                    .setStartTime(-800)
+                    .setThreadId(9))
+            .build();
+
+    String json = FrameTracer.toChromeTraceJson(spans, graphTrace);
+
+    assertThat(json)
+        .isEqualTo(
+            "{\"traceEvents\":["
+                + PROCESS_NAMES
+                + ",{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":"
+                + threadId
+                + ",\"args\":{\"name\":\"worker\"}}"
+                // The calculator without a name is named after its node, and only Process()
+                // belongs to a frame.
+                + ",{\"name\":\"node_1\",\"cat\":\"open\",\"ph\":\"X\",\"pid\":2,\"tid\":9,"
+                + "\"ts\":10,\"dur\":10}"
+                + ",{\"name\":\"add_packet\",\"cat\":\"java\",\"ph\":\"X\",\"pid\":1,\"tid\":"
+                + threadId
+                + ",\"ts\":100,\"dur\":10,\"args\":{\"packet_timestamp\":5}}"
+                + ",{\"name\":\"frame\",\"cat\":\"frame\",\"ph\":\"s\",\"bp\":\"e\",\"id\":5,"
+                + "\"pid\":1,\"tid\":"
+                + threadId
+                + ",\"ts\":100}"
+                + ",{\"name\":\"CalcA\",\"cat\":\"process\",\"ph\":\"X\",\"pid\":2,\"tid\":9,"
+                + "\"ts\":150,\"dur\":30,\"args\":{\"packet_timestamp\":5}}"
+                + ",{\"name\":\"frame\",\"cat\":\"frame\",\"ph\":\"t\",\"bp\":\"e\",\"id\":5,"
+                + "\"pid\":2,\"tid\":9,\"ts\":150}"
+                + ",{\"name\":\"convert\",\"cat\":\"java\",\"ph\":\"X\",\"pid\":1,\"tid\":"
+                + threadId
+                + ",\"ts\":200,\"dur\":5,\"args\":{\"packet_timestamp\":5}}"
+                + ",{\"name\":\"frame\",\"cat\":\"frame\",\"ph\":\"f\",\"bp\":\"e\",\"id\":5,"
+                + "\"pid\":1,\"tid\":"
+                + threadId
+                + ",\"ts\":200}]}");
+  }
+
+  @Test
+  public void enable_failsWithNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> FrameTracer.enable(0));
+  }
+
+  @Test
+  public void endSpan_doesNotRecordWhileDisabled() throws Exception {
+    long beginTimeUsec = FrameTracer.beginSpan();
+    FrameTracer.enable(/* capacity= */ 4);
+    FrameTracer.endSpan("disabled_span", /* packetTimestamp= */ 1, beginTimeUsec);
+
+    assertThat(beginTimeUsec).isEqualTo(0L);
+    assertThat(writeChromeTrace()).isEqualTo("{\"traceEvents\":[" + PROCESS_NAMES + "]}");
+  }
+
+  @Test
+  public void writeChromeTrace_keepsTheMostRecentSpans() throws Exception {
+    FrameTracer.enable(/* capacity= */ 2);
+    for (int i = 0; i < 3; ++i) {
+      FrameTracer.endSpan("span_" + i, /* packetTimestamp= */ i, FrameTracer.beginSpan());
+    }
+
+    String json = writeChromeTrace();
+
+    assertThat(json).doesNotContain("\"span_0\"");
+    assertThat(json).contains("\"span_1\"");
+    assertThat(json).contains("\"span_2\"");
+    assertThat(json).contains("{\"name\":\"" + Thread.currentThread().getName() + "\"}");
+  }
+
+  @Test
+  public void disable_discardsTheSpans() throws Exception {
+    FrameTracer.enable(/* capacity= */ 2);
+    FrameTracer.endSpan("span", /* packetTimestamp= */ 1, FrameTracer.beginSpan());
+
+    FrameTracer.disable();
+
+    assertThat(FrameTracer.isEnabled()).isFalse();
+    assertThat(writeChromeTrace()).doesNotContain("\"span\"");
+  }
+
+  private static String writeChromeTrace() throws Exception {
+    File file = File.createTempFile("frame_trace", ".json");
+    try {
+      FrameTracer.writeChromeTrace(file, /* profiler= */ null);
+      ByteArrayOutputStream json = new ByteArrayOutputStream();
+      try (InputStream input = new FileInputStream(file)) {
+        byte[] chunk = new byte[4096];
+        for (int count = input.read(chunk); count != -1; count = input.read(chunk)) {
+          json.write(chunk, 0, count);
+        }
+      }
+      return new String(json.toByteArray(), StandardCharsets.UTF_8);
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorProfileProto.CalculatorProfile;
+import com.google.mediapipe.proto.CalculatorProfileProto.TimeHistogram;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link GraphProfileSampler}. */
+@RunWith(AndroidJUnit4.class)
+public final class GraphProfileSamplerTest {
+  private static final String CALCULATOR_NAME = "PassThroughCalculator";
+  private static final long INTERVAL_SIZE_USEC = 1000;
+
+  @Test
+  public void computeDelta_reportsTheWholeProfileWithoutPreviousProfile() {
+    CalculatorProfile current = createProfile(/* totalUsec= */ 3500, 2, 1);
+
+    GraphProfileReport.CalculatorDelta delta =
+        GraphProfileSampler.computeDelta(current, /* previous= */ null);
+
+    assertThat(delta.getCalculatorName()).isEqualTo(CALCULATOR_NAME);
+    assertThat(delta.getProcessCalls()).isEqualTo(3L);
+    assertThat(delta.getProcessTimeUsec()).isEqualTo(3500L);
+    assertThat(delta.getProcessTimeHistogram()).isEqualTo(new long[] {2, 1});
+    assertThat(delta.getHistogramIntervalUsec()).isEqualTo(INTERVAL_SIZE_USEC);
+    assertThat(delta.getOpenTimeUsec()).isEqualTo(10L);
+    assertThat(delta.getCloseTimeUsec()).isEqualTo(20L);
+  }
+
+  @Test
+  public void computeDelta_reportsTheActivitySinceThePreviousProfile() {
+    CalculatorProfile previous = createProfile(/* totalUsec= */ 3500, 2, 1);
+    CalculatorProfile current = createProfile(/* totalUsec= */ 9000, 5, 2);
+
+    GraphProfileReport.CalculatorDelta delta = GraphProfileSampler.computeDelta(current, previous);
+
+    assertThat(delta.getProcessCalls()).isEqualTo(4L);
+    assertThat(delta.getProcessTimeUsec()).isEqualTo(5500L);
+    assertThat(delta.getProcessTimeHistogram()).isEqualTo(new long[] {3, 1});
+  }
+
+  @Test
+  public void computeDelta_reportsTheActivitySinceAProfilerReset() {
+    CalculatorProfile previous = createProfile(/* totalUsec= */ 9000, 5, 2);
+    // The profiler was reset, and then ran a single call.
+    CalculatorProfile current = createProfile(/* totalUsec= */ 1500, 0, 1);
+
+    GraphProfileReport.CalculatorDelta delta = GraphProfileSampler.computeDelta(current, previous);
+
+    assertThat(delta.getProcessCalls()).isEqualTo(1L);
+    assertThat(delta.getProcessTimeUsec()).isEqualTo(1500L);
+    assertThat(delta.getProcessTimeHistogram()).isEqualTo(new long[] {0, 1});
+  }
+
+  @Test
+  public void computeDelta_detectsAResetWhenOnlyABucketDecreased() {
+    CalculatorProfile previous = createProfile(/* totalUsec= */ 3500, 2, 1);
+    // The total grew past the previous one after the reset, but the first bucket decreased.
+    CalculatorProfile current = createProfile(/* totalUsec= */ 4500, 1, 2);
+
+    GraphProfileReport.CalculatorDelta delta = GraphProfileSampler.computeDelta(current, previous);
+
+    assertThat(delta.getProcessCalls()).isEqualTo(3L);
+    assertThat(delta.getProcessTimeUsec()).isEqualTo(4500L);
+    assertThat(delta.getProcessTimeHistogram()).isEqualTo(new long[] {1, 2});
+  }
+
+  @Test
+  public void computeDelta_detectsAResetWhenTheBucketsChanged() {
+    CalculatorProfile previous = createProfile(/* totalUsec= */ 3500, 2, 1);
+    CalculatorProfile current = createProfile(/* totalUsec= */ 9000, 3, 2, 1);
+
+    GraphProfileReport.CalculatorDelta delta = GraphProfileSampler.computeDelta(current, previous);
+
+    assertThat(delta.getProcessCalls()).isEqualTo(6L);
+    assertThat(delta.getProcessTimeHistogram()).isEqualTo(new long[] {3, 2, 1});
+  }
+
+  private static CalculatorProfile createProfile(long totalUsec, long... counts) {
+    TimeHistogram.Builder processRuntime =
+        TimeHistogram.newBuilder()
+            .setTotal(totalUsec)
+            .setIntervalSizeUsec(INTERVAL_SIZE_USEC)
+            .setNumIntervals(counts.length);
+    for (long count : counts) {
+      processRuntime.addCount(count);
+    }
+    return CalculatorProfile.newBuilder()
+        .setName(CALCULATOR_NAME)
+        .setOpenRuntime(10)
+        .setCloseRuntime(20)
+        .setProcessRuntime(processRuntime)
+        .build();
+  }
+}
@@ -0,0 +1,211 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
+import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig.Node;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link Graph}. */
+@RunWith(AndroidJUnit4.class)
+public final class GraphTest {
+  private static final int NUM_STREAMS = 4;
+
+  static {
+    System.loadLibrary("mediapipe_jni");
+  }
+
+  private Graph graph;
+  private PacketCreator packetCreator;
+  private final AtomicInteger outputPacketCount = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    CalculatorGraphConfig.Builder config = CalculatorGraphConfig.newBuilder();
+    for (int i = 0; i < NUM_STREAMS; ++i) {
+      config.addInputStream("in" + i);
+      config.addOutputStream("out" + i);
+      config.addNode(
+          Node.newBuilder()
+              .setCalculator("PassThroughCalculator")
+              .addInputStream("in" + i)
+              .addOutputStream("out" + i));
+    }
+    graph = new Graph();
+    graph.loadBinaryGraph(config.build());
+    for (int i = 0; i < NUM_STREAMS; ++i) {
+      graph.addPacketCallback("out" + i, packet -> outputPacketCount.incrementAndGet());
+    }
+    packetCreator = new PacketCreator(graph);
+  }
+
+  @After
+  public void tearDown() {
+    graph.tearDown();
+  }
+
+  @Test
+  public void waitUntilGraphDone_succeedsWhileGraphIsUsedConcurrently() throws Exception {
+    for (int run = 0; run < 3; ++run) {
+      graph.startRunningGraph();
+      AtomicBoolean stopped = new AtomicBoolean(false);
+      CountDownLatch inputStreamsClosed = new CountDownLatch(NUM_STREAMS);
+      List<Throwable> unexpectedErrors = new ArrayList<>();
+      List<Thread> producers = new ArrayList<>();
+      for (int i = 0; i < NUM_STREAMS; ++i) {
+        String streamName = "in" + i;
+        Thread producer =
+            new Thread(
+                () -> {
+                  try {
+                    // Adds packets until the input stream is closed.
+                    for (long timestamp = 0; ; ++timestamp) {
+                      Packet packet = packetCreator.createInt32((int) timestamp);
+                      try {
+                        graph.addConsumablePacketToInputStream(streamName, packet, timestamp);
+                      } catch (MediaPipeException e) {
+                        packet.release();
+                        break;
+                      }
+                    }
+                    inputStreamsClosed.countDown();
+                    // Keeps using the native graph while it's being stopped.
+                    while (!stopped.get()) {
+                      try {
+                        graph.waitUntilGraphIdle();
+                      } catch (MediaPipeException e) {
+                        // The graph is done.
+                      }
+                    }
+                  } catch (RuntimeException e) {
+                    synchronized (unexpectedErrors) {
+                      unexpectedErrors.add(e);
+                    }
+                    inputStreamsClosed.countDown();
+                  }
+                });
+        producers.add(producer);
+        producer.start();
+      }
+
+      graph.closeAllPacketSources();
+      inputStreamsClosed.await();
+      graph.waitUntilGraphDone();
+      stopped.set(true);
+      for (Thread producer : producers) {
+        producer.join();
+      }
+
+      synchronized (unexpectedErrors) {
+        assertThat(unexpectedErrors).isEmpty();
+      }
+    }
+    assertThat(outputPacketCount.get()).isGreaterThan(0);
+  }
+
+  @Test
+  public void addPacketToInputStream_buffersPacketsAfterGraphIsDone() throws Exception {
+    graph.startRunningGraph();
+    graph.closeAllPacketSources();
+    graph.waitUntilGraphDone();
+
+    Packet packet = packetCreator.createInt32(1);
+    graph.addConsumablePacketToInputStream("in0", packet, /* timestamp= */ 0);
+    assertThat(outputPacketCount.get()).isEqualTo(0);
+
+    graph.startRunningGraph();
+    graph.closeAllPacketSources();
+    graph.waitUntilGraphDone();
+    assertThat(outputPacketCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void addConsumablePacketsToInputStreams_consumesNoPacketWithUnknownStream() {
+    graph.startRunningGraph();
+    Packet[] packets = {packetCreator.createInt32(1), packetCreator.createInt32(2)};
+
+    assertThrows(
+        MediaPipeException.class,
+        () ->
+            graph.addConsumablePacketsToInputStreams(
+                new String[] {"in0", "missing"}, packets, /* timestamp= */ 0));
+
+    assertThat(packets[0].getNativeHandle()).isNotEqualTo(0L);
+    assertThat(packets[1].getNativeHandle()).isNotEqualTo(0L);
+    assertThat(PacketGetter.getInt32(packets[0])).isEqualTo(1);
+    assertThat(PacketGetter.getInt32(packets[1])).isEqualTo(2);
+    packets[0].release();
+    packets[1].release();
+  }
+
+  @Test
+  public void addConsumablePacketsToInputStreams_consumesNoPacketWithDuplicatedStream() {
+    graph.startRunningGraph();
+    Packet[] packets = {packetCreator.createInt32(1), packetCreator.createInt32(2)};
+
+    assertThrows(
+        MediaPipeException.class,
+        () ->
+            graph.addConsumablePacketsToInputStreams(
+                new String[] {"in0", "in0"}, packets, /* timestamp= */ 0));
+
+    assertThat(packets[0].getNativeHandle()).isNotEqualTo(0L);
+    assertThat(packets[1].getNativeHandle()).isNotEqualTo(0L);
+    packets[0].release();
+    packets[1].release();
+  }
+
+  @Test
+  public void addConsumablePacketsToInputStreams_consumesOnlyThePacketsAddedBeforeAFailure() {
+    graph.startRunningGraph();
+    graph.addConsumablePacketToInputStream("in1", packetCreator.createInt32(0), /* timestamp= */ 5);
+    Packet[] packets = {packetCreator.createInt32(1), packetCreator.createInt32(2)};
+
+    // The timestamp doesn't increase in "in1", which is only found when adding the second packet.
+    assertThrows(
+        MediaPipeException.class,
+        () ->
+            graph.addConsumablePacketsToInputStreams(
+                new String[] {"in0", "in1"}, packets, /* timestamp= */ 3));
+
+    assertThat(packets[0].getNativeHandle()).isEqualTo(0L);
+    assertThat(packets[1].getNativeHandle()).isNotEqualTo(0L);
+    packets[1].release();
+  }
+
+  @Test
+  public void getCalculatorProfiles_failsAfterGraphIsDone() throws Exception {
+    graph.startRunningGraph();
+    GraphProfiler profiler = graph.getProfiler();
+    graph.closeAllPacketSources();
+    graph.waitUntilGraphDone();
+
+    IllegalStateException exception =
+        assertThrows(IllegalStateException.class, profiler::getCalculatorProfiles);
+    assertThat(exception).hasMessageThat().contains("stopped running");
+  }
+}
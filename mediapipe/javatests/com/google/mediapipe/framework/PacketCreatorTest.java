@@ -0,0 +1,229 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link PacketCreator}. */
+@RunWith(AndroidJUnit4.class)
+public final class PacketCreatorTest {
+  private static final int ROWS = 2;
+  private static final int COLS = 3;
+  private static final float[] MATRIX_DATA = {1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f};
+  private static final int IMAGE_WIDTH = 2;
+  private static final int IMAGE_HEIGHT = 2;
+  private static final int IMAGE_CHANNELS = 4;
+
+  static {
+    System.loadLibrary("mediapipe_jni");
+  }
+
+  private Graph graph;
+  private PacketCreator packetCreator;
+
+  @Before
+  public void setUp() {
+    graph = new Graph();
+    packetCreator = new PacketCreator(graph);
+  }
+
+  @After
+  public void tearDown() {
+    graph.tearDown();
+  }
+
+  @Test
+  public void createMatrix_succeedsWithArray() {
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, MATRIX_DATA);
+
+    assertMatrixEquals(packet, MATRIX_DATA);
+    packet.release();
+  }
+
+  @Test
+  public void createMatrix_succeedsWithNativeOrderDirectBuffer() {
+    FloatBuffer data = allocateDirect(MATRIX_DATA.length, ByteOrder.nativeOrder());
+    data.put(MATRIX_DATA);
+    data.rewind();
+
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, data);
+
+    assertMatrixEquals(packet, MATRIX_DATA);
+    assertThat(data.position()).isEqualTo(0);
+    packet.release();
+  }
+
+  @Test
+  public void createMatrix_succeedsWithNonNativeOrderDirectBuffer() {
+    ByteOrder nonNativeOrder =
+        ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN
+            ? ByteOrder.BIG_ENDIAN
+            : ByteOrder.LITTLE_ENDIAN;
+    FloatBuffer data = allocateDirect(MATRIX_DATA.length, nonNativeOrder);
+    data.put(MATRIX_DATA);
+    data.rewind();
+
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, data);
+
+    assertMatrixEquals(packet, MATRIX_DATA);
+    packet.release();
+  }
+
+  @Test
+  public void createMatrix_usesRemainingFloatsOfHeapBuffer() {
+    FloatBuffer data = FloatBuffer.allocate(MATRIX_DATA.length + 2);
+    data.put(0.0f).put(MATRIX_DATA).put(0.0f);
+    data.position(1);
+    data.limit(1 + MATRIX_DATA.length);
+
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, data);
+
+    assertMatrixEquals(packet, MATRIX_DATA);
+    assertThat(data.position()).isEqualTo(1);
+    packet.release();
+  }
+
+  @Test
+  public void createMatrix_usesRemainingFloatsOfDirectBuffer() {
+    FloatBuffer data = allocateDirect(MATRIX_DATA.length + 2, ByteOrder.nativeOrder());
+    data.put(0.0f).put(MATRIX_DATA).put(0.0f);
+    data.position(1);
+    data.limit(1 + MATRIX_DATA.length);
+
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, data);
+
+    assertMatrixEquals(packet, MATRIX_DATA);
+    packet.release();
+  }
+
+  @Test
+  public void createMatrix_failsWithWrongBufferSize() {
+    FloatBuffer data = FloatBuffer.allocate(MATRIX_DATA.length - 1);
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class, () -> packetCreator.createMatrix(ROWS, COLS, data));
+    assertThat(exception).hasMessageThat().contains("rows * cols");
+  }
+
+  @Test
+  public void createImage_copiesTheBuffer() {
+    ByteBuffer pixels = createImagePixels();
+
+    Packet packet = packetCreator.createImage(pixels, IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_CHANNELS);
+    pixels.put(0, (byte) 100);
+
+    assertThat(getImageData(packet).get(0)).isEqualTo((byte) 0);
+    packet.release();
+  }
+
+  @Test
+  public void createImage_wrapsTheBufferUntilTheLastPacketIsReleased() {
+    ByteBuffer pixels = createImagePixels();
+    List<ByteBuffer> releasedBuffers = new ArrayList<>();
+
+    Packet packet =
+        packetCreator.createImage(
+            pixels, IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_CHANNELS, releasedBuffers::add);
+    // The packet reads the pixels of the buffer without a copy.
+    pixels.put(0, (byte) 100);
+    assertThat(getImageData(packet).get(0)).isEqualTo((byte) 100);
+
+    Packet copy = packet.copy();
+    packet.release();
+    assertThat(releasedBuffers).isEmpty();
+    copy.release();
+    assertThat(releasedBuffers).hasSize(1);
+    assertThat(releasedBuffers.get(0)).isSameInstanceAs(pixels);
+  }
+
+  @Test
+  public void createImage_wrapsTheBufferWithoutReleaseCallback() {
+    ByteBuffer pixels = createImagePixels();
+
+    Packet packet =
+        packetCreator.createImage(
+            pixels, IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_CHANNELS, /* releaseCallback= */ null);
+
+    assertThat(PacketGetter.getImageWidth(packet)).isEqualTo(IMAGE_WIDTH);
+    assertThat(PacketGetter.getImageHeight(packet)).isEqualTo(IMAGE_HEIGHT);
+    assertThat(getImageData(packet)).isEqualTo(pixels);
+    packet.release();
+  }
+
+  @Test
+  public void createImage_failsToWrapAHeapBuffer() {
+    ByteBuffer pixels = ByteBuffer.allocate(IMAGE_WIDTH * IMAGE_HEIGHT * IMAGE_CHANNELS);
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                packetCreator.createImage(
+                    pixels, IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_CHANNELS, buffer -> {}));
+    assertThat(exception).hasMessageThat().contains("allocateDirect");
+  }
+
+  @Test
+  public void createImage_failsToWrapABufferOfTheWrongSize() {
+    ByteBuffer pixels = ByteBuffer.allocateDirect(IMAGE_WIDTH * IMAGE_HEIGHT * IMAGE_CHANNELS - 1);
+    List<ByteBuffer> releasedBuffers = new ArrayList<>();
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                packetCreator.createImage(
+                    pixels, IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_CHANNELS, releasedBuffers::add));
+    assertThat(exception).hasMessageThat().contains("size of the buffer");
+    assertThat(releasedBuffers).isEmpty();
+  }
+
+  private static ByteBuffer createImagePixels() {
+    ByteBuffer pixels = ByteBuffer.allocateDirect(IMAGE_WIDTH * IMAGE_HEIGHT * IMAGE_CHANNELS);
+    for (int i = 0; i < pixels.capacity(); ++i) {
+      pixels.put(i, (byte) i);
+    }
+    return pixels;
+  }
+
+  private static ByteBuffer getImageData(Packet packet) {
+    ByteBuffer data = ByteBuffer.allocateDirect(IMAGE_WIDTH * IMAGE_HEIGHT * IMAGE_CHANNELS);
+    assertThat(PacketGetter.getImageData(packet, data)).isTrue();
+    return data;
+  }
+
+  private static FloatBuffer allocateDirect(int size, ByteOrder order) {
+    return ByteBuffer.allocateDirect(size * Float.BYTES).order(order).asFloatBuffer();
+  }
+
+  private static void assertMatrixEquals(Packet packet, float[] expectedData) {
+    assertThat(PacketGetter.getMatrixRows(packet)).isEqualTo(ROWS);
+    assertThat(PacketGetter.getMatrixCols(packet)).isEqualTo(COLS);
+    assertThat(PacketGetter.getMatrixData(packet)).isEqualTo(expectedData);
+  }
+}
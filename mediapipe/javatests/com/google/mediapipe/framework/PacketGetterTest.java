@@ -0,0 +1,347 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorProfileProto.CalculatorProfile;
+import com.google.protobuf.CodedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link PacketGetter}. */
+@RunWith(AndroidJUnit4.class)
+public final class PacketGetterTest {
+  private static final int[] INT_DATA = {1, 2, 3};
+  private static final float[] FLOAT_DATA = {1.0f, 2.0f, 3.0f};
+  private static final int ROWS = 2;
+  private static final int COLS = 3;
+  private static final float[] MATRIX_DATA = {1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f};
+
+  static {
+    System.loadLibrary("mediapipe_jni");
+  }
+
+  private Graph graph;
+  private PacketCreator packetCreator;
+
+  @Before
+  public void setUp() {
+    graph = new Graph();
+    packetCreator = new PacketCreator(graph);
+  }
+
+  @After
+  public void tearDown() {
+    graph.tearDown();
+  }
+
+  @Test
+  public void getInt32Vector_copiesIntoTheArrayAtTheOffset() {
+    Packet packet = packetCreator.createInt32Vector(INT_DATA);
+    int[] dst = new int[5];
+
+    assertThat(PacketGetter.getInt32Vector(packet, dst, /* offset= */ 1)).isEqualTo(3);
+
+    assertThat(dst).asList().containsExactly(0, 1, 2, 3, 0).inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void getInt32Vector_failsWithOutOfBoundsOffset() {
+    Packet packet = packetCreator.createInt32Vector(INT_DATA);
+    int[] dst = new int[5];
+
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> PacketGetter.getInt32Vector(packet, dst, /* offset= */ -1));
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> PacketGetter.getInt32Vector(packet, dst, /* offset= */ 6));
+    packet.release();
+  }
+
+  @Test
+  public void getInt32Vector_failsWithoutRoomAfterTheOffset() {
+    Packet packet = packetCreator.createInt32Vector(INT_DATA);
+    int[] dst = new int[5];
+
+    MediaPipeException exception =
+        assertThrows(
+            MediaPipeException.class,
+            () -> PacketGetter.getInt32Vector(packet, dst, /* offset= */ 3));
+
+    assertThat(exception).hasMessageThat().contains("room for 2 values");
+    assertThat(dst).asList().containsExactly(0, 0, 0, 0, 0);
+    packet.release();
+  }
+
+  @Test
+  public void getInt32Vector_copiesIntoTheHeapBufferAtItsPosition() {
+    Packet packet = packetCreator.createInt32Vector(INT_DATA);
+    IntBuffer dst = IntBuffer.allocate(5);
+    dst.position(1);
+
+    assertThat(PacketGetter.getInt32Vector(packet, dst)).isEqualTo(3);
+
+    assertThat(dst.position()).isEqualTo(4);
+    assertThat(dst.array()).asList().containsExactly(0, 1, 2, 3, 0).inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void getInt32Vector_copiesIntoTheDirectBufferAtItsPosition() {
+    Packet packet = packetCreator.createInt32Vector(INT_DATA);
+    IntBuffer dst =
+        ByteBuffer.allocateDirect(5 * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    dst.position(2);
+
+    assertThat(PacketGetter.getInt32Vector(packet, dst)).isEqualTo(3);
+
+    assertThat(dst.position()).isEqualTo(5);
+    int[] values = new int[5];
+    dst.rewind();
+    dst.get(values);
+    assertThat(values).asList().containsExactly(0, 0, 1, 2, 3).inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void getInt32VectorView_returnsTheValuesReadOnly() {
+    Packet packet = packetCreator.createInt32Vector(INT_DATA);
+
+    IntBuffer view = PacketGetter.getInt32VectorView(packet);
+
+    assertThat(view.isReadOnly()).isTrue();
+    assertThat(view.remaining()).isEqualTo(INT_DATA.length);
+    int[] values = new int[INT_DATA.length];
+    view.get(values);
+    assertThat(values).isEqualTo(INT_DATA);
+    packet.release();
+  }
+
+  @Test
+  public void getFloat32Vector_copiesIntoTheArrayAtTheOffset() {
+    Packet packet = packetCreator.createFloat32Vector(FLOAT_DATA);
+    float[] dst = new float[4];
+
+    assertThat(PacketGetter.getFloat32Vector(packet, dst, /* offset= */ 1)).isEqualTo(3);
+
+    assertThat(dst).usingExactEquality().containsExactly(0f, 1f, 2f, 3f).inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void getFloat32Vector_failsWithoutRoomInTheBuffer() {
+    Packet packet = packetCreator.createFloat32Vector(FLOAT_DATA);
+    FloatBuffer dst = allocateDirect(4, ByteOrder.nativeOrder());
+    dst.position(2);
+
+    MediaPipeException exception =
+        assertThrows(MediaPipeException.class, () -> PacketGetter.getFloat32Vector(packet, dst));
+
+    assertThat(exception).hasMessageThat().contains("room for 2 values");
+    assertThat(dst.position()).isEqualTo(2);
+    packet.release();
+  }
+
+  @Test
+  public void getFloat32Vector_failsWithNonNativeOrderDirectBuffer() {
+    Packet packet = packetCreator.createFloat32Vector(FLOAT_DATA);
+    ByteOrder nonNativeOrder =
+        ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN
+            ? ByteOrder.BIG_ENDIAN
+            : ByteOrder.LITTLE_ENDIAN;
+    FloatBuffer dst = allocateDirect(FLOAT_DATA.length, nonNativeOrder);
+
+    assertThrows(IllegalArgumentException.class, () -> PacketGetter.getFloat32Vector(packet, dst));
+    packet.release();
+  }
+
+  @Test
+  public void getFloat32Vector_failsWithReadOnlyBuffer() {
+    Packet packet = packetCreator.createFloat32Vector(FLOAT_DATA);
+    FloatBuffer dst = FloatBuffer.allocate(FLOAT_DATA.length).asReadOnlyBuffer();
+
+    assertThrows(ReadOnlyBufferException.class, () -> PacketGetter.getFloat32Vector(packet, dst));
+    packet.release();
+  }
+
+  @Test
+  public void getFloat32VectorView_returnsADirectReadOnlyView() {
+    Packet packet = packetCreator.createFloat32Vector(FLOAT_DATA);
+
+    FloatBuffer view = PacketGetter.getFloat32VectorView(packet);
+
+    assertThat(view.isReadOnly()).isTrue();
+    assertThat(view.isDirect()).isTrue();
+    assertThat(view.order()).isEqualTo(ByteOrder.nativeOrder());
+    assertThat(view.remaining()).isEqualTo(FLOAT_DATA.length);
+    assertThat(view.get(2)).isEqualTo(3.0f);
+    packet.release();
+  }
+
+  @Test
+  public void getMatrixData_copiesIntoTheArrayAtTheOffset() {
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, MATRIX_DATA);
+    float[] dst = new float[MATRIX_DATA.length + 2];
+
+    assertThat(PacketGetter.getMatrixData(packet, dst, /* offset= */ 2))
+        .isEqualTo(MATRIX_DATA.length);
+
+    assertThat(dst)
+        .usingExactEquality()
+        .containsExactly(0f, 0f, 1f, 2f, 3f, 4f, 5f, 6f)
+        .inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void getMatrixData_copiesIntoTheHeapBufferAtItsPosition() {
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, MATRIX_DATA);
+    FloatBuffer dst = FloatBuffer.allocate(MATRIX_DATA.length + 1);
+    dst.position(1);
+
+    assertThat(PacketGetter.getMatrixData(packet, dst)).isEqualTo(MATRIX_DATA.length);
+
+    assertThat(dst.hasRemaining()).isFalse();
+    assertThat(dst.array())
+        .usingExactEquality()
+        .containsExactly(0f, 1f, 2f, 3f, 4f, 5f, 6f)
+        .inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void getMatrixData_failsWithoutRoomInTheArray() {
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, MATRIX_DATA);
+
+    assertThrows(
+        MediaPipeException.class,
+        () ->
+            PacketGetter.getMatrixData(packet, new float[MATRIX_DATA.length], /* offset= */ 1));
+    packet.release();
+  }
+
+  @Test
+  public void getMatrixDataView_returnsTheColumnMajorData() {
+    Packet packet = packetCreator.createMatrix(ROWS, COLS, MATRIX_DATA);
+
+    FloatBuffer view = PacketGetter.getMatrixDataView(packet);
+
+    assertThat(view.isReadOnly()).isTrue();
+    float[] values = new float[view.remaining()];
+    view.get(values);
+    assertThat(values).usingExactEquality().containsExactly(MATRIX_DATA).inOrder();
+    packet.release();
+  }
+
+  @Test
+  public void parseProtoVector_succeedsWithEmptyVector() throws Exception {
+    List<CalculatorProfile> messages = new ArrayList<>();
+
+    assertThat(roundTrip(messages)).isEmpty();
+  }
+
+  @Test
+  public void parseProtoVector_succeedsWithSingleMessage() throws Exception {
+    List<CalculatorProfile> messages = new ArrayList<>();
+    messages.add(CalculatorProfile.newBuilder().setName("calculator").setOpenRuntime(7).build());
+
+    assertThat(roundTrip(messages)).containsExactlyElementsIn(messages).inOrder();
+  }
+
+  @Test
+  public void parseProtoVector_succeedsWithVectorLargerThanTheRetainedBuffer() throws Exception {
+    List<CalculatorProfile> messages = new ArrayList<>();
+    int serializedSize = 0;
+    for (int i = 0; serializedSize <= PacketGetter.MAX_RETAINED_PROTO_VECTOR_BUFFER_SIZE; ++i) {
+      CalculatorProfile message =
+          CalculatorProfile.newBuilder().setName("calculator_" + i).setOpenRuntime(i).build();
+      messages.add(message);
+      serializedSize += CodedOutputStream.computeMessageSizeNoTag(message);
+    }
+
+    assertThat(roundTrip(messages)).containsExactlyElementsIn(messages).inOrder();
+  }
+
+  @Test
+  public void getProtoVectorBuffer_reusesTheBufferOfTheThread() {
+    ByteBuffer buffer = PacketGetter.getProtoVectorBuffer(16);
+
+    assertThat(buffer.isDirect()).isTrue();
+    assertThat(PacketGetter.getProtoVectorBuffer(buffer.capacity())).isSameInstanceAs(buffer);
+    assertThat(PacketGetter.getProtoVectorBuffer(0)).isSameInstanceAs(buffer);
+  }
+
+  @Test
+  public void getProtoVectorBuffer_growsTheRetainedBufferUpToTheLimit() {
+    ByteBuffer buffer = PacketGetter.getProtoVectorBuffer(16);
+
+    ByteBuffer grownBuffer = PacketGetter.getProtoVectorBuffer(buffer.capacity() + 1);
+
+    assertThat(grownBuffer.capacity()).isGreaterThan(buffer.capacity());
+    assertThat(PacketGetter.getProtoVectorBuffer(16)).isSameInstanceAs(grownBuffer);
+  }
+
+  @Test
+  public void getProtoVectorBuffer_doesNotRetainOversizedBuffers() {
+    int oversizedSize = PacketGetter.MAX_RETAINED_PROTO_VECTOR_BUFFER_SIZE + 1;
+    ByteBuffer retainedBuffer = PacketGetter.getProtoVectorBuffer(16);
+
+    ByteBuffer oversizedBuffer = PacketGetter.getProtoVectorBuffer(oversizedSize);
+
+    assertThat(oversizedBuffer.capacity()).isAtLeast(oversizedSize);
+    assertThat(PacketGetter.getProtoVectorBuffer(oversizedSize))
+        .isNotSameInstanceAs(oversizedBuffer);
+    assertThat(PacketGetter.getProtoVectorBuffer(16)).isSameInstanceAs(retainedBuffer);
+  }
+
+  private static FloatBuffer allocateDirect(int size, ByteOrder order) {
+    return ByteBuffer.allocateDirect(size * Float.BYTES).order(order).asFloatBuffer();
+  }
+
+  /**
+   * Writes the messages length-delimited, as the native code does, into a buffer from {@link
+   * PacketGetter#getProtoVectorBuffer} and parses them back.
+   */
+  private static List<CalculatorProfile> roundTrip(List<CalculatorProfile> messages)
+      throws Exception {
+    int serializedSize = 0;
+    for (CalculatorProfile message : messages) {
+      serializedSize += CodedOutputStream.computeMessageSizeNoTag(message);
+    }
+    ByteBuffer buffer = PacketGetter.getProtoVectorBuffer(serializedSize);
+    buffer.clear();
+    CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+    for (CalculatorProfile message : messages) {
+      output.writeMessageNoTag(message);
+    }
+    output.flush();
+    return PacketGetter.parseProtoVector(
+        buffer, serializedSize, messages.size(), CalculatorProfile.parser());
+  }
+}
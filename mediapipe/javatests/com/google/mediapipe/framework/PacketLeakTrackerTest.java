@@ -0,0 +1,144 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
+import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig.Node;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link PacketLeakTracker}. */
+@RunWith(AndroidJUnit4.class)
+public final class PacketLeakTrackerTest {
+  private static final int NUM_PACKETS = 5;
+  // The number of garbage collections to wait for before deciding that no leak is reported.
+  private static final int MAX_GC_ATTEMPTS = 20;
+
+  static {
+    System.loadLibrary("mediapipe_jni");
+  }
+
+  private Graph graph;
+  private PacketCreator packetCreator;
+  private final List<PacketLeakTracker.LeakReport> leakReports = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    graph = new Graph();
+    graph.loadBinaryGraph(
+        CalculatorGraphConfig.newBuilder()
+            .addInputStream("in")
+            .addOutputStream("out")
+            .addNode(
+                Node.newBuilder()
+                    .setCalculator("PassThroughCalculator")
+                    .addInputStream("in")
+                    .addOutputStream("out"))
+            .build());
+    packetCreator = new PacketCreator(graph);
+    PacketLeakTracker.setLeakListener(
+        report -> {
+          synchronized (leakReports) {
+            leakReports.add(report);
+          }
+        });
+    PacketLeakTracker.enable(/* stackSampleInterval= */ 1);
+  }
+
+  @After
+  public void tearDown() {
+    PacketLeakTracker.disable();
+    graph.tearDown();
+    PacketLeakTracker.reportLeaks();
+    PacketLeakTracker.setLeakListener(null);
+  }
+
+  @Test
+  public void release_stopsTrackingThePacket() throws Exception {
+    Packet packet = packetCreator.createInt32(42);
+    assertThat(PacketLeakTracker.getGraphStats(graph).getLivePacketCount()).isEqualTo(1L);
+
+    packet.release();
+    packet = null;
+    collectGarbage();
+
+    PacketLeakTracker.GraphStats stats = PacketLeakTracker.getGraphStats(graph);
+    assertThat(stats.getLivePacketCount()).isEqualTo(0L);
+    assertThat(stats.getLeakedPacketCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void reportLeaks_reportsAPacketCollectedWithoutRelease() throws Exception {
+    createUnreleasedPacket();
+
+    for (int i = 0; i < MAX_GC_ATTEMPTS; ++i) {
+      collectGarbage();
+      if (PacketLeakTracker.getGraphStats(graph).getLeakedPacketCount() > 0) {
+        break;
+      }
+    }
+
+    PacketLeakTracker.GraphStats stats = PacketLeakTracker.getGraphStats(graph);
+    assertThat(stats.getLeakedPacketCount()).isEqualTo(1L);
+    // Leaked packets stay live, since their payloads are pinned until the graph is torn down.
+    assertThat(stats.getLivePacketCount()).isEqualTo(1L);
+    synchronized (leakReports) {
+      assertThat(leakReports).hasSize(1);
+      assertThat(leakReports.get(0).getCreationSite()).isNotNull();
+    }
+  }
+
+  @Test
+  public void graphCallbackPackets_areNotTracked() throws Exception {
+    AtomicInteger outputPacketCount = new AtomicInteger();
+    graph.addPacketCallback("out", packet -> outputPacketCount.incrementAndGet());
+    graph.startRunningGraph();
+    for (int i = 0; i < NUM_PACKETS; ++i) {
+      graph.addConsumablePacketToInputStream("in", packetCreator.createInt32(i), i);
+    }
+    graph.closeAllPacketSources();
+    graph.waitUntilGraphDone();
+
+    for (int i = 0; i < MAX_GC_ATTEMPTS; ++i) {
+      collectGarbage();
+    }
+
+    assertThat(outputPacketCount.get()).isEqualTo(NUM_PACKETS);
+    PacketLeakTracker.GraphStats stats = PacketLeakTracker.getGraphStats(graph);
+    assertThat(stats.getLivePacketCount()).isEqualTo(0L);
+    assertThat(stats.getLeakedPacketCount()).isEqualTo(0L);
+    synchronized (leakReports) {
+      assertThat(leakReports).isEmpty();
+    }
+  }
+
+  private void createUnreleasedPacket() {
+    packetCreator.createInt32(42);
+  }
+
+  private static void collectGarbage() throws InterruptedException {
+    Runtime.getRuntime().gc();
+    System.runFinalization();
+    Thread.sleep(10);
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link PrometheusGraphProfileSink}. */
+@RunWith(AndroidJUnit4.class)
+public final class PrometheusGraphProfileSinkTest {
+  private PrometheusGraphProfileSink sink;
+
+  @Before
+  public void setUp() throws Exception {
+    sink = new PrometheusGraphProfileSink(/* port= */ 0);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    sink.close();
+  }
+
+  @Test
+  public void toPrometheusText_exportsTheAccumulatedMetrics() {
+    sink.publish(createReport(createDelta("Calc\"A\"", 3, 3500, new long[] {2, 1})));
+    sink.publish(createReport(createDelta("Calc\"A\"", 2, 1500, new long[] {1, 1})));
+
+    assertThat(sink.toPrometheusText())
+        .isEqualTo(
+            "# TYPE mediapipe_calculator_process_time_usec histogram\n"
+                + "mediapipe_calculator_process_time_usec_bucket{calculator=\"Calc\\\"A\\\"\","
+                + "le=\"1000\"} 3\n"
+                + "mediapipe_calculator_process_time_usec_bucket{calculator=\"Calc\\\"A\\\"\","
+                + "le=\"+Inf\"} 5\n"
+                + "mediapipe_calculator_process_time_usec_sum{calculator=\"Calc\\\"A\\\"\"} 5000\n"
+                + "mediapipe_calculator_process_time_usec_count{calculator=\"Calc\\\"A\\\"\"} 5\n"
+                + "# TYPE mediapipe_calculator_open_time_usec gauge\n"
+                + "mediapipe_calculator_open_time_usec{calculator=\"Calc\\\"A\\\"\"} 10\n"
+                + "# TYPE mediapipe_calculator_close_time_usec gauge\n"
+                + "mediapipe_calculator_close_time_usec{calculator=\"Calc\\\"A\\\"\"} 20\n");
+  }
+
+  @Test
+  public void toPrometheusText_restartsTheHistogramWhenTheBucketsChange() {
+    sink.publish(createReport(createDelta("CalcA", 3, 3500, new long[] {2, 1})));
+    sink.publish(createReport(createDelta("CalcA", 3, 1500, new long[] {1, 1, 1})));
+
+    String text = sink.toPrometheusText();
+
+    assertThat(text)
+        .contains(
+            "mediapipe_calculator_process_time_usec_bucket{calculator=\"CalcA\",le=\"1000\"} 1\n");
+    assertThat(text)
+        .contains(
+            "mediapipe_calculator_process_time_usec_bucket{calculator=\"CalcA\",le=\"+Inf\"} 3\n");
+    // The sum and the count keep accumulating.
+    assertThat(text)
+        .contains("mediapipe_calculator_process_time_usec_count{calculator=\"CalcA\"} 6\n");
+  }
+
+  @Test
+  public void serve_respondsWithTheMetrics() throws Exception {
+    sink.publish(createReport(createDelta("CalcA", 3, 3500, new long[] {2, 1})));
+
+    String response;
+    try (Socket socket = new Socket(InetAddress.getByName(null), sink.getPort())) {
+      OutputStream output = socket.getOutputStream();
+      output.write("GET /metrics HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      output.flush();
+      response = readAll(socket.getInputStream());
+    }
+
+    assertThat(response).contains("HTTP/1.0 200 OK\r\n");
+    assertThat(response).contains("Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n");
+    assertThat(response).endsWith("\r\n\r\n" + sink.toPrometheusText());
+  }
+
+  @Test
+  public void close_doesNotWaitForAnIdleClient() throws Exception {
+    try (Socket socket = new Socket(InetAddress.getByName(null), sink.getPort())) {
+      // Gives the server thread the time to accept the connection that never sends a request.
+      Thread.sleep(100);
+      long startTimeMs = System.currentTimeMillis();
+      sink.close();
+      assertThat(System.currentTimeMillis() - startTimeMs).isLessThan(1000L);
+    }
+  }
+
+  private static GraphProfileReport createReport(GraphProfileReport.CalculatorDelta delta) {
+    return new GraphProfileReport(
+        /* timestampMs= */ 0, /* intervalMs= */ 1000, Arrays.asList(delta));
+  }
+
+  private static GraphProfileReport.CalculatorDelta createDelta(
+      String calculatorName, long processCalls, long processTimeUsec, long[] histogram) {
+    return new GraphProfileReport.CalculatorDelta(
+        calculatorName,
+        processCalls,
+        processTimeUsec,
+        /* openTimeUsec= */ 10,
+        /* closeTimeUsec= */ 20,
+        /* histogramIntervalUsec= */ 1000,
+        histogram);
+  }
+
+  private static String readAll(InputStream input) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int count;
+    while ((count = input.read(buffer)) != -1) {
+      bytes.write(buffer, 0, count);
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -24,6 +24,7 @@ limitations under the License.
 #include "absl/memory/memory.h"
 #include "absl/status/status.h"
 #include "absl/status/statusor.h"
+#include "absl/synchronization/mutex.h"
 #include "mediapipe/framework/api2/packet.h"
 #include "mediapipe/framework/calculator_framework.h"
 #include "mediapipe/tasks/cc/core/model_asset_bundle_resources.h"
@@ -39,6 +40,9 @@ namespace core {
 // ModelResources object that bundles the model-related resources (e.g.,
 // flatbuffer model, op resolver, and model metadata extractor) of a particular
 // model.
+//
+// The cache is thread-safe so that a single cache can be shared by multiple
+// CalculatorGraphs running the same task graph.
 class ModelResourcesCache {
  public:
   explicit ModelResourcesCache(
@@ -92,14 +96,16 @@ class ModelResourcesCache {
   // The packet stores all TFLite op resolvers for the models in the graph.
   api2::Packet<tflite::OpResolver> graph_op_resolver_packet_;
 
+  mutable absl::Mutex mutex_;
+
   // A collection of ModelResources objects for the models in the graph.
   absl::flat_hash_map<std::string, std::unique_ptr<ModelResources>>
-      model_resources_collection_;
+      model_resources_collection_ ABSL_GUARDED_BY(mutex_);
 
   // A collection of ModelAssetBundleResources objects for the model bundles in
   // the graph.
   absl::flat_hash_map<std::string, std::unique_ptr<ModelAssetBundleResources>>
-      model_asset_bundle_resources_collection_;
+      model_asset_bundle_resources_collection_ ABSL_GUARDED_BY(mutex_);
 };
 
 // Global service for mediapipe task model resources cache.
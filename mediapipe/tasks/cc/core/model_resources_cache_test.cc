@@ -0,0 +1,109 @@
+/* Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+#include "mediapipe/tasks/cc/core/model_resources_cache.h"
+
+#include <atomic>
+#include <memory>
+#include <string>
+#include <thread>  // NOLINT(build/c++11)
+#include <utility>
+#include <vector>
+
+#include "absl/status/status.h"
+#include "absl/strings/str_cat.h"
+#include "mediapipe/framework/port/gmock.h"
+#include "mediapipe/framework/port/gtest.h"
+#include "mediapipe/framework/port/status_matchers.h"
+#include "mediapipe/tasks/cc/core/model_resources.h"
+#include "mediapipe/tasks/cc/core/proto/external_file.pb.h"
+#include "tensorflow/lite/core/shims/cc/shims_test_util.h"
+
+namespace mediapipe {
+namespace tasks {
+namespace core {
+namespace {
+
+constexpr char kTestModelPath[] =
+    "mediapipe/tasks/testdata/core/"
+    "test_model_without_custom_op.tflite";
+
+constexpr int kNumThreads = 8;
+
+std::unique_ptr<ModelResources> CreateModelResources(const std::string& tag) {
+  auto model_file = std::make_unique<proto::ExternalFile>();
+  model_file->set_file_name(kTestModelPath);
+  auto model_resources = ModelResources::Create(tag, std::move(model_file));
+  EXPECT_TRUE(model_resources.ok()) << model_resources.status();
+  return std::move(model_resources).value();
+}
+
+}  // namespace
+
+class ModelResourcesCacheTest : public tflite_shims::testing::Test {};
+
+TEST_F(ModelResourcesCacheTest, AddsAndGetsModelResourcesConcurrently) {
+  ModelResourcesCache cache;
+  std::vector<std::thread> threads;
+  for (int i = 0; i < kNumThreads; ++i) {
+    threads.emplace_back([&cache, i]() {
+      const std::string tag = absl::StrCat("model_", i);
+      MP_EXPECT_OK(cache.AddModelResources(CreateModelResources(tag)));
+      // Reads the resources added by the other threads so far.
+      for (int j = 0; j < kNumThreads; ++j) {
+        const std::string other_tag = absl::StrCat("model_", j);
+        if (cache.Exists(other_tag)) {
+          auto model_resources = cache.GetModelResources(other_tag);
+          MP_EXPECT_OK(model_resources);
+          EXPECT_EQ((*model_resources)->GetTag(), other_tag);
+        }
+      }
+    });
+  }
+  for (std::thread& thread : threads) {
+    thread.join();
+  }
+
+  for (int i = 0; i < kNumThreads; ++i) {
+    EXPECT_TRUE(cache.Exists(absl::StrCat("model_", i)));
+  }
+}
+
+TEST_F(ModelResourcesCacheTest, AddsModelResourcesWithTheSameTagOnce) {
+  ModelResourcesCache cache;
+  std::atomic<int> num_added(0);
+  std::vector<std::thread> threads;
+  for (int i = 0; i < kNumThreads; ++i) {
+    threads.emplace_back([&cache, &num_added]() {
+      absl::Status status =
+          cache.AddModelResources(CreateModelResources("shared_model"));
+      if (status.ok()) {
+        ++num_added;
+      } else {
+        EXPECT_EQ(status.code(), absl::StatusCode::kInvalidArgument);
+      }
+    });
+  }
+  for (std::thread& thread : threads) {
+    thread.join();
+  }
+
+  EXPECT_EQ(num_added.load(), 1);
+  MP_EXPECT_OK(cache.GetModelResources("shared_model"));
+}
+
+}  // namespace core
+}  // namespace tasks
+}  // namespace mediapipe
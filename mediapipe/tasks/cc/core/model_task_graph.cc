@@ -174,6 +174,11 @@ absl::StatusOr<const ModelResources*> ModelTaskGraph::CreateModelResources(
       model_resources_cache_service.GetObject().GetGraphOpResolverPacket());
   const std::string tag =
       absl::StrCat(CreateModelResourcesTag(sc->OriginalNode()), tag_suffix);
+  // The cache may be shared by multiple graphs running the same task graph, in
+  // which case the model resources are only created once.
+  if (model_resources_cache_service.GetObject().Exists(tag)) {
+    return model_resources_cache_service.GetObject().GetModelResources(tag);
+  }
   ASSIGN_OR_RETURN(auto model_resources,
                    ModelResources::Create(tag, std::move(external_file),
                                           op_resolver_packet));
@@ -208,6 +213,10 @@ ModelTaskGraph::CreateModelAssetBundleResources(
   }
   const std::string tag = absl::StrCat(
       CreateModelAssetBundleResourcesTag(sc->OriginalNode()), tag_suffix);
+  if (model_resources_cache_service.GetObject().ModelAssetBundleExists(tag)) {
+    return model_resources_cache_service.GetObject()
+        .GetModelAssetBundleResources(tag);
+  }
   ASSIGN_OR_RETURN(
       auto model_bundle_resources,
       ModelAssetBundleResources::Create(tag, std::move(external_file)));
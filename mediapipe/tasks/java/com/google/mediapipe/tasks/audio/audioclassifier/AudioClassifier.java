@@ -72,7 +72,7 @@ import java.util.Optional;
  *       these are available, only the `index` field of the results will be filled.
  * </ul>
  */
-public final class AudioClassifier extends BaseAudioTaskApi {
+public final class AudioClassifier extends BaseAudioTaskApi<AudioClassifierResult> {
   private static final String TAG = AudioClassifier.class.getSimpleName();
   private static final String AUDIO_IN_STREAM_NAME = "audio_in";
   private static final String SAMPLE_RATE_IN_STREAM_NAME = "sample_rate_in";
@@ -197,6 +197,7 @@ public final class AudioClassifier extends BaseAudioTaskApi {
       handler.setResultListener(resultListener);
     }
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     // Audio tasks should not drop input audio due to flow limiting, which may cause data
     // inconsistency.
     TaskRunner runner =
@@ -210,9 +211,12 @@ public final class AudioClassifier extends BaseAudioTaskApi {
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
                 .setEnableFlowLimiting(false)
+                .setMemoryBudget(options.baseOptions().memoryBudget())
+                .setStatsExporter(options.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(options.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new AudioClassifier(runner, options.runningMode());
+    return new AudioClassifier(runner, options.runningMode(), handler);
   }
 
   /**
@@ -221,9 +225,13 @@ public final class AudioClassifier extends BaseAudioTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe audio task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private AudioClassifier(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, AUDIO_IN_STREAM_NAME, SAMPLE_RATE_IN_STREAM_NAME);
+  private AudioClassifier(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<AudioClassifierResult, Void> outputHandler) {
+    super(taskRunner, runningMode, AUDIO_IN_STREAM_NAME, SAMPLE_RATE_IN_STREAM_NAME, outputHandler);
   }
 
   /*
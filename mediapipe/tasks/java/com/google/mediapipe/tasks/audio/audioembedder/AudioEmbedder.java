@@ -68,7 +68,7 @@ import java.util.Optional;
  *   <li>Either 2 or 4 dimensions, i.e. `[1 x N]` or `[1 x 1 x 1 x N]`.
  * </ul>
  */
-public final class AudioEmbedder extends BaseAudioTaskApi {
+public final class AudioEmbedder extends BaseAudioTaskApi<AudioEmbedderResult> {
   private static final String TAG = AudioEmbedder.class.getSimpleName();
   private static final String AUDIO_IN_STREAM_NAME = "audio_in";
   private static final String SAMPLE_RATE_IN_STREAM_NAME = "sample_rate_in";
@@ -192,6 +192,7 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
       handler.setResultListener(resultListener);
     }
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     // Audio tasks should not drop input audio due to flow limiting, which may cause data
     // inconsistency.
     TaskRunner runner =
@@ -205,9 +206,12 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
                 .setEnableFlowLimiting(false)
+                .setMemoryBudget(options.baseOptions().memoryBudget())
+                .setStatsExporter(options.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(options.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new AudioEmbedder(runner, options.runningMode());
+    return new AudioEmbedder(runner, options.runningMode(), handler);
   }
 
   /**
@@ -216,9 +220,13 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe audio task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private AudioEmbedder(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, AUDIO_IN_STREAM_NAME, SAMPLE_RATE_IN_STREAM_NAME);
+  private AudioEmbedder(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<AudioEmbedderResult, Void> outputHandler) {
+    super(taskRunner, runningMode, AUDIO_IN_STREAM_NAME, SAMPLE_RATE_IN_STREAM_NAME, outputHandler);
   }
 
   /*
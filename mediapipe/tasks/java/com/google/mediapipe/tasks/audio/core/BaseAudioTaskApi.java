@@ -17,24 +17,41 @@ package com.google.mediapipe.tasks.audio.core;
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.RequiresApi;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.tasks.components.containers.AudioData;
+import com.google.mediapipe.tasks.core.InputPacketCache;
+import com.google.mediapipe.tasks.core.OutputHandler;
+import com.google.mediapipe.tasks.core.ResultPublisher;
 import com.google.mediapipe.tasks.core.TaskResult;
 import com.google.mediapipe.tasks.core.TaskRunner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
-/** The base class of MediaPipe audio tasks. */
-public class BaseAudioTaskApi implements AutoCloseable {
+/**
+ * The base class of MediaPipe audio tasks.
+ *
+ * @param <OutputT> the type of the task results.
+ */
+public class BaseAudioTaskApi<OutputT extends TaskResult> implements AutoCloseable {
   private static final long MICROSECONDS_PER_MILLISECOND = 1000;
   private static final long PRESTREAM_TIMESTAMP = Long.MIN_VALUE + 2;
+  private static final int SAMPLE_RATE_PACKET_CACHE_CAPACITY = 2;
 
   private final TaskRunner runner;
   private final RunningMode runningMode;
   private final String audioStreamName;
   private final String sampleRateStreamName;
+  private final InputPacketCache<Double> sampleRatePackets;
+  private final OutputHandler<OutputT, ?> outputHandler;
   private double defaultSampleRate;
+  // The direct buffer that the audio samples are staged in before being copied into a packet.
+  private FloatBuffer audioBuffer;
 
   static {
     System.loadLibrary("mediapipe_tasks_audio_jni");
@@ -47,17 +64,24 @@ public class BaseAudioTaskApi implements AutoCloseable {
    * @param runningMode a mediapipe audio task {@link RunningMode}.
    * @param audioStreamName the name of the input audio stream.
    * @param sampleRateStreamName the name of the audio sample rate stream.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
   public BaseAudioTaskApi(
       TaskRunner runner,
       RunningMode runningMode,
       String audioStreamName,
-      String sampleRateStreamName) {
+      String sampleRateStreamName,
+      OutputHandler<OutputT, ?> outputHandler) {
     this.runner = runner;
     this.runningMode = runningMode;
     this.audioStreamName = audioStreamName;
     this.sampleRateStreamName = sampleRateStreamName;
+    this.outputHandler = outputHandler;
     this.defaultSampleRate = -1.0;
+    this.sampleRatePackets =
+        new InputPacketCache<>(
+            SAMPLE_RATE_PACKET_CACHE_CAPACITY,
+            sampleRate -> runner.getPacketCreator().createFloat64(sampleRate));
   }
 
   /**
@@ -77,15 +101,10 @@ public class BaseAudioTaskApi implements AutoCloseable {
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(
         audioStreamName,
-        runner
-            .getPacketCreator()
-            .createMatrix(
-                audioClip.getFormat().getNumOfChannels(),
-                audioClip.getBufferLength(),
-                audioClip.getBuffer()));
+        createAudioMatrixPacket(audioClip));
     inputPackets.put(
         sampleRateStreamName,
-        runner.getPacketCreator().createFloat64(audioClip.getFormat().getSampleRate()));
+        sampleRatePackets.get((double) audioClip.getFormat().getSampleRate()));
     return runner.process(inputPackets);
   }
 
@@ -138,18 +157,53 @@ public class BaseAudioTaskApi implements AutoCloseable {
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(
         audioStreamName,
-        runner
-            .getPacketCreator()
-            .createMatrix(
-                audioClip.getFormat().getNumOfChannels(),
-                audioClip.getBufferLength(),
-                audioClip.getBuffer()));
+        createAudioMatrixPacket(audioClip));
     runner.send(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
   }
 
+  /**
+   * Creates a matrix packet from the audio samples. The samples are copied into a reused direct
+   * buffer and then into the packet, so no Java array is allocated per invocation.
+   */
+  private synchronized Packet createAudioMatrixPacket(AudioData audioClip) {
+    int numOfChannels = audioClip.getFormat().getNumOfChannels();
+    int bufferLength = audioClip.getBufferLength();
+    int size = numOfChannels * bufferLength;
+    if (audioBuffer == null || audioBuffer.capacity() != size) {
+      audioBuffer =
+          ByteBuffer.allocateDirect(size * Float.BYTES)
+              .order(ByteOrder.nativeOrder())
+              .asFloatBuffer();
+    }
+    audioBuffer.clear();
+    audioClip.getBuffer(audioBuffer);
+    audioBuffer.flip();
+    return runner.getPacketCreator().createMatrix(numOfChannels, bufferLength, audioBuffer);
+  }
+
+  /**
+   * Returns a {@link ResultPublisher} of the task results in the audio stream mode, published
+   * alongside the result listener. A subscriber receives the task results as it requests them.
+   * While it has no outstanding demand, only the latest result is kept for it. The subscribers are
+   * completed when the task is closed.
+   *
+   * @throws MediaPipeException if the task is not in the audio stream mode.
+   */
+  @RequiresApi(VERSION_CODES.R)
+  public ResultPublisher<OutputT> resultPublisher() {
+    if (runningMode != RunningMode.AUDIO_STREAM) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the audio stream mode. Current running mode:"
+              + runningMode.name());
+    }
+    return outputHandler.getResultPublisher();
+  }
+
   /** Closes and cleans up the MediaPipe audio task. */
   @Override
   public void close() {
+    sampleRatePackets.close();
     runner.close();
   }
 
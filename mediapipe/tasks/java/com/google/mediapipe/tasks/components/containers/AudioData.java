@@ -19,8 +19,6 @@ import static java.lang.System.arraycopy;
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import com.google.auto.value.AutoValue;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
 /**
@@ -252,11 +250,47 @@ public class AudioData {
    */
   public float[] getBuffer() {
     float[] bufferData = new float[buffer.getCapacity()];
-    ByteBuffer byteBuffer = buffer.getBuffer();
-    byteBuffer.asFloatBuffer().get(bufferData);
+    buffer.copyTo(bufferData, 0);
     return bufferData;
   }
 
+  /**
+   * Copies all the available audio samples in {@link android.media.AudioFormat#ENCODING_PCM_FLOAT}
+   * into the beginning of {@code dst}, without allocating any intermediate buffer.
+   *
+   * @param dst the array to copy the samples to, whose length should be at least {@link
+   *     #getBufferLength()} * the number of channels.
+   * @throws IllegalArgumentException if {@code dst} is too small.
+   */
+  public void getBuffer(float[] dst) {
+    if (dst.length < buffer.getCapacity()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "The destination array length (%d) should be >= the buffer size (%d)",
+              dst.length, buffer.getCapacity()));
+    }
+    buffer.copyTo(dst, 0);
+  }
+
+  /**
+   * Copies all the available audio samples in {@link android.media.AudioFormat#ENCODING_PCM_FLOAT}
+   * into {@code dst} at its current position, without allocating any intermediate buffer. The
+   * position of {@code dst} is advanced by the number of copied samples.
+   *
+   * @param dst the buffer to copy the samples to, whose remaining size should be at least {@link
+   *     #getBufferLength()} * the number of channels.
+   * @throws IllegalArgumentException if {@code dst} is too small.
+   */
+  public void getBuffer(FloatBuffer dst) {
+    if (dst.remaining() < buffer.getCapacity()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "The destination buffer remaining size (%d) should be >= the buffer size (%d)",
+              dst.remaining(), buffer.getCapacity()));
+    }
+    buffer.copyTo(dst);
+  }
+
   /* Returns the {@link AudioDataFormat} associated with the tensor. */
   public AudioDataFormat getFormat() {
     return format;
@@ -314,17 +348,16 @@ public class AudioData {
       nextIndex = (nextIndex + size) % buffer.length;
     }
 
-    public ByteBuffer getBuffer() {
-      // Create non-direct buffers. On Pixel 4, creating direct buffer costs around 0.1 ms, which
-      // can be 5x ~ 10x longer compared to non-direct buffer backed by arrays (around 0.01ms), so
-      // generally we don't create direct buffer for every invocation.
-      ByteBuffer byteBuffer = ByteBuffer.allocate(Float.SIZE / 8 * buffer.length);
-      byteBuffer.order(ByteOrder.nativeOrder());
-      FloatBuffer result = byteBuffer.asFloatBuffer();
-      result.put(buffer, nextIndex, buffer.length - nextIndex);
-      result.put(buffer, 0, nextIndex);
-      byteBuffer.rewind();
-      return byteBuffer;
+    /** Copies the samples from the oldest to the latest into {@code dst} starting at offset. */
+    public void copyTo(float[] dst, int offset) {
+      arraycopy(buffer, nextIndex, dst, offset, buffer.length - nextIndex);
+      arraycopy(buffer, 0, dst, offset + buffer.length - nextIndex, nextIndex);
+    }
+
+    /** Copies the samples from the oldest to the latest into {@code dst}. */
+    public void copyTo(FloatBuffer dst) {
+      dst.put(buffer, nextIndex, buffer.length - nextIndex);
+      dst.put(buffer, 0, nextIndex);
     }
 
     public int getCapacity() {
@@ -14,11 +14,41 @@
 
 package com.google.mediapipe.tasks.components.utils;
 
+import com.google.auto.value.AutoValue;
 import com.google.mediapipe.tasks.components.containers.Embedding;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /** Utility class for computing cosine similarity between {@link Embedding} objects. */
 public class CosineSimilarity {
 
+  /** A row of an embedding matrix and its cosine similarity to the query embedding. */
+  @AutoValue
+  public abstract static class Match {
+    static Match create(int index, double score) {
+      return new AutoValue_CosineSimilarity_Match(index, score);
+    }
+
+    /** The row index of the matched embedding in the embedding matrix. */
+    public abstract int index();
+
+    /** The cosine similarity between the query embedding and the matched embedding. */
+    public abstract double score();
+  }
+
+  /** Computes the cosine similarity between the query and a row of an embedding matrix. */
+  private interface RowScorer {
+    /** Returns the cosine similarity, or NaN if the row has an L2-norm of 0. */
+    double score(int row);
+  }
+
   // Non-instantiable class.
   private CosineSimilarity() {}
 
@@ -40,49 +70,434 @@ public class CosineSimilarity {
         "Cannot compute cosine similarity between quantized and float embeddings.");
   }
 
+  /**
+   * Finds the {@code k} rows of a float embedding matrix that are the most similar to the query
+   * embedding. Rows with an L2-norm of 0 are skipped.
+   *
+   * @param query the float query {@link Embedding}.
+   * @param matrix the embeddings to search, stored contiguously in row-major order.
+   * @param dimension the size of every embedding.
+   * @param k the maximum number of matches to return.
+   * @return the matches sorted by descending similarity.
+   * @throws IllegalArgumentException if the query is not a float embedding, has an L2-norm of 0,
+   *     or if the matrix size isn't a multiple of the query size.
+   */
+  public static List<Match> topK(Embedding query, float[] matrix, int dimension, int k) {
+    return search(floatRowScorer(query, matrix, dimension), matrix.length / dimension, k);
+  }
+
+  /**
+   * Same as {@link #topK(Embedding, float[], int, int)}, but splits the matrix into {@code
+   * numPartitions} row ranges that are scored in parallel on the given executor.
+   *
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public static List<Match> topK(
+      Embedding query,
+      float[] matrix,
+      int dimension,
+      int k,
+      ExecutorService executor,
+      int numPartitions)
+      throws InterruptedException {
+    return search(
+        floatRowScorer(query, matrix, dimension),
+        matrix.length / dimension,
+        k,
+        executor,
+        numPartitions);
+  }
+
+  /**
+   * Finds the {@code k} rows of a quantized embedding matrix that are the most similar to the
+   * query embedding. Rows with an L2-norm of 0 are skipped.
+   *
+   * @param query the quantized query {@link Embedding}.
+   * @param matrix the embeddings to search, stored contiguously in row-major order.
+   * @param dimension the size of every embedding.
+   * @param k the maximum number of matches to return.
+   * @return the matches sorted by descending similarity.
+   * @throws IllegalArgumentException if the query is not a quantized embedding, has an L2-norm of
+   *     0, or if the matrix size isn't a multiple of the query size.
+   */
+  public static List<Match> topK(Embedding query, byte[] matrix, int dimension, int k) {
+    return search(quantizedRowScorer(query, matrix, dimension), matrix.length / dimension, k);
+  }
+
+  /**
+   * Same as {@link #topK(Embedding, byte[], int, int)}, but splits the matrix into {@code
+   * numPartitions} row ranges that are scored in parallel on the given executor.
+   *
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public static List<Match> topK(
+      Embedding query,
+      byte[] matrix,
+      int dimension,
+      int k,
+      ExecutorService executor,
+      int numPartitions)
+      throws InterruptedException {
+    return search(
+        quantizedRowScorer(query, matrix, dimension),
+        matrix.length / dimension,
+        k,
+        executor,
+        numPartitions);
+  }
+
+  /**
+   * Finds the {@code k} rows of a float embedding matrix stored in a {@link FloatBuffer}, such as
+   * an off-heap or memory-mapped buffer, that are the most similar to the query embedding. The
+   * matrix starts at index 0 of the buffer and ends at its limit. Rows with an L2-norm of 0 are
+   * skipped.
+   *
+   * @param query the float query {@link Embedding}.
+   * @param matrix the embeddings to search, stored contiguously in row-major order.
+   * @param dimension the size of every embedding.
+   * @param k the maximum number of matches to return.
+   * @return the matches sorted by descending similarity.
+   * @throws IllegalArgumentException if the query is not a float embedding, has an L2-norm of 0,
+   *     or if the matrix size isn't a multiple of the query size.
+   */
+  public static List<Match> topK(Embedding query, FloatBuffer matrix, int dimension, int k) {
+    return search(floatRowScorer(query, matrix, dimension), matrix.limit() / dimension, k);
+  }
+
+  /**
+   * Finds the {@code k} rows of a quantized embedding matrix stored in a {@link ByteBuffer}, such
+   * as an off-heap or memory-mapped buffer, that are the most similar to the query embedding. The
+   * matrix starts at index 0 of the buffer and ends at its limit. Rows with an L2-norm of 0 are
+   * skipped.
+   *
+   * @param query the quantized query {@link Embedding}.
+   * @param matrix the embeddings to search, stored contiguously in row-major order.
+   * @param dimension the size of every embedding.
+   * @param k the maximum number of matches to return.
+   * @return the matches sorted by descending similarity.
+   * @throws IllegalArgumentException if the query is not a quantized embedding, has an L2-norm of
+   *     0, or if the matrix size isn't a multiple of the query size.
+   */
+  public static List<Match> topK(Embedding query, ByteBuffer matrix, int dimension, int k) {
+    return search(quantizedRowScorer(query, matrix, dimension), matrix.limit() / dimension, k);
+  }
+
   private static double computeFloat(float[] u, float[] v) {
-    if (u.length != v.length) {
+    checkSameSize(u.length, v.length);
+    double normU = dotProduct(u, 0, u, 0, u.length);
+    double normV = dotProduct(v, 0, v, 0, v.length);
+    if (normU <= 0 || normV <= 0) {
       throw new IllegalArgumentException(
-          String.format(
-              "Cannot compute cosine similarity between embeddings of different sizes (%d vs."
-                  + " %d).",
-              u.length, v.length));
-    }
-    double dotProduct = 0.0;
-    double normU = 0.0;
-    double normV = 0.0;
-    for (int i = 0; i < u.length; i++) {
-      dotProduct += u[i] * v[i];
-      normU += u[i] * u[i];
-      normV += v[i] * v[i];
+          "Cannot compute cosine similarity on embedding with 0 norm.");
     }
+    return dotProduct(u, 0, v, 0, u.length) / Math.sqrt(normU * normV);
+  }
+
+  private static double computeQuantized(byte[] u, byte[] v) {
+    checkSameSize(u.length, v.length);
+    double normU = dotProduct(u, 0, u, 0, u.length);
+    double normV = dotProduct(v, 0, v, 0, v.length);
     if (normU <= 0 || normV <= 0) {
       throw new IllegalArgumentException(
           "Cannot compute cosine similarity on embedding with 0 norm.");
     }
-    return dotProduct / Math.sqrt(normU * normV);
+    return dotProduct(u, 0, v, 0, u.length) / Math.sqrt(normU * normV);
   }
 
-  private static double computeQuantized(byte[] u, byte[] v) {
-    if (u.length != v.length) {
+  private static RowScorer floatRowScorer(Embedding query, float[] matrix, int dimension) {
+    float[] q = checkFloatQuery(query, matrix.length, dimension);
+    double queryNorm = Math.sqrt(dotProduct(q, 0, q, 0, dimension));
+    return row -> {
+      int offset = row * dimension;
+      double rowNorm = dotProduct(matrix, offset, matrix, offset, dimension);
+      if (rowNorm <= 0) {
+        return Double.NaN;
+      }
+      return dotProduct(q, 0, matrix, offset, dimension) / (queryNorm * Math.sqrt(rowNorm));
+    };
+  }
+
+  private static RowScorer floatRowScorer(Embedding query, FloatBuffer matrix, int dimension) {
+    float[] q = checkFloatQuery(query, matrix.limit(), dimension);
+    double queryNorm = Math.sqrt(dotProduct(q, 0, q, 0, dimension));
+    return row -> {
+      int offset = row * dimension;
+      double dot = 0.0;
+      double rowNorm = 0.0;
+      for (int i = 0; i < dimension; i++) {
+        float value = matrix.get(offset + i);
+        dot += q[i] * value;
+        rowNorm += value * value;
+      }
+      if (rowNorm <= 0) {
+        return Double.NaN;
+      }
+      return dot / (queryNorm * Math.sqrt(rowNorm));
+    };
+  }
+
+  private static RowScorer quantizedRowScorer(Embedding query, byte[] matrix, int dimension) {
+    byte[] q = checkQuantizedQuery(query, matrix.length, dimension);
+    double queryNorm = Math.sqrt(dotProduct(q, 0, q, 0, dimension));
+    return row -> {
+      int offset = row * dimension;
+      double rowNorm = dotProduct(matrix, offset, matrix, offset, dimension);
+      if (rowNorm <= 0) {
+        return Double.NaN;
+      }
+      return dotProduct(q, 0, matrix, offset, dimension) / (queryNorm * Math.sqrt(rowNorm));
+    };
+  }
+
+  private static RowScorer quantizedRowScorer(Embedding query, ByteBuffer matrix, int dimension) {
+    byte[] q = checkQuantizedQuery(query, matrix.limit(), dimension);
+    double queryNorm = Math.sqrt(dotProduct(q, 0, q, 0, dimension));
+    return row -> {
+      int offset = row * dimension;
+      long dot = 0;
+      long rowNorm = 0;
+      for (int i = 0; i < dimension; i++) {
+        byte value = matrix.get(offset + i);
+        dot += q[i] * value;
+        rowNorm += value * value;
+      }
+      if (rowNorm <= 0) {
+        return Double.NaN;
+      }
+      return dot / (queryNorm * Math.sqrt(rowNorm));
+    };
+  }
+
+  private static float[] checkFloatQuery(Embedding query, int matrixSize, int dimension) {
+    if (query.floatEmbedding().length == 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity between quantized and float embeddings.");
+    }
+    checkMatrixSize(query.floatEmbedding().length, matrixSize, dimension);
+    if (dotProduct(query.floatEmbedding(), 0, query.floatEmbedding(), 0, dimension) <= 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity on embedding with 0 norm.");
+    }
+    return query.floatEmbedding();
+  }
+
+  private static byte[] checkQuantizedQuery(Embedding query, int matrixSize, int dimension) {
+    if (query.quantizedEmbedding().length == 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity between quantized and float embeddings.");
+    }
+    checkMatrixSize(query.quantizedEmbedding().length, matrixSize, dimension);
+    if (dotProduct(query.quantizedEmbedding(), 0, query.quantizedEmbedding(), 0, dimension) <= 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity on embedding with 0 norm.");
+    }
+    return query.quantizedEmbedding();
+  }
+
+  private static void checkSameSize(int uSize, int vSize) {
+    if (uSize != vSize) {
       throw new IllegalArgumentException(
           String.format(
               "Cannot compute cosine similarity between embeddings of different sizes (%d vs."
                   + " %d).",
-              u.length, v.length));
-    }
-    double dotProduct = 0.0;
-    double normU = 0.0;
-    double normV = 0.0;
-    for (int i = 0; i < u.length; i++) {
-      dotProduct += u[i] * v[i];
-      normU += u[i] * u[i];
-      normV += v[i] * v[i];
+              uSize, vSize));
     }
-    if (normU <= 0 || normV <= 0) {
+  }
+
+  private static void checkMatrixSize(int querySize, int matrixSize, int dimension) {
+    checkSameSize(querySize, dimension);
+    if (dimension <= 0 || matrixSize % dimension != 0) {
       throw new IllegalArgumentException(
-          "Cannot compute cosine similarity on embedding with 0 norm.");
+          String.format(
+              "The embedding matrix size (%d) should be a multiple of the embedding size (%d).",
+              matrixSize, dimension));
+    }
+  }
+
+  /**
+   * Computes the dot product of two float vectors. The loop is unrolled with independent
+   * accumulators so that the multiplications of consecutive elements don't wait on each other.
+   */
+  private static double dotProduct(float[] u, int uOffset, float[] v, int vOffset, int size) {
+    double sum0 = 0.0;
+    double sum1 = 0.0;
+    double sum2 = 0.0;
+    double sum3 = 0.0;
+    int i = 0;
+    for (; i + 3 < size; i += 4) {
+      sum0 += u[uOffset + i] * v[vOffset + i];
+      sum1 += u[uOffset + i + 1] * v[vOffset + i + 1];
+      sum2 += u[uOffset + i + 2] * v[vOffset + i + 2];
+      sum3 += u[uOffset + i + 3] * v[vOffset + i + 3];
+    }
+    for (; i < size; i++) {
+      sum0 += u[uOffset + i] * v[vOffset + i];
+    }
+    return (sum0 + sum1) + (sum2 + sum3);
+  }
+
+  /** Computes the dot product of two quantized vectors with exact integer accumulation. */
+  private static double dotProduct(byte[] u, int uOffset, byte[] v, int vOffset, int size) {
+    long sum0 = 0;
+    long sum1 = 0;
+    long sum2 = 0;
+    long sum3 = 0;
+    int i = 0;
+    for (; i + 3 < size; i += 4) {
+      sum0 += u[uOffset + i] * v[vOffset + i];
+      sum1 += u[uOffset + i + 1] * v[vOffset + i + 1];
+      sum2 += u[uOffset + i + 2] * v[vOffset + i + 2];
+      sum3 += u[uOffset + i + 3] * v[vOffset + i + 3];
+    }
+    for (; i < size; i++) {
+      sum0 += u[uOffset + i] * v[vOffset + i];
+    }
+    return sum0 + sum1 + sum2 + sum3;
+  }
+
+  private static List<Match> search(RowScorer scorer, int numRows, int k) {
+    checkK(k);
+    TopKHeap heap = new TopKHeap(k);
+    scoreRows(scorer, 0, numRows, heap);
+    return heap.toSortedMatches();
+  }
+
+  private static List<Match> search(
+      RowScorer scorer, int numRows, int k, ExecutorService executor, int numPartitions)
+      throws InterruptedException {
+    checkK(k);
+    if (numPartitions <= 0) {
+      throw new IllegalArgumentException("numPartitions must be > 0.");
+    }
+    int partitionSize = (numRows + numPartitions - 1) / numPartitions;
+    List<Callable<TopKHeap>> tasks = new ArrayList<>();
+    for (int begin = 0; begin < numRows; begin += partitionSize) {
+      int partitionBegin = begin;
+      int partitionEnd = Math.min(numRows, begin + partitionSize);
+      tasks.add(
+          () -> {
+            TopKHeap heap = new TopKHeap(k);
+            scoreRows(scorer, partitionBegin, partitionEnd, heap);
+            return heap;
+          });
+    }
+    TopKHeap mergedHeap = new TopKHeap(k);
+    for (Future<TopKHeap> future : executor.invokeAll(tasks)) {
+      TopKHeap heap;
+      try {
+        heap = future.get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+      for (int i = 0; i < heap.size; i++) {
+        mergedHeap.offer(heap.indices[i], heap.scores[i]);
+      }
+    }
+    return mergedHeap.toSortedMatches();
+  }
+
+  private static void scoreRows(RowScorer scorer, int begin, int end, TopKHeap heap) {
+    for (int row = begin; row < end; row++) {
+      double score = scorer.score(row);
+      if (!Double.isNaN(score)) {
+        heap.offer(row, score);
+      }
+    }
+  }
+
+  private static void checkK(int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be > 0.");
+    }
+  }
+
+  /**
+   * A bounded min-heap over primitive arrays that keeps the {@code k} highest scores. Ties are
+   * broken in favor of the smaller index.
+   */
+  private static class TopKHeap {
+    private final int[] indices;
+    private final double[] scores;
+    private int size = 0;
+
+    TopKHeap(int capacity) {
+      indices = new int[capacity];
+      scores = new double[capacity];
+    }
+
+    void offer(int index, double score) {
+      if (size < indices.length) {
+        indices[size] = index;
+        scores[size] = score;
+        siftUp(size++);
+      } else if (isLess(indices[0], scores[0], index, score)) {
+        indices[0] = index;
+        scores[0] = score;
+        siftDown(0);
+      }
+    }
+
+    List<Match> toSortedMatches() {
+      List<Match> matches = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        matches.add(Match.create(indices[i], scores[i]));
+      }
+      Collections.sort(
+          matches,
+          (a, b) -> {
+            int order = Double.compare(b.score(), a.score());
+            return order != 0 ? order : Integer.compare(a.index(), b.index());
+          });
+      return matches;
+    }
+
+    /** Returns true if the first entry ranks lower than the second one. */
+    private static boolean isLess(int index1, double score1, int index2, double score2) {
+      return score1 < score2 || (score1 == score2 && index1 > index2);
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        int parent = (i - 1) / 2;
+        if (!isLess(indices[i], scores[i], indices[parent], scores[parent])) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        int smallest = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < size
+            && isLess(indices[left], scores[left], indices[smallest], scores[smallest])) {
+          smallest = left;
+        }
+        if (right < size
+            && isLess(indices[right], scores[right], indices[smallest], scores[smallest])) {
+          smallest = right;
+        }
+        if (smallest == i) {
+          return;
+        }
+        swap(i, smallest);
+        i = smallest;
+      }
+    }
+
+    private void swap(int i, int j) {
+      int index = indices[i];
+      indices[i] = indices[j];
+      indices[j] = index;
+      double score = scores[i];
+      scores[i] = scores[j];
+      scores[j] = score;
     }
-    return dotProduct / Math.sqrt(normU * normV);
   }
 }
@@ -0,0 +1,1082 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import com.google.auto.value.AutoValue;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.containers.EmbeddingResult;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An approximate nearest neighbor index of {@link Embedding}s, searched by <a
+ * href="https://en.wikipedia.org/wiki/Cosine_similarity">cosine similarity</a>.
+ *
+ * <p>The index is a <a href="https://arxiv.org/abs/1603.09320">Hierarchical Navigable Small
+ * World</a> (HNSW) graph. It holds either float or quantized embeddings, as set in {@link Options}.
+ * Embeddings can be added and removed at any time. Removed embeddings are excluded from the search
+ * results but are kept in the graph to preserve its connectivity, until they outnumber the
+ * embeddings in the index: the graph is then rebuilt without them, which can be done earlier with
+ * {@link #compact}.
+ *
+ * <p>The recall and the latency are traded off by {@link Options.Builder#setMaxConnections}, {@link
+ * Options.Builder#setEfConstruction} and the {@code efSearch} parameter of the searches.
+ *
+ * <p>An index can be saved to a file and loaded back. The embeddings of a loaded index stay in the
+ * memory-mapped file until the next embedding is added, so a large index can be searched without
+ * reading it into the Java heap. The embeddings of an index are limited to 2 GiB.
+ *
+ * <p>This class is thread-safe. Searches run concurrently, while additions and removals are
+ * exclusive.
+ */
+public final class EmbeddingIndex {
+
+  /** Options for setting up an {@link EmbeddingIndex}. */
+  @AutoValue
+  public abstract static class Options {
+
+    /** Builder for {@link Options}. */
+    @AutoValue.Builder
+    public abstract static class Builder {
+      /** Sets the size of the indexed embeddings. */
+      public abstract Builder setDimension(int value);
+
+      /**
+       * Sets whether the index holds quantized embeddings instead of float embeddings.
+       *
+       * <p>False by default.
+       */
+      public abstract Builder setQuantized(boolean value);
+
+      /**
+       * Sets the maximum number of neighbors of a node on the upper layers of the graph. The bottom
+       * layer keeps twice as many. Larger values increase the recall and the memory usage.
+       *
+       * <p>16 by default.
+       */
+      public abstract Builder setMaxConnections(int value);
+
+      /**
+       * Sets the number of candidate neighbors explored when adding an embedding. Larger values
+       * build a better graph more slowly.
+       *
+       * <p>200 by default.
+       */
+      public abstract Builder setEfConstruction(int value);
+
+      /**
+       * Sets the default number of candidates explored when searching. Larger values increase the
+       * recall and the latency.
+       *
+       * <p>50 by default.
+       */
+      public abstract Builder setEfSearch(int value);
+
+      /**
+       * Sets the index of the embedder head to use when adding or searching an {@link
+       * EmbeddingResult}.
+       *
+       * <p>0 by default.
+       */
+      public abstract Builder setHeadIndex(int value);
+
+      /** Sets the seed of the random generator that assigns the graph layers of the nodes. */
+      public abstract Builder setRandomSeed(long value);
+
+      abstract Options autoBuild();
+
+      /**
+       * Validates and builds the {@link Options} instance.
+       *
+       * @throws IllegalArgumentException if any of the options is out of range.
+       */
+      public final Options build() {
+        Options options = autoBuild();
+        if (options.dimension() <= 0) {
+          throw new IllegalArgumentException("dimension must be > 0.");
+        }
+        if (options.maxConnections() < 2) {
+          throw new IllegalArgumentException("maxConnections must be >= 2.");
+        }
+        if (options.efConstruction() <= 0 || options.efSearch() <= 0) {
+          throw new IllegalArgumentException("efConstruction and efSearch must be > 0.");
+        }
+        if (options.headIndex() < 0) {
+          throw new IllegalArgumentException("headIndex must be >= 0.");
+        }
+        return options;
+      }
+    }
+
+    abstract int dimension();
+
+    abstract boolean quantized();
+
+    abstract int maxConnections();
+
+    abstract int efConstruction();
+
+    abstract int efSearch();
+
+    abstract int headIndex();
+
+    abstract long randomSeed();
+
+    public static Builder builder() {
+      return new AutoValue_EmbeddingIndex_Options.Builder()
+          .setQuantized(false)
+          .setMaxConnections(16)
+          .setEfConstruction(200)
+          .setEfSearch(50)
+          .setHeadIndex(0)
+          .setRandomSeed(42);
+    }
+  }
+
+  /** An indexed embedding found by a search and its cosine similarity to the query. */
+  @AutoValue
+  public abstract static class Neighbor {
+    static Neighbor create(long id, double score) {
+      return new AutoValue_EmbeddingIndex_Neighbor(id, score);
+    }
+
+    /** The id the embedding was added with. */
+    public abstract long id();
+
+    /** The cosine similarity between the query and the embedding. */
+    public abstract double score();
+  }
+
+  private static final int FILE_MAGIC = 0x4e48504d;
+  private static final int FILE_VERSION = 1;
+  private static final int FILE_HEADER_SIZE = 64;
+  private static final int MAX_LEVEL = 16;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Options options;
+  private final int dimension;
+  private final double levelMultiplier;
+  private final Random random;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Integer> idToNode = new HashMap<>();
+  private final ThreadLocal<VisitedTable> visitedTables =
+      new ThreadLocal<VisitedTable>() {
+        @Override
+        protected VisitedTable initialValue() {
+          return new VisitedTable();
+        }
+      };
+
+  // The number of nodes in the graph, including the removed ones.
+  private int count = 0;
+  // The number of removed nodes that are still in the graph.
+  private int removedCount = 0;
+  private int entryPoint = -1;
+  private int maxLevel = -1;
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private int[] levels = new int[INITIAL_CAPACITY];
+  private boolean[] removed = new boolean[INITIAL_CAPACITY];
+  // The L2-norms of the quantized embeddings. Float embeddings are stored normalized.
+  private float[] norms = new float[INITIAL_CAPACITY];
+  // links[node][level] holds the number of neighbors followed by the neighbor nodes.
+  private int[][][] links = new int[INITIAL_CAPACITY][][];
+  // Exactly one of the two is used, depending on whether the index is quantized.
+  private FloatBuffer floatVectors;
+  private ByteBuffer quantizedVectors;
+
+  /** Creates an empty {@link EmbeddingIndex} from {@link Options}. */
+  public static EmbeddingIndex create(Options options) {
+    return new EmbeddingIndex(options);
+  }
+
+  /**
+   * Adds an embedding to the index. If the id is already in the index, its embedding is replaced.
+   *
+   * @param id the id to return in the search results.
+   * @param embedding the {@link Embedding} to add.
+   * @throws IllegalArgumentException if the embedding doesn't match the type and the dimension of
+   *     the index, or has an L2-norm of 0.
+   */
+  public void add(long id, Embedding embedding) {
+    Query query = createQuery(embedding);
+    lock.writeLock().lock();
+    try {
+      Integer previousNode = idToNode.remove(id);
+      if (previousNode != null) {
+        markRemoved(previousNode);
+      }
+      insert(id, query);
+      compactIfMostlyRemoved();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the embedding of the configured head of an embedder result, such as the {@code
+   * embeddingResult()} of an {@code ImageEmbedderResult} or a {@code TextEmbedderResult}.
+   *
+   * @param id the id to return in the search results.
+   * @param result the {@link EmbeddingResult} to add.
+   * @throws IllegalArgumentException if the result doesn't have the configured head, or its
+   *     embedding doesn't match the index.
+   */
+  public void add(long id, EmbeddingResult result) {
+    add(id, getHeadEmbedding(result));
+  }
+
+  /**
+   * Removes an embedding from the index. The graph is rebuilt once the removed embeddings
+   * outnumber the embeddings in the index.
+   *
+   * @param id the id the embedding was added with.
+   * @return true if the id was in the index.
+   */
+  public boolean remove(long id) {
+    lock.writeLock().lock();
+    try {
+      Integer node = idToNode.remove(id);
+      if (node == null) {
+        return false;
+      }
+      markRemoved(node);
+      compactIfMostlyRemoved();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Rebuilds the graph without the removed embeddings, which frees their memory. The embeddings of
+   * a loaded index are copied into the Java heap.
+   */
+  public void compact() {
+    lock.writeLock().lock();
+    try {
+      if (removedCount > 0) {
+        rebuild();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns true if the id is in the index. */
+  public boolean contains(long id) {
+    lock.readLock().lock();
+    try {
+      return idToNode.containsKey(id);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of embeddings in the index. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return idToNode.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the approximate {@code k} nearest neighbors of the query, using the default {@code
+   * efSearch} of the index.
+   *
+   * @param query the query {@link Embedding}.
+   * @param k the maximum number of neighbors to return.
+   * @return the neighbors sorted by descending similarity.
+   * @throws IllegalArgumentException if the query doesn't match the index, or has an L2-norm of 0.
+   */
+  public List<Neighbor> search(Embedding query, int k) {
+    return search(query, k, options.efSearch());
+  }
+
+  /**
+   * Finds the approximate {@code k} nearest neighbors of the embedding of the configured head of
+   * an embedder result.
+   *
+   * @param result the query {@link EmbeddingResult}.
+   * @param k the maximum number of neighbors to return.
+   * @return the neighbors sorted by descending similarity.
+   * @throws IllegalArgumentException if the result doesn't have the configured head, or its
+   *     embedding doesn't match the index.
+   */
+  public List<Neighbor> search(EmbeddingResult result, int k) {
+    return search(getHeadEmbedding(result), k, options.efSearch());
+  }
+
+  /**
+   * Finds the approximate {@code k} nearest neighbors of the query.
+   *
+   * @param query the query {@link Embedding}.
+   * @param k the maximum number of neighbors to return.
+   * @param efSearch the number of candidates to explore. Larger values increase the recall and the
+   *     latency. Values smaller than {@code k} are raised to {@code k}, and the candidates are
+   *     widened until they hold {@code k} embeddings that are not removed.
+   * @return the neighbors sorted by descending similarity.
+   * @throws IllegalArgumentException if the query doesn't match the index, or has an L2-norm of 0.
+   */
+  public List<Neighbor> search(Embedding query, int k, int efSearch) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be > 0.");
+    }
+    Query q = createQuery(query);
+    lock.readLock().lock();
+    try {
+      if (entryPoint < 0) {
+        return new ArrayList<>();
+      }
+      int node = greedySearch(q, entryPoint, maxLevel, 0);
+      int wantedCount = Math.min(k, idToNode.size());
+      int ef = Math.max(efSearch, k);
+      List<Neighbor> neighbors = new ArrayList<>();
+      while (true) {
+        NodeHeap candidates = searchLayer(q, node, ef, 0);
+        neighbors.clear();
+        while (candidates.size() > 0) {
+          int candidate = candidates.peekNode();
+          if (!removed[candidate]) {
+            neighbors.add(Neighbor.create(ids[candidate], candidates.peekKey()));
+          }
+          candidates.pop();
+        }
+        // The removed nodes take up room in the candidates, so they are widened until they hold
+        // enough embeddings or cover the whole graph.
+        if (neighbors.size() >= wantedCount || ef >= count) {
+          break;
+        }
+        ef = (int) Math.min(count, 2L * ef);
+      }
+      Collections.reverse(neighbors);
+      return neighbors.size() > k ? new ArrayList<>(neighbors.subList(0, k)) : neighbors;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Saves the index to a file. The file can be loaded back with {@link #load(File)}.
+   *
+   * @param file the file to write, which is overwritten if it exists.
+   * @throws IOException if the file can't be written.
+   */
+  public void save(File file) throws IOException {
+    lock.readLock().lock();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(0);
+      FileChannel channel = randomAccessFile.getChannel();
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(FILE_MAGIC);
+      buffer.putInt(FILE_VERSION);
+      buffer.putInt(dimension);
+      buffer.putInt(options.quantized() ? 1 : 0);
+      buffer.putInt(options.maxConnections());
+      buffer.putInt(options.efConstruction());
+      buffer.putInt(options.efSearch());
+      buffer.putInt(options.headIndex());
+      buffer.putLong(options.randomSeed());
+      buffer.putInt(count);
+      buffer.putInt(entryPoint);
+      buffer.putInt(maxLevel);
+      while (buffer.position() < FILE_HEADER_SIZE) {
+        buffer.put((byte) 0);
+      }
+      // The embeddings come first, so that they are aligned in the memory-mapped file.
+      int vectorSize = count * dimension;
+      for (int i = 0; i < vectorSize; i++) {
+        ensureRemaining(channel, buffer, Float.BYTES);
+        if (options.quantized()) {
+          buffer.put(quantizedVectors.get(i));
+        } else {
+          buffer.putFloat(floatVectors.get(i));
+        }
+      }
+      for (int node = 0; node < count; node++) {
+        ensureRemaining(channel, buffer, 24);
+        buffer.putLong(ids[node]);
+        buffer.putInt(removed[node] ? 1 : 0);
+        buffer.putFloat(norms[node]);
+        buffer.putInt(levels[node]);
+        for (int level = 0; level <= levels[node]; level++) {
+          int[] nodeLinks = links[node][level];
+          for (int i = 0; i <= nodeLinks[0]; i++) {
+            ensureRemaining(channel, buffer, Integer.BYTES);
+            buffer.putInt(nodeLinks[i]);
+          }
+        }
+      }
+      flush(channel, buffer);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Loads an index saved by {@link #save(File)}. The embeddings are memory-mapped rather than read
+   * into the Java heap.
+   *
+   * @param file the file to load.
+   * @throws IOException if the file can't be read or is not a valid index file.
+   */
+  public static EmbeddingIndex load(File file) throws IOException {
+    MappedByteBuffer mapped;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      // The mapping stays valid after the channel is closed.
+      mapped =
+          randomAccessFile
+              .getChannel()
+              .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+    }
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      checkRemaining(mapped, FILE_HEADER_SIZE, "the header");
+      if (mapped.getInt() != FILE_MAGIC || mapped.getInt() != FILE_VERSION) {
+        throw new IOException("The file is not a valid embedding index file.");
+      }
+      int dimension = mapped.getInt();
+      boolean quantized = mapped.getInt() != 0;
+      Options options =
+          Options.builder()
+              .setDimension(dimension)
+              .setQuantized(quantized)
+              .setMaxConnections(mapped.getInt())
+              .setEfConstruction(mapped.getInt())
+              .setEfSearch(mapped.getInt())
+              .setHeadIndex(mapped.getInt())
+              .setRandomSeed(mapped.getLong())
+              .build();
+      EmbeddingIndex index = new EmbeddingIndex(options);
+      int count = mapped.getInt();
+      index.entryPoint = mapped.getInt();
+      index.maxLevel = mapped.getInt();
+      if (count < 0 || index.entryPoint < -1 || index.entryPoint >= count) {
+        throw new IOException(
+            String.format(
+                "Invalid embedding index header: node count %d, entry point %d.",
+                count, index.entryPoint));
+      }
+      if (index.maxLevel < -1 || index.maxLevel > MAX_LEVEL) {
+        throw new IOException(
+            String.format("Invalid embedding index header: max level %d.", index.maxLevel));
+      }
+      mapped.position(FILE_HEADER_SIZE);
+      // Checked before any allocation, so that a corrupted count can't exhaust the memory. Every
+      // node takes at least its 20-byte record and one neighbor count.
+      long vectorBytes = (long) count * dimension * (quantized ? 1 : Float.BYTES);
+      checkRemaining(
+          mapped,
+          vectorBytes + (long) count * 24,
+          String.format("%d embeddings of dimension %d", count, dimension));
+      index.ensureNodeCapacity(count);
+      ByteBuffer vectors = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+      vectors.limit((int) vectorBytes);
+      if (quantized) {
+        index.quantizedVectors = vectors;
+      } else {
+        index.floatVectors = vectors.asFloatBuffer();
+      }
+      mapped.position(FILE_HEADER_SIZE + (int) vectorBytes);
+      for (int node = 0; node < count; node++) {
+        checkRemaining(mapped, 20, "node " + node);
+        index.ids[node] = mapped.getLong();
+        index.removed[node] = mapped.getInt() != 0;
+        index.norms[node] = mapped.getFloat();
+        index.levels[node] = mapped.getInt();
+        if (index.levels[node] < 0 || index.levels[node] > MAX_LEVEL) {
+          throw new IOException(
+              String.format(
+                  "Invalid embedding index node %d: level %d.", node, index.levels[node]));
+        }
+        index.links[node] = new int[index.levels[node] + 1][];
+        for (int level = 0; level <= index.levels[node]; level++) {
+          checkRemaining(mapped, Integer.BYTES, "the neighbors of node " + node);
+          int neighborCount = mapped.getInt();
+          if (neighborCount < 0 || neighborCount > index.maxConnections(level)) {
+            throw new IOException(
+                String.format(
+                    "Invalid embedding index node %d: %d neighbors at level %d.",
+                    node, neighborCount, level));
+          }
+          checkRemaining(
+              mapped, (long) neighborCount * Integer.BYTES, "the neighbors of node " + node);
+          int[] nodeLinks = new int[index.maxConnections(level) + 1];
+          nodeLinks[0] = neighborCount;
+          for (int i = 1; i <= neighborCount; i++) {
+            nodeLinks[i] = mapped.getInt();
+            if (nodeLinks[i] < 0 || nodeLinks[i] >= count) {
+              throw new IOException(
+                  String.format(
+                      "Invalid embedding index node %d: neighbor %d out of range.",
+                      node, nodeLinks[i]));
+            }
+          }
+          index.links[node][level] = nodeLinks;
+        }
+        if (index.removed[node]) {
+          index.removedCount++;
+        } else {
+          index.idToNode.put(index.ids[node], node);
+        }
+      }
+      if (index.entryPoint >= 0 && index.levels[index.entryPoint] < index.maxLevel) {
+        throw new IOException(
+            String.format(
+                "Invalid embedding index header: the entry point is below max level %d.",
+                index.maxLevel));
+      }
+      index.count = count;
+      return index;
+    } catch (RuntimeException e) {
+      throw new IOException("The file is not a valid embedding index file.", e);
+    }
+  }
+
+  /** The query vector, normalized for float embeddings. */
+  private static class Query {
+    float[] floatVector;
+    byte[] quantizedVector;
+    double norm;
+  }
+
+  private EmbeddingIndex(Options options) {
+    this.options = options;
+    this.dimension = options.dimension();
+    this.levelMultiplier = 1.0 / Math.log(options.maxConnections());
+    this.random = new Random(options.randomSeed());
+    if (options.quantized()) {
+      quantizedVectors = ByteBuffer.allocate(INITIAL_CAPACITY * dimension);
+    } else {
+      floatVectors = FloatBuffer.allocate(INITIAL_CAPACITY * dimension);
+    }
+  }
+
+  private Embedding getHeadEmbedding(EmbeddingResult result) {
+    for (Embedding embedding : result.embeddings()) {
+      if (embedding.headIndex() == options.headIndex()) {
+        return embedding;
+      }
+    }
+    throw new IllegalArgumentException(
+        "The embedding result doesn't have the head with index " + options.headIndex() + ".");
+  }
+
+  private Query createQuery(Embedding embedding) {
+    Query query = new Query();
+    double squaredNorm = 0.0;
+    if (options.quantized()) {
+      byte[] vector = embedding.quantizedEmbedding();
+      checkEmbeddingSize(vector.length, embedding.floatEmbedding().length);
+      for (byte value : vector) {
+        squaredNorm += value * value;
+      }
+      query.quantizedVector = vector;
+    } else {
+      float[] vector = embedding.floatEmbedding();
+      checkEmbeddingSize(vector.length, embedding.quantizedEmbedding().length);
+      for (float value : vector) {
+        squaredNorm += value * value;
+      }
+      query.floatVector = vector;
+    }
+    if (squaredNorm <= 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity on embedding with 0 norm.");
+    }
+    query.norm = Math.sqrt(squaredNorm);
+    if (query.floatVector != null) {
+      float[] normalized = new float[dimension];
+      for (int i = 0; i < dimension; i++) {
+        normalized[i] = (float) (query.floatVector[i] / query.norm);
+      }
+      query.floatVector = normalized;
+      query.norm = 1.0;
+    }
+    return query;
+  }
+
+  private void checkEmbeddingSize(int size, int otherTypeSize) {
+    if (size == 0 && otherTypeSize > 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity between quantized and float embeddings.");
+    }
+    if (size != dimension) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot compute cosine similarity between embeddings of different sizes (%d vs."
+                  + " %d).",
+              size, dimension));
+    }
+  }
+
+  private void markRemoved(int node) {
+    removed[node] = true;
+    removedCount++;
+  }
+
+  private void compactIfMostlyRemoved() {
+    if (removedCount >= INITIAL_CAPACITY && removedCount > idToNode.size()) {
+      rebuild();
+    }
+  }
+
+  /** Rebuilds the graph from the embeddings that are not removed, in their insertion order. */
+  private void rebuild() {
+    int liveCount = idToNode.size();
+    long[] liveIds = new long[liveCount];
+    Query[] liveQueries = new Query[liveCount];
+    int numLive = 0;
+    for (int node = 0; node < count; node++) {
+      if (removed[node]) {
+        continue;
+      }
+      int offset = node * dimension;
+      Query query = new Query();
+      if (options.quantized()) {
+        query.quantizedVector = new byte[dimension];
+        for (int i = 0; i < dimension; i++) {
+          query.quantizedVector[i] = quantizedVectors.get(offset + i);
+        }
+      } else {
+        query.floatVector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+          query.floatVector[i] = floatVectors.get(offset + i);
+        }
+      }
+      query.norm = norms[node];
+      liveIds[numLive] = ids[node];
+      liveQueries[numLive] = query;
+      numLive++;
+    }
+    int capacity = Math.max(INITIAL_CAPACITY, liveCount);
+    count = 0;
+    removedCount = 0;
+    entryPoint = -1;
+    maxLevel = -1;
+    idToNode.clear();
+    ids = new long[capacity];
+    levels = new int[capacity];
+    removed = new boolean[capacity];
+    norms = new float[capacity];
+    links = new int[capacity][][];
+    if (options.quantized()) {
+      quantizedVectors = ByteBuffer.allocate(capacity * dimension);
+    } else {
+      floatVectors = FloatBuffer.allocate(capacity * dimension);
+    }
+    for (int i = 0; i < numLive; i++) {
+      insert(liveIds[i], liveQueries[i]);
+    }
+  }
+
+  private void insert(long id, Query query) {
+    int node = count;
+    ensureNodeCapacity(node + 1);
+    ensureVectorCapacity(node + 1);
+    int offset = node * dimension;
+    if (options.quantized()) {
+      for (int i = 0; i < dimension; i++) {
+        quantizedVectors.put(offset + i, query.quantizedVector[i]);
+      }
+      norms[node] = (float) query.norm;
+    } else {
+      for (int i = 0; i < dimension; i++) {
+        floatVectors.put(offset + i, query.floatVector[i]);
+      }
+      norms[node] = 1.0f;
+    }
+    int level = Math.min(MAX_LEVEL, (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier));
+    ids[node] = id;
+    levels[node] = level;
+    removed[node] = false;
+    links[node] = new int[level + 1][];
+    for (int l = 0; l <= level; l++) {
+      links[node][l] = new int[maxConnections(l) + 1];
+    }
+    count++;
+    idToNode.put(id, node);
+    if (entryPoint < 0) {
+      entryPoint = node;
+      maxLevel = level;
+      return;
+    }
+    int current = greedySearch(query, entryPoint, maxLevel, level);
+    for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+      NodeHeap candidates = searchLayer(query, current, options.efConstruction(), l);
+      int[] sortedNodes = new int[candidates.size()];
+      double[] sortedScores = new double[candidates.size()];
+      for (int i = sortedNodes.length - 1; i >= 0; i--) {
+        sortedNodes[i] = candidates.peekNode();
+        sortedScores[i] = candidates.peekKey();
+        candidates.pop();
+      }
+      current = sortedNodes[0];
+      int[] neighbors =
+          selectNeighbors(sortedNodes, sortedScores, sortedNodes.length, options.maxConnections());
+      int[] nodeLinks = links[node][l];
+      for (int neighbor : neighbors) {
+        nodeLinks[++nodeLinks[0]] = neighbor;
+        connect(neighbor, node, l);
+      }
+    }
+    if (level > maxLevel) {
+      maxLevel = level;
+      entryPoint = node;
+    }
+  }
+
+  /** Adds a link from {@code node} to {@code neighbor}, pruning the links of {@code node}. */
+  private void connect(int node, int neighbor, int level) {
+    int[] nodeLinks = links[node][level];
+    int maxConnections = maxConnections(level);
+    if (nodeLinks[0] < maxConnections) {
+      nodeLinks[++nodeLinks[0]] = neighbor;
+      return;
+    }
+    // Sorts the existing neighbors and the new one by descending similarity to the node.
+    int size = nodeLinks[0] + 1;
+    int[] candidates = Arrays.copyOfRange(nodeLinks, 1, size + 1);
+    candidates[size - 1] = neighbor;
+    double[] scores = new double[size];
+    for (int i = 0; i < size; i++) {
+      scores[i] = similarity(node, candidates[i]);
+    }
+    for (int i = 1; i < size; i++) {
+      int candidate = candidates[i];
+      double score = scores[i];
+      int j = i - 1;
+      for (; j >= 0 && scores[j] < score; j--) {
+        candidates[j + 1] = candidates[j];
+        scores[j + 1] = scores[j];
+      }
+      candidates[j + 1] = candidate;
+      scores[j + 1] = score;
+    }
+    int[] selected = selectNeighbors(candidates, scores, size, maxConnections);
+    nodeLinks[0] = selected.length;
+    System.arraycopy(selected, 0, nodeLinks, 1, selected.length);
+  }
+
+  /**
+   * Selects up to {@code maxNeighbors} diverse neighbors among candidates sorted by descending
+   * similarity to the base node. A candidate is skipped if it's closer to an already selected
+   * neighbor than to the base node, which keeps the graph navigable across clusters.
+   */
+  private int[] selectNeighbors(int[] candidates, double[] scores, int size, int maxNeighbors) {
+    int[] selected = new int[Math.min(size, maxNeighbors)];
+    int numSelected = 0;
+    for (int i = 0; i < size && numSelected < selected.length; i++) {
+      boolean diverse = true;
+      for (int j = 0; j < numSelected; j++) {
+        if (similarity(candidates[i], selected[j]) > scores[i]) {
+          diverse = false;
+          break;
+        }
+      }
+      if (diverse) {
+        selected[numSelected++] = candidates[i];
+      }
+    }
+    return Arrays.copyOf(selected, numSelected);
+  }
+
+  /** Greedily moves to the most similar node on each layer from {@code fromLevel} down. */
+  private int greedySearch(Query query, int node, int fromLevel, int toLevel) {
+    double score = similarity(query, node);
+    for (int level = fromLevel; level > toLevel; level--) {
+      boolean changed = true;
+      while (changed) {
+        changed = false;
+        int[] nodeLinks = links[node][level];
+        for (int i = 1; i <= nodeLinks[0]; i++) {
+          double neighborScore = similarity(query, nodeLinks[i]);
+          if (neighborScore > score) {
+            score = neighborScore;
+            node = nodeLinks[i];
+            changed = true;
+          }
+        }
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Returns up to {@code ef} nodes of the layer that are the most similar to the query, in a
+   * min-heap.
+   */
+  private NodeHeap searchLayer(Query query, int entry, int ef, int level) {
+    VisitedTable visited = visitedTables.get();
+    visited.reset(count);
+    visited.visit(entry);
+    double entryScore = similarity(query, entry);
+    NodeHeap candidates = new NodeHeap(/* maxHeap= */ true);
+    NodeHeap results = new NodeHeap(/* maxHeap= */ false);
+    candidates.push(entry, entryScore);
+    results.push(entry, entryScore);
+    while (candidates.size() > 0) {
+      int candidate = candidates.peekNode();
+      if (results.size() >= ef && candidates.peekKey() < results.peekKey()) {
+        break;
+      }
+      candidates.pop();
+      int[] nodeLinks = links[candidate][level];
+      for (int i = 1; i <= nodeLinks[0]; i++) {
+        int neighbor = nodeLinks[i];
+        if (!visited.visit(neighbor)) {
+          continue;
+        }
+        double score = similarity(query, neighbor);
+        if (results.size() < ef || score > results.peekKey()) {
+          candidates.push(neighbor, score);
+          results.push(neighbor, score);
+          if (results.size() > ef) {
+            results.pop();
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  private double similarity(Query query, int node) {
+    int offset = node * dimension;
+    if (options.quantized()) {
+      byte[] q = query.quantizedVector;
+      long dotProduct = 0;
+      for (int i = 0; i < dimension; i++) {
+        dotProduct += q[i] * quantizedVectors.get(offset + i);
+      }
+      return dotProduct / (query.norm * norms[node]);
+    }
+    float[] q = query.floatVector;
+    double sum0 = 0.0;
+    double sum1 = 0.0;
+    int i = 0;
+    for (; i + 1 < dimension; i += 2) {
+      sum0 += q[i] * floatVectors.get(offset + i);
+      sum1 += q[i + 1] * floatVectors.get(offset + i + 1);
+    }
+    if (i < dimension) {
+      sum0 += q[i] * floatVectors.get(offset + i);
+    }
+    return sum0 + sum1;
+  }
+
+  private double similarity(int node1, int node2) {
+    int offset1 = node1 * dimension;
+    int offset2 = node2 * dimension;
+    if (options.quantized()) {
+      long dotProduct = 0;
+      for (int i = 0; i < dimension; i++) {
+        dotProduct += quantizedVectors.get(offset1 + i) * quantizedVectors.get(offset2 + i);
+      }
+      return dotProduct / ((double) norms[node1] * norms[node2]);
+    }
+    double dotProduct = 0.0;
+    for (int i = 0; i < dimension; i++) {
+      dotProduct += floatVectors.get(offset1 + i) * floatVectors.get(offset2 + i);
+    }
+    return dotProduct;
+  }
+
+  private int maxConnections(int level) {
+    return level == 0 ? 2 * options.maxConnections() : options.maxConnections();
+  }
+
+  private void ensureNodeCapacity(int capacity) {
+    if (capacity <= ids.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    levels = Arrays.copyOf(levels, newCapacity);
+    removed = Arrays.copyOf(removed, newCapacity);
+    norms = Arrays.copyOf(norms, newCapacity);
+    links = Arrays.copyOf(links, newCapacity);
+  }
+
+  /**
+   * Makes room for the embeddings of {@code capacity} nodes. Embeddings in a read-only
+   * memory-mapped file are copied into the Java heap before the first addition.
+   */
+  private void ensureVectorCapacity(int capacity) {
+    int size = count * dimension;
+    int newCapacity = Math.max(capacity, Math.max(count, INITIAL_CAPACITY) * 2);
+    if (options.quantized()) {
+      if (!quantizedVectors.isReadOnly() && capacity * dimension <= quantizedVectors.capacity()) {
+        return;
+      }
+      ByteBuffer vectors = ByteBuffer.allocate(newCapacity * dimension);
+      ByteBuffer source = quantizedVectors.duplicate();
+      source.position(0);
+      source.limit(size);
+      vectors.put(source);
+      quantizedVectors = vectors;
+    } else {
+      if (!floatVectors.isReadOnly() && capacity * dimension <= floatVectors.capacity()) {
+        return;
+      }
+      FloatBuffer vectors = FloatBuffer.allocate(newCapacity * dimension);
+      FloatBuffer source = floatVectors.duplicate();
+      source.position(0);
+      source.limit(size);
+      vectors.put(source);
+      floatVectors = vectors;
+    }
+  }
+
+  /** Throws if the index file doesn't have the given number of bytes left for the named data. */
+  private static void checkRemaining(ByteBuffer buffer, long bytes, String data)
+      throws IOException {
+    if (buffer.remaining() < bytes) {
+      throw new IOException(
+          String.format(
+              "The embedding index file is truncated: %d bytes are needed for %s, but only %d"
+                  + " remain.",
+              bytes, data, buffer.remaining()));
+    }
+  }
+
+  private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int size)
+      throws IOException {
+    if (buffer.remaining() < size) {
+      flush(channel, buffer);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /** A growable binary heap of nodes keyed by their similarity to the query. */
+  private static class NodeHeap {
+    private final boolean maxHeap;
+    private int[] nodes = new int[64];
+    private double[] keys = new double[64];
+    private int size = 0;
+
+    NodeHeap(boolean maxHeap) {
+      this.maxHeap = maxHeap;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int peekNode() {
+      return nodes[0];
+    }
+
+    double peekKey() {
+      return keys[0];
+    }
+
+    void push(int node, double key) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) / 2;
+        if (!isAbove(key, keys[parent])) {
+          break;
+        }
+        nodes[i] = nodes[parent];
+        keys[i] = keys[parent];
+        i = parent;
+      }
+      nodes[i] = node;
+      keys[i] = key;
+    }
+
+    void pop() {
+      size--;
+      int node = nodes[size];
+      double key = keys[size];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && isAbove(keys[child + 1], keys[child])) {
+          child++;
+        }
+        if (!isAbove(keys[child], key)) {
+          break;
+        }
+        nodes[i] = nodes[child];
+        keys[i] = keys[child];
+        i = child;
+      }
+      nodes[i] = node;
+      keys[i] = key;
+    }
+
+    private boolean isAbove(double key1, double key2) {
+      return maxHeap ? key1 > key2 : key1 < key2;
+    }
+  }
+
+  /** Tracks the visited nodes of a search without clearing the table between searches. */
+  private static class VisitedTable {
+    private int[] marks = new int[0];
+    private int epoch = 0;
+
+    void reset(int size) {
+      if (marks.length < size) {
+        marks = new int[Math.max(size, marks.length * 2)];
+        epoch = 0;
+      }
+      epoch++;
+      if (epoch == Integer.MAX_VALUE) {
+        Arrays.fill(marks, 0);
+        epoch = 1;
+      }
+    }
+
+    /** Marks the node as visited and returns true if it wasn't visited yet. */
+    boolean visit(int node) {
+      if (marks[node] == epoch) {
+        return false;
+      }
+      marks[node] = epoch;
+      return true;
+    }
+  }
+}
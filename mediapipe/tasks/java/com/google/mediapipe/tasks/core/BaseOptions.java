@@ -15,6 +15,8 @@
 package com.google.mediapipe.tasks.core;
 
 import com.google.auto.value.AutoValue;
+import com.google.mediapipe.framework.CallbackDispatcher;
+import com.google.mediapipe.tasks.core.logging.TasksStatsExporter;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.Optional;
@@ -22,6 +24,8 @@ import java.util.Optional;
 /** Options to configure MediaPipe Tasks in general. */
 @AutoValue
 public abstract class BaseOptions {
+  private static final long DEFAULT_STATS_REPORT_INTERVAL_MS = 10000;
+
   /** Builder for {@link BaseOptions}. */
   @AutoValue.Builder
   public abstract static class Builder {
@@ -44,6 +48,9 @@ public abstract class BaseOptions {
      * Sets either the direct {@link ByteBuffer} or the {@link MappedByteBuffer} of a model asset
      * file (a tflite model or a model asset bundle file).
      *
+     * <p>The task reads the model directly from the buffer memory without copying it, so the
+     * content of the buffer shouldn't be modified as long as the task is alive.
+     *
      * <p>Note: when model buffer is set, both model file and model file descriptor should be empty.
      */
     public abstract Builder setModelAssetBuffer(ByteBuffer value);
@@ -54,6 +61,40 @@ public abstract class BaseOptions {
      */
     public abstract Builder setDelegate(Delegate delegate);
 
+    /**
+     * Sets an optional {@link MemoryBudget} that bounds the native memory of the input packets in
+     * flight in the task. The same budget can be shared by several tasks.
+     */
+    public abstract Builder setMemoryBudget(MemoryBudget memoryBudget);
+
+    /**
+     * Sets the {@link FlowLimiterOptions} of the flow limiter in front of the task graph in the live
+     * stream mode. By default, a single frame is processed at a time.
+     */
+    public abstract Builder setFlowLimiterOptions(FlowLimiterOptions flowLimiterOptions);
+
+    /**
+     * Sets an optional {@link TasksStatsExporter} that receives the invocation counts and latency
+     * percentiles of the task periodically, and when the task is closed.
+     */
+    public abstract Builder setStatsExporter(TasksStatsExporter statsExporter);
+
+    /**
+     * Sets the interval in milliseconds between two exports to the {@link TasksStatsExporter}. The
+     * default interval is 10 seconds.
+     */
+    public abstract Builder setStatsReportIntervalMs(Long value);
+
+    /**
+     * Sets an optional {@link CallbackDispatcher} that runs the result listener of the task on its
+     * executor, instead of the graph thread. By default, the result listener runs on the graph
+     * thread and a slow listener holds back the task graph.
+     *
+     * <p>Note: the task results that would otherwise wrap the memory of the graph packets, such as
+     * the masks of the image segmenter, are copied for the dispatched result listener.
+     */
+    public abstract Builder setResultDispatcher(CallbackDispatcher resultDispatcher);
+
     abstract BaseOptions autoBuild();
 
     /**
@@ -79,6 +120,9 @@ public abstract class BaseOptions {
         throw new IllegalArgumentException(
             "The model buffer should be either a direct ByteBuffer or a MappedByteBuffer.");
       }
+      if (options.statsReportIntervalMs() <= 0) {
+        throw new IllegalArgumentException("The stats report interval should be positive.");
+      }
       return options;
     }
   }
@@ -91,7 +135,25 @@ public abstract class BaseOptions {
 
   abstract Delegate delegate();
 
+  /** Returns the {@link MemoryBudget} of the task's in-flight inputs, if any. */
+  public abstract Optional<MemoryBudget> memoryBudget();
+
+  /** Returns the {@link FlowLimiterOptions} of the task in the live stream mode. */
+  public abstract FlowLimiterOptions flowLimiterOptions();
+
+  /** Returns the {@link TasksStatsExporter} of the task, if any. */
+  public abstract Optional<TasksStatsExporter> statsExporter();
+
+  /** Returns the interval in milliseconds between two exports of the task stats. */
+  public abstract Long statsReportIntervalMs();
+
+  /** Returns the {@link CallbackDispatcher} of the task's result listener, if any. */
+  public abstract Optional<CallbackDispatcher> resultDispatcher();
+
   public static Builder builder() {
-    return new AutoValue_BaseOptions.Builder().setDelegate(Delegate.CPU);
+    return new AutoValue_BaseOptions.Builder()
+        .setDelegate(Delegate.CPU)
+        .setFlowLimiterOptions(FlowLimiterOptions.builder().build())
+        .setStatsReportIntervalMs(DEFAULT_STATS_REPORT_INTERVAL_MS);
   }
 }
@@ -0,0 +1,35 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+/** Interface for the customizable MediaPipe task listener of the dropped live stream frames. */
+public interface DroppedFrameListener {
+  /** Why a live stream frame was dropped. */
+  enum Reason {
+    /** The frames in flight reached the adaptive limit, so the frame wasn't sent to the graph. */
+    IN_FLIGHT_LIMIT,
+    /** The flow limiter of the graph discarded the frame from its full queue. */
+    QUEUE_FULL,
+  }
+
+  /**
+   * Invoked when a live stream frame is dropped without a result. May be invoked on the thread that
+   * sends the frame or on a graph thread.
+   *
+   * @param timestampMs the timestamp of the dropped frame in milliseconds.
+   * @param reason the {@link Reason} of the drop.
+   */
+  void onFrameDropped(long timestampMs, Reason reason);
+}
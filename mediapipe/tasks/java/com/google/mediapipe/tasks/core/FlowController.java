@@ -0,0 +1,168 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the frames in flight in a live stream task graph behind a flow limiter, and counts and
+ * reports the frames that are dropped.
+ *
+ * <p>When the {@link FlowLimiterOptions} have a target latency, the controller also admits the
+ * frames: the graph flow limiter is configured with the upper bound of frames in flight, and the
+ * controller drops the frames beyond the current depth before they are sent. The depth is adapted
+ * once per window of finished frames, additively increased while the 95th percentile latency of the
+ * window is under the target and halved otherwise.
+ */
+final class FlowController {
+  static final int LATENCY_WINDOW_SIZE = 32;
+  private static final double LATENCY_PERCENTILE = 0.95;
+  private static final long MICROSECONDS_PER_MILLISECOND = 1000;
+
+  private final LongSupplier nanoClock;
+  private final boolean adaptive;
+  private final long targetLatencyNanos;
+  private final int maxInFlightDepth;
+  private final int initialInFlightDepth;
+  // The send time in nanoseconds of each frame in flight, keyed by the frame timestamp.
+  private final TreeMap<Long, Long> framesInFlight = new TreeMap<>();
+  private final int maxQueuedFrames;
+  private final long[] latencyWindow = new long[LATENCY_WINDOW_SIZE];
+  private int latencyWindowCount = 0;
+  // Written under the lock, read without it by tryAccept.
+  private volatile int inFlightDepth;
+  private volatile int inFlightFrameCount = 0;
+  private long droppedFrameCount = 0;
+  private volatile DroppedFrameListener droppedFrameListener;
+
+  FlowController(FlowLimiterOptions options) {
+    this(options, System::nanoTime);
+  }
+
+  /**
+   * Creates a controller that measures the frame latencies with the given clock.
+   *
+   * @param options the {@link FlowLimiterOptions} of the task.
+   * @param nanoClock the source of the current time in nanoseconds.
+   */
+  FlowController(FlowLimiterOptions options, LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+    adaptive = options.isAdaptive();
+    targetLatencyNanos = adaptive ? options.targetLatencyMs().get() * 1000000 : 0;
+    maxInFlightDepth = options.graphMaxInFlight();
+    initialInFlightDepth = Math.min(options.maxInFlight(), maxInFlightDepth);
+    inFlightDepth = initialInFlightDepth;
+    // The adaptive admission drops the frames beyond the depth instead of queueing them.
+    maxQueuedFrames = adaptive ? 0 : options.maxInQueue();
+  }
+
+  /**
+   * Returns true if a frame sent now would be processed or queued without displacing another frame.
+   * Doesn't lock, so the answer may be stale by the time the frame is sent.
+   */
+  boolean tryAccept() {
+    return inFlightFrameCount < inFlightDepth + maxQueuedFrames;
+  }
+
+  /**
+   * Admits a frame into the graph. Returns false, and counts the frame as dropped, if the frames in
+   * flight already reach the adaptive depth.
+   */
+  boolean admit(long timestamp) {
+    synchronized (this) {
+      if (!adaptive || framesInFlight.size() < inFlightDepth) {
+        framesInFlight.put(timestamp, nanoClock.getAsLong());
+        inFlightFrameCount = framesInFlight.size();
+        return true;
+      }
+      ++droppedFrameCount;
+    }
+    notifyFrameDropped(timestamp, DroppedFrameListener.Reason.IN_FLIGHT_LIMIT);
+    return false;
+  }
+
+  /** Forgets an admitted frame that failed to be sent into the graph. */
+  synchronized void cancel(long timestamp) {
+    framesInFlight.remove(timestamp);
+    inFlightFrameCount = framesInFlight.size();
+  }
+
+  /** Counts a frame dropped by the flow limiter of the graph. */
+  void onFrameDropped(long timestamp) {
+    synchronized (this) {
+      framesInFlight.remove(timestamp);
+      inFlightFrameCount = framesInFlight.size();
+      ++droppedFrameCount;
+    }
+    notifyFrameDropped(timestamp, DroppedFrameListener.Reason.QUEUE_FULL);
+  }
+
+  /** Releases the frames up to the timestamp of a graph output, and adapts the depth. */
+  synchronized void onOutput(long timestamp) {
+    Long sendTimeNanos = framesInFlight.get(timestamp);
+    NavigableMap<Long, Long> finishedFrames = framesInFlight.headMap(timestamp, true);
+    finishedFrames.clear();
+    inFlightFrameCount = framesInFlight.size();
+    if (!adaptive || sendTimeNanos == null) {
+      return;
+    }
+    latencyWindow[latencyWindowCount++] = nanoClock.getAsLong() - sendTimeNanos;
+    if (latencyWindowCount < LATENCY_WINDOW_SIZE) {
+      return;
+    }
+    Arrays.sort(latencyWindow);
+    long percentileLatency =
+        latencyWindow[(int) Math.ceil(LATENCY_PERCENTILE * LATENCY_WINDOW_SIZE) - 1];
+    if (percentileLatency <= targetLatencyNanos) {
+      inFlightDepth = Math.min(inFlightDepth + 1, maxInFlightDepth);
+    } else {
+      inFlightDepth = Math.max(inFlightDepth / 2, 1);
+    }
+    latencyWindowCount = 0;
+  }
+
+  /** Forgets the frames in flight, when the graph is closed or restarted. */
+  synchronized void reset() {
+    framesInFlight.clear();
+    inFlightFrameCount = 0;
+    latencyWindowCount = 0;
+    inFlightDepth = initialInFlightDepth;
+  }
+
+  /** Returns the number of frames admitted in flight at one time. */
+  int getInFlightDepth() {
+    return inFlightDepth;
+  }
+
+  /** Sets the listener of the dropped frames, or null to remove it. */
+  void setDroppedFrameListener(DroppedFrameListener listener) {
+    droppedFrameListener = listener;
+  }
+
+  /** Returns the number of frames dropped since the task was created. */
+  synchronized long getDroppedFrameCount() {
+    return droppedFrameCount;
+  }
+
+  private void notifyFrameDropped(long timestamp, DroppedFrameListener.Reason reason) {
+    DroppedFrameListener listener = droppedFrameListener;
+    if (listener != null) {
+      listener.onFrameDropped(timestamp / MICROSECONDS_PER_MILLISECOND, reason);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import com.google.auto.value.AutoValue;
+import java.util.Optional;
+
+/**
+ * Options of the flow limiter in front of the task graph in the live stream mode.
+ *
+ * <p>By default, a single frame is processed at a time and a single frame waits for it, while the
+ * other frames are dropped. Allowing several frames in flight lets the calculators of the graph
+ * work on different frames concurrently, which increases the throughput on multi-core devices at
+ * the cost of latency.
+ *
+ * <p>When a target latency is set, the number of frames in flight is adapted at runtime instead:
+ * it's raised by one while the 95th percentile latency of the recent frames stays under the target,
+ * and halved when it exceeds the target.
+ */
+@AutoValue
+public abstract class FlowLimiterOptions {
+  private static final int DEFAULT_MAX_ADAPTIVE_IN_FLIGHT = 4;
+
+  /** Builder for {@link FlowLimiterOptions}. */
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets the maximum number of frames processed at one time. When a target latency is set, this
+     * is the initial number of frames in flight. The default value is 1.
+     */
+    public abstract Builder setMaxInFlight(Integer value);
+
+    /**
+     * Sets the maximum number of frames waiting to be processed. The older frames are dropped
+     * first. The default value is 1.
+     */
+    public abstract Builder setMaxInQueue(Integer value);
+
+    /**
+     * Sets the target 95th percentile latency in milliseconds of the frames, from their arrival to
+     * their result, and enables the adaptation of the number of frames in flight.
+     */
+    public abstract Builder setTargetLatencyMs(Long value);
+
+    /**
+     * Sets the upper bound of the number of frames in flight when a target latency is set. The
+     * default value is 4.
+     */
+    public abstract Builder setMaxAdaptiveInFlight(Integer value);
+
+    abstract FlowLimiterOptions autoBuild();
+
+    /**
+     * Validates and builds the {@link FlowLimiterOptions} instance.
+     *
+     * @throws IllegalArgumentException if the number of frames in flight isn't positive, the queue
+     *     size is negative, or the target latency isn't positive.
+     */
+    public final FlowLimiterOptions build() {
+      FlowLimiterOptions options = autoBuild();
+      if (options.maxInFlight() <= 0 || options.maxAdaptiveInFlight() <= 0) {
+        throw new IllegalArgumentException("The number of frames in flight should be positive.");
+      }
+      if (options.maxInQueue() < 0) {
+        throw new IllegalArgumentException("The number of queued frames should not be negative.");
+      }
+      if (options.targetLatencyMs().isPresent() && options.targetLatencyMs().get() <= 0) {
+        throw new IllegalArgumentException("The target latency should be positive.");
+      }
+      return options;
+    }
+  }
+
+  public abstract Integer maxInFlight();
+
+  public abstract Integer maxInQueue();
+
+  public abstract Optional<Long> targetLatencyMs();
+
+  public abstract Integer maxAdaptiveInFlight();
+
+  /** Returns true if the number of frames in flight is adapted to the target latency. */
+  public boolean isAdaptive() {
+    return targetLatencyMs().isPresent();
+  }
+
+  /** Returns the maximum number of frames in flight of the flow limiter of the graph. */
+  int graphMaxInFlight() {
+    return isAdaptive() ? maxAdaptiveInFlight() : maxInFlight();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_FlowLimiterOptions.Builder()
+        .setMaxInFlight(1)
+        .setMaxInQueue(1)
+        .setMaxAdaptiveInFlight(DEFAULT_MAX_ADAPTIVE_IN_FLIGHT);
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import com.google.mediapipe.framework.Packet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small, thread-safe least recently used cache of input packets, keyed by the value the packets
+ * were created from.
+ *
+ * <p>Task inputs such as the region of interest of a vision task or the sample rate of an audio
+ * task rarely change between invocations. Instead of creating a new packet for every invocation,
+ * the cache keeps a template packet per value and returns a copy of it. A copy shares the payload
+ * of the template, so it can be sent to the graph at any timestamp without creating or serializing
+ * the payload again.
+ *
+ * @param <KeyT> the type of the values the packets are created from, which must implement {@link
+ *     Object#equals} and {@link Object#hashCode}.
+ */
+public final class InputPacketCache<KeyT> implements AutoCloseable {
+  /** Interface for creating the template packet of a value. */
+  public interface PacketFactory<KeyT> {
+    Packet create(KeyT key);
+  }
+
+  private final int capacity;
+  private final PacketFactory<KeyT> packetFactory;
+  // Iterates from the least recently used template to the most recently used one.
+  private final LinkedHashMap<KeyT, Packet> templates =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+  private boolean closed = false;
+
+  /**
+   * Creates an {@link InputPacketCache} instance.
+   *
+   * @param capacity the maximum number of template packets to keep.
+   * @param packetFactory the {@link PacketFactory} that creates the template packet of a value.
+   */
+  public InputPacketCache(int capacity, PacketFactory<KeyT> packetFactory) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity of the packet cache must be > 0.");
+    }
+    this.capacity = capacity;
+    this.packetFactory = packetFactory;
+  }
+
+  /**
+   * Returns a new packet that holds the payload of the given value. The caller owns the returned
+   * packet and is responsible for releasing it, usually by sending it to the graph.
+   *
+   * @param key the value to create the packet from.
+   * @throws IllegalStateException if the cache is closed.
+   */
+  public synchronized Packet get(KeyT key) {
+    if (closed) {
+      throw new IllegalStateException("The InputPacketCache has been closed.");
+    }
+    Packet template = templates.get(key);
+    if (template == null) {
+      template = packetFactory.create(key);
+      templates.put(key, template);
+      Iterator<Map.Entry<KeyT, Packet>> it = templates.entrySet().iterator();
+      while (templates.size() > capacity) {
+        it.next().getValue().release();
+        it.remove();
+      }
+    }
+    return template.copy();
+  }
+
+  /** Releases all the template packets. Must be called before the graph is torn down. */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Packet template : templates.values()) {
+      template.release();
+    }
+    templates.clear();
+  }
+}
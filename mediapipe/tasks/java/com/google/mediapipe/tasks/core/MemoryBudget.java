@@ -0,0 +1,122 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import com.google.mediapipe.framework.MediaPipeException;
+
+/**
+ * A budget of native memory for the input packets in flight in one or more {@link TaskRunner}s.
+ *
+ * <p>An input is charged the estimated payload size of its packets, such as the pixel data of its
+ * images, when it is added into the graph, and is credited back once the graph outputs a result at
+ * its timestamp or a later one, or becomes idle. A single budget can be shared by several tasks to
+ * bound their combined memory usage.
+ *
+ * <p>An input larger than the whole budget is admitted once nothing else is in flight, so that it
+ * can't be blocked forever.
+ */
+public final class MemoryBudget {
+  /** What happens to an input that doesn't fit in the budget. */
+  public enum OverflowPolicy {
+    /** Blocks the caller until enough in-flight inputs are processed. */
+    BLOCK,
+    /**
+     * Rejects the input with a {@code RESOURCE_EXHAUSTED} {@link MediaPipeException}, which is
+     * thrown to the caller whether or not the task has an error listener.
+     */
+    REJECT_NEWEST,
+  }
+
+  private final long maxBytes;
+  private final OverflowPolicy overflowPolicy;
+  private long inFlightBytes = 0;
+  private long rejectedInputCount = 0;
+
+  /**
+   * Creates a {@link MemoryBudget} instance.
+   *
+   * @param maxBytes the maximum number of bytes of the inputs in flight, must be > 0.
+   * @param overflowPolicy what happens to an input that doesn't fit in the budget.
+   */
+  public static MemoryBudget create(long maxBytes, OverflowPolicy overflowPolicy) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("The memory budget should be greater than 0.");
+    }
+    return new MemoryBudget(maxBytes, overflowPolicy);
+  }
+
+  /** Returns the maximum number of bytes of the inputs in flight. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Returns what happens to an input that doesn't fit in the budget. */
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /** Returns the number of bytes currently charged by the inputs in flight. */
+  public synchronized long getInFlightBytes() {
+    return inFlightBytes;
+  }
+
+  /** Returns the number of inputs rejected by the {@link OverflowPolicy#REJECT_NEWEST} policy. */
+  public synchronized long getRejectedInputCount() {
+    return rejectedInputCount;
+  }
+
+  /**
+   * Charges an input to the budget, applying the overflow policy if it doesn't fit.
+   *
+   * @throws MediaPipeException if the input is rejected, or if the thread is interrupted while
+   *     blocked.
+   */
+  synchronized void acquire(long bytes) {
+    while (inFlightBytes > 0 && inFlightBytes + bytes > maxBytes) {
+      if (overflowPolicy == OverflowPolicy.REJECT_NEWEST) {
+        ++rejectedInputCount;
+        throw new MediaPipeException(
+            MediaPipeException.StatusCode.RESOURCE_EXHAUSTED.ordinal(),
+            "The input of "
+                + bytes
+                + " bytes exceeds the memory budget, "
+                + inFlightBytes
+                + " of "
+                + maxBytes
+                + " bytes are in flight.");
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MediaPipeException(
+            MediaPipeException.StatusCode.CANCELLED.ordinal(),
+            "Interrupted while waiting for the memory budget.");
+      }
+    }
+    inFlightBytes += bytes;
+  }
+
+  /** Credits the bytes of processed inputs back to the budget. */
+  synchronized void release(long bytes) {
+    inFlightBytes -= bytes;
+    notifyAll();
+  }
+
+  private MemoryBudget(long maxBytes, OverflowPolicy overflowPolicy) {
+    this.maxBytes = maxBytes;
+    this.overflowPolicy = overflowPolicy;
+  }
+}
@@ -14,31 +14,60 @@
 
 package com.google.mediapipe.tasks.core;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-/** Facilitates creation and destruction of the native ModelResourcesCache. */
+/**
+ * Facilitates creation and destruction of the native ModelResourcesCache.
+ *
+ * <p>The cache is reference counted so that it can be shared by multiple task graphs. The native
+ * cache is released when the last reference is released.
+ */
 class ModelResourcesCache {
   private final long nativeHandle;
-  private final AtomicBoolean isHandleValid;
+  private final AtomicInteger refCount;
 
   public ModelResourcesCache() {
     nativeHandle = nativeCreateModelResourcesCache();
-    isHandleValid = new AtomicBoolean(true);
+    refCount = new AtomicInteger(1);
   }
 
   public boolean isHandleValid() {
-    return isHandleValid.get();
+    return refCount.get() > 0;
   }
 
   public long getNativeHandle() {
-    if (isHandleValid.get()) {
+    if (isHandleValid()) {
       return nativeHandle;
     }
     return 0;
   }
 
+  /**
+   * Acquires an additional reference to the cache.
+   *
+   * @throws IllegalStateException if the cache has already been released.
+   */
+  public ModelResourcesCache retain() {
+    int count;
+    do {
+      count = refCount.get();
+      if (count <= 0) {
+        throw new IllegalStateException("The ModelResourcesCache has already been released.");
+      }
+    } while (!refCount.compareAndSet(count, count + 1));
+    return this;
+  }
+
+  /** Releases a reference to the cache, and the native cache once no reference is left. */
   public void release() {
-    if (isHandleValid.compareAndSet(true, false)) {
+    int count;
+    do {
+      count = refCount.get();
+      if (count <= 0) {
+        return;
+      }
+    } while (!refCount.compareAndSet(count, count - 1));
+    if (count == 1) {
       nativeReleaseModelResourcesCache(nativeHandle);
     }
   }
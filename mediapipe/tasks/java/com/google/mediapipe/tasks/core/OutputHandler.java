@@ -14,10 +14,18 @@
 
 package com.google.mediapipe.tasks.core;
 
+import android.os.Build.VERSION_CODES;
 import android.util.Log;
+import androidx.annotation.RequiresApi;
+import com.google.mediapipe.framework.CallbackDispatcher;
+import com.google.mediapipe.framework.FrameTracer;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Base class for handling MediaPipe task graph outputs. */
 public class OutputHandler<OutputT extends TaskResult, InputT> {
@@ -47,17 +55,36 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
     void run(OutputT result);
   }
 
+  /**
+   * Interface for releasing the resources held by a task input object once the result listener
+   * returns.
+   */
+  public interface TaskInputReleaser<InputT> {
+    void release(InputT input);
+  }
+
   private static final String TAG = "OutputHandler";
+  private static final int DEFAULT_MAX_CACHED_TASK_RESULTS = 64;
   // A task-specific graph output packet converter that should be implemented per task.
   private OutputPacketConverter<OutputT, InputT> outputPacketConverter;
   // The user-defined task result listener.
   private ResultListener<OutputT, InputT> resultListener;
   // The user-defined error listener.
   protected ErrorListener errorListener;
-  // The cached task result for non latency sensitive use cases.
-  protected OutputT cachedTaskResult;
+  // The task-specific releaser of the task input objects handed to the result listener.
+  private TaskInputReleaser<InputT> taskInputReleaser;
+  // The optional dispatcher that runs the result listener off the graph thread.
+  private CallbackDispatcher resultDispatcher;
+  // The publisher of the task results, created on the first request for it.
+  private volatile ResultPublisher<OutputT> resultPublisher;
+  // The cached task results for non latency sensitive use cases, keyed by the output timestamp.
+  private final TaskResultTable<OutputT> cachedTaskResults =
+      new TaskResultTable<>(DEFAULT_MAX_CACHED_TASK_RESULTS);
+  // The pending task results of the pipelined batch invocations, keyed by the input timestamp.
+  private final ConcurrentHashMap<Long, CompletableFuture<TaskResult>> pendingTaskResults =
+      new ConcurrentHashMap<>();
   // The latest output timestamp.
-  protected long latestOutputTimestamp = -1;
+  protected volatile long latestOutputTimestamp = -1;
   // Whether the output handler should react to timestamp-bound changes by outputting empty packets.
   private boolean handleTimestampBoundChanges = false;
 
@@ -80,6 +107,48 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
     this.resultListener = listener;
   }
 
+  /**
+   * Sets a callback to be invoked with the task input object after the result listener returns.
+   * This allows the task input object to reference the graph output packets without copying them,
+   * as long as the result listener accesses the data before it returns.
+   *
+   * @param releaser the task-specific {@link TaskInputReleaser} callback.
+   */
+  public void setTaskInputReleaser(TaskInputReleaser<InputT> releaser) {
+    this.taskInputReleaser = releaser;
+  }
+
+  /**
+   * Sets a {@link CallbackDispatcher} to run the result listener on, instead of the graph thread.
+   * The task result and input objects are still converted on the graph thread. If the dispatcher
+   * discards a result, the task input object is released without invoking the result listener.
+   *
+   * @param dispatcher the {@link CallbackDispatcher} of the result listener.
+   */
+  public void setResultDispatcher(CallbackDispatcher dispatcher) {
+    this.resultDispatcher = dispatcher;
+  }
+
+  /**
+   * Returns the {@link ResultPublisher} that streams the task results to its subscribers alongside
+   * the result listener, creating it on the first call.
+   */
+  @RequiresApi(VERSION_CODES.R)
+  public synchronized ResultPublisher<OutputT> getResultPublisher() {
+    if (resultPublisher == null) {
+      resultPublisher = new ResultPublisher<>();
+    }
+    return resultPublisher;
+  }
+
+  /** Completes the subscribers of the {@link ResultPublisher}, if any. */
+  @RequiresApi(VERSION_CODES.R)
+  void completeResultPublisher() {
+    if (resultPublisher != null) {
+      resultPublisher.complete();
+    }
+  }
+
   /**
    * Sets a callback to be invoked when exceptions are thrown from the task graph.
    *
@@ -104,11 +173,31 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
     return handleTimestampBoundChanges;
   }
 
-  /* Returns the cached task result object. */
+  /**
+   * Sets the maximum number of cached task results that haven't been retrieved yet. When the limit
+   * is reached, the cached task result with the smallest timestamp is evicted. A synchronous call
+   * that retrieves its result after the eviction returns null, so the limit should exceed the
+   * number of the concurrent batch invocations. Defaults to 64.
+   *
+   * @param maxCachedTaskResults the maximum number of unretrieved task results, must be > 0.
+   */
+  public void setMaxCachedTaskResults(int maxCachedTaskResults) {
+    cachedTaskResults.setCapacity(maxCachedTaskResults);
+  }
+
+  /* Returns the cached task result object with the latest timestamp. */
   public OutputT retrieveCachedTaskResult() {
-    OutputT taskResult = cachedTaskResult;
-    cachedTaskResult = null;
-    return taskResult;
+    return cachedTaskResults.claimLatest();
+  }
+
+  /**
+   * Returns the cached task result object produced for the input at the given timestamp, or null if
+   * the graph didn't produce any result for that input.
+   *
+   * @param timestamp the input packet timestamp of the task invocation.
+   */
+  public OutputT retrieveCachedTaskResult(long timestamp) {
+    return cachedTaskResults.claim(timestamp);
   }
 
   /* Returns the latest output timestamp. */
@@ -116,6 +205,50 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
     return latestOutputTimestamp;
   }
 
+  /**
+   * Registers a pending task result that will be completed when the graph outputs the packets at
+   * the given timestamp.
+   *
+   * @param timestamp the input timestamp of the pipelined invocation.
+   */
+  CompletableFuture<TaskResult> registerPendingTaskResult(long timestamp) {
+    CompletableFuture<TaskResult> future = new CompletableFuture<>();
+    pendingTaskResults.put(timestamp, future);
+    return future;
+  }
+
+  /**
+   * Completes the pending task result at the given timestamp exceptionally.
+   *
+   * @param timestamp the input timestamp of the pipelined invocation.
+   * @param e the exception that caused the failure.
+   */
+  void failPendingTaskResult(long timestamp, RuntimeException e) {
+    CompletableFuture<TaskResult> future = pendingTaskResults.remove(timestamp);
+    if (future != null) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Completes all the pending task results whose timestamps are not greater than the given
+   * timestamp exceptionally.
+   *
+   * @param timestamp the largest input timestamp to fail.
+   * @param e the exception that caused the failure.
+   */
+  void failPendingTaskResultsUpTo(long timestamp, RuntimeException e) {
+    Iterator<Map.Entry<Long, CompletableFuture<TaskResult>>> it =
+        pendingTaskResults.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Long, CompletableFuture<TaskResult>> entry = it.next();
+      if (entry.getKey() <= timestamp) {
+        it.remove();
+        entry.getValue().completeExceptionally(e);
+      }
+    }
+  }
+
   /**
    * Handles a list of output {@link Packet}s. Invoked when a packet list become available.
    *
@@ -123,21 +256,73 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
    */
   void run(List<Packet> packets) {
     OutputT taskResult = null;
+    CompletableFuture<TaskResult> pendingTaskResult =
+        pendingTaskResults.isEmpty()
+            ? null
+            : pendingTaskResults.remove(packets.get(0).getTimestamp());
     try {
+      long spanBeginTimeUsec = FrameTracer.beginSpan();
       taskResult = outputPacketConverter.convertToTaskResult(packets);
-      if (resultListener == null) {
-        cachedTaskResult = taskResult;
-        latestOutputTimestamp = packets.get(0).getTimestamp();
+      FrameTracer.endSpan(
+          "OutputPacketConverter.convertToTaskResult",
+          packets.get(0).getTimestamp(),
+          spanBeginTimeUsec);
+      if (pendingTaskResult != null) {
+        pendingTaskResult.complete(taskResult);
+      } else if (resultListener == null) {
+        long timestamp = packets.get(0).getTimestamp();
+        if (taskResult != null) {
+          cachedTaskResults.put(timestamp, taskResult);
+        }
+        latestOutputTimestamp = Math.max(latestOutputTimestamp, timestamp);
       } else {
+        if (resultPublisher != null && taskResult != null) {
+          resultPublisher.publish(taskResult);
+        }
         InputT taskInput = outputPacketConverter.convertToTaskInput(packets);
-        resultListener.run(taskResult, taskInput);
+        if (resultDispatcher == null) {
+          deliverTaskResult(taskResult, taskInput);
+        } else {
+          OutputT dispatchedTaskResult = taskResult;
+          resultDispatcher.dispatch(
+              () -> {
+                try {
+                  deliverTaskResult(dispatchedTaskResult, taskInput);
+                } catch (MediaPipeException e) {
+                  handleError(e);
+                }
+              },
+              () -> releaseTaskInput(taskInput));
+        }
       }
     } catch (MediaPipeException e) {
-      if (errorListener != null) {
-        errorListener.onError(e);
+      if (pendingTaskResult != null) {
+        pendingTaskResult.completeExceptionally(e);
       } else {
-        Log.e(TAG, "Error occurs when getting MediaPipe task result. " + e);
+        handleError(e);
       }
     }
   }
+
+  private void deliverTaskResult(OutputT taskResult, InputT taskInput) {
+    try {
+      resultListener.run(taskResult, taskInput);
+    } finally {
+      releaseTaskInput(taskInput);
+    }
+  }
+
+  private void releaseTaskInput(InputT taskInput) {
+    if (taskInputReleaser != null && taskInput != null) {
+      taskInputReleaser.release(taskInput);
+    }
+  }
+
+  private void handleError(MediaPipeException e) {
+    if (errorListener != null) {
+      errorListener.onError(e);
+    } else {
+      Log.e(TAG, "Error occurs when getting MediaPipe task result. " + e);
+    }
+  }
 }
@@ -0,0 +1,196 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.RequiresApi;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the task results in the live stream and the audio stream modes.
+ *
+ * <p>Each subscriber receives the task results as it requests them through its {@link
+ * Flow.Subscription}. The task results produced while a subscriber has no outstanding demand are
+ * not queued: only the latest one is kept, and it's delivered on the next request. The publisher
+ * completes its subscribers when the task is closed.
+ *
+ * <p>The subscribers are signalled on the graph thread that produces the task results, or on the
+ * thread calling {@link Flow.Subscription#request}, so they should return quickly.
+ */
+@RequiresApi(VERSION_CODES.R)
+public final class ResultPublisher<OutputT extends TaskResult> implements Flow.Publisher<OutputT> {
+  private final List<ResultSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final AtomicLong coalescedResultCount = new AtomicLong();
+  private volatile boolean completed = false;
+
+  ResultPublisher() {}
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super OutputT> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("The subscriber should not be null.");
+    }
+    ResultSubscription subscription = new ResultSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    subscriptions.add(subscription);
+    if (completed) {
+      subscription.complete();
+    }
+  }
+
+  /**
+   * Returns the number of task results that were replaced by a later task result before a
+   * subscriber requested them, summed over all the subscribers.
+   */
+  public long getCoalescedResultCount() {
+    return coalescedResultCount.get();
+  }
+
+  /**
+   * Publishes a task result to all the subscribers.
+   *
+   * @param result the task result.
+   */
+  void publish(OutputT result) {
+    for (ResultSubscription subscription : subscriptions) {
+      subscription.offer(result);
+    }
+  }
+
+  /** Completes all the subscribers, once their latest pending task result is delivered. */
+  void complete() {
+    completed = true;
+    for (ResultSubscription subscription : subscriptions) {
+      subscription.complete();
+    }
+  }
+
+  /** The {@link Flow.Subscription} of a single subscriber, holding its latest pending result. */
+  private final class ResultSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super OutputT> subscriber;
+    // Guarded by this.
+    private long demand = 0;
+    private OutputT pendingResult;
+    private Throwable pendingError;
+    private boolean completionRequested = false;
+    private boolean terminated = false;
+    private boolean draining = false;
+
+    ResultSubscription(Flow.Subscriber<? super OutputT> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      synchronized (this) {
+        if (terminated) {
+          return;
+        }
+        if (n <= 0) {
+          pendingResult = null;
+          pendingError =
+              new IllegalArgumentException("The number of requested results should be positive.");
+        } else {
+          demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        terminated = true;
+        pendingResult = null;
+      }
+      subscriptions.remove(this);
+    }
+
+    void offer(OutputT result) {
+      synchronized (this) {
+        if (terminated || completionRequested) {
+          return;
+        }
+        if (pendingResult != null) {
+          coalescedResultCount.incrementAndGet();
+        }
+        pendingResult = result;
+      }
+      drain();
+    }
+
+    void complete() {
+      synchronized (this) {
+        completionRequested = true;
+      }
+      drain();
+    }
+
+    /**
+     * Signals the subscriber while there is a pending result and some demand, or a pending terminal
+     * signal. Only one thread drains at a time, so the signals are never concurrent.
+     */
+    private void drain() {
+      synchronized (this) {
+        if (draining) {
+          return;
+        }
+        draining = true;
+      }
+      while (true) {
+        OutputT result = null;
+        Throwable error = null;
+        boolean completeSubscriber = false;
+        synchronized (this) {
+          if (terminated) {
+            draining = false;
+            return;
+          }
+          if (pendingError != null) {
+            error = pendingError;
+            terminated = true;
+          } else if (pendingResult != null && demand > 0) {
+            result = pendingResult;
+            pendingResult = null;
+            if (demand != Long.MAX_VALUE) {
+              --demand;
+            }
+          } else if (completionRequested) {
+            // A result that was never requested is dropped rather than holding back completion.
+            pendingResult = null;
+            completeSubscriber = true;
+            terminated = true;
+          } else {
+            draining = false;
+            return;
+          }
+        }
+        if (result != null) {
+          subscriber.onNext(result);
+        } else {
+          subscriptions.remove(this);
+          if (error != null) {
+            subscriber.onError(error);
+          } else if (completeSubscriber) {
+            subscriber.onComplete();
+          }
+        }
+      }
+    }
+  }
+}
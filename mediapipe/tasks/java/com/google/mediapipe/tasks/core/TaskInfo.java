@@ -20,8 +20,10 @@ import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
 import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig.Node;
 import com.google.mediapipe.proto.CalculatorProto.InputStreamInfo;
 import com.google.mediapipe.calculator.proto.FlowLimiterCalculatorProto.FlowLimiterCalculatorOptions;
+import com.google.mediapipe.tasks.core.logging.TasksStatsExporter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * {@link TaskInfo} contains all needed informaton to initialize a MediaPipe Task {@link
@@ -29,6 +31,10 @@ import java.util.List;
  */
 @AutoValue
 public abstract class TaskInfo<T extends TaskOptions> {
+  private static final long DEFAULT_STATS_REPORT_INTERVAL_MS = 10000;
+  // The stream of the flow limiter that tells whether each frame is processed or dropped.
+  static final String FLOW_LIMITER_ALLOW_STREAM_NAME = "flow_limiter_allow";
+
   /** Builder for {@link TaskInfo}. */
   @AutoValue.Builder
   public abstract static class Builder<T extends TaskOptions> {
@@ -50,6 +56,18 @@ public abstract class TaskInfo<T extends TaskOptions> {
     /** Sets to true if the task requires a flow limiter. */
     public abstract Builder<T> setEnableFlowLimiting(Boolean value);
 
+    /** Sets the {@link FlowLimiterOptions} of the flow limiter, if flow limiting is enabled. */
+    public abstract Builder<T> setFlowLimiterOptions(FlowLimiterOptions value);
+
+    /** Sets an optional {@link MemoryBudget} charged by the input packets of the task. */
+    public abstract Builder<T> setMemoryBudget(Optional<MemoryBudget> value);
+
+    /** Sets an optional {@link TasksStatsExporter} that receives the stats of the task. */
+    public abstract Builder<T> setStatsExporter(Optional<TasksStatsExporter> value);
+
+    /** Sets the interval in milliseconds between two exports of the task stats. */
+    public abstract Builder<T> setStatsReportIntervalMs(Long value);
+
     /**
      * Sets a task-specific options instance.
      *
@@ -91,8 +109,20 @@ public abstract class TaskInfo<T extends TaskOptions> {
 
   abstract Boolean enableFlowLimiting();
 
+  abstract FlowLimiterOptions flowLimiterOptions();
+
+  abstract Optional<MemoryBudget> memoryBudget();
+
+  abstract Optional<TasksStatsExporter> statsExporter();
+
+  abstract Long statsReportIntervalMs();
+
   public static <T extends TaskOptions> Builder<T> builder() {
-    return new AutoValue_TaskInfo.Builder<T>().setTaskName("").setTaskRunningModeName("");
+    return new AutoValue_TaskInfo.Builder<T>()
+        .setTaskName("")
+        .setTaskRunningModeName("")
+        .setFlowLimiterOptions(FlowLimiterOptions.builder().build())
+        .setStatsReportIntervalMs(DEFAULT_STATS_REPORT_INTERVAL_MS);
   }
 
   /* Returns a list of the output stream names without the stream tags. */
@@ -136,8 +166,8 @@ public abstract class TaskInfo<T extends TaskOptions> {
                     .setExtension(
                         FlowLimiterCalculatorOptions.ext,
                         FlowLimiterCalculatorOptions.newBuilder()
-                            .setMaxInFlight(1)
-                            .setMaxInQueue(1)
+                            .setMaxInFlight(flowLimiterOptions().graphMaxInFlight())
+                            .setMaxInQueue(flowLimiterOptions().maxInQueue())
                             .build())
                     .build());
     for (String inputStream : inputStreams()) {
@@ -149,6 +179,7 @@ public abstract class TaskInfo<T extends TaskOptions> {
     }
     flowLimiterCalculatorBuilder.addInputStream(
         "FINISHED:" + stripTagIndex(outputStreams().get(0)));
+    flowLimiterCalculatorBuilder.addOutputStream("ALLOW:" + FLOW_LIMITER_ALLOW_STREAM_NAME);
     graphBuilder.addNode(flowLimiterCalculatorBuilder.build());
     graphBuilder.addNode(taskSubgraphBuilder.build());
     return graphBuilder.build();
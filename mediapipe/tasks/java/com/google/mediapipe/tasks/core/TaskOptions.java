@@ -21,6 +21,7 @@ import com.google.mediapipe.tasks.core.proto.AccelerationProto;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.core.proto.ExternalFileProto;
 import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
 
 /**
  * MediaPipe Tasks options base class. Any MediaPipe task-specific options class should extend
@@ -36,6 +37,9 @@ public abstract class TaskOptions {
   /**
    * Converts a {@link BaseOptions} instance to a {@link BaseOptionsProto.BaseOptions} protobuf
    * message.
+   *
+   * <p>A model asset buffer is passed to the task graph by its native address and length without
+   * being copied, so the buffer must stay alive and unchanged as long as the task graph is running.
    */
   protected BaseOptionsProto.BaseOptions convertBaseOptionsToProto(BaseOptions options) {
     ExternalFileProto.ExternalFile.Builder externalFileBuilder =
@@ -51,8 +55,17 @@ public abstract class TaskOptions {
         .modelAssetBuffer()
         .ifPresent(
             modelBuffer -> {
-              modelBuffer.rewind();
-              externalFileBuilder.setFileContent(ByteString.copyFrom(modelBuffer));
+              long address = nativeGetDirectBufferAddress(modelBuffer);
+              if (address != 0 && modelBuffer.limit() > 0) {
+                externalFileBuilder.setFilePointerMeta(
+                    ExternalFileProto.FilePointerMeta.newBuilder()
+                        .setPointer(address)
+                        .setLength(modelBuffer.limit())
+                        .build());
+              } else {
+                modelBuffer.rewind();
+                externalFileBuilder.setFileContent(ByteString.copyFrom(modelBuffer));
+              }
             });
     AccelerationProto.Acceleration.Builder accelerationBuilder =
         AccelerationProto.Acceleration.newBuilder();
@@ -72,4 +85,7 @@ public abstract class TaskOptions {
         .setAcceleration(accelerationBuilder.build())
         .build();
   }
+
+  /** Returns the native address of a direct {@link ByteBuffer}, or 0 if it's unavailable. */
+  private static native long nativeGetDirectBufferAddress(ByteBuffer buffer);
 }
@@ -0,0 +1,285 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import android.os.ParcelFileDescriptor;
+import com.google.auto.value.AutoValue;
+import com.google.mediapipe.framework.MediaPipeException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe least recently used cache of task results, keyed by the task input and a
+ * fingerprint of the task graph and its options.
+ *
+ * <p>A cache can be shared by several task instances. Since the fingerprint covers the content of
+ * the model and the task options, instances with different models or options never see each
+ * other's results.
+ *
+ * <p>The cache holds the results as they are given, so the tasks put and get copies of the results
+ * that have mutable fields. The cached results keep the timestamp of the task invocation that
+ * produced them.
+ */
+public final class TaskResultCache<ResultT extends TaskResult> {
+  // The estimated memory overhead of a cache entry, excluding the input and the result.
+  private static final long ENTRY_OVERHEAD_BYTES = 96;
+  private static final int MODEL_READ_CHUNK_BYTES = 64 << 10;
+
+  /** Options for setting up a {@link TaskResultCache}. */
+  @AutoValue
+  public abstract static class CacheOptions {
+    /** Builder for {@link CacheOptions}. */
+    @AutoValue.Builder
+    public abstract static class Builder {
+      /** Sets the maximum number of cached results. Defaults to 1000. */
+      public abstract Builder setMaxEntries(int value);
+
+      /**
+       * Sets the maximum estimated memory footprint of the cached inputs and results, in bytes.
+       * Defaults to 16 MiB.
+       */
+      public abstract Builder setMaxWeightBytes(long value);
+
+      abstract CacheOptions autoBuild();
+
+      /**
+       * Validates and builds the {@link CacheOptions} instance.
+       *
+       * @throws IllegalArgumentException if the maximum number of entries or weight is not
+       *     positive.
+       */
+      public final CacheOptions build() {
+        CacheOptions options = autoBuild();
+        if (options.maxEntries() <= 0 || options.maxWeightBytes() <= 0) {
+          throw new IllegalArgumentException("maxEntries and maxWeightBytes must be > 0.");
+        }
+        return options;
+      }
+    }
+
+    abstract int maxEntries();
+
+    abstract long maxWeightBytes();
+
+    public static Builder builder() {
+      return new AutoValue_TaskResultCache_CacheOptions.Builder()
+          .setMaxEntries(1000)
+          .setMaxWeightBytes(16L << 20);
+    }
+  }
+
+  /** Helper class for the key of a cache entry. */
+  private static class Key {
+    private Key(String fingerprint, String input) {
+      this.fingerprint = fingerprint;
+      this.input = input;
+    }
+
+    final String fingerprint;
+    final String input;
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return fingerprint.equals(other.fingerprint) && input.equals(other.input);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * fingerprint.hashCode() + input.hashCode();
+    }
+  }
+
+  /** Helper class for a cached result and its estimated memory footprint. */
+  private static class Entry<ResultT> {
+    private Entry(ResultT result, long weightBytes) {
+      this.result = result;
+      this.weightBytes = weightBytes;
+    }
+
+    final ResultT result;
+    final long weightBytes;
+  }
+
+  private final CacheOptions options;
+  // Iterates from the least recently used entry to the most recently used one.
+  private final LinkedHashMap<Key, Entry<ResultT>> entries =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+  private long weightBytes = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  /** Creates an empty {@link TaskResultCache} from {@link CacheOptions}. */
+  public static <ResultT extends TaskResult> TaskResultCache<ResultT> create(
+      CacheOptions options) {
+    return new TaskResultCache<>(options);
+  }
+
+  /**
+   * Computes the fingerprint of a task graph, its options and the content of its model.
+   *
+   * <p>A model that is passed by a buffer or a file descriptor is identified by its content, which
+   * is read once to compute the fingerprint. Since the buffer address or the file descriptor is
+   * part of the options, instances that load the same model from different buffers or file
+   * descriptors don't share their results.
+   *
+   * @param taskGraphName the name of the task graph.
+   * @param options the {@link TaskOptions} of the task.
+   * @param baseOptions the {@link BaseOptions} in the task options.
+   * @throws MediaPipeException if the model file descriptor can't be read.
+   */
+  public static String fingerprint(
+      String taskGraphName, TaskOptions options, BaseOptions baseOptions) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(taskGraphName.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(options.convertToCalculatorOptionsProto().toByteArray());
+    digest.update((byte) 0);
+    updateWithModelContent(digest, baseOptions);
+    StringBuilder fingerprint = new StringBuilder();
+    for (byte b : digest.digest()) {
+      fingerprint.append(String.format("%02x", b));
+    }
+    return fingerprint.toString();
+  }
+
+  // A model asset path identifies the model, and is already part of the serialized options.
+  private static void updateWithModelContent(MessageDigest digest, BaseOptions baseOptions) {
+    if (baseOptions.modelAssetBuffer().isPresent()) {
+      // Reads the whole buffer like the task graph, without moving the position of the caller.
+      ByteBuffer model = baseOptions.modelAssetBuffer().get().duplicate();
+      model.position(0);
+      digest.update(model);
+    } else if (baseOptions.modelAssetFileDescriptor().isPresent()) {
+      try (FileInputStream stream =
+              new ParcelFileDescriptor.AutoCloseInputStream(
+                  ParcelFileDescriptor.fromFd(baseOptions.modelAssetFileDescriptor().get()));
+          FileChannel channel = stream.getChannel()) {
+        // Reads at explicit positions, so the offset of the file descriptor is left unchanged.
+        ByteBuffer chunk = ByteBuffer.allocate(MODEL_READ_CHUNK_BYTES);
+        long position = 0;
+        int readBytes;
+        while ((readBytes = channel.read(chunk, position)) > 0) {
+          chunk.flip();
+          digest.update(chunk);
+          chunk.clear();
+          position += readBytes;
+        }
+      } catch (IOException e) {
+        throw new MediaPipeException(
+            MediaPipeException.StatusCode.INVALID_ARGUMENT.ordinal(),
+            "Failed to read the model file descriptor: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the cached result of a task input, or null if there is none.
+   *
+   * @param fingerprint the fingerprint of the task, from {@link #fingerprint}.
+   * @param input the task input.
+   */
+  public synchronized ResultT get(String fingerprint, String input) {
+    Entry<ResultT> entry = entries.get(new Key(fingerprint, input));
+    if (entry == null) {
+      ++missCount;
+      return null;
+    }
+    ++hitCount;
+    return entry.result;
+  }
+
+  /**
+   * Caches the result of a task input, evicting the least recently used results if the cache is
+   * full. Null results, and results that are larger than the whole cache, are not cached.
+   *
+   * @param fingerprint the fingerprint of the task, from {@link #fingerprint}.
+   * @param input the task input.
+   * @param result the task result.
+   * @param resultWeightBytes the estimated memory footprint of the result, in bytes.
+   */
+  public synchronized void put(
+      String fingerprint, String input, ResultT result, long resultWeightBytes) {
+    long entryWeightBytes = ENTRY_OVERHEAD_BYTES + 2L * input.length() + resultWeightBytes;
+    if (result == null || entryWeightBytes > options.maxWeightBytes()) {
+      return;
+    }
+    Entry<ResultT> previous =
+        entries.put(new Key(fingerprint, input), new Entry<>(result, entryWeightBytes));
+    if (previous != null) {
+      weightBytes -= previous.weightBytes;
+    }
+    weightBytes += entryWeightBytes;
+    Iterator<Map.Entry<Key, Entry<ResultT>>> it = entries.entrySet().iterator();
+    while (it.hasNext()
+        && (entries.size() > options.maxEntries() || weightBytes > options.maxWeightBytes())) {
+      weightBytes -= it.next().getValue().weightBytes;
+      it.remove();
+      ++evictionCount;
+    }
+  }
+
+  /** Removes all the cached results. The hit, miss and eviction counts are kept. */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    weightBytes = 0;
+  }
+
+  /** Returns the number of cached results. */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /** Returns the estimated memory footprint of the cached inputs and results, in bytes. */
+  public synchronized long weightBytes() {
+    return weightBytes;
+  }
+
+  /** Returns the number of lookups that found a cached result. */
+  public synchronized long hitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of lookups that didn't find a cached result. */
+  public synchronized long missCount() {
+    return missCount;
+  }
+
+  /** Returns the number of results evicted to keep the cache within its limits. */
+  public synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  private TaskResultCache(CacheOptions options) {
+    this.options = options;
+  }
+}
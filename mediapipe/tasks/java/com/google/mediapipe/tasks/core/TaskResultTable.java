@@ -0,0 +1,98 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded, thread-safe table of the task results that haven't been claimed yet, indexed by the
+ * output packet timestamp.
+ *
+ * <p>A result is only handed to the caller that claims its exact timestamp. When the table is full,
+ * the unclaimed result with the smallest timestamp is evicted, so a caller that claims its result
+ * after more than capacity newer results were put loses it and gets null.
+ */
+class TaskResultTable<OutputT extends TaskResult> {
+  private final ConcurrentSkipListMap<Long, OutputT> results = new ConcurrentSkipListMap<>();
+  private final AtomicInteger size = new AtomicInteger(0);
+  private volatile int capacity;
+
+  /**
+   * Creates a {@link TaskResultTable} instance.
+   *
+   * @param capacity the maximum number of unclaimed results to keep.
+   */
+  TaskResultTable(int capacity) {
+    setCapacity(capacity);
+  }
+
+  /** Sets the maximum number of unclaimed results to keep. */
+  void setCapacity(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity of the result table must be > 0.");
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Puts a task result into the table, evicting the oldest unclaimed results if the table is full.
+   *
+   * @param timestamp the output packet timestamp of the task result.
+   * @param result the task result object.
+   */
+  void put(long timestamp, OutputT result) {
+    if (results.put(timestamp, result) != null) {
+      return;
+    }
+    size.incrementAndGet();
+    while (size.get() > capacity) {
+      if (results.pollFirstEntry() == null) {
+        break;
+      }
+      size.decrementAndGet();
+    }
+  }
+
+  /**
+   * Removes and returns the task result at the given timestamp, or null if there is none.
+   *
+   * @param timestamp the input packet timestamp of the task invocation.
+   */
+  OutputT claim(long timestamp) {
+    OutputT result = results.remove(timestamp);
+    if (result == null) {
+      return null;
+    }
+    size.decrementAndGet();
+    return result;
+  }
+
+  /** Removes and returns the task result with the largest timestamp, or null if there is none. */
+  OutputT claimLatest() {
+    Map.Entry<Long, OutputT> entry = results.pollLastEntry();
+    if (entry == null) {
+      return null;
+    }
+    size.decrementAndGet();
+    return entry.getValue();
+  }
+
+  /** Returns the number of the unclaimed task results. */
+  int size() {
+    return size.get();
+  }
+}
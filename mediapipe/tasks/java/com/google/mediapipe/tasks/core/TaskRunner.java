@@ -15,29 +15,55 @@
 package com.google.mediapipe.tasks.core;
 
 import android.content.Context;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
 import android.util.Log;
 import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
 import com.google.mediapipe.framework.AndroidAssetUtil;
 import com.google.mediapipe.framework.AndroidPacketCreator;
+import com.google.mediapipe.framework.FrameTracer;
 import com.google.mediapipe.framework.Graph;
+import com.google.mediapipe.framework.GraphProfiler;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.tasks.core.logging.TasksStatsLogger;
 import com.google.mediapipe.tasks.core.logging.TasksStatsDummyLogger;
+import com.google.mediapipe.tasks.core.logging.TasksStatsHistogramLogger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 
 /** The runner of MediaPipe task graphs. */
 public class TaskRunner implements AutoCloseable {
   private static final String TAG = TaskRunner.class.getSimpleName();
   private static final long TIMESATMP_UNITS_PER_SECOND = 1000000;
+  // The maximum number of inputs that are in flight at once in a batch of texts.
+  private static final int MAX_TEXT_BATCH_IN_FLIGHT_INPUTS = 256;
 
   private final OutputHandler<? extends TaskResult, ?> outputHandler;
+  // Holds the task options so that a model asset buffer referenced by the graph without being
+  // copied stays alive as long as the graph.
+  private final TaskInfo<? extends TaskOptions> taskInfo;
   private final AtomicBoolean graphStarted = new AtomicBoolean(false);
+  private final AtomicBoolean closed = new AtomicBoolean(false);
   private final Graph graph;
   private final ModelResourcesCache modelResourcesCache;
   private final AndroidPacketCreator packetCreator;
   private final TasksStatsLogger statsLogger;
+  // Tracks the bytes charged to the memory budget of the task, or null if it has no budget.
+  private final InFlightInputs inFlightInputs;
+  // Tracks the live stream frames in flight behind the flow limiter, or null without flow limiting.
+  private final FlowController flowController;
   private long lastSeenTimestamp = Long.MIN_VALUE;
   private ErrorListener errorListener;
 
@@ -55,24 +81,82 @@ public class TaskRunner implements AutoCloseable {
       Context context,
       TaskInfo<? extends TaskOptions> taskInfo,
       OutputHandler<? extends TaskResult, ?> outputHandler) {
+    return create(context, taskInfo, outputHandler, new ModelResourcesCache());
+  }
+
+  /**
+   * Create a {@link TaskRunner} instance that uses the given {@link ModelResourcesCache}.
+   *
+   * @param context an Android {@link Context}.
+   * @param taskInfo a {@link TaskInfo} instance contains task graph name, task options, and graph
+   *     input and output stream names.
+   * @param outputHandler a {@link OutputHandler} instance handles task result object and runtime
+   *     exception.
+   * @param graphModelResourcesCache a {@link ModelResourcesCache} reference that is owned by the
+   *     created {@link TaskRunner} and released when it is closed.
+   * @throws MediaPipeException for any error during {@link TaskRunner} creation.
+   */
+  static TaskRunner create(
+      Context context,
+      TaskInfo<? extends TaskOptions> taskInfo,
+      OutputHandler<? extends TaskResult, ?> outputHandler,
+      ModelResourcesCache graphModelResourcesCache) {
     TasksStatsLogger statsLogger =
-        TasksStatsDummyLogger.create(context, taskInfo.taskName(), taskInfo.taskRunningModeName());
+        taskInfo.statsExporter().isPresent()
+            ? TasksStatsHistogramLogger.create(
+                context,
+                taskInfo.taskName(),
+                taskInfo.taskRunningModeName(),
+                taskInfo.statsExporter().get(),
+                taskInfo.statsReportIntervalMs())
+            : TasksStatsDummyLogger.create(
+                context, taskInfo.taskName(), taskInfo.taskRunningModeName());
     AndroidAssetUtil.initializeNativeAssetManager(context);
+    InFlightInputs inFlightInputs =
+        taskInfo.memoryBudget().isPresent()
+            ? new InFlightInputs(taskInfo.memoryBudget().get())
+            : null;
+    FlowController flowController =
+        taskInfo.enableFlowLimiting() ? new FlowController(taskInfo.flowLimiterOptions()) : null;
     Graph mediapipeGraph = new Graph();
     mediapipeGraph.loadBinaryGraph(taskInfo.generateGraphConfig());
-    ModelResourcesCache graphModelResourcesCache = new ModelResourcesCache();
     mediapipeGraph.setServiceObject(new ModelResourcesCacheService(), graphModelResourcesCache);
+    if (flowController != null) {
+      mediapipeGraph.addPacketCallback(
+          TaskInfo.FLOW_LIMITER_ALLOW_STREAM_NAME,
+          packet -> {
+            if (!PacketGetter.getBool(packet)) {
+              flowController.onFrameDropped(packet.getTimestamp());
+            }
+          });
+    }
     mediapipeGraph.addMultiStreamCallback(
         taskInfo.outputStreamNames(),
         packets -> {
+          long spanBeginTimeUsec = FrameTracer.beginSpan();
+          if (inFlightInputs != null) {
+            inFlightInputs.releaseUpTo(packets.get(0).getTimestamp());
+          }
+          if (flowController != null) {
+            flowController.onOutput(packets.get(0).getTimestamp());
+          }
           outputHandler.run(packets);
           statsLogger.recordInvocationEnd(packets.get(0).getTimestamp());
+          FrameTracer.endSpan(
+              "TaskRunner.outputCallback", packets.get(0).getTimestamp(), spanBeginTimeUsec);
         },
         /* observeTimestampBounds= */ outputHandler.handleTimestampBoundChanges());
     mediapipeGraph.startRunningGraph();
     // Waits until all calculators are opened and the graph is fully started.
     mediapipeGraph.waitUntilGraphIdle();
-    return new TaskRunner(mediapipeGraph, graphModelResourcesCache, outputHandler, statsLogger);
+    return new TaskRunner(
+        mediapipeGraph,
+        taskInfo,
+        graphModelResourcesCache,
+        outputHandler,
+        statsLogger,
+        inFlightInputs,
+        flowController);
   }
 
   /**
@@ -95,18 +179,191 @@ public class TaskRunner implements AutoCloseable {
    * <p>Note: This method is designed for processing batch data such as unrelated images and texts.
    * The call blocks the current thread until a failure status or a successful result is returned.
    * An internal timestamp will be assigend per invocation. This method is thread-safe and allows
-   * clients to call it from different threads.
+   * clients to call it from different threads. Concurrent callers don't serialize on the task
+   * runner: each caller retrieves its own result by its internal timestamp. See {@link
+   * OutputHandler#setMaxCachedTaskResults} for how many results wait for their callers.
    *
    * @param inputs a map contains (input stream {@link String}, data {@link Packet}) pairs.
    */
-  public synchronized TaskResult process(Map<String, Packet> inputs) {
+  public TaskResult process(Map<String, Packet> inputs) {
+    long syntheticInputTimestamp;
+    synchronized (this) {
+      syntheticInputTimestamp = generateSyntheticTimestamp();
+      // TODO: Support recording GPU input arrival.
+      statsLogger.recordCpuInputArrival(syntheticInputTimestamp);
+      addPackets(inputs, syntheticInputTimestamp);
+    }
+    graph.waitUntilGraphIdle();
+    releaseMemoryBudgetUpTo(syntheticInputTimestamp);
+    synchronized (this) {
+      lastSeenTimestamp = Math.max(lastSeenTimestamp, outputHandler.getLatestOutputTimestamp());
+    }
+    return outputHandler.retrieveCachedTaskResult(syntheticInputTimestamp);
+  }
+
+  /**
+   * An asynchronous method for processing batch data in a pipelined fashion.
+   *
+   * <p>Note: This method is designed for processing large amounts of unrelated batch data such as
+   * the images of an offline photo collection. Unlike {@link #process(Map)}, the call returns as
+   * soon as the input packets are added into the graph, so that many inputs can be in flight at
+   * once. An internal timestamp will be assigned per invocation and the returned future is
+   * completed when the graph outputs the result at that timestamp. This method is thread-safe and
+   * allows clients to call it from different threads. Call {@link #flushPipelinedResults()} to wait
+   * for all the in-flight inputs to be processed. If the inputs can't be added into the graph, the
+   * returned future is completed exceptionally at once, whether or not an {@link ErrorListener} is
+   * set.
+   *
+   * @param inputs a map contains (input stream {@link String}, data {@link Packet}) pairs.
+   */
+  public synchronized CompletableFuture<TaskResult> processPipelined(Map<String, Packet> inputs) {
     long syntheticInputTimestamp = generateSyntheticTimestamp();
-    // TODO: Support recording GPU input arrival.
+    CompletableFuture<TaskResult> taskResult =
+        outputHandler.registerPendingTaskResult(syntheticInputTimestamp);
     statsLogger.recordCpuInputArrival(syntheticInputTimestamp);
-    addPackets(inputs, syntheticInputTimestamp);
-    graph.waitUntilGraphIdle();
-    lastSeenTimestamp = outputHandler.getLatestOutputTimestamp();
-    return outputHandler.retrieveCachedTaskResult();
+    if (!graphStarted.get()) {
+      for (Packet packet : inputs.values()) {
+        packet.release();
+      }
+      outputHandler.failPendingTaskResult(
+          syntheticInputTimestamp,
+          new MediaPipeException(
+              MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+              "The task graph hasn't been successfully started or error occurs during graph"
+                  + " initializaton."));
+      return taskResult;
+    }
+    try {
+      addPacketsToGraph(inputs, syntheticInputTimestamp, /* suppressGraphErrors= */ false);
+    } catch (MediaPipeException e) {
+      outputHandler.failPendingTaskResult(syntheticInputTimestamp, e);
+    }
+    return taskResult;
+  }
+
+  /**
+   * Waits until all the inputs sent by {@link #processPipelined(Map)} are processed.
+   *
+   * <p>The futures of the inputs that didn't produce any result, for instance because an error
+   * occurred in the graph, are completed exceptionally.
+   */
+  public void flushPipelinedResults() {
+    long lastSentTimestamp;
+    synchronized (this) {
+      lastSentTimestamp = lastSeenTimestamp;
+    }
+    try {
+      graph.waitUntilGraphIdle();
+    } catch (MediaPipeException e) {
+      releaseMemoryBudgetUpTo(lastSentTimestamp);
+      outputHandler.failPendingTaskResultsUpTo(lastSentTimestamp, e);
+      reportError(e);
+      return;
+    }
+    releaseMemoryBudgetUpTo(lastSentTimestamp);
+    outputHandler.failPendingTaskResultsUpTo(
+        lastSentTimestamp,
+        new MediaPipeException(
+            MediaPipeException.StatusCode.INTERNAL.ordinal(),
+            "The task graph didn't produce any result for the input."));
+  }
+
+  /**
+   * A synchronous method for processing a batch of unrelated inputs.
+   *
+   * <p>Note: All the inputs are added into the graph with consecutive internal timestamps before
+   * waiting for the graph to become idle, so the batch costs a single idle wait instead of one per
+   * input. The results are returned in the order of the inputs. This method is thread-safe.
+   *
+   * @param inputs a list of maps that contain (input stream {@link String}, data {@link Packet})
+   *     pairs, one map per input.
+   * @throws MediaPipeException if any of the inputs fails to be processed.
+   */
+  public List<TaskResult> processBatch(List<Map<String, Packet>> inputs) {
+    List<CompletableFuture<TaskResult>> pendingResults = new ArrayList<>(inputs.size());
+    for (Map<String, Packet> input : inputs) {
+      pendingResults.add(processPipelined(input));
+    }
+    flushPipelinedResults();
+    List<TaskResult> results = new ArrayList<>(inputs.size());
+    for (CompletableFuture<TaskResult> pendingResult : pendingResults) {
+      try {
+        results.add(pendingResult.join());
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof MediaPipeException) {
+          throw (MediaPipeException) e.getCause();
+        }
+        throw new MediaPipeException(
+            MediaPipeException.StatusCode.INTERNAL.ordinal(), String.valueOf(e.getCause()));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * A synchronous method for processing a batch of texts, with an optional result cache.
+   *
+   * <p>The texts that miss the cache are processed by {@link #processBatch} in chunks of at most
+   * 256 texts, which bounds the memory of very large batches. The non-null results of the graph are
+   * put into the cache.
+   *
+   * @param inputTexts the texts to process.
+   * @param textInStreamName the name of the input stream of the texts.
+   * @param resultCache an optional {@link TaskResultCache} of the task results.
+   * @param fingerprint the fingerprint of the task graph and options in the result cache.
+   * @param copier copies the results that are put into or returned from the cache, so that the
+   *     callers never share mutable state with a cached result.
+   * @param weigher estimates the weight of a result in the cache, in bytes.
+   * @return the results in the order of the input texts.
+   * @throws MediaPipeException if any of the texts fails to be processed.
+   */
+  @SuppressWarnings("unchecked")
+  public <ResultT extends TaskResult> List<ResultT> processTextBatch(
+      List<String> inputTexts,
+      String textInStreamName,
+      Optional<TaskResultCache<ResultT>> resultCache,
+      String fingerprint,
+      UnaryOperator<ResultT> copier,
+      ToLongFunction<ResultT> weigher) {
+    List<ResultT> results = new ArrayList<>(inputTexts.size());
+    List<Integer> uncachedIndices = new ArrayList<>();
+    List<Map<String, Packet>> uncachedInputs = new ArrayList<>();
+    for (int start = 0; start < inputTexts.size(); start += MAX_TEXT_BATCH_IN_FLIGHT_INPUTS) {
+      int end = Math.min(inputTexts.size(), start + MAX_TEXT_BATCH_IN_FLIGHT_INPUTS);
+      uncachedIndices.clear();
+      uncachedInputs.clear();
+      for (int i = start; i < end; i++) {
+        String inputText = inputTexts.get(i);
+        ResultT cachedResult =
+            resultCache.isPresent() ? resultCache.get().get(fingerprint, inputText) : null;
+        if (cachedResult != null) {
+          results.add(copier.apply(cachedResult));
+          continue;
+        }
+        // Filled in once the chunk is processed.
+        results.add(null);
+        Map<String, Packet> inputPackets = new HashMap<>();
+        inputPackets.put(textInStreamName, packetCreator.createString(inputText));
+        uncachedIndices.add(i);
+        uncachedInputs.add(inputPackets);
+      }
+      if (uncachedInputs.isEmpty()) {
+        continue;
+      }
+      List<TaskResult> uncachedResults = processBatch(uncachedInputs);
+      for (int j = 0; j < uncachedIndices.size(); j++) {
+        int i = uncachedIndices.get(j);
+        ResultT result = (ResultT) uncachedResults.get(j);
+        if (resultCache.isPresent() && result != null) {
+          String inputText = inputTexts.get(i);
+          resultCache
+              .get()
+              .put(fingerprint, inputText, copier.apply(result), weigher.applyAsLong(result));
+        }
+        results.set(i, result);
+      }
+    }
+    return results;
   }
 
   /**
@@ -127,7 +384,8 @@ public class TaskRunner implements AutoCloseable {
     statsLogger.recordCpuInputArrival(inputTimestamp);
     addPackets(inputs, inputTimestamp);
     graph.waitUntilGraphIdle();
-    return outputHandler.retrieveCachedTaskResult();
+    releaseMemoryBudgetUpTo(inputTimestamp);
+    return outputHandler.retrieveCachedTaskResult(inputTimestamp);
   }
 
   /**
@@ -146,7 +404,51 @@ public class TaskRunner implements AutoCloseable {
   public synchronized void send(Map<String, Packet> inputs, long inputTimestamp) {
     validateInputTimstamp(inputTimestamp);
     statsLogger.recordCpuInputArrival(inputTimestamp);
-    addPackets(inputs, inputTimestamp);
+    if (flowController == null) {
+      addPackets(inputs, inputTimestamp);
+      return;
+    }
+    if (!flowController.admit(inputTimestamp)) {
+      for (Packet packet : inputs.values()) {
+        packet.release();
+      }
+      return;
+    }
+    try {
+      addPackets(inputs, inputTimestamp);
+    } catch (MediaPipeException e) {
+      flowController.cancel(inputTimestamp);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns true if a live stream frame sent now would be processed by the task graph or queued for
+   * it, rather than dropped. The check doesn't lock and is meant to let producers skip the
+   * conversion of the frames that would be dropped. Always true without flow limiting.
+   */
+  public boolean tryAccept() {
+    return flowController == null || flowController.tryAccept();
+  }
+
+  /**
+   * Sets a callback to be invoked when a live stream frame is dropped by the flow limiting of the
+   * task graph. No-op without flow limiting.
+   *
+   * @param listener a {@link DroppedFrameListener} callback, or null to remove it.
+   */
+  public void setDroppedFrameListener(DroppedFrameListener listener) {
+    if (flowController != null) {
+      flowController.setDroppedFrameListener(listener);
+    }
+  }
+
+  /**
+   * Returns the number of live stream frames dropped by the flow limiting of the task graph, either
+   * because too many frames were in flight or queued, since the {@link TaskRunner} was created.
+   */
+  public long getDroppedFrameCount() {
+    return flowController == null ? 0 : flowController.getDroppedFrameCount();
   }
 
   /**
@@ -162,6 +464,11 @@ public class TaskRunner implements AutoCloseable {
         statsLogger.logSessionEnd();
       } catch (MediaPipeException e) {
         reportError(e);
+      } finally {
+        releaseMemoryBudgetUpTo(Long.MAX_VALUE);
+        if (flowController != null) {
+          flowController.reset();
+        }
       }
     }
     try {
@@ -178,27 +485,47 @@ public class TaskRunner implements AutoCloseable {
   /** Closes and cleans up the {@link TaskRunner} instance. */
   @Override
   public void close() {
-    if (!graphStarted.get()) {
+    if (closed.getAndSet(true)) {
       return;
     }
     try {
-      graphStarted.set(false);
-      graph.closeAllPacketSources();
-      graph.waitUntilGraphDone();
-      statsLogger.logSessionEnd();
+      // The graph isn't running if it failed to restart, but it still has to be torn down.
+      if (graphStarted.getAndSet(false)) {
+        try {
+          graph.closeAllPacketSources();
+          graph.waitUntilGraphDone();
+          outputHandler.failPendingTaskResultsUpTo(
+              Long.MAX_VALUE,
+              new MediaPipeException(
+                  MediaPipeException.StatusCode.CANCELLED.ordinal(),
+                  "The task runner is closed before the result is available."));
+          statsLogger.logSessionEnd();
+        } catch (MediaPipeException e) {
+          // Note: errors during Process are reported at the earliest opportunity,
+          // which may be addPacket or waitUntilDone, depending on timing. For consistency,
+          // we want to always report them using the same async handler if installed.
+          reportError(e);
+        } finally {
+          releaseMemoryBudgetUpTo(Long.MAX_VALUE);
+          if (flowController != null) {
+            flowController.reset();
+          }
+          if (VERSION.SDK_INT >= VERSION_CODES.R) {
+            outputHandler.completeResultPublisher();
+          }
+        }
+      }
+      try {
+        graph.tearDown();
+      } catch (MediaPipeException e) {
+        reportError(e);
+      }
+    } finally {
+      // Released even if the graph failed, since the cache of a pooled runner is shared with the
+      // other runners of the pool.
       if (modelResourcesCache != null) {
         modelResourcesCache.release();
       }
-    } catch (MediaPipeException e) {
-      // Note: errors during Process are reported at the earliest opportunity,
-      // which may be addPacket or waitUntilDone, depending on timing. For consistency,
-      // we want to always report them using the same async handler if installed.
-      reportError(e);
-    }
-    try {
-      graph.tearDown();
-    } catch (MediaPipeException e) {
-      reportError(e);
     }
   }
 
@@ -206,6 +533,14 @@ public class TaskRunner implements AutoCloseable {
     return graph.getCalculatorGraphConfig();
   }
 
+  /**
+   * Returns the {@link GraphProfiler} of the task graph, for instance to merge the calculator
+   * timings with the spans of {@link FrameTracer}.
+   */
+  public GraphProfiler getGraphProfiler() {
+    return graph.getProfiler();
+  }
+
   private synchronized void addPackets(Map<String, Packet> inputs, long inputTimestamp) {
     if (!graphStarted.get()) {
       reportError(
@@ -214,28 +549,52 @@ public class TaskRunner implements AutoCloseable {
               "The task graph hasn't been successfully started or error occurs during graph"
                   + " initializaton."));
     }
+    addPacketsToGraph(inputs, inputTimestamp, /* suppressGraphErrors= */ errorListener == null);
+  }
+
+  /**
+   * Adds the input packets into the graph and releases them.
+   *
+   * @param suppressGraphErrors whether to log the errors of the graph instead of throwing them.
+   */
+  private synchronized void addPacketsToGraph(
+      Map<String, Packet> inputs, long inputTimestamp, boolean suppressGraphErrors) {
+    String[] streamNames = new String[inputs.size()];
+    Packet[] packets = new Packet[inputs.size()];
+    int i = 0;
+    for (Map.Entry<String, Packet> entry : inputs.entrySet()) {
+      streamNames[i] = entry.getKey();
+      packets[i] = entry.getValue();
+      ++i;
+    }
     try {
-      for (Map.Entry<String, Packet> entry : inputs.entrySet()) {
-        // addConsumablePacketToInputStream allows the graph to take exclusive ownership of the
-        // packet, which may allow for more memory optimizations.
-        graph.addConsumablePacketToInputStream(entry.getKey(), entry.getValue(), inputTimestamp);
-        // If addConsumablePacket succeeded, we don't need to release the packet ourselves.
-        entry.setValue(null);
+      if (inFlightInputs != null) {
+        // Charged before the packets are added, so that the result can't be output first. A
+        // rejected charge is always thrown, so that the caller knows that the input was dropped.
+        inFlightInputs.charge(inputTimestamp, packets);
       }
-    } catch (MediaPipeException e) {
-      // TODO: do not suppress exceptions here!
-      if (errorListener == null) {
-        Log.e(TAG, "Mediapipe error: ", e);
-      } else {
-        throw e;
+      try {
+        // addConsumablePacketsToInputStreams adds all the packets in a single native call and
+        // allows the graph to take exclusive ownership of the packets, which may allow for more
+        // memory optimizations.
+        graph.addConsumablePacketsToInputStreams(streamNames, packets, inputTimestamp);
+      } catch (MediaPipeException e) {
+        if (inFlightInputs != null) {
+          inFlightInputs.discharge(inputTimestamp);
+        }
+        // TODO: do not suppress exceptions here!
+        if (suppressGraphErrors) {
+          Log.e(TAG, "Mediapipe error: ", e);
+        } else {
+          throw e;
+        }
       }
     } finally {
-      for (Packet packet : inputs.values()) {
-        // In case of error, addConsumablePacketToInputStream will not release the packet, so we
-        // have to release it ourselves.
-        if (packet != null) {
-          packet.release();
-        }
+      for (Packet packet : packets) {
+        // In case of error, addConsumablePacketsToInputStreams will not release the packets that
+        // weren't added, so we have to release them ourselves. Releasing a consumed packet is a
+        // no-op.
+        packet.release();
       }
     }
   }
@@ -264,17 +623,30 @@ public class TaskRunner implements AutoCloseable {
     return timestamp;
   }
 
+  /** Credits the inputs processed up to the given timestamp back to the memory budget. */
+  private void releaseMemoryBudgetUpTo(long timestamp) {
+    if (inFlightInputs != null) {
+      inFlightInputs.releaseUpTo(timestamp);
+    }
+  }
+
   /** Private constructor. */
   private TaskRunner(
       Graph graph,
+      TaskInfo<? extends TaskOptions> taskInfo,
       ModelResourcesCache modelResourcesCache,
       OutputHandler<? extends TaskResult, ?> outputHandler,
-      TasksStatsLogger statsLogger) {
+      TasksStatsLogger statsLogger,
+      InFlightInputs inFlightInputs,
+      FlowController flowController) {
     this.outputHandler = outputHandler;
     this.graph = graph;
+    this.taskInfo = taskInfo;
     this.modelResourcesCache = modelResourcesCache;
     this.packetCreator = new AndroidPacketCreator(graph);
     this.statsLogger = statsLogger;
+    this.inFlightInputs = inFlightInputs;
+    this.flowController = flowController;
     graphStarted.set(true);
     this.statsLogger.logSessionStart();
   }
@@ -287,4 +659,50 @@ public class TaskRunner implements AutoCloseable {
       throw e;
     }
   }
+
+  /** Tracks the bytes that the inputs in flight charged to a {@link MemoryBudget}. */
+  private static final class InFlightInputs {
+    private final MemoryBudget memoryBudget;
+    // The bytes charged by each input in flight, keyed by the input timestamp.
+    private final TreeMap<Long, Long> chargedBytes = new TreeMap<>();
+
+    InFlightInputs(MemoryBudget memoryBudget) {
+      this.memoryBudget = memoryBudget;
+    }
+
+    /** Charges the packets of an input to the budget, blocking or throwing if it is exhausted. */
+    void charge(long timestamp, Packet[] packets) {
+      long bytes = 0;
+      for (Packet packet : packets) {
+        bytes += packet.getPayloadSizeBytes();
+      }
+      // Not synchronized on this, since releaseUpTo may be needed to unblock the budget.
+      memoryBudget.acquire(bytes);
+      synchronized (this) {
+        chargedBytes.put(timestamp, bytes);
+      }
+    }
+
+    /** Credits an input that failed to be added back to the budget. */
+    synchronized void discharge(long timestamp) {
+      Long bytes = chargedBytes.remove(timestamp);
+      if (bytes != null) {
+        memoryBudget.release(bytes);
+      }
+    }
+
+    /** Credits the inputs up to the given timestamp back to the budget. */
+    synchronized void releaseUpTo(long timestamp) {
+      NavigableMap<Long, Long> processedInputs = chargedBytes.headMap(timestamp, true);
+      if (processedInputs.isEmpty()) {
+        return;
+      }
+      long bytes = 0;
+      for (long inputBytes : processedInputs.values()) {
+        bytes += inputBytes;
+      }
+      processedInputs.clear();
+      memoryBudget.release(bytes);
+    }
+  }
 }
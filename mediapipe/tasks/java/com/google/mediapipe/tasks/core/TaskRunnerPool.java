@@ -0,0 +1,380 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import android.content.Context;
+import androidx.annotation.VisibleForTesting;
+import com.google.auto.value.AutoValue;
+import com.google.mediapipe.framework.MediaPipeException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A pool of {@link TaskRunner} instances that run the same task graph.
+ *
+ * <p>All the runners in the pool share one native model resources cache, so the model is loaded
+ * only once regardless of the pool size. Each runner processes one input at a time, so acquiring
+ * several runners from different threads gives multi-core throughput without multiplying model
+ * memory.
+ *
+ * <p>The pool doesn't run a background thread: the runners that have been idle for longer than the
+ * idle timeout are only closed when a runner is released, or when {@link #evictIdleRunners} is
+ * called. A pool that is no longer used keeps its idle runners until it is closed.
+ *
+ * <p>Note: The pool is built from a raw {@link TaskInfo} and an {@link OutputHandlerFactory}, so
+ * the task APIs such as {@code HandLandmarker} don't create pooled instances yet. Models given as
+ * a {@link BaseOptions} model asset buffer are referenced by the graph through a file pointer and
+ * are not shared through the cache, so every runner loads its own copy of them.
+ *
+ * <p>This class is thread-safe.
+ */
+public final class TaskRunnerPool implements AutoCloseable {
+  /** Interface for creating the {@link OutputHandler} of every {@link TaskRunner} in the pool. */
+  public interface OutputHandlerFactory {
+    OutputHandler<? extends TaskResult, ?> create();
+  }
+
+  /** Options for setting up a {@link TaskRunnerPool}. */
+  @AutoValue
+  public abstract static class PoolOptions {
+    /** Builder for {@link PoolOptions}. */
+    @AutoValue.Builder
+    public abstract static class Builder {
+      /** Sets the number of runners that are created eagerly and never evicted. Defaults to 0. */
+      public abstract Builder setMinSize(int value);
+
+      /** Sets the maximum number of runners in the pool. Defaults to 1. */
+      public abstract Builder setMaxSize(int value);
+
+      /**
+       * Sets how long, in milliseconds, a runner beyond the minimum size can stay idle before it is
+       * closed by the next {@link TaskRunnerPool#release} or {@link
+       * TaskRunnerPool#evictIdleRunners} call. Defaults to 60 seconds.
+       */
+      public abstract Builder setIdleTimeoutMs(long value);
+
+      abstract PoolOptions autoBuild();
+
+      /**
+       * Validates and builds the {@link PoolOptions} instance.
+       *
+       * @throws IllegalArgumentException if the sizes or the idle timeout are invalid.
+       */
+      public final PoolOptions build() {
+        PoolOptions options = autoBuild();
+        if (options.minSize() < 0 || options.maxSize() <= 0) {
+          throw new IllegalArgumentException("minSize must be >= 0 and maxSize must be > 0.");
+        }
+        if (options.minSize() > options.maxSize()) {
+          throw new IllegalArgumentException("minSize must not be larger than maxSize.");
+        }
+        if (options.idleTimeoutMs() < 0) {
+          throw new IllegalArgumentException("idleTimeoutMs must be >= 0.");
+        }
+        return options;
+      }
+    }
+
+    abstract int minSize();
+
+    abstract int maxSize();
+
+    abstract long idleTimeoutMs();
+
+    public static Builder builder() {
+      return new AutoValue_TaskRunnerPool_PoolOptions.Builder()
+          .setMinSize(0)
+          .setMaxSize(1)
+          .setIdleTimeoutMs(60000);
+    }
+  }
+
+  /** Helper class for an idle runner and the time it was released. */
+  private static class IdleRunner {
+    private IdleRunner(TaskRunner runner, long releaseTimeNanos) {
+      this.runner = runner;
+      this.releaseTimeNanos = releaseTimeNanos;
+    }
+
+    final TaskRunner runner;
+    final long releaseTimeNanos;
+  }
+
+  private final Context context;
+  private final TaskInfo<? extends TaskOptions> taskInfo;
+  private final OutputHandlerFactory outputHandlerFactory;
+  private final PoolOptions poolOptions;
+  @VisibleForTesting final ModelResourcesCache sharedModelResourcesCache;
+  // The most recently released runner is at the tail.
+  private final ArrayDeque<IdleRunner> idleRunners = new ArrayDeque<>();
+  // Holds all the runners owned by the pool, both idle and acquired.
+  private final Set<TaskRunner> ownedRunners =
+      Collections.newSetFromMap(new IdentityHashMap<TaskRunner, Boolean>());
+  // The number of runners that are owned or being created.
+  private int poolSize = 0;
+  private boolean closed = false;
+
+  /**
+   * Creates a {@link TaskRunnerPool} instance and eagerly creates the minimum number of runners.
+   *
+   * @param context an Android {@link Context}.
+   * @param taskInfo a {@link TaskInfo} instance contains task graph name, task options, and graph
+   *     input and output stream names.
+   * @param outputHandlerFactory an {@link OutputHandlerFactory} that creates a new {@link
+   *     OutputHandler} for every runner.
+   * @param poolOptions the {@link PoolOptions} of the pool.
+   * @throws MediaPipeException for any error during the runner creation.
+   */
+  public static TaskRunnerPool create(
+      Context context,
+      TaskInfo<? extends TaskOptions> taskInfo,
+      OutputHandlerFactory outputHandlerFactory,
+      PoolOptions poolOptions) {
+    TaskRunnerPool pool = new TaskRunnerPool(context, taskInfo, outputHandlerFactory, poolOptions);
+    List<TaskRunner> runners = new ArrayList<>();
+    try {
+      for (int i = 0; i < poolOptions.minSize(); ++i) {
+        runners.add(pool.acquire());
+      }
+    } catch (RuntimeException e) {
+      pool.close();
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pool.close();
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.CANCELLED.ordinal(),
+          "Interrupted while creating the task runners.");
+    }
+    for (TaskRunner runner : runners) {
+      pool.release(runner);
+    }
+    return pool;
+  }
+
+  /**
+   * Acquires a {@link TaskRunner} from the pool, creating a new one if no runner is idle and the
+   * pool is not full. Blocks until a runner is available otherwise.
+   *
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   * @throws IllegalStateException if the pool is closed.
+   * @throws MediaPipeException for any error during the runner creation.
+   */
+  public TaskRunner acquire() throws InterruptedException {
+    try {
+      return acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Acquires a {@link TaskRunner} from the pool, creating a new one if no runner is idle and the
+   * pool is not full. Blocks up to the given timeout until a runner is available otherwise.
+   *
+   * @param timeout the maximum time to wait.
+   * @param unit the time unit of the timeout.
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   * @throws TimeoutException if no runner becomes available before the timeout.
+   * @throws IllegalStateException if the pool is closed.
+   * @throws MediaPipeException for any error during the runner creation.
+   */
+  public TaskRunner acquire(long timeout, TimeUnit unit)
+      throws InterruptedException, TimeoutException {
+    long deadlineNanos = saturatedAdd(System.nanoTime(), unit.toNanos(timeout));
+    synchronized (this) {
+      while (true) {
+        if (closed) {
+          throw new IllegalStateException("The TaskRunnerPool has been closed.");
+        }
+        IdleRunner idleRunner = idleRunners.pollLast();
+        if (idleRunner != null) {
+          return idleRunner.runner;
+        }
+        if (poolSize < poolOptions.maxSize()) {
+          ++poolSize;
+          break;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+          throw new TimeoutException("No TaskRunner became available before the timeout.");
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+      }
+    }
+    TaskRunner runner;
+    try {
+      runner = createRunner();
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        --poolSize;
+        notifyAll();
+      }
+      throw e;
+    }
+    boolean poolClosed;
+    synchronized (this) {
+      poolClosed = closed;
+      if (poolClosed) {
+        --poolSize;
+      } else {
+        ownedRunners.add(runner);
+      }
+    }
+    if (poolClosed) {
+      runner.close();
+      throw new IllegalStateException("The TaskRunnerPool has been closed.");
+    }
+    return runner;
+  }
+
+  /**
+   * Returns a {@link TaskRunner} that was acquired from this pool. Runners that have been idle for
+   * longer than the idle timeout are closed, as long as the pool keeps its minimum size.
+   *
+   * @param runner the {@link TaskRunner} to return.
+   * @throws IllegalArgumentException if the runner doesn't belong to the pool.
+   */
+  public void release(TaskRunner runner) {
+    List<TaskRunner> evictedRunners;
+    synchronized (this) {
+      if (!ownedRunners.contains(runner)) {
+        throw new IllegalArgumentException("The TaskRunner doesn't belong to this pool.");
+      }
+      if (closed) {
+        ownedRunners.remove(runner);
+        --poolSize;
+        evictedRunners = new ArrayList<>();
+        evictedRunners.add(runner);
+      } else {
+        idleRunners.addLast(new IdleRunner(runner, System.nanoTime()));
+        evictedRunners = collectIdleRunnersToEvict();
+        notifyAll();
+      }
+    }
+    closeRunners(evictedRunners);
+  }
+
+  /**
+   * Closes the runners that have been idle for longer than the idle timeout. Call this
+   * periodically to close the idle runners of a pool whose runners are rarely released.
+   */
+  public void evictIdleRunners() {
+    List<TaskRunner> evictedRunners;
+    synchronized (this) {
+      evictedRunners = collectIdleRunnersToEvict();
+    }
+    closeRunners(evictedRunners);
+  }
+
+  /** Returns the number of runners owned by the pool, both idle and acquired. */
+  public synchronized int size() {
+    return ownedRunners.size();
+  }
+
+  /** Returns the number of idle runners in the pool. */
+  public synchronized int idleCount() {
+    return idleRunners.size();
+  }
+
+  /**
+   * Closes the pool and all the idle runners. The acquired runners are closed when they are
+   * released.
+   */
+  @Override
+  public void close() {
+    List<TaskRunner> runnersToClose = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (IdleRunner idleRunner : idleRunners) {
+        ownedRunners.remove(idleRunner.runner);
+        --poolSize;
+        runnersToClose.add(idleRunner.runner);
+      }
+      idleRunners.clear();
+      notifyAll();
+    }
+    closeRunners(runnersToClose);
+    sharedModelResourcesCache.release();
+  }
+
+  private TaskRunner createRunner() {
+    // Graph initialization populates the shared cache, so runners are created one at a time to let
+    // every graph after the first reuse the cached model resources.
+    synchronized (sharedModelResourcesCache) {
+      OutputHandler<? extends TaskResult, ?> outputHandler = outputHandlerFactory.create();
+      // The runner owns the retained reference once it's created.
+      ModelResourcesCache runnerModelResourcesCache = sharedModelResourcesCache.retain();
+      try {
+        return TaskRunner.create(context, taskInfo, outputHandler, runnerModelResourcesCache);
+      } catch (RuntimeException e) {
+        runnerModelResourcesCache.release();
+        throw e;
+      }
+    }
+  }
+
+  private List<TaskRunner> collectIdleRunnersToEvict() {
+    List<TaskRunner> evictedRunners = new ArrayList<>();
+    long now = System.nanoTime();
+    long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(poolOptions.idleTimeoutMs());
+    Iterator<IdleRunner> it = idleRunners.iterator();
+    // The least recently released runners are at the head of the queue.
+    while (it.hasNext() && ownedRunners.size() > poolOptions.minSize()) {
+      IdleRunner idleRunner = it.next();
+      if (now - idleRunner.releaseTimeNanos < idleTimeoutNanos) {
+        break;
+      }
+      it.remove();
+      ownedRunners.remove(idleRunner.runner);
+      --poolSize;
+      evictedRunners.add(idleRunner.runner);
+    }
+    return evictedRunners;
+  }
+
+  private static void closeRunners(List<TaskRunner> runners) {
+    for (TaskRunner runner : runners) {
+      runner.close();
+    }
+  }
+
+  private static long saturatedAdd(long a, long b) {
+    long sum = a + b;
+    return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  private TaskRunnerPool(
+      Context context,
+      TaskInfo<? extends TaskOptions> taskInfo,
+      OutputHandlerFactory outputHandlerFactory,
+      PoolOptions poolOptions) {
+    this.context = context;
+    this.taskInfo = taskInfo;
+    this.outputHandlerFactory = outputHandlerFactory;
+    this.poolOptions = poolOptions;
+    this.sharedModelResourcesCache = new ModelResourcesCache();
+  }
+}
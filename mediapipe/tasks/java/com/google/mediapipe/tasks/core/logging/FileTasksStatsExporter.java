@@ -0,0 +1,102 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import android.util.Log;
+import com.google.mediapipe.tasks.core.logging.TasksStatsLogger.StatsSnapshot;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link TasksStatsExporter} that appends each {@link StatsSnapshot} to a local file as a line of
+ * JSON.
+ */
+public final class FileTasksStatsExporter implements TasksStatsExporter {
+  private static final String TAG = FileTasksStatsExporter.class.getSimpleName();
+
+  private final File file;
+
+  /**
+   * Creates a {@link FileTasksStatsExporter} instance.
+   *
+   * @param file the file to append the snapshots to. It's created if it doesn't exist.
+   */
+  public FileTasksStatsExporter(File file) {
+    this.file = file;
+  }
+
+  @Override
+  public synchronized void export(StatsSnapshot snapshot) {
+    try (Writer writer =
+        new OutputStreamWriter(
+            new FileOutputStream(file, /* append= */ true), StandardCharsets.UTF_8)) {
+      writer.write(toJson(snapshot));
+      writer.write('\n');
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to export the task stats to " + file, e);
+    }
+  }
+
+  /** Returns the JSON representation of a {@link StatsSnapshot}. */
+  static String toJson(StatsSnapshot snapshot) {
+    StringBuilder json = new StringBuilder("{\"task_name\":");
+    appendJsonString(json, snapshot.taskName());
+    json.append(",\"running_mode\":");
+    appendJsonString(json, snapshot.taskRunningModeName());
+    return json.append(",\"cpu_input_count\":")
+        .append(snapshot.cpuInputCount())
+        .append(",\"gpu_input_count\":")
+        .append(snapshot.gpuInputCount())
+        .append(",\"finished_count\":")
+        .append(snapshot.finishedCount())
+        .append(",\"dropped_count\":")
+        .append(snapshot.droppedCount())
+        .append(",\"total_latency_ms\":")
+        .append(snapshot.totalLatencyMs())
+        .append(",\"peak_latency_ms\":")
+        .append(snapshot.peakLatencyMs())
+        .append(",\"elapsed_time_ms\":")
+        .append(snapshot.elapsedTimeMs())
+        .append(",\"p50_latency_ms\":")
+        .append(snapshot.p50LatencyMs())
+        .append(",\"p90_latency_ms\":")
+        .append(snapshot.p90LatencyMs())
+        .append(",\"p99_latency_ms\":")
+        .append(snapshot.p99LatencyMs())
+        .append(",\"p999_latency_ms\":")
+        .append(snapshot.p999LatencyMs())
+        .append('}')
+        .toString();
+  }
+
+  private static void appendJsonString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+}
@@ -0,0 +1,39 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import com.google.mediapipe.tasks.core.logging.TasksStatsLogger.StatsSnapshot;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A {@link TasksStatsExporter} that keeps the exported {@link StatsSnapshot}s in memory. */
+public final class InMemoryTasksStatsExporter implements TasksStatsExporter {
+  private final List<StatsSnapshot> snapshots = new ArrayList<>();
+
+  @Override
+  public synchronized void export(StatsSnapshot snapshot) {
+    snapshots.add(snapshot);
+  }
+
+  /** Returns the exported {@link StatsSnapshot}s in the order of their export. */
+  public synchronized List<StatsSnapshot> getSnapshots() {
+    return new ArrayList<>(snapshots);
+  }
+
+  /** Discards the exported {@link StatsSnapshot}s. */
+  public synchronized void clear() {
+    snapshots.clear();
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * <p>Values below 128 are counted exactly, and larger values are counted in buckets of 64 per power
+ * of two, so a recorded value is off by less than 1/64 of itself. Recording takes a single atomic
+ * operation and never blocks.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+  // Values are clamped to 2^40, which is about 12 days in microseconds.
+  private static final int MAX_VALUE_BITS = 40;
+  private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+  private static final int BUCKET_COUNT =
+      LINEAR_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+  /** The counts of a {@link LatencyHistogram} at a point in time. */
+  static final class Snapshot {
+    private final long[] counts;
+    private final long totalCount;
+
+    private Snapshot(long[] counts, long totalCount) {
+      this.counts = counts;
+      this.totalCount = totalCount;
+    }
+
+    /** Returns the number of values in the snapshot. */
+    long getTotalCount() {
+      return totalCount;
+    }
+
+    /**
+     * Returns the highest value of the bucket that contains the value at the given percentile, or 0
+     * if the snapshot is empty.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     */
+    long getValueAtPercentile(double percentile) {
+      if (totalCount == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+      long count = 0;
+      for (int i = 0; i < counts.length; ++i) {
+        count += counts[i];
+        if (count >= rank) {
+          return highestValueOfBucket(i);
+        }
+      }
+      return highestValueOfBucket(counts.length - 1);
+    }
+  }
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  /** Records a non-negative value. Negative values are recorded as 0. */
+  void record(long value) {
+    counts.incrementAndGet(bucketIndex(Math.min(Math.max(value, 0), MAX_VALUE)));
+  }
+
+  /**
+   * Returns the counts recorded since the previous call and resets them. Values recorded
+   * concurrently are counted either in this snapshot or in the next one.
+   */
+  Snapshot snapshotAndReset() {
+    long[] snapshotCounts = new long[BUCKET_COUNT];
+    long snapshotTotalCount = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      snapshotCounts[i] = counts.getAndSet(i, 0);
+      snapshotTotalCount += snapshotCounts[i];
+    }
+    return new Snapshot(snapshotCounts, snapshotTotalCount);
+  }
+
+  private static int bucketIndex(long value) {
+    if (value < LINEAR_BUCKET_COUNT) {
+      return (int) value;
+    }
+    // Keeps the SUB_BUCKET_BITS + 1 most significant bits of the value.
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return LINEAR_BUCKET_COUNT
+        + (shift - 1) * SUB_BUCKET_COUNT
+        + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+  }
+
+  private static long highestValueOfBucket(int index) {
+    if (index < LINEAR_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,28 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import com.google.mediapipe.tasks.core.logging.TasksStatsLogger.StatsSnapshot;
+
+/** Receives the periodic {@link StatsSnapshot}s of the MediaPipe Tasks. */
+public interface TasksStatsExporter {
+  /**
+   * Exports the stats of a task over a report interval. Invoked on a background thread of the task,
+   * and when the task is closed.
+   *
+   * @param snapshot the {@link StatsSnapshot} of the interval.
+   */
+  void export(StatsSnapshot snapshot);
+}
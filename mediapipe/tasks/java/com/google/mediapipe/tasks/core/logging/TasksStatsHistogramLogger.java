@@ -0,0 +1,252 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import android.content.Context;
+import android.util.Log;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A MediaPipe Tasks stats logger that measures the latency of every invocation and periodically
+ * exports the stats of the interval, including the latency percentiles, to a {@link
+ * TasksStatsExporter}.
+ *
+ * <p>The latency of an invocation is the time between the arrival of its input and the end of its
+ * output callback. Inputs whose timestamp is passed by an output without a result of their own, for
+ * instance because the flow limiter dropped them, are counted as dropped. Recording is lock-free.
+ */
+public class TasksStatsHistogramLogger implements TasksStatsLogger {
+  private static final String TAG = TasksStatsHistogramLogger.class.getSimpleName();
+  // Bounds the memory of the inputs whose outputs never arrive.
+  private static final int MAX_PENDING_INVOCATIONS = 1024;
+
+  private final String taskName;
+  private final String taskRunningModeName;
+  private final TasksStatsExporter exporter;
+  private final long reportIntervalMs;
+  private final LongSupplier nanoClock;
+  // The arrival times of the pending invocations in nanoseconds, keyed by the packet timestamp.
+  private final ConcurrentSkipListMap<Long, Long> pendingInvocations =
+      new ConcurrentSkipListMap<>();
+  private final AtomicInteger pendingInvocationCount = new AtomicInteger();
+  private final AtomicInteger cpuInputCount = new AtomicInteger();
+  private final AtomicInteger gpuInputCount = new AtomicInteger();
+  private final AtomicInteger finishedCount = new AtomicInteger();
+  private final AtomicInteger droppedCount = new AtomicInteger();
+  private final AtomicLong totalLatencyUs = new AtomicLong();
+  private final AtomicLong peakLatencyUs = new AtomicLong();
+  private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+  // Guarded by this.
+  private ScheduledExecutorService reportExecutor;
+  private long intervalStartNanos;
+
+  /**
+   * Creates the MediaPipe Tasks stats histogram logger.
+   *
+   * @param context a {@link Context}.
+   * @param taskNameStr the task api name.
+   * @param taskRunningModeStr the task running mode string representation.
+   * @param exporter the {@link TasksStatsExporter} to export the stats to.
+   * @param reportIntervalMs the interval between two exports while the session is running.
+   */
+  public static TasksStatsHistogramLogger create(
+      Context context,
+      String taskNameStr,
+      String taskRunningModeStr,
+      TasksStatsExporter exporter,
+      long reportIntervalMs) {
+    if (reportIntervalMs <= 0) {
+      throw new IllegalArgumentException("The report interval must be positive.");
+    }
+    return new TasksStatsHistogramLogger(
+        taskNameStr, taskRunningModeStr, exporter, reportIntervalMs, System::nanoTime);
+  }
+
+  /**
+   * Creates a logger that measures the latencies with the given clock.
+   *
+   * @param nanoClock the source of the current time in nanoseconds.
+   */
+  TasksStatsHistogramLogger(
+      String taskName,
+      String taskRunningModeName,
+      TasksStatsExporter exporter,
+      long reportIntervalMs,
+      LongSupplier nanoClock) {
+    this.taskName = taskName;
+    this.taskRunningModeName = taskRunningModeName;
+    this.exporter = exporter;
+    this.reportIntervalMs = reportIntervalMs;
+    this.nanoClock = nanoClock;
+    this.intervalStartNanos = nanoClock.getAsLong();
+  }
+
+  /** Logs the start of a MediaPipe Tasks API session and starts the periodic reports. */
+  @Override
+  public synchronized void logSessionStart() {
+    if (reportExecutor != null) {
+      return;
+    }
+    intervalStartNanos = nanoClock.getAsLong();
+    reportExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, TAG);
+              thread.setDaemon(true);
+              return thread;
+            });
+    reportExecutor.scheduleAtFixedRate(
+        () -> logInvocationReport(takeSnapshot()),
+        reportIntervalMs,
+        reportIntervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Records MediaPipe Tasks API receiving CPU input data.
+   *
+   * @param packetTimestamp the input packet timestamp that acts as the identifier of the api
+   *     invocation.
+   */
+  @Override
+  public void recordCpuInputArrival(long packetTimestamp) {
+    cpuInputCount.incrementAndGet();
+    recordInputArrival(packetTimestamp);
+  }
+
+  /**
+   * Records MediaPipe Tasks API receiving GPU input data.
+   *
+   * @param packetTimestamp the input packet timestamp that acts as the identifier of the api
+   *     invocation.
+   */
+  @Override
+  public void recordGpuInputArrival(long packetTimestamp) {
+    gpuInputCount.incrementAndGet();
+    recordInputArrival(packetTimestamp);
+  }
+
+  /**
+   * Records the end of a Mediapipe Tasks API invocation.
+   *
+   * @param packetTimestamp the output packet timestamp that acts as the identifier of the api
+   *     invocation.
+   */
+  @Override
+  public void recordInvocationEnd(long packetTimestamp) {
+    long endNanos = nanoClock.getAsLong();
+    // The outputs arrive in timestamp order, so the earlier inputs won't produce any result.
+    Map.Entry<Long, Long> earliest;
+    while ((earliest = pendingInvocations.firstEntry()) != null
+        && earliest.getKey() < packetTimestamp) {
+      if (pendingInvocations.remove(earliest.getKey(), earliest.getValue())) {
+        pendingInvocationCount.decrementAndGet();
+        droppedCount.incrementAndGet();
+      }
+    }
+    Long arrivalNanos = pendingInvocations.remove(packetTimestamp);
+    if (arrivalNanos == null) {
+      return;
+    }
+    pendingInvocationCount.decrementAndGet();
+    long latencyUs = TimeUnit.NANOSECONDS.toMicros(endNanos - arrivalNanos);
+    latencyHistogram.record(latencyUs);
+    finishedCount.incrementAndGet();
+    totalLatencyUs.addAndGet(latencyUs);
+    long peak;
+    do {
+      peak = peakLatencyUs.get();
+    } while (latencyUs > peak && !peakLatencyUs.compareAndSet(peak, latencyUs));
+  }
+
+  /** Logs the MediaPipe Tasks API periodic invocation report. */
+  @Override
+  public void logInvocationReport(StatsSnapshot stats) {
+    try {
+      exporter.export(stats);
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Failed to export the task stats.", e);
+    }
+  }
+
+  /** Logs the Tasks API session end event, and exports the stats of the last interval. */
+  @Override
+  public void logSessionEnd() {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      executor = reportExecutor;
+      reportExecutor = null;
+    }
+    if (executor == null) {
+      return;
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(reportIntervalMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    logInvocationReport(takeSnapshot());
+    pendingInvocations.clear();
+    pendingInvocationCount.set(0);
+  }
+
+  /** Logs the MediaPipe Tasks API initialization error. */
+  @Override
+  public void logInitError() {
+    // Initialization errors are thrown to the caller, there are no stats to export.
+  }
+
+  private void recordInputArrival(long packetTimestamp) {
+    if (pendingInvocations.put(packetTimestamp, nanoClock.getAsLong()) == null
+        && pendingInvocationCount.incrementAndGet() > MAX_PENDING_INVOCATIONS) {
+      if (pendingInvocations.pollFirstEntry() != null) {
+        pendingInvocationCount.decrementAndGet();
+        droppedCount.incrementAndGet();
+      }
+    }
+  }
+
+  /** Returns the stats since the previous snapshot and starts a new interval. */
+  private synchronized StatsSnapshot takeSnapshot() {
+    long nowNanos = nanoClock.getAsLong();
+    LatencyHistogram.Snapshot latencies = latencyHistogram.snapshotAndReset();
+    StatsSnapshot snapshot =
+        StatsSnapshot.builder()
+            .setTaskName(taskName)
+            .setTaskRunningModeName(taskRunningModeName)
+            .setCpuInputCount(cpuInputCount.getAndSet(0))
+            .setGpuInputCount(gpuInputCount.getAndSet(0))
+            .setFinishedCount(finishedCount.getAndSet(0))
+            .setDroppedCount(droppedCount.getAndSet(0))
+            .setTotalLatencyMs(TimeUnit.MICROSECONDS.toMillis(totalLatencyUs.getAndSet(0)))
+            .setPeakLatencyMs(TimeUnit.MICROSECONDS.toMillis(peakLatencyUs.getAndSet(0)))
+            .setElapsedTimeMs(TimeUnit.NANOSECONDS.toMillis(nowNanos - intervalStartNanos))
+            .setP50LatencyMs(latencies.getValueAtPercentile(50) / 1000.0)
+            .setP90LatencyMs(latencies.getValueAtPercentile(90) / 1000.0)
+            .setP99LatencyMs(latencies.getValueAtPercentile(99) / 1000.0)
+            .setP999LatencyMs(latencies.getValueAtPercentile(99.9) / 1000.0)
+            .build();
+    intervalStartNanos = nowNanos;
+    return snapshot;
+  }
+}
@@ -21,6 +21,38 @@ public interface TasksStatsLogger {
   /** Task stats snapshot. */
   @AutoValue
   abstract static class StatsSnapshot {
+    /** Builder for {@link StatsSnapshot}. */
+    @AutoValue.Builder
+    abstract static class Builder {
+      abstract Builder setTaskName(String value);
+
+      abstract Builder setTaskRunningModeName(String value);
+
+      abstract Builder setCpuInputCount(int value);
+
+      abstract Builder setGpuInputCount(int value);
+
+      abstract Builder setFinishedCount(int value);
+
+      abstract Builder setDroppedCount(int value);
+
+      abstract Builder setTotalLatencyMs(long value);
+
+      abstract Builder setPeakLatencyMs(long value);
+
+      abstract Builder setElapsedTimeMs(long value);
+
+      abstract Builder setP50LatencyMs(double value);
+
+      abstract Builder setP90LatencyMs(double value);
+
+      abstract Builder setP99LatencyMs(double value);
+
+      abstract Builder setP999LatencyMs(double value);
+
+      abstract StatsSnapshot build();
+    }
+
     static StatsSnapshot create(
         int cpuInputCount,
         int gpuInputCount,
@@ -29,33 +61,76 @@ public interface TasksStatsLogger {
         long totalLatencyMs,
         long peakLatencyMs,
         long elapsedTimeMs) {
-      return new AutoValue_TasksStatsLogger_StatsSnapshot(
-          cpuInputCount,
-          gpuInputCount,
-          finishedCount,
-          droppedCount,
-          totalLatencyMs,
-          peakLatencyMs,
-          elapsedTimeMs);
+      return builder()
+          .setCpuInputCount(cpuInputCount)
+          .setGpuInputCount(gpuInputCount)
+          .setFinishedCount(finishedCount)
+          .setDroppedCount(droppedCount)
+          .setTotalLatencyMs(totalLatencyMs)
+          .setPeakLatencyMs(peakLatencyMs)
+          .setElapsedTimeMs(elapsedTimeMs)
+          .build();
     }
 
     static StatsSnapshot createDefault() {
-      return new AutoValue_TasksStatsLogger_StatsSnapshot(0, 0, 0, 0, 0, 0, 0);
+      return builder().build();
     }
 
-    abstract int cpuInputCount();
+    static Builder builder() {
+      return new AutoValue_TasksStatsLogger_StatsSnapshot.Builder()
+          .setTaskName("")
+          .setTaskRunningModeName("")
+          .setCpuInputCount(0)
+          .setGpuInputCount(0)
+          .setFinishedCount(0)
+          .setDroppedCount(0)
+          .setTotalLatencyMs(0)
+          .setPeakLatencyMs(0)
+          .setElapsedTimeMs(0)
+          .setP50LatencyMs(0)
+          .setP90LatencyMs(0)
+          .setP99LatencyMs(0)
+          .setP999LatencyMs(0);
+    }
+
+    /** Returns the name of the task. */
+    public abstract String taskName();
+
+    /** Returns the running mode of the task. */
+    public abstract String taskRunningModeName();
+
+    /** Returns the number of CPU inputs received in the interval. */
+    public abstract int cpuInputCount();
+
+    /** Returns the number of GPU inputs received in the interval. */
+    public abstract int gpuInputCount();
+
+    /** Returns the number of invocations finished in the interval. */
+    public abstract int finishedCount();
+
+    /** Returns the number of inputs dropped without a result in the interval. */
+    public abstract int droppedCount();
+
+    /** Returns the sum of the latencies of the invocations finished in the interval. */
+    public abstract long totalLatencyMs();
 
-    abstract int gpuInputCount();
+    /** Returns the highest latency of the invocations finished in the interval. */
+    public abstract long peakLatencyMs();
 
-    abstract int finishedCount();
+    /** Returns the duration of the interval. */
+    public abstract long elapsedTimeMs();
 
-    abstract int droppedCount();
+    /** Returns the median latency of the invocations finished in the interval. */
+    public abstract double p50LatencyMs();
 
-    abstract long totalLatencyMs();
+    /** Returns the 90th percentile latency of the invocations finished in the interval. */
+    public abstract double p90LatencyMs();
 
-    abstract long peakLatencyMs();
+    /** Returns the 99th percentile latency of the invocations finished in the interval. */
+    public abstract double p99LatencyMs();
 
-    abstract long elapsedTimeMs();
+    /** Returns the 99.9th percentile latency of the invocations finished in the interval. */
+    public abstract double p999LatencyMs();
   }
 
   /** Logs the start of a MediaPipe Tasks API session. */
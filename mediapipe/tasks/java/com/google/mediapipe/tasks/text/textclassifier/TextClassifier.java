@@ -22,13 +22,16 @@ import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.framework.ProtoUtil;
+import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.mediapipe.tasks.components.containers.ClassificationResult;
+import com.google.mediapipe.tasks.components.containers.Classifications;
 import com.google.mediapipe.tasks.components.containers.proto.ClassificationsProto;
 import com.google.mediapipe.tasks.components.processors.proto.ClassifierOptionsProto;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
+import com.google.mediapipe.tasks.core.TaskResultCache;
 import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.text.textclassifier.proto.TextClassifierGraphOptionsProto;
@@ -40,6 +43,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 /**
  * Performs classification on text.
@@ -93,6 +97,8 @@ public final class TextClassifier implements AutoCloseable {
   private static final String TASK_GRAPH_NAME =
       "mediapipe.tasks.text.text_classifier.TextClassifierGraph";
   private final TaskRunner runner;
+  private final Optional<TaskResultCache<TextClassifierResult>> resultCache;
+  private final String fingerprint;
 
   static {
     System.loadLibrary("mediapipe_tasks_text_jni");
@@ -175,29 +181,89 @@ public final class TextClassifier implements AutoCloseable {
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
                 .setEnableFlowLimiting(false)
+                .setMemoryBudget(options.baseOptions().memoryBudget())
+                .setStatsExporter(options.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(options.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new TextClassifier(runner);
+    // The fingerprint reads the content of a model buffer or file descriptor.
+    String fingerprint =
+        options.resultCache().isPresent()
+            ? TaskResultCache.fingerprint(TASK_GRAPH_NAME, options, options.baseOptions())
+            : "";
+    return new TextClassifier(runner, options.resultCache(), fingerprint);
   }
 
   /**
    * Constructor to initialize a {@link TextClassifier} from a {@link TaskRunner}.
    *
    * @param runner a {@link TaskRunner}.
+   * @param resultCache an optional {@link TaskResultCache} of the task results.
+   * @param fingerprint the fingerprint of the task graph and options in the result cache.
    */
-  private TextClassifier(TaskRunner runner) {
+  private TextClassifier(
+      TaskRunner runner,
+      Optional<TaskResultCache<TextClassifierResult>> resultCache,
+      String fingerprint) {
     this.runner = runner;
+    this.resultCache = resultCache;
+    this.fingerprint = fingerprint;
   }
 
   /**
    * Performs classification on the input text.
    *
+   * <p>If a {@link TaskResultCache} is set in the options, the result of a previous call with the
+   * same text is returned without running the model.
+   *
    * @param inputText a {@link String} for processing.
    */
   public TextClassifierResult classify(String inputText) {
+    if (resultCache.isPresent()) {
+      TextClassifierResult cachedResult = resultCache.get().get(fingerprint, inputText);
+      if (cachedResult != null) {
+        return cachedResult;
+      }
+    }
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(TEXT_IN_STREAM_NAME, runner.getPacketCreator().createString(inputText));
-    return (TextClassifierResult) runner.process(inputPackets);
+    TextClassifierResult result = (TextClassifierResult) runner.process(inputPackets);
+    if (resultCache.isPresent() && result != null) {
+      resultCache.get().put(fingerprint, inputText, result, estimateWeightBytes(result));
+    }
+    return result;
+  }
+
+  /**
+   * Performs classification on a batch of input texts.
+   *
+   * <p>The texts are streamed through the task graph without waiting for each result, which is
+   * significantly faster than calling {@link #classify(String)} for each text. If a {@link
+   * TaskResultCache} is set in the options, cached results are returned without running the model.
+   *
+   * @param inputTexts a list of {@link String}s for processing.
+   * @return the results in the order of the input texts.
+   */
+  public List<TextClassifierResult> classifyAll(List<String> inputTexts) {
+    return runner.processTextBatch(
+        inputTexts,
+        TEXT_IN_STREAM_NAME,
+        resultCache,
+        fingerprint,
+        UnaryOperator.identity(),
+        TextClassifier::estimateWeightBytes);
+  }
+
+  private static long estimateWeightBytes(TextClassifierResult result) {
+    long weightBytes = 0;
+    for (Classifications classifications : result.classificationResult().classifications()) {
+      weightBytes += 64;
+      for (Category category : classifications.categories()) {
+        weightBytes +=
+            48 + 2L * (category.categoryName().length() + category.displayName().length());
+      }
+    }
+    return weightBytes;
   }
 
   /** Closes and cleans up the {@link TextClassifier}. */
@@ -254,6 +320,12 @@ public final class TextClassifier implements AutoCloseable {
        */
       public abstract Builder setCategoryDenylist(List<String> categoryDenylist);
 
+      /**
+       * Sets an optional {@link TaskResultCache} of the results. The cache can be shared by several
+       * {@link TextClassifier} instances, including instances with different models or options.
+       */
+      public abstract Builder setResultCache(TaskResultCache<TextClassifierResult> value);
+
       abstract TextClassifierOptions autoBuild();
 
       /**
@@ -286,6 +358,8 @@ public final class TextClassifier implements AutoCloseable {
 
     abstract List<String> categoryDenylist();
 
+    abstract Optional<TaskResultCache<TextClassifierResult>> resultCache();
+
     public static Builder builder() {
       return new AutoValue_TextClassifier_TextClassifierOptions.Builder()
           .setCategoryAllowlist(Collections.emptyList())
@@ -31,16 +31,19 @@ import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
+import com.google.mediapipe.tasks.core.TaskResultCache;
 import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.text.textembedder.proto.TextEmbedderGraphOptionsProto;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Performs embedding extraction on text.
@@ -83,6 +86,8 @@ public final class TextEmbedder implements AutoCloseable {
   private static final String TASK_GRAPH_NAME =
       "mediapipe.tasks.text.text_embedder.TextEmbedderGraph";
   private final TaskRunner runner;
+  private final Optional<TaskResultCache<TextEmbedderResult>> resultCache;
+  private final String fingerprint;
 
   static {
     System.loadLibrary("mediapipe_tasks_text_jni");
@@ -165,29 +170,104 @@ public final class TextEmbedder implements AutoCloseable {
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
                 .setEnableFlowLimiting(false)
+                .setMemoryBudget(options.baseOptions().memoryBudget())
+                .setStatsExporter(options.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(options.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new TextEmbedder(runner);
+    // The fingerprint reads the content of a model buffer or file descriptor.
+    String fingerprint =
+        options.resultCache().isPresent()
+            ? TaskResultCache.fingerprint(TASK_GRAPH_NAME, options, options.baseOptions())
+            : "";
+    return new TextEmbedder(runner, options.resultCache(), fingerprint);
   }
 
   /**
    * Constructor to initialize a {@link TextEmbedder} from a {@link TaskRunner}.
    *
    * @param runner a {@link TaskRunner}.
+   * @param resultCache an optional {@link TaskResultCache} of the task results.
+   * @param fingerprint the fingerprint of the task graph and options in the result cache.
    */
-  private TextEmbedder(TaskRunner runner) {
+  private TextEmbedder(
+      TaskRunner runner,
+      Optional<TaskResultCache<TextEmbedderResult>> resultCache,
+      String fingerprint) {
     this.runner = runner;
+    this.resultCache = resultCache;
+    this.fingerprint = fingerprint;
   }
 
   /**
    * Performs embedding extraction on the input text.
    *
+   * <p>If a {@link TaskResultCache} is set in the options, the result of a previous call with the
+   * same text is returned without running the model.
+   *
    * @param inputText a {@link String} for processing.
    */
   public TextEmbedderResult embed(String inputText) {
+    if (resultCache.isPresent()) {
+      TextEmbedderResult cachedResult = resultCache.get().get(fingerprint, inputText);
+      if (cachedResult != null) {
+        return copyOf(cachedResult);
+      }
+    }
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(TEXT_IN_STREAM_NAME, runner.getPacketCreator().createString(inputText));
-    return (TextEmbedderResult) runner.process(inputPackets);
+    TextEmbedderResult result = (TextEmbedderResult) runner.process(inputPackets);
+    if (resultCache.isPresent() && result != null) {
+      resultCache.get().put(fingerprint, inputText, copyOf(result), estimateWeightBytes(result));
+    }
+    return result;
+  }
+
+  /**
+   * Performs embedding extraction on a batch of input texts.
+   *
+   * <p>The texts are streamed through the task graph without waiting for each result, which is
+   * significantly faster than calling {@link #embed(String)} for each text. If a {@link
+   * TaskResultCache} is set in the options, cached results are returned without running the model.
+   *
+   * @param inputTexts a list of {@link String}s for processing.
+   * @return the results in the order of the input texts.
+   */
+  public List<TextEmbedderResult> embedAll(List<String> inputTexts) {
+    return runner.processTextBatch(
+        inputTexts,
+        TEXT_IN_STREAM_NAME,
+        resultCache,
+        fingerprint,
+        TextEmbedder::copyOf,
+        TextEmbedder::estimateWeightBytes);
+  }
+
+  private static long estimateWeightBytes(TextEmbedderResult result) {
+    long weightBytes = 0;
+    for (Embedding embedding : result.embeddingResult().embeddings()) {
+      weightBytes +=
+          64
+              + (long) embedding.floatEmbedding().length * Float.BYTES
+              + embedding.quantizedEmbedding().length;
+    }
+    return weightBytes;
+  }
+
+  // Copies the embedding arrays, so that the callers never share the arrays of a cached result.
+  private static TextEmbedderResult copyOf(TextEmbedderResult result) {
+    List<Embedding> embeddings = new ArrayList<>();
+    for (Embedding embedding : result.embeddingResult().embeddings()) {
+      embeddings.add(
+          Embedding.create(
+              embedding.floatEmbedding().clone(),
+              embedding.quantizedEmbedding().clone(),
+              embedding.headIndex(),
+              embedding.headName()));
+    }
+    return TextEmbedderResult.create(
+        EmbeddingResult.create(embeddings, result.embeddingResult().timestampMs()),
+        result.timestampMs());
   }
 
   /** Closes and cleans up the {@link TextEmbedder}. */
@@ -237,6 +317,12 @@ public final class TextEmbedder implements AutoCloseable {
        */
       public abstract Builder setQuantize(boolean quantize);
 
+      /**
+       * Sets an optional {@link TaskResultCache} of the results. The cache can be shared by several
+       * {@link TextEmbedder} instances, including instances with different models or options.
+       */
+      public abstract Builder setResultCache(TaskResultCache<TextEmbedderResult> value);
+
       public abstract TextEmbedderOptions build();
     }
 
@@ -246,6 +332,8 @@ public final class TextEmbedder implements AutoCloseable {
 
     abstract boolean quantize();
 
+    abstract Optional<TaskResultCache<TextEmbedderResult>> resultCache();
+
     public static Builder builder() {
       return new AutoValue_TextEmbedder_TextEmbedderOptions.Builder()
           .setL2Normalize(false)
@@ -15,23 +15,39 @@
 package com.google.mediapipe.tasks.vision.core;
 
 import android.graphics.RectF;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.RequiresApi;
+import com.google.auto.value.AutoValue;
 import com.google.mediapipe.formats.proto.RectProto.NormalizedRect;
+import com.google.mediapipe.framework.FrameTracer;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.ProtoUtil;
 import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.tasks.core.DroppedFrameListener;
+import com.google.mediapipe.tasks.core.InputPacketCache;
+import com.google.mediapipe.tasks.core.OutputHandler;
+import com.google.mediapipe.tasks.core.ResultPublisher;
 import com.google.mediapipe.tasks.core.TaskResult;
 import com.google.mediapipe.tasks.core.TaskRunner;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-/** The base class of MediaPipe vision tasks. */
-public class BaseVisionTaskApi implements AutoCloseable {
+/**
+ * The base class of MediaPipe vision tasks.
+ *
+ * @param <OutputT> the type of the task results.
+ */
+public class BaseVisionTaskApi<OutputT extends TaskResult> implements AutoCloseable {
   private static final long MICROSECONDS_PER_MILLISECOND = 1000;
+  private static final int NORM_RECT_PACKET_CACHE_CAPACITY = 4;
   protected final TaskRunner runner;
   protected final RunningMode runningMode;
   protected final String imageStreamName;
   protected final String normRectStreamName;
+  private final InputPacketCache<NormalizedRectKey> normRectPackets;
+  private final OutputHandler<OutputT, ?> outputHandler;
 
   static {
     System.loadLibrary("mediapipe_tasks_vision_jni");
@@ -46,16 +62,24 @@ public class BaseVisionTaskApi implements AutoCloseable {
    * @param imageStreamName the name of the input image stream.
    * @param normRectStreamName the name of the input normalized rect image stream used to provide
    *     (mandatory) rotation and (optional) region-of-interest.
+   * @param outputHandler the {@link OutputHandler} of the task results, or null if the task doesn't
+   *     publish its results.
    */
   public BaseVisionTaskApi(
       TaskRunner runner,
       RunningMode runningMode,
       String imageStreamName,
-      String normRectStreamName) {
+      String normRectStreamName,
+      OutputHandler<OutputT, ?> outputHandler) {
     this.runner = runner;
     this.runningMode = runningMode;
     this.imageStreamName = imageStreamName;
     this.normRectStreamName = normRectStreamName;
+    this.outputHandler = outputHandler;
+    this.normRectPackets =
+        new InputPacketCache<>(
+            NORM_RECT_PACKET_CACHE_CAPACITY,
+            key -> runner.getPacketCreator().createProto(key.toNormalizedRect()));
   }
 
   /**
@@ -77,12 +101,50 @@ public class BaseVisionTaskApi implements AutoCloseable {
     }
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(imageStreamName, runner.getPacketCreator().createImage(image));
-    inputPackets.put(
-        normRectStreamName,
-        runner.getPacketCreator().createProto(convertToNormalizedRect(imageProcessingOptions)));
+    inputPackets.put(normRectStreamName, createNormRectPacket(imageProcessingOptions));
     return runner.process(inputPackets);
   }
 
+  /**
+   * An asynchronous method to process single image inputs in a pipelined fashion. The call returns
+   * as soon as the image is sent to the graph and the returned future is completed when the result
+   * is available.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @param imageProcessingOptions the {@link ImageProcessingOptions} specifying how to process the
+   *     input image before running inference.
+   * @throws MediaPipeException if the task is not in the image mode.
+   */
+  protected CompletableFuture<TaskResult> processImageDataPipelined(
+      MPImage image, ImageProcessingOptions imageProcessingOptions) {
+    if (runningMode != RunningMode.IMAGE) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the image mode. Current running mode:"
+              + runningMode.name());
+    }
+    Map<String, Packet> inputPackets = new HashMap<>();
+    inputPackets.put(imageStreamName, runner.getPacketCreator().createImage(image));
+    inputPackets.put(normRectStreamName, createNormRectPacket(imageProcessingOptions));
+    return runner.processPipelined(inputPackets);
+  }
+
+  /**
+   * Waits until all the images sent in the pipelined fashion are processed. The futures of the
+   * images that didn't produce any result are completed exceptionally.
+   *
+   * @throws MediaPipeException if the task is not in the image mode.
+   */
+  public void flushPipelinedResults() {
+    if (runningMode != RunningMode.IMAGE) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the image mode. Current running mode:"
+              + runningMode.name());
+    }
+    runner.flushPipelinedResults();
+  }
+
   /**
    * A synchronous method to process continuous video frames. The call blocks the current thread
    * until a failure status or a successful result is returned.
@@ -103,9 +165,7 @@ public class BaseVisionTaskApi implements AutoCloseable {
     }
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(imageStreamName, runner.getPacketCreator().createImage(image));
-    inputPackets.put(
-        normRectStreamName,
-        runner.getPacketCreator().createProto(convertToNormalizedRect(imageProcessingOptions)));
+    inputPackets.put(normRectStreamName, createNormRectPacket(imageProcessingOptions));
     return runner.process(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
   }
 
@@ -127,38 +187,132 @@ public class BaseVisionTaskApi implements AutoCloseable {
           "Task is not initialized with the live stream mode. Current running mode:"
               + runningMode.name());
     }
+    long timestampUs = timestampMs * MICROSECONDS_PER_MILLISECOND;
+    long sendBeginTimeUsec = FrameTracer.beginSpan();
     Map<String, Packet> inputPackets = new HashMap<>();
     inputPackets.put(imageStreamName, runner.getPacketCreator().createImage(image));
-    inputPackets.put(
-        normRectStreamName,
-        runner.getPacketCreator().createProto(convertToNormalizedRect(imageProcessingOptions)));
-    runner.send(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
+    inputPackets.put(normRectStreamName, createNormRectPacket(imageProcessingOptions));
+    FrameTracer.endSpan("BaseVisionTaskApi.createInputPackets", timestampUs, sendBeginTimeUsec);
+    runner.send(inputPackets, timestampUs);
+    FrameTracer.endSpan("BaseVisionTaskApi.sendLiveStreamData", timestampUs, sendBeginTimeUsec);
+  }
+
+  /**
+   * Returns true if a frame sent now in the live stream mode would be processed or queued rather
+   * than dropped. This is a cheap check that doesn't block, so that producers can skip converting
+   * the frames that the task would drop anyway.
+   *
+   * @throws MediaPipeException if the task is not in the live stream mode.
+   */
+  public boolean tryAccept() {
+    if (runningMode != RunningMode.LIVE_STREAM) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the live stream mode. Current running mode:"
+              + runningMode.name());
+    }
+    return runner.tryAccept();
+  }
+
+  /**
+   * Sets a callback to be invoked with the timestamp and the reason of each live stream frame that
+   * is dropped without a result.
+   *
+   * @param listener a {@link DroppedFrameListener} callback, or null to remove it.
+   */
+  public void setDroppedFrameListener(DroppedFrameListener listener) {
+    runner.setDroppedFrameListener(listener);
+  }
+
+  /**
+   * Returns a {@link ResultPublisher} of the task results in the live stream mode, published
+   * alongside the result listener. A subscriber receives the task results as it requests them.
+   * While it has no outstanding demand, only the latest result is kept for it. The subscribers are
+   * completed when the task is closed.
+   *
+   * @throws MediaPipeException if the task is not in the live stream mode, or doesn't publish its
+   *     results.
+   */
+  @RequiresApi(VERSION_CODES.R)
+  public ResultPublisher<OutputT> resultPublisher() {
+    if (runningMode != RunningMode.LIVE_STREAM) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the live stream mode. Current running mode:"
+              + runningMode.name());
+    }
+    if (outputHandler == null) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.UNIMPLEMENTED.ordinal(),
+          "Task doesn't publish its results.");
+    }
+    return outputHandler.getResultPublisher();
   }
 
   /** Closes and cleans up the MediaPipe vision task. */
   @Override
   public void close() {
+    normRectPackets.close();
     runner.close();
   }
 
+  /**
+   * Creates the normalized rect packet of an {@link ImageProcessingOptions} instance from a cached
+   * template, so the proto is only built and serialized when the options change.
+   */
+  private Packet createNormRectPacket(ImageProcessingOptions imageProcessingOptions) {
+    return normRectPackets.get(NormalizedRectKey.create(imageProcessingOptions));
+  }
+
   /**
    * Converts an {@link ImageProcessingOptions} instance into a {@link NormalizedRect} protobuf
    * message.
    */
   protected static NormalizedRect convertToNormalizedRect(
       ImageProcessingOptions imageProcessingOptions) {
-    RectF regionOfInterest =
-        imageProcessingOptions.regionOfInterest().isPresent()
-            ? imageProcessingOptions.regionOfInterest().get()
-            : new RectF(0, 0, 1, 1);
-    return NormalizedRect.newBuilder()
-        .setXCenter(regionOfInterest.centerX())
-        .setYCenter(regionOfInterest.centerY())
-        .setWidth(regionOfInterest.width())
-        .setHeight(regionOfInterest.height())
-        // Convert to radians anti-clockwise.
-        .setRotation(-(float) Math.PI * imageProcessingOptions.rotationDegrees() / 180.0f)
-        .build();
+    return NormalizedRectKey.create(imageProcessingOptions).toNormalizedRect();
+  }
+
+  /**
+   * An immutable snapshot of the {@link NormalizedRect} that an {@link ImageProcessingOptions}
+   * instance converts to. The region of interest of the options is a mutable {@link RectF}, so the
+   * options themselves can't be used as cache keys.
+   */
+  @AutoValue
+  abstract static class NormalizedRectKey {
+    static NormalizedRectKey create(ImageProcessingOptions imageProcessingOptions) {
+      RectF regionOfInterest =
+          imageProcessingOptions.regionOfInterest().isPresent()
+              ? imageProcessingOptions.regionOfInterest().get()
+              : new RectF(0, 0, 1, 1);
+      return new AutoValue_BaseVisionTaskApi_NormalizedRectKey(
+          regionOfInterest.centerX(),
+          regionOfInterest.centerY(),
+          regionOfInterest.width(),
+          regionOfInterest.height(),
+          // Convert to radians anti-clockwise.
+          -(float) Math.PI * imageProcessingOptions.rotationDegrees() / 180.0f);
+    }
+
+    abstract float xCenter();
+
+    abstract float yCenter();
+
+    abstract float width();
+
+    abstract float height();
+
+    abstract float rotation();
+
+    NormalizedRect toNormalizedRect() {
+      return NormalizedRect.newBuilder()
+          .setXCenter(xCenter())
+          .setYCenter(yCenter())
+          .setWidth(width())
+          .setHeight(height())
+          .setRotation(rotation())
+          .build();
+    }
   }
 
   /**
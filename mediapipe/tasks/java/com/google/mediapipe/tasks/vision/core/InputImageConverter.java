@@ -0,0 +1,123 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.vision.core;
+
+import android.graphics.Bitmap;
+import com.google.mediapipe.framework.AndroidPacketGetter;
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketGetter;
+import com.google.mediapipe.framework.image.BitmapImageBuilder;
+import com.google.mediapipe.framework.image.LazyBitmapImageBuilder;
+import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.tasks.core.OutputHandler;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Converts the image output packets of the vision task graphs to the {@link MPImage}s handed to
+ * the result listeners, as configured by an {@link InputImageMode}.
+ */
+public final class InputImageConverter implements OutputHandler.TaskInputReleaser<MPImage> {
+  private final InputImageMode inputImageMode;
+  // The bitmap sources of the lazy images handed to the result listeners that haven't returned yet.
+  private final Map<MPImage, PacketBitmapSource> pendingSources = new IdentityHashMap<>();
+
+  /**
+   * Creates an {@link InputImageConverter} instance.
+   *
+   * @param inputImageMode how the input image is passed to the result listener.
+   */
+  public InputImageConverter(InputImageMode inputImageMode) {
+    this.inputImageMode = inputImageMode;
+  }
+
+  /** Returns true if the task graph should output the input image. */
+  public boolean outputsInputImage() {
+    return inputImageMode != InputImageMode.NONE;
+  }
+
+  /**
+   * Creates an {@link MPImage} from the given image packet, or returns null in the {@link
+   * InputImageMode#NONE} mode.
+   *
+   * @param imagePacket the IMAGE output packet of a vision task graph.
+   */
+  public MPImage convert(Packet imagePacket) {
+    switch (inputImageMode) {
+      case COPY:
+        return new BitmapImageBuilder(AndroidPacketGetter.getBitmapFromRgb(imagePacket)).build();
+      case LAZY:
+        return convertLazily(imagePacket);
+      case NONE:
+        return null;
+    }
+    throw new IllegalArgumentException("Unsupported input image mode: " + inputImageMode);
+  }
+
+  private MPImage convertLazily(Packet imagePacket) {
+    PacketBitmapSource source = new PacketBitmapSource(imagePacket.copy());
+    MPImage image =
+        new LazyBitmapImageBuilder(
+                source,
+                PacketGetter.getImageWidth(imagePacket),
+                PacketGetter.getImageHeight(imagePacket))
+            .build();
+    synchronized (pendingSources) {
+      pendingSources.put(image, source);
+    }
+    return image;
+  }
+
+  /** Releases the image packet referenced by the {@link MPImage} if it hasn't been decoded. */
+  @Override
+  public void release(MPImage image) {
+    PacketBitmapSource source;
+    synchronized (pendingSources) {
+      source = pendingSources.remove(image);
+    }
+    if (source != null) {
+      source.release();
+    }
+  }
+
+  /** A {@link LazyBitmapImageBuilder.BitmapSource} backed by an image {@link Packet}. */
+  private static class PacketBitmapSource implements LazyBitmapImageBuilder.BitmapSource {
+    private Packet packet;
+
+    PacketBitmapSource(Packet packet) {
+      this.packet = packet;
+    }
+
+    @Override
+    public synchronized Bitmap decode() {
+      if (packet == null) {
+        throw new IllegalStateException(
+            "The input image is only available before the result listener returns.");
+      }
+      Bitmap bitmap = AndroidPacketGetter.getBitmapFromRgb(packet);
+      packet.release();
+      packet = null;
+      return bitmap;
+    }
+
+    @Override
+    public synchronized void release() {
+      if (packet != null) {
+        packet.release();
+        packet = null;
+      }
+    }
+  }
+}
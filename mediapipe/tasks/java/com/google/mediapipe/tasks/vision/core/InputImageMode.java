@@ -0,0 +1,36 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.vision.core;
+
+/**
+ * How the vision tasks pass the input image to the result listener in the live stream mode.
+ *
+ * <ul>
+ *   <li>COPY: The pixels of the input image are copied out of the task graph before the result
+ *       listener is invoked. The result listener can keep the {@link
+ *       com.google.mediapipe.framework.image.MPImage} after it returns. This is the default.
+ *   <li>LAZY: The pixels of the input image are only copied out of the task graph when the result
+ *       listener extracts them. This saves the copy for the listeners that ignore the input image,
+ *       but the pixels must be extracted before the result listener returns: extracting them later
+ *       throws {@link IllegalStateException}. A bitmap extracted inside the listener can be kept.
+ *   <li>NONE: The task graph doesn't output the input image, and the result listener receives a
+ *       null {@link com.google.mediapipe.framework.image.MPImage}.
+ * </ul>
+ */
+public enum InputImageMode {
+  COPY,
+  LAZY,
+  NONE
+}
@@ -18,10 +18,8 @@ import android.content.Context;
 import android.os.ParcelFileDescriptor;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
@@ -33,6 +31,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.facedetector.proto.FaceDetectorGraphOptionsProto;
 import com.google.mediapipe.formats.proto.DetectionProto.Detection;
@@ -62,7 +62,7 @@ import java.util.Optional;
  *       </ul>
  * </ul>
  */
-public final class FaceDetector extends BaseVisionTaskApi {
+public final class FaceDetector extends BaseVisionTaskApi<FaceDetectorResult> {
   private static final String TAG = FaceDetector.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -139,6 +139,12 @@ public final class FaceDetector extends BaseVisionTaskApi {
   public static FaceDetector createFromOptions(
       Context context, FaceDetectorOptions detectorOptions) {
     // TODO: Consolidate OutputHandler and TaskRunner.
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            detectorOptions.runningMode() == RunningMode.LIVE_STREAM
+                ? detectorOptions.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<FaceDetectorResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<FaceDetectorResult, MPImage>() {
@@ -160,13 +166,16 @@ public final class FaceDetector extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     detectorOptions.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     detectorOptions.errorListener().ifPresent(handler::setErrorListener);
+    detectorOptions.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -175,12 +184,19 @@ public final class FaceDetector extends BaseVisionTaskApi {
                 .setTaskRunningModeName(detectorOptions.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(detectorOptions)
                 .setEnableFlowLimiting(detectorOptions.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(detectorOptions.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(detectorOptions.baseOptions().memoryBudget())
+                .setStatsExporter(detectorOptions.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(detectorOptions.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new FaceDetector(runner, detectorOptions.runningMode());
+    return new FaceDetector(runner, detectorOptions.runningMode(), handler);
   }
 
   /**
@@ -189,9 +205,13 @@ public final class FaceDetector extends BaseVisionTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe vision task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private FaceDetector(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+  private FaceDetector(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<FaceDetectorResult, MPImage> outputHandler) {
+    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME, outputHandler);
   }
 
   /**
@@ -385,6 +405,12 @@ public final class FaceDetector extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}}. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract FaceDetectorOptions autoBuild();
 
       /**
@@ -423,9 +449,12 @@ public final class FaceDetector extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     public static Builder builder() {
       return new AutoValue_FaceDetector_FaceDetectorOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setMinDetectionConfidence(0.5f)
           .setMinSuppressionThreshold(0.3f);
     }
@@ -21,10 +21,8 @@ import com.google.mediapipe.formats.proto.LandmarkProto.LandmarkList;
 import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
 import com.google.mediapipe.formats.proto.ClassificationProto.ClassificationList;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.components.processors.ClassifierOptions;
 import com.google.mediapipe.tasks.core.BaseOptions;
@@ -37,6 +35,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.gesturerecognizer.proto.GestureClassifierGraphOptionsProto;
 import com.google.mediapipe.tasks.vision.gesturerecognizer.proto.GestureRecognizerGraphOptionsProto;
@@ -70,7 +70,7 @@ import java.util.Optional;
  *       </ul>
  * </ul>
  */
-public final class GestureRecognizer extends BaseVisionTaskApi {
+public final class GestureRecognizer extends BaseVisionTaskApi<GestureRecognizerResult> {
   private static final String TAG = GestureRecognizer.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -152,6 +152,12 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
   public static GestureRecognizer createFromOptions(
       Context context, GestureRecognizerOptions recognizerOptions) {
     // TODO: Consolidate OutputHandler and TaskRunner.
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            recognizerOptions.runningMode() == RunningMode.LIVE_STREAM
+                ? recognizerOptions.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<GestureRecognizerResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<GestureRecognizerResult, MPImage>() {
@@ -183,13 +189,16 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     recognizerOptions.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     recognizerOptions.errorListener().ifPresent(handler::setErrorListener);
+    recognizerOptions.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -198,12 +207,19 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
                 .setTaskRunningModeName(recognizerOptions.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(recognizerOptions)
                 .setEnableFlowLimiting(recognizerOptions.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(recognizerOptions.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(recognizerOptions.baseOptions().memoryBudget())
+                .setStatsExporter(recognizerOptions.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(recognizerOptions.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new GestureRecognizer(runner, recognizerOptions.runningMode());
+    return new GestureRecognizer(runner, recognizerOptions.runningMode(), handler);
   }
 
   /**
@@ -212,9 +228,13 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe vision task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private GestureRecognizer(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+  private GestureRecognizer(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<GestureRecognizerResult, MPImage> outputHandler) {
+    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME, outputHandler);
   }
 
   /**
@@ -434,6 +454,12 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
       /** Sets an optional error listener. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract GestureRecognizerOptions autoBuild();
 
       /**
@@ -480,9 +506,12 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     public static Builder builder() {
       return new AutoValue_GestureRecognizer_GestureRecognizerOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setNumHands(1)
           .setMinHandDetectionConfidence(0.5f)
           .setMinHandPresenceConfidence(0.5f)
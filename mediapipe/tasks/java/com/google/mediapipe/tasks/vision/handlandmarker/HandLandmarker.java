@@ -21,10 +21,8 @@ import com.google.mediapipe.formats.proto.LandmarkProto.LandmarkList;
 import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
 import com.google.mediapipe.formats.proto.ClassificationProto.ClassificationList;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
@@ -36,6 +34,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.handdetector.proto.HandDetectorGraphOptionsProto;
 import com.google.mediapipe.tasks.vision.handlandmarker.proto.HandLandmarkerGraphOptionsProto;
@@ -66,7 +66,7 @@ import java.util.Optional;
  *       </ul>
  * </ul>
  */
-public final class HandLandmarker extends BaseVisionTaskApi {
+public final class HandLandmarker extends BaseVisionTaskApi<HandLandmarkerResult> {
   private static final String TAG = HandLandmarker.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -145,6 +145,12 @@ public final class HandLandmarker extends BaseVisionTaskApi {
   public static HandLandmarker createFromOptions(
       Context context, HandLandmarkerOptions landmarkerOptions) {
     // TODO: Consolidate OutputHandler and TaskRunner.
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            landmarkerOptions.runningMode() == RunningMode.LIVE_STREAM
+                ? landmarkerOptions.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<HandLandmarkerResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<HandLandmarkerResult, MPImage>() {
@@ -172,13 +178,16 @@ public final class HandLandmarker extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     landmarkerOptions.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     landmarkerOptions.errorListener().ifPresent(handler::setErrorListener);
+    landmarkerOptions.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -187,12 +196,19 @@ public final class HandLandmarker extends BaseVisionTaskApi {
                 .setTaskRunningModeName(landmarkerOptions.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(landmarkerOptions)
                 .setEnableFlowLimiting(landmarkerOptions.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(landmarkerOptions.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(landmarkerOptions.baseOptions().memoryBudget())
+                .setStatsExporter(landmarkerOptions.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(landmarkerOptions.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new HandLandmarker(runner, landmarkerOptions.runningMode());
+    return new HandLandmarker(runner, landmarkerOptions.runningMode(), handler);
   }
 
   /**
@@ -201,9 +217,13 @@ public final class HandLandmarker extends BaseVisionTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe vision task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private HandLandmarker(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+  private HandLandmarker(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<HandLandmarkerResult, MPImage> outputHandler) {
+    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME, outputHandler);
   }
 
   /**
@@ -400,6 +420,12 @@ public final class HandLandmarker extends BaseVisionTaskApi {
       /** Sets an optional error listener. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract HandLandmarkerOptions autoBuild();
 
       /**
@@ -442,9 +468,12 @@ public final class HandLandmarker extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     public static Builder builder() {
       return new AutoValue_HandLandmarker_HandLandmarkerOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setNumHands(1)
           .setMinHandDetectionConfidence(0.5f)
           .setMinHandPresenceConfidence(0.5f)
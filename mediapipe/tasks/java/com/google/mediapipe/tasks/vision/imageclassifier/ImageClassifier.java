@@ -18,12 +18,10 @@ import android.content.Context;
 import android.os.ParcelFileDescriptor;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.framework.ProtoUtil;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.components.containers.ClassificationResult;
 import com.google.mediapipe.tasks.components.containers.proto.ClassificationsProto;
@@ -38,6 +36,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.imageclassifier.proto.ImageClassifierGraphOptionsProto;
 import java.io.File;
@@ -47,6 +47,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Performs classification on images.
@@ -88,7 +89,7 @@ import java.util.Optional;
  * href="https://tfhub.dev/bohemian-visual-recognition-alliance/lite-model/models/mushroom-identification_v1/1">
  * TensorFlow Hub</a>.
  */
-public final class ImageClassifier extends BaseVisionTaskApi {
+public final class ImageClassifier extends BaseVisionTaskApi<ImageClassifierResult> {
   private static final String TAG = ImageClassifier.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -165,6 +166,12 @@ public final class ImageClassifier extends BaseVisionTaskApi {
    * @throws MediaPipeException if there is an error during {@link ImageClassifier} creation.
    */
   public static ImageClassifier createFromOptions(Context context, ImageClassifierOptions options) {
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            options.runningMode() == RunningMode.LIVE_STREAM
+                ? options.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<ImageClassifierResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<ImageClassifierResult, MPImage>() {
@@ -186,13 +193,16 @@ public final class ImageClassifier extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     options.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -201,12 +211,19 @@ public final class ImageClassifier extends BaseVisionTaskApi {
                 .setTaskRunningModeName(options.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(options)
                 .setEnableFlowLimiting(options.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(options.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(options.baseOptions().memoryBudget())
+                .setStatsExporter(options.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(options.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new ImageClassifier(runner, options.runningMode());
+    return new ImageClassifier(runner, options.runningMode(), handler);
   }
 
   /**
@@ -215,9 +232,13 @@ public final class ImageClassifier extends BaseVisionTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe vision task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private ImageClassifier(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+  private ImageClassifier(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<ImageClassifierResult, MPImage> outputHandler) {
+    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME, outputHandler);
   }
 
   /**
@@ -258,6 +279,42 @@ public final class ImageClassifier extends BaseVisionTaskApi {
     return (ImageClassifierResult) processImageData(image, imageProcessingOptions);
   }
 
+  /**
+   * Sends the provided single image to perform classification in a pipelined fashion, with default
+   * image processing options, i.e. using the whole image as region-of-interest and without any
+   * rotation applied. Only use this method when the {@link ImageClassifier} is created with {@link
+   * RunningMode.IMAGE}.
+   *
+   * <p>Unlike {@link #classify(MPImage)}, this method doesn't wait for the result, so that many
+   * images can be in the graph at once. Call {@link #flushPipelinedResults()} to wait for all the
+   * in-flight images.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @throws MediaPipeException if there is an internal error.
+   */
+  public CompletableFuture<ImageClassifierResult> classifyPipelined(MPImage image) {
+    return classifyPipelined(image, ImageProcessingOptions.builder().build());
+  }
+
+  /**
+   * Sends the provided single image to perform classification in a pipelined fashion. Only use this
+   * method when the {@link ImageClassifier} is created with {@link RunningMode.IMAGE}.
+   *
+   * <p>Unlike {@link #classify(MPImage, ImageProcessingOptions)}, this method doesn't wait for the
+   * result, so that many images can be in the graph at once. Call {@link #flushPipelinedResults()}
+   * to wait for all the in-flight images.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @param imageProcessingOptions the {@link ImageProcessingOptions} specifying how to process the
+   *     input image before running inference.
+   * @throws MediaPipeException if there is an internal error.
+   */
+  public CompletableFuture<ImageClassifierResult> classifyPipelined(
+      MPImage image, ImageProcessingOptions imageProcessingOptions) {
+    return processImageDataPipelined(image, imageProcessingOptions)
+        .thenApply(result -> (ImageClassifierResult) result);
+  }
+
   /**
    * Performs classification on the provided video frame with default image processing options, i.e.
    * using the whole image as region-of-interest and without any rotation applied. Only use this
@@ -425,6 +482,12 @@ public final class ImageClassifier extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}. */
       public abstract Builder setErrorListener(ErrorListener errorListener);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract ImageClassifierOptions autoBuild();
 
       /**
@@ -474,9 +537,12 @@ public final class ImageClassifier extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     public static Builder builder() {
       return new AutoValue_ImageClassifier_ImageClassifierOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setCategoryAllowlist(Collections.emptyList())
           .setCategoryDenylist(Collections.emptyList());
     }
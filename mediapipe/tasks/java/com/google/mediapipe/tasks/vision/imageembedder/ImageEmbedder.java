@@ -18,12 +18,10 @@ import android.content.Context;
 import android.os.ParcelFileDescriptor;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.framework.ProtoUtil;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.components.containers.Embedding;
 import com.google.mediapipe.tasks.components.containers.EmbeddingResult;
@@ -40,6 +38,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.imageembedder.proto.ImageEmbedderGraphOptionsProto;
 import java.io.File;
@@ -72,7 +72,7 @@ import java.util.Optional;
  *       [1 x N]} where N is the number of dimensions in the produced embeddings.
  * </ul>
  */
-public final class ImageEmbedder extends BaseVisionTaskApi {
+public final class ImageEmbedder extends BaseVisionTaskApi<ImageEmbedderResult> {
   private static final String TAG = ImageEmbedder.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -148,6 +148,12 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
    * @throws MediaPipeException if there is an error during {@link ImageEmbedder} creation.
    */
   public static ImageEmbedder createFromOptions(Context context, ImageEmbedderOptions options) {
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            options.runningMode() == RunningMode.LIVE_STREAM
+                ? options.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<ImageEmbedderResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<ImageEmbedderResult, MPImage>() {
@@ -169,13 +175,16 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     options.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -184,12 +193,19 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
                 .setTaskRunningModeName(options.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(options)
                 .setEnableFlowLimiting(options.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(options.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(options.baseOptions().memoryBudget())
+                .setStatsExporter(options.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(options.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new ImageEmbedder(runner, options.runningMode());
+    return new ImageEmbedder(runner, options.runningMode(), handler);
   }
 
   /**
@@ -198,9 +214,13 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe vision task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private ImageEmbedder(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+  private ImageEmbedder(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<ImageEmbedderResult, MPImage> outputHandler) {
+    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME, outputHandler);
   }
 
   /**
@@ -400,6 +420,12 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}. */
       public abstract Builder setErrorListener(ErrorListener errorListener);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract ImageEmbedderOptions autoBuild();
 
       /**
@@ -438,9 +464,12 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     public static Builder builder() {
       return new AutoValue_ImageEmbedder_ImageEmbedderOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setL2Normalize(false)
           .setQuantize(false);
     }
@@ -18,11 +18,9 @@ import android.content.Context;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
 import com.google.mediapipe.proto.CalculatorProto.CalculatorGraphConfig;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.ByteBufferImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.TensorsToSegmentationCalculatorOptionsProto;
@@ -36,6 +34,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.imagesegmenter.proto.ImageSegmenterGraphOptionsProto;
 import com.google.mediapipe.tasks.vision.imagesegmenter.proto.SegmenterOptionsProto;
@@ -72,7 +72,7 @@ import java.util.Optional;
  *       </ul>
  * </ul>
  */
-public final class ImageSegmenter extends BaseVisionTaskApi {
+public final class ImageSegmenter extends BaseVisionTaskApi<ImageSegmenterResult> {
   private static final String TAG = ImageSegmenter.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -83,11 +83,11 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
       Collections.unmodifiableList(
           Arrays.asList(
               "GROUPED_SEGMENTATION:segmented_mask_out",
-              "IMAGE:image_out",
-              "SEGMENTATION:0:segmentation"));
+              "SEGMENTATION:0:segmentation",
+              "IMAGE:image_out"));
   private static final int GROUPED_SEGMENTATION_OUT_STREAM_INDEX = 0;
-  private static final int IMAGE_OUT_STREAM_INDEX = 1;
-  private static final int SEGMENTATION_OUT_STREAM_INDEX = 2;
+  private static final int SEGMENTATION_OUT_STREAM_INDEX = 1;
+  private static final int IMAGE_OUT_STREAM_INDEX = 2;
   private static final String TASK_GRAPH_NAME =
       "mediapipe.tasks.vision.image_segmenter.ImageSegmenterGraph";
   private static final String TENSORS_TO_SEGMENTATION_CALCULATOR_NAME =
@@ -105,6 +105,12 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
   public static ImageSegmenter createFromOptions(
       Context context, ImageSegmenterOptions segmenterOptions) {
     // TODO: Consolidate OutputHandler and TaskRunner.
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            segmenterOptions.runningMode() == RunningMode.LIVE_STREAM
+                ? segmenterOptions.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<ImageSegmenterResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<ImageSegmenterResult, MPImage>() {
@@ -126,9 +132,13 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
             int imageListSize =
                 PacketGetter.getImageListSize(packets.get(GROUPED_SEGMENTATION_OUT_STREAM_INDEX));
             ByteBuffer[] buffersArray = new ByteBuffer[imageListSize];
-            // If resultListener is not provided, the resulted MPImage is deep copied from mediapipe
-            // graph. If provided, the result MPImage is wrapping the mediapipe packet memory.
-            if (!segmenterOptions.resultListener().isPresent()) {
+            // If resultListener is not provided, or it runs on a result dispatcher after the graph
+            // callback returns, the resulted MPImage is deep copied from mediapipe graph. Otherwise,
+            // the result MPImage is wrapping the mediapipe packet memory.
+            boolean copyMasks =
+                !segmenterOptions.resultListener().isPresent()
+                    || segmenterOptions.baseOptions().resultDispatcher().isPresent();
+            if (copyMasks) {
               for (int i = 0; i < imageListSize; i++) {
                 buffersArray[i] =
                     ByteBuffer.allocateDirect(
@@ -138,7 +148,7 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
             if (!PacketGetter.getImageList(
                 packets.get(GROUPED_SEGMENTATION_OUT_STREAM_INDEX),
                 buffersArray,
-                !segmenterOptions.resultListener().isPresent())) {
+                copyMasks)) {
               throw new MediaPipeException(
                   MediaPipeException.StatusCode.INTERNAL.ordinal(),
                   "There is an error getting segmented masks. It usually results from incorrect"
@@ -159,13 +169,16 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     segmenterOptions.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     segmenterOptions.errorListener().ifPresent(handler::setErrorListener);
+    segmenterOptions.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -174,9 +187,16 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
                 .setTaskRunningModeName(segmenterOptions.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(segmenterOptions)
                 .setEnableFlowLimiting(segmenterOptions.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(segmenterOptions.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(segmenterOptions.baseOptions().memoryBudget())
+                .setStatsExporter(segmenterOptions.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(segmenterOptions.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
     return new ImageSegmenter(
@@ -192,7 +212,12 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
    */
   private ImageSegmenter(
       TaskRunner taskRunner, RunningMode runningMode, boolean hasResultListener) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+    super(
+        taskRunner,
+        runningMode,
+        IMAGE_IN_STREAM_NAME,
+        NORM_RECT_IN_STREAM_NAME,
+        /* outputHandler= */ null);
     this.hasResultListener = hasResultListener;
     populateLabels();
   }
@@ -566,6 +591,12 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}}. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract ImageSegmenterOptions autoBuild();
 
       /**
@@ -600,6 +631,8 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     /** The output type of segmentation results. */
     public enum OutputType {
       // Gives a single output mask where each pixel represents the class which
@@ -613,6 +646,7 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
     public static Builder builder() {
       return new AutoValue_ImageSegmenter_ImageSegmenterOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setDisplayNamesLocale("en")
           .setOutputType(OutputType.CATEGORY_MASK);
     }
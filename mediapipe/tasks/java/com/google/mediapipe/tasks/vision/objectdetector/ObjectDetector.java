@@ -18,10 +18,8 @@ import android.content.Context;
 import android.os.ParcelFileDescriptor;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
-import com.google.mediapipe.framework.AndroidPacketGetter;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
-import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
@@ -33,6 +31,8 @@ import com.google.mediapipe.tasks.core.TaskRunner;
 import com.google.mediapipe.tasks.core.proto.BaseOptionsProto;
 import com.google.mediapipe.tasks.vision.core.BaseVisionTaskApi;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageConverter;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.objectdetector.proto.ObjectDetectorOptionsProto;
 import com.google.mediapipe.formats.proto.DetectionProto.Detection;
@@ -43,6 +43,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Performs object detection on images.
@@ -94,7 +95,7 @@ import java.util.Optional;
  * href="https://tfhub.dev/google/lite-model/object_detection/mobile_object_localizer_v1/1/metadata/1">TensorFlow
  * Hub.</a>.
  */
-public final class ObjectDetector extends BaseVisionTaskApi {
+public final class ObjectDetector extends BaseVisionTaskApi<ObjectDetectionResult> {
   private static final String TAG = ObjectDetector.class.getSimpleName();
   private static final String IMAGE_IN_STREAM_NAME = "image_in";
   private static final String NORM_RECT_IN_STREAM_NAME = "norm_rect_in";
@@ -165,6 +166,12 @@ public final class ObjectDetector extends BaseVisionTaskApi {
   public static ObjectDetector createFromOptions(
       Context context, ObjectDetectorOptions detectorOptions) {
     // TODO: Consolidate OutputHandler and TaskRunner.
+    InputImageConverter inputImageConverter =
+        new InputImageConverter(
+            detectorOptions.runningMode() == RunningMode.LIVE_STREAM
+                ? detectorOptions.inputImageMode()
+                : InputImageMode.NONE);
+    boolean outputsInputImage = inputImageConverter.outputsInputImage();
     OutputHandler<ObjectDetectionResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<ObjectDetectionResult, MPImage>() {
@@ -179,13 +186,16 @@ public final class ObjectDetector extends BaseVisionTaskApi {
 
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
-            return new BitmapImageBuilder(
-                    AndroidPacketGetter.getBitmapFromRgb(packets.get(IMAGE_OUT_STREAM_INDEX)))
-                .build();
+            if (!outputsInputImage) {
+              return null;
+            }
+            return inputImageConverter.convert(packets.get(IMAGE_OUT_STREAM_INDEX));
           }
         });
     detectorOptions.resultListener().ifPresent(handler::setResultListener);
+    handler.setTaskInputReleaser(inputImageConverter);
     detectorOptions.errorListener().ifPresent(handler::setErrorListener);
+    detectorOptions.baseOptions().resultDispatcher().ifPresent(handler::setResultDispatcher);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -194,12 +204,19 @@ public final class ObjectDetector extends BaseVisionTaskApi {
                 .setTaskRunningModeName(detectorOptions.runningMode().name())
                 .setTaskGraphName(TASK_GRAPH_NAME)
                 .setInputStreams(INPUT_STREAMS)
-                .setOutputStreams(OUTPUT_STREAMS)
+                .setOutputStreams(
+                    outputsInputImage
+                        ? OUTPUT_STREAMS
+                        : OUTPUT_STREAMS.subList(0, IMAGE_OUT_STREAM_INDEX))
                 .setTaskOptions(detectorOptions)
                 .setEnableFlowLimiting(detectorOptions.runningMode() == RunningMode.LIVE_STREAM)
+                .setFlowLimiterOptions(detectorOptions.baseOptions().flowLimiterOptions())
+                .setMemoryBudget(detectorOptions.baseOptions().memoryBudget())
+                .setStatsExporter(detectorOptions.baseOptions().statsExporter())
+                .setStatsReportIntervalMs(detectorOptions.baseOptions().statsReportIntervalMs())
                 .build(),
             handler);
-    return new ObjectDetector(runner, detectorOptions.runningMode());
+    return new ObjectDetector(runner, detectorOptions.runningMode(), handler);
   }
 
   /**
@@ -208,9 +225,13 @@ public final class ObjectDetector extends BaseVisionTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe vision task {@link RunningMode}.
+   * @param outputHandler the {@link OutputHandler} of the task results.
    */
-  private ObjectDetector(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
+  private ObjectDetector(
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      OutputHandler<ObjectDetectionResult, MPImage> outputHandler) {
+    super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME, outputHandler);
   }
 
   /**
@@ -256,6 +277,46 @@ public final class ObjectDetector extends BaseVisionTaskApi {
     return (ObjectDetectionResult) processImageData(image, imageProcessingOptions);
   }
 
+  /**
+   * Sends the provided single image to perform object detection in a pipelined fashion, with
+   * default image processing options, i.e. without any rotation applied. Only use this method when
+   * the {@link ObjectDetector} is created with {@link RunningMode.IMAGE}.
+   *
+   * <p>Unlike {@link #detect(MPImage)}, this method doesn't wait for the result, so that many
+   * images can be in the graph at once. Call {@link #flushPipelinedResults()} to wait for all the
+   * in-flight images.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @throws MediaPipeException if there is an internal error.
+   */
+  public CompletableFuture<ObjectDetectionResult> detectPipelined(MPImage image) {
+    return detectPipelined(image, ImageProcessingOptions.builder().build());
+  }
+
+  /**
+   * Sends the provided single image to perform object detection in a pipelined fashion. Only use
+   * this method when the {@link ObjectDetector} is created with {@link RunningMode.IMAGE}.
+   *
+   * <p>Unlike {@link #detect(MPImage, ImageProcessingOptions)}, this method doesn't wait for the
+   * result, so that many images can be in the graph at once. Call {@link #flushPipelinedResults()}
+   * to wait for all the in-flight images.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @param imageProcessingOptions the {@link ImageProcessingOptions} specifying how to process the
+   *     input image before running inference. Note that region-of-interest is <b>not</b> supported
+   *     by this task: specifying {@link ImageProcessingOptions#regionOfInterest()} will result in
+   *     this method throwing an IllegalArgumentException.
+   * @throws IllegalArgumentException if the {@link ImageProcessingOptions} specify a
+   *     region-of-interest.
+   * @throws MediaPipeException if there is an internal error.
+   */
+  public CompletableFuture<ObjectDetectionResult> detectPipelined(
+      MPImage image, ImageProcessingOptions imageProcessingOptions) {
+    validateImageProcessingOptions(imageProcessingOptions);
+    return processImageDataPipelined(image, imageProcessingOptions)
+        .thenApply(result -> (ObjectDetectionResult) result);
+  }
+
   /**
    * Performs object detection on the provided video frame with default image processing options,
    * i.e. without any rotation applied. Only use this method when the {@link ObjectDetector} is
@@ -432,6 +493,12 @@ public final class ObjectDetector extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}}. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets how the input image is passed to the result listener in the live stream mode, see
+       * {@link InputImageMode}. {@link InputImageMode#COPY} by default.
+       */
+      public abstract Builder setInputImageMode(InputImageMode value);
+
       abstract ObjectDetectorOptions autoBuild();
 
       /**
@@ -476,9 +543,12 @@ public final class ObjectDetector extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract InputImageMode inputImageMode();
+
     public static Builder builder() {
       return new AutoValue_ObjectDetector_ObjectDetectorOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setInputImageMode(InputImageMode.COPY)
           .setCategoryAllowlist(Collections.emptyList())
           .setCategoryDenylist(Collections.emptyList());
     }
@@ -0,0 +1,106 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.containers;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.tasks.components.containers.AudioData.AudioDataFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link AudioData}. */
+@RunWith(AndroidJUnit4.class)
+public final class AudioDataTest {
+  private static final AudioDataFormat FORMAT =
+      AudioDataFormat.builder().setNumOfChannels(1).setSampleRate(16000).build();
+
+  @Test
+  public void getBuffer_returnsTheLatestSamplesInOrder() {
+    AudioData audioData = AudioData.create(FORMAT, /* sampleCounts= */ 4);
+    audioData.load(new float[] {0.1f, 0.2f, 0.3f});
+    audioData.load(new float[] {0.4f, 0.5f, 0.6f});
+
+    assertThat(audioData.getBuffer()).isEqualTo(new float[] {0.3f, 0.4f, 0.5f, 0.6f});
+  }
+
+  @Test
+  public void getBufferToArray_copiesToTheBeginningOfTheArray() {
+    AudioData audioData = AudioData.create(FORMAT, /* sampleCounts= */ 4);
+    audioData.load(new float[] {0.1f, 0.2f, 0.3f});
+    audioData.load(new float[] {0.4f, 0.5f, 0.6f});
+    float[] dst = new float[5];
+
+    audioData.getBuffer(dst);
+
+    assertThat(dst).isEqualTo(new float[] {0.3f, 0.4f, 0.5f, 0.6f, 0.0f});
+  }
+
+  @Test
+  public void getBufferToArray_failsWithTooSmallArray() {
+    AudioData audioData = AudioData.create(FORMAT, /* sampleCounts= */ 4);
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> audioData.getBuffer(new float[3]));
+    assertThat(exception).hasMessageThat().contains("should be >= the buffer size (4)");
+  }
+
+  @Test
+  public void getBufferToHeapBuffer_copiesAtThePositionAndAdvancesIt() {
+    AudioData audioData = AudioData.create(FORMAT, /* sampleCounts= */ 4);
+    audioData.load(new float[] {0.1f, 0.2f, 0.3f});
+    audioData.load(new float[] {0.4f, 0.5f, 0.6f});
+    FloatBuffer dst = FloatBuffer.allocate(6);
+    dst.position(1);
+
+    audioData.getBuffer(dst);
+
+    assertThat(dst.position()).isEqualTo(5);
+    assertThat(dst.array()).isEqualTo(new float[] {0.0f, 0.3f, 0.4f, 0.5f, 0.6f, 0.0f});
+  }
+
+  @Test
+  public void getBufferToDirectBuffer_copiesAtThePositionAndAdvancesIt() {
+    AudioData audioData = AudioData.create(FORMAT, /* sampleCounts= */ 4);
+    audioData.load(new float[] {0.1f, 0.2f, 0.3f, 0.4f});
+    FloatBuffer dst =
+        ByteBuffer.allocateDirect(5 * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    dst.position(1);
+
+    audioData.getBuffer(dst);
+
+    assertThat(dst.position()).isEqualTo(5);
+    float[] actual = new float[4];
+    dst.position(1);
+    dst.get(actual);
+    assertThat(actual).isEqualTo(new float[] {0.1f, 0.2f, 0.3f, 0.4f});
+  }
+
+  @Test
+  public void getBufferToBuffer_failsWithTooSmallRemainingSize() {
+    AudioData audioData = AudioData.create(FORMAT, /* sampleCounts= */ 4);
+    FloatBuffer dst = FloatBuffer.allocate(5);
+    dst.position(2);
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> audioData.getBuffer(dst));
+    assertThat(exception).hasMessageThat().contains("should be >= the buffer size (4)");
+    assertThat(dst.position()).isEqualTo(2);
+  }
+}
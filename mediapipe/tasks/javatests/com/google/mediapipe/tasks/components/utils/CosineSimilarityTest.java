@@ -19,7 +19,12 @@ import static org.junit.Assert.assertThrows;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.CosineSimilarity.Match;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -113,4 +118,80 @@ public final class CosineSimilarityTest {
 
     assertThat(CosineSimilarity.compute(u, v)).isEqualTo(-1.0);
   }
+
+  @Test
+  public void topK_succeedsWithFloatMatrix() {
+    Embedding query =
+        Embedding.create(
+            new float[] {1.0f, 0.0f},
+            new byte[0],
+            /*headIndex=*/ 0,
+            /*headName=*/ Optional.empty());
+    float[] matrix = {0.0f, 1.0f, 1.0f, 1.0f, 0.0f, 0.0f, 2.0f, 0.0f, -1.0f, 0.0f};
+
+    List<Match> matches = CosineSimilarity.topK(query, matrix, /*dimension=*/ 2, /*k=*/ 2);
+
+    assertThat(matches).hasSize(2);
+    assertThat(matches.get(0).index()).isEqualTo(3);
+    assertThat(matches.get(0).score()).isEqualTo(1.0);
+    assertThat(matches.get(1).index()).isEqualTo(1);
+    assertThat(matches.get(1).score()).isWithin(1e-6).of(Math.sqrt(0.5));
+  }
+
+  @Test
+  public void topK_succeedsWithQuantizedBuffer() {
+    Embedding query =
+        Embedding.create(
+            new float[0], new byte[] {127, 0}, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+    ByteBuffer matrix = ByteBuffer.allocateDirect(6);
+    matrix.put(new byte[] {-128, 0, 0, 127, 64, 0});
+
+    List<Match> matches = CosineSimilarity.topK(query, matrix, /*dimension=*/ 2, /*k=*/ 3);
+
+    assertThat(matches).hasSize(3);
+    assertThat(matches.get(0).index()).isEqualTo(2);
+    assertThat(matches.get(0).score()).isEqualTo(1.0);
+    assertThat(matches.get(1).index()).isEqualTo(1);
+    assertThat(matches.get(2).index()).isEqualTo(0);
+    assertThat(matches.get(2).score()).isEqualTo(-1.0);
+  }
+
+  @Test
+  public void topK_parallelMatchesSequential() throws Exception {
+    int dimension = 8;
+    int numRows = 1000;
+    float[] matrix = new float[dimension * numRows];
+    for (int i = 0; i < matrix.length; i++) {
+      matrix[i] = (float) Math.sin(i * 0.37);
+    }
+    Embedding query =
+        Embedding.create(
+            new float[] {1.0f, 0.5f, -0.5f, 0.25f, 0.0f, -1.0f, 0.75f, 0.1f},
+            new byte[0],
+            /*headIndex=*/ 0,
+            /*headName=*/ Optional.empty());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      assertThat(CosineSimilarity.topK(query, matrix, dimension, /*k=*/ 10, executor, 4))
+          .isEqualTo(CosineSimilarity.topK(query, matrix, dimension, /*k=*/ 10));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void topK_failsWithInvalidMatrixSize() {
+    Embedding query =
+        Embedding.create(
+            new float[] {1.0f, 0.0f},
+            new byte[0],
+            /*headIndex=*/ 0,
+            /*headName=*/ Optional.empty());
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> CosineSimilarity.topK(query, new float[3], /*dimension=*/ 2, /*k=*/ 1));
+    assertThat(exception).hasMessageThat().contains("should be a multiple of the embedding size");
+  }
 }
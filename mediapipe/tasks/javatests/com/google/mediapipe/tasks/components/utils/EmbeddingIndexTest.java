@@ -0,0 +1,279 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.containers.EmbeddingResult;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link EmbeddingIndex}. */
+@RunWith(AndroidJUnit4.class)
+public final class EmbeddingIndexTest {
+  private static final int DIMENSION = 16;
+  private static final int NUM_EMBEDDINGS = 500;
+  // The offset of the node count in the header of a saved index.
+  private static final int NODE_COUNT_OFFSET = 40;
+
+  @Test
+  public void search_succeedsWithFloatEmbeddings() {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ false);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, embeddings[i]);
+    }
+
+    assertThat(index.size()).isEqualTo(NUM_EMBEDDINGS);
+    for (int i = 0; i < embeddings.length; i += 50) {
+      List<Neighbor> neighbors = index.search(embeddings[i], /* k= */ 5);
+      assertThat(neighbors).hasSize(5);
+      assertThat(neighbors.get(0).id()).isEqualTo(i);
+      assertThat(neighbors.get(0).score()).isWithin(1e-5).of(1.0);
+      assertThat(neighbors.get(1).score()).isAtMost(neighbors.get(0).score());
+    }
+  }
+
+  @Test
+  public void search_succeedsWithQuantizedEmbeddingResult() {
+    EmbeddingIndex index = createIndex(/* quantized= */ true);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ true);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, EmbeddingResult.create(Arrays.asList(embeddings[i]), Optional.empty()));
+    }
+
+    List<Neighbor> neighbors =
+        index.search(
+            EmbeddingResult.create(Arrays.asList(embeddings[42]), Optional.empty()), /* k= */ 1);
+    assertThat(neighbors).hasSize(1);
+    assertThat(neighbors.get(0).id()).isEqualTo(42);
+  }
+
+  @Test
+  public void remove_excludesEmbeddingFromResults() {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ false);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, embeddings[i]);
+    }
+
+    assertThat(index.remove(7)).isTrue();
+    assertThat(index.remove(7)).isFalse();
+    assertThat(index.size()).isEqualTo(NUM_EMBEDDINGS - 1);
+    for (Neighbor neighbor : index.search(embeddings[7], /* k= */ 10)) {
+      assertThat(neighbor.id()).isNotEqualTo(7);
+    }
+  }
+
+  @Test
+  public void search_widensTheCandidatesPastTheRemovedEmbeddings() {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ false);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, embeddings[i]);
+    }
+    // Removes the nearest neighbors of the query, but fewer embeddings than are left in the index.
+    List<Neighbor> nearest = index.search(embeddings[0], /* k= */ 200, /* efSearch= */ 400);
+    for (Neighbor neighbor : nearest) {
+      index.remove(neighbor.id());
+    }
+
+    List<Neighbor> neighbors = index.search(embeddings[0], /* k= */ 20, /* efSearch= */ 20);
+
+    assertThat(neighbors).hasSize(20);
+    for (Neighbor neighbor : neighbors) {
+      assertThat(index.contains(neighbor.id())).isTrue();
+    }
+  }
+
+  @Test
+  public void compact_dropsTheRemovedEmbeddings() throws Exception {
+    EmbeddingIndex index = createIndex(/* quantized= */ true);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ true);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, embeddings[i]);
+    }
+    for (int i = 0; i < embeddings.length; i += 5) {
+      index.remove(i);
+    }
+    File file = new File(ApplicationProvider.getApplicationContext().getCacheDir(), "index.bin");
+    index.save(file);
+    long fileSizeBeforeCompaction = file.length();
+
+    index.compact();
+    index.save(file);
+
+    assertThat(file.length()).isLessThan(fileSizeBeforeCompaction);
+    assertThat(index.size()).isEqualTo(NUM_EMBEDDINGS - NUM_EMBEDDINGS / 5);
+    assertThat(index.contains(5)).isFalse();
+    assertThat(index.search(embeddings[6], /* k= */ 1).get(0).id()).isEqualTo(6L);
+    file.delete();
+  }
+
+  @Test
+  public void remove_rebuildsTheGraphOnceMostEmbeddingsAreRemoved() throws Exception {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ false);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, embeddings[i]);
+    }
+    File file = new File(ApplicationProvider.getApplicationContext().getCacheDir(), "index.bin");
+    index.save(file);
+    long fileSizeBeforeRemovals = file.length();
+
+    for (int i = 0; i < NUM_EMBEDDINGS / 2 + 1; i++) {
+      index.remove(i);
+    }
+    index.save(file);
+
+    assertThat(file.length()).isLessThan(fileSizeBeforeRemovals * 3 / 4);
+    assertThat(index.size()).isEqualTo(NUM_EMBEDDINGS / 2 - 1);
+    for (int i = NUM_EMBEDDINGS / 2 + 1; i < NUM_EMBEDDINGS; i += 25) {
+      assertThat(index.search(embeddings[i], /* k= */ 1).get(0).id()).isEqualTo((long) i);
+    }
+    file.delete();
+  }
+
+  @Test
+  public void load_succeedsWithSavedIndex() throws Exception {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ false);
+    for (int i = 0; i < embeddings.length; i++) {
+      index.add(i, embeddings[i]);
+    }
+    index.remove(3);
+    File file = new File(ApplicationProvider.getApplicationContext().getCacheDir(), "index.bin");
+
+    index.save(file);
+    EmbeddingIndex loadedIndex = EmbeddingIndex.load(file);
+
+    assertThat(loadedIndex.size()).isEqualTo(index.size());
+    assertThat(loadedIndex.contains(3)).isFalse();
+    assertThat(loadedIndex.search(embeddings[10], /* k= */ 5))
+        .isEqualTo(index.search(embeddings[10], /* k= */ 5));
+    // Adding to a loaded index moves the embeddings out of the mapped file.
+    loadedIndex.add(NUM_EMBEDDINGS, embeddings[10]);
+    assertThat(loadedIndex.size()).isEqualTo(NUM_EMBEDDINGS);
+    file.delete();
+  }
+
+  @Test
+  public void load_failsWithTruncatedFile() throws Exception {
+    File file = saveIndex();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(randomAccessFile.length() - Integer.BYTES);
+    }
+
+    IOException exception = assertThrows(IOException.class, () -> EmbeddingIndex.load(file));
+    assertThat(exception).hasMessageThat().contains("truncated");
+    file.delete();
+  }
+
+  @Test
+  public void load_failsWithNodeCountLargerThanTheFile() throws Exception {
+    File file = saveIndex();
+    writeInt(file, NODE_COUNT_OFFSET, Integer.MAX_VALUE);
+
+    IOException exception = assertThrows(IOException.class, () -> EmbeddingIndex.load(file));
+    assertThat(exception).hasMessageThat().contains("truncated");
+    file.delete();
+  }
+
+  @Test
+  public void load_failsWithNegativeNodeCount() throws Exception {
+    File file = saveIndex();
+    writeInt(file, NODE_COUNT_OFFSET, -1);
+
+    IOException exception = assertThrows(IOException.class, () -> EmbeddingIndex.load(file));
+    assertThat(exception).hasMessageThat().contains("node count -1");
+    file.delete();
+  }
+
+  @Test
+  public void add_failsWithDifferentSizes() {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding embedding =
+        Embedding.create(
+            new float[] {1.0f, 2.0f},
+            new byte[0],
+            /* headIndex= */ 0,
+            /* headName= */ Optional.empty());
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> index.add(0, embedding));
+    assertThat(exception)
+        .hasMessageThat()
+        .contains("Cannot compute cosine similarity between embeddings of different sizes");
+  }
+
+  private static File saveIndex() throws IOException {
+    EmbeddingIndex index = createIndex(/* quantized= */ false);
+    Embedding[] embeddings = createEmbeddings(/* quantized= */ false);
+    for (int i = 0; i < 10; i++) {
+      index.add(i, embeddings[i]);
+    }
+    File file = new File(ApplicationProvider.getApplicationContext().getCacheDir(), "index.bin");
+    index.save(file);
+    return file;
+  }
+
+  private static void writeInt(File file, long offset, int value) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(value);
+      randomAccessFile.seek(offset);
+      randomAccessFile.write(buffer.array());
+    }
+  }
+
+  private static EmbeddingIndex createIndex(boolean quantized) {
+    return EmbeddingIndex.create(
+        EmbeddingIndex.Options.builder().setDimension(DIMENSION).setQuantized(quantized).build());
+  }
+
+  private static Embedding[] createEmbeddings(boolean quantized) {
+    Random random = new Random(0);
+    Embedding[] embeddings = new Embedding[NUM_EMBEDDINGS];
+    for (int i = 0; i < NUM_EMBEDDINGS; i++) {
+      float[] floatEmbedding = new float[quantized ? 0 : DIMENSION];
+      byte[] quantizedEmbedding = new byte[quantized ? DIMENSION : 0];
+      for (int j = 0; j < DIMENSION; j++) {
+        if (quantized) {
+          quantizedEmbedding[j] = (byte) (random.nextInt(255) - 127);
+        } else {
+          floatEmbedding[j] = (float) random.nextGaussian();
+        }
+      }
+      embeddings[i] =
+          Embedding.create(
+              floatEmbedding, quantizedEmbedding, /* headIndex= */ 0, Optional.empty());
+    }
+    return embeddings;
+  }
+}
@@ -0,0 +1,250 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link FlowController}. */
+@RunWith(AndroidJUnit4.class)
+public final class FlowControllerTest {
+  private static final long NANOSECONDS_PER_MILLISECOND = 1000000;
+  private static final long MICROSECONDS_PER_MILLISECOND = 1000;
+  private static final long TARGET_LATENCY_MS = 10;
+
+  private long nowNanos = 0;
+  private long nextTimestampUs = 0;
+
+  @Test
+  public void onOutput_increasesTheDepthWhileTheLatencyIsUnderTheTarget() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 2, /* maxDepth= */ 4);
+
+    finishLatencyWindow(controller, TARGET_LATENCY_MS / 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(3);
+    finishLatencyWindow(controller, TARGET_LATENCY_MS);
+    assertThat(controller.getInFlightDepth()).isEqualTo(4);
+    finishLatencyWindow(controller, TARGET_LATENCY_MS / 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(4);
+  }
+
+  @Test
+  public void onOutput_halvesTheDepthWhenTheLatencyExceedsTheTarget() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 4, /* maxDepth= */ 4);
+
+    finishLatencyWindow(controller, TARGET_LATENCY_MS * 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(2);
+    finishLatencyWindow(controller, TARGET_LATENCY_MS * 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(1);
+    finishLatencyWindow(controller, TARGET_LATENCY_MS * 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(1);
+  }
+
+  @Test
+  public void onOutput_adaptsTheDepthToThePercentileLatency() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 4, /* maxDepth= */ 4);
+
+    // A single slow frame in the window stays under the 95th percentile.
+    for (int i = 0; i < FlowController.LATENCY_WINDOW_SIZE - 1; ++i) {
+      finishFrame(controller, TARGET_LATENCY_MS / 2);
+    }
+    finishFrame(controller, TARGET_LATENCY_MS * 10);
+    assertThat(controller.getInFlightDepth()).isEqualTo(4);
+
+    // Two slow frames reach it.
+    for (int i = 0; i < FlowController.LATENCY_WINDOW_SIZE - 2; ++i) {
+      finishFrame(controller, TARGET_LATENCY_MS / 2);
+    }
+    finishFrame(controller, TARGET_LATENCY_MS * 10);
+    finishFrame(controller, TARGET_LATENCY_MS * 10);
+    assertThat(controller.getInFlightDepth()).isEqualTo(2);
+  }
+
+  @Test
+  public void onOutput_releasesTheEarlierFramesWithoutMeasuringThem() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 2, /* maxDepth= */ 4);
+    assertThat(controller.admit(1000)).isTrue();
+    assertThat(controller.admit(2000)).isTrue();
+
+    controller.onOutput(2000);
+
+    assertThat(controller.admit(3000)).isTrue();
+    assertThat(controller.admit(4000)).isTrue();
+    assertThat(controller.getDroppedFrameCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void onFrameDropped_countsAndForgetsTheFrame() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 1, /* maxDepth= */ 4);
+    List<Long> droppedTimestampsMs = new ArrayList<>();
+    List<DroppedFrameListener.Reason> reasons = new ArrayList<>();
+    controller.setDroppedFrameListener(
+        (timestampMs, reason) -> {
+          droppedTimestampsMs.add(timestampMs);
+          reasons.add(reason);
+        });
+    assertThat(controller.admit(5000)).isTrue();
+
+    controller.onFrameDropped(5000);
+
+    assertThat(controller.getDroppedFrameCount()).isEqualTo(1L);
+    assertThat(droppedTimestampsMs).containsExactly(5L);
+    assertThat(reasons).containsExactly(DroppedFrameListener.Reason.QUEUE_FULL);
+    // The dropped frame no longer counts against the depth.
+    assertThat(controller.admit(6000)).isTrue();
+  }
+
+  @Test
+  public void reset_forgetsTheFramesAndRestoresTheInitialDepth() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 2, /* maxDepth= */ 4);
+    finishLatencyWindow(controller, TARGET_LATENCY_MS / 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(3);
+    for (int i = 0; i < FlowController.LATENCY_WINDOW_SIZE - 1; ++i) {
+      finishFrame(controller, TARGET_LATENCY_MS / 2);
+    }
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+
+    controller.reset();
+
+    assertThat(controller.getInFlightDepth()).isEqualTo(2);
+    // The partial window before the reset is discarded, so a single frame doesn't adapt the depth.
+    finishFrame(controller, TARGET_LATENCY_MS / 2);
+    assertThat(controller.getInFlightDepth()).isEqualTo(2);
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+  }
+
+  @Test
+  public void tryAccept_countsTheQueuedFramesWithoutTargetLatency() {
+    FlowController controller =
+        new FlowController(
+            FlowLimiterOptions.builder().setMaxInFlight(1).setMaxInQueue(1).build(),
+            () -> nowNanos);
+
+    assertThat(controller.tryAccept()).isTrue();
+    assertThat(controller.admit(1000)).isTrue();
+    assertThat(controller.tryAccept()).isTrue();
+    assertThat(controller.admit(2000)).isTrue();
+    assertThat(controller.tryAccept()).isFalse();
+    // The graph flow limiter drops the frames without a target latency, not the controller.
+    assertThat(controller.admit(3000)).isTrue();
+    assertThat(controller.getDroppedFrameCount()).isEqualTo(0L);
+
+    controller.onOutput(3000);
+    assertThat(controller.tryAccept()).isTrue();
+  }
+
+  @Test
+  public void tryAccept_followsTheAdaptiveDepth() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 2, /* maxDepth= */ 4);
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.tryAccept()).isFalse();
+    controller.reset();
+
+    finishLatencyWindow(controller, TARGET_LATENCY_MS / 2);
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+
+    assertThat(controller.tryAccept()).isTrue();
+    assertThat(controller.admit(nextTimestampUs++)).isTrue();
+    assertThat(controller.tryAccept()).isFalse();
+  }
+
+  @Test
+  public void admit_reportsTheFramesBeyondTheDepthToTheListener() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 1, /* maxDepth= */ 4);
+    List<Long> droppedTimestampsMs = new ArrayList<>();
+    List<DroppedFrameListener.Reason> reasons = new ArrayList<>();
+    controller.setDroppedFrameListener(
+        (timestampMs, reason) -> {
+          droppedTimestampsMs.add(timestampMs);
+          reasons.add(reason);
+        });
+    assertThat(controller.admit(1000)).isTrue();
+
+    assertThat(controller.admit(2000)).isFalse();
+    assertThat(controller.admit(3000)).isFalse();
+
+    assertThat(controller.getDroppedFrameCount()).isEqualTo(2L);
+    assertThat(droppedTimestampsMs).containsExactly(2L, 3L).inOrder();
+    assertThat(reasons)
+        .containsExactly(
+            DroppedFrameListener.Reason.IN_FLIGHT_LIMIT,
+            DroppedFrameListener.Reason.IN_FLIGHT_LIMIT);
+  }
+
+  @Test
+  public void setDroppedFrameListener_removesTheListenerWithNull() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 1, /* maxDepth= */ 4);
+    List<Long> droppedTimestampsMs = new ArrayList<>();
+    controller.setDroppedFrameListener(
+        (timestampMs, reason) -> droppedTimestampsMs.add(timestampMs));
+    assertThat(controller.admit(1000)).isTrue();
+
+    controller.setDroppedFrameListener(null);
+    assertThat(controller.admit(2000)).isFalse();
+    controller.onFrameDropped(1000);
+
+    assertThat(droppedTimestampsMs).isEmpty();
+    assertThat(controller.getDroppedFrameCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void cancel_forgetsTheFrameWithoutDroppingIt() {
+    FlowController controller = createAdaptiveController(/* initialDepth= */ 1, /* maxDepth= */ 4);
+    List<Long> droppedTimestampsMs = new ArrayList<>();
+    controller.setDroppedFrameListener(
+        (timestampMs, reason) -> droppedTimestampsMs.add(timestampMs));
+    assertThat(controller.admit(1000)).isTrue();
+    assertThat(controller.tryAccept()).isFalse();
+
+    controller.cancel(1000);
+
+    assertThat(controller.tryAccept()).isTrue();
+    assertThat(controller.getDroppedFrameCount()).isEqualTo(0L);
+    assertThat(droppedTimestampsMs).isEmpty();
+  }
+
+  private FlowController createAdaptiveController(int initialDepth, int maxDepth) {
+    return new FlowController(
+        FlowLimiterOptions.builder()
+            .setMaxInFlight(initialDepth)
+            .setMaxAdaptiveInFlight(maxDepth)
+            .setTargetLatencyMs(TARGET_LATENCY_MS)
+            .build(),
+        () -> nowNanos);
+  }
+
+  private void finishLatencyWindow(FlowController controller, long latencyMs) {
+    for (int i = 0; i < FlowController.LATENCY_WINDOW_SIZE; ++i) {
+      finishFrame(controller, latencyMs);
+    }
+  }
+
+  private void finishFrame(FlowController controller, long latencyMs) {
+    long timestampUs = nextTimestampUs;
+    nextTimestampUs += MICROSECONDS_PER_MILLISECOND;
+    assertThat(controller.admit(timestampUs)).isTrue();
+    nowNanos += latencyMs * NANOSECONDS_PER_MILLISECOND;
+    controller.onOutput(timestampUs);
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.Graph;
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketCreator;
+import com.google.mediapipe.framework.PacketGetter;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link InputPacketCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class InputPacketCacheTest {
+
+  static {
+    System.loadLibrary("mediapipe_tasks_text_jni");
+  }
+
+  private Graph graph;
+  private PacketCreator packetCreator;
+  // The template packets created by the cache, keyed by their value.
+  private final Map<Integer, Packet> templates = new HashMap<>();
+  private int createdTemplateCount = 0;
+
+  @Before
+  public void setUp() {
+    graph = new Graph();
+    packetCreator = new PacketCreator(graph);
+  }
+
+  @After
+  public void tearDown() {
+    graph.tearDown();
+  }
+
+  @Test
+  public void create_failsWithNonPositiveCapacity() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new InputPacketCache<Integer>(/* capacity= */ 0, this::createTemplate));
+  }
+
+  @Test
+  public void get_returnsCopiesOfASingleTemplate() {
+    try (InputPacketCache<Integer> cache =
+        new InputPacketCache<>(/* capacity= */ 2, this::createTemplate)) {
+      Packet packet0 = cache.get(42);
+      Packet packet1 = cache.get(42);
+
+      assertThat(createdTemplateCount).isEqualTo(1);
+      assertThat(packet0.getNativeHandle()).isNotEqualTo(templates.get(42).getNativeHandle());
+      assertThat(packet1.getNativeHandle()).isNotEqualTo(packet0.getNativeHandle());
+      assertThat(PacketGetter.getInt32(packet0)).isEqualTo(42);
+      assertThat(PacketGetter.getInt32(packet1)).isEqualTo(42);
+
+      // Releasing a copy keeps the template.
+      packet0.release();
+      packet1.release();
+      assertThat(templates.get(42).getNativeHandle()).isNotEqualTo(0L);
+      Packet packet2 = cache.get(42);
+      assertThat(PacketGetter.getInt32(packet2)).isEqualTo(42);
+      assertThat(createdTemplateCount).isEqualTo(1);
+      packet2.release();
+    }
+  }
+
+  @Test
+  public void get_evictsTheLeastRecentlyUsedTemplate() {
+    try (InputPacketCache<Integer> cache =
+        new InputPacketCache<>(/* capacity= */ 2, this::createTemplate)) {
+      cache.get(1).release();
+      cache.get(2).release();
+      cache.get(1).release();
+
+      cache.get(3).release();
+
+      assertThat(templates.get(2).getNativeHandle()).isEqualTo(0L);
+      assertThat(templates.get(1).getNativeHandle()).isNotEqualTo(0L);
+      assertThat(templates.get(3).getNativeHandle()).isNotEqualTo(0L);
+      assertThat(createdTemplateCount).isEqualTo(3);
+
+      Packet packet = cache.get(2);
+      assertThat(PacketGetter.getInt32(packet)).isEqualTo(2);
+      assertThat(createdTemplateCount).isEqualTo(4);
+      assertThat(templates.get(1).getNativeHandle()).isEqualTo(0L);
+      packet.release();
+    }
+  }
+
+  @Test
+  public void close_releasesTheTemplatesButNotTheCopies() {
+    InputPacketCache<Integer> cache =
+        new InputPacketCache<>(/* capacity= */ 2, this::createTemplate);
+    Packet packet = cache.get(7);
+
+    cache.close();
+
+    assertThat(templates.get(7).getNativeHandle()).isEqualTo(0L);
+    assertThat(PacketGetter.getInt32(packet)).isEqualTo(7);
+    packet.release();
+    // Closing again is a no-op.
+    cache.close();
+  }
+
+  @Test
+  public void get_failsAfterClose() {
+    InputPacketCache<Integer> cache =
+        new InputPacketCache<>(/* capacity= */ 2, this::createTemplate);
+    cache.close();
+
+    assertThrows(IllegalStateException.class, () -> cache.get(7));
+    assertThat(createdTemplateCount).isEqualTo(0);
+  }
+
+  private Packet createTemplate(Integer value) {
+    ++createdTemplateCount;
+    Packet template = packetCreator.createInt32(value);
+    templates.put(value, template);
+    return template;
+  }
+}
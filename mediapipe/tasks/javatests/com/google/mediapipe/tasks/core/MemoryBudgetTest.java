@@ -0,0 +1,123 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.MediaPipeException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link MemoryBudget}. */
+@RunWith(AndroidJUnit4.class)
+public final class MemoryBudgetTest {
+
+  @Test
+  public void create_failsWithNonPositiveMaxBytes() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MemoryBudget.create(/* maxBytes= */ 0, MemoryBudget.OverflowPolicy.BLOCK));
+  }
+
+  @Test
+  public void acquire_chargesTheInputsThatFit() {
+    MemoryBudget budget =
+        MemoryBudget.create(/* maxBytes= */ 100, MemoryBudget.OverflowPolicy.REJECT_NEWEST);
+
+    budget.acquire(40);
+    budget.acquire(60);
+
+    assertThat(budget.getInFlightBytes()).isEqualTo(100L);
+    budget.release(40);
+    assertThat(budget.getInFlightBytes()).isEqualTo(60L);
+  }
+
+  @Test
+  public void acquire_admitsAnOversizedInputWhenNothingIsInFlight() {
+    MemoryBudget budget =
+        MemoryBudget.create(/* maxBytes= */ 100, MemoryBudget.OverflowPolicy.REJECT_NEWEST);
+
+    budget.acquire(500);
+
+    assertThat(budget.getInFlightBytes()).isEqualTo(500L);
+    assertThat(budget.getRejectedInputCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void acquire_rejectsTheNewestInputThatDoesNotFit() {
+    MemoryBudget budget =
+        MemoryBudget.create(/* maxBytes= */ 100, MemoryBudget.OverflowPolicy.REJECT_NEWEST);
+    budget.acquire(60);
+
+    MediaPipeException exception = assertThrows(MediaPipeException.class, () -> budget.acquire(41));
+
+    assertThat(exception.getStatusCode())
+        .isEqualTo(MediaPipeException.StatusCode.RESOURCE_EXHAUSTED);
+    assertThat(budget.getInFlightBytes()).isEqualTo(60L);
+    assertThat(budget.getRejectedInputCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void acquire_blocksUntilEnoughBytesAreReleased() throws Exception {
+    MemoryBudget budget =
+        MemoryBudget.create(/* maxBytes= */ 100, MemoryBudget.OverflowPolicy.BLOCK);
+    budget.acquire(60);
+
+    Thread blockedThread = new Thread(() -> budget.acquire(50));
+    blockedThread.start();
+    waitUntilWaiting(blockedThread);
+    assertThat(budget.getInFlightBytes()).isEqualTo(60L);
+
+    budget.release(60);
+    blockedThread.join();
+    assertThat(budget.getInFlightBytes()).isEqualTo(50L);
+    assertThat(budget.getRejectedInputCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void acquire_failsWhenInterruptedWhileBlocked() throws Exception {
+    MemoryBudget budget =
+        MemoryBudget.create(/* maxBytes= */ 100, MemoryBudget.OverflowPolicy.BLOCK);
+    budget.acquire(60);
+    AtomicReference<MediaPipeException> thrown = new AtomicReference<>();
+
+    Thread blockedThread =
+        new Thread(
+            () -> {
+              try {
+                budget.acquire(50);
+              } catch (MediaPipeException e) {
+                thrown.set(e);
+              }
+            });
+    blockedThread.start();
+    waitUntilWaiting(blockedThread);
+    blockedThread.interrupt();
+    blockedThread.join();
+
+    assertThat(thrown.get()).isNotNull();
+    assertThat(thrown.get().getStatusCode()).isEqualTo(MediaPipeException.StatusCode.CANCELLED);
+    assertThat(budget.getInFlightBytes()).isEqualTo(60L);
+  }
+
+  private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+    while (thread.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link ModelResourcesCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class ModelResourcesCacheTest {
+
+  static {
+    System.loadLibrary("mediapipe_tasks_text_jni");
+  }
+
+  @Test
+  public void release_releasesTheNativeCacheWithTheLastReference() {
+    ModelResourcesCache cache = new ModelResourcesCache();
+    long nativeHandle = cache.getNativeHandle();
+    assertThat(nativeHandle).isNotEqualTo(0L);
+
+    assertThat(cache.retain()).isSameInstanceAs(cache);
+    cache.release();
+    assertThat(cache.isHandleValid()).isTrue();
+    assertThat(cache.getNativeHandle()).isEqualTo(nativeHandle);
+
+    cache.release();
+    assertThat(cache.isHandleValid()).isFalse();
+    assertThat(cache.getNativeHandle()).isEqualTo(0L);
+  }
+
+  @Test
+  public void release_isNoOpOnceTheCacheIsReleased() {
+    ModelResourcesCache cache = new ModelResourcesCache();
+    cache.release();
+
+    cache.release();
+
+    assertThat(cache.isHandleValid()).isFalse();
+  }
+
+  @Test
+  public void retain_failsOnceTheCacheIsReleased() {
+    ModelResourcesCache cache = new ModelResourcesCache();
+    cache.release();
+
+    assertThrows(IllegalStateException.class, cache::retain);
+  }
+
+  @Test
+  public void retain_keepsTheCacheAliveAcrossThreads() throws Exception {
+    ModelResourcesCache cache = new ModelResourcesCache();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 1000; ++j) {
+                  cache.retain();
+                  cache.release();
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(cache.isHandleValid()).isTrue();
+    cache.release();
+    assertThat(cache.isHandleValid()).isFalse();
+  }
+}
@@ -0,0 +1,206 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
+
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link ResultPublisher}. */
+@RunWith(AndroidJUnit4.class)
+public final class ResultPublisherTest {
+
+  /** A {@link TaskResult} with a timestamp only. */
+  private static final class FakeResult implements TaskResult {
+    private final long timestampMs;
+
+    FakeResult(long timestampMs) {
+      this.timestampMs = timestampMs;
+    }
+
+    @Override
+    public long timestampMs() {
+      return timestampMs;
+    }
+  }
+
+  /** A {@link Flow.Subscriber} that records the signals it receives. */
+  private static final class RecordingSubscriber implements Flow.Subscriber<FakeResult> {
+    final List<Long> timestampsMs = new ArrayList<>();
+    Flow.Subscription subscription;
+    Throwable error;
+    boolean completed = false;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(FakeResult result) {
+      timestampsMs.add(result.timestampMs());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  @Before
+  public void setUp() {
+    assumeTrue(VERSION.SDK_INT >= VERSION_CODES.R);
+  }
+
+  @Test
+  public void subscribe_failsWithNullSubscriber() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+
+    assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+  }
+
+  @Test
+  public void publish_deliversTheResultsAsTheyAreRequested() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(2);
+
+    publisher.publish(new FakeResult(1));
+    publisher.publish(new FakeResult(2));
+
+    assertThat(subscriber.timestampsMs).containsExactly(1L, 2L).inOrder();
+    assertThat(publisher.getCoalescedResultCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void publish_keepsOnlyTheLatestUnrequestedResult() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+
+    publisher.publish(new FakeResult(1));
+    publisher.publish(new FakeResult(2));
+    publisher.publish(new FakeResult(3));
+    assertThat(subscriber.timestampsMs).isEmpty();
+    subscriber.subscription.request(1);
+
+    assertThat(subscriber.timestampsMs).containsExactly(3L);
+    assertThat(publisher.getCoalescedResultCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void publish_deliversToEachSubscriberOnItsOwnDemand() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber eagerSubscriber = new RecordingSubscriber();
+    RecordingSubscriber lazySubscriber = new RecordingSubscriber();
+    publisher.subscribe(eagerSubscriber);
+    publisher.subscribe(lazySubscriber);
+    eagerSubscriber.subscription.request(Long.MAX_VALUE);
+
+    publisher.publish(new FakeResult(1));
+    publisher.publish(new FakeResult(2));
+
+    assertThat(eagerSubscriber.timestampsMs).containsExactly(1L, 2L).inOrder();
+    assertThat(lazySubscriber.timestampsMs).isEmpty();
+    assertThat(publisher.getCoalescedResultCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void request_signalsAnErrorForNonPositiveDemand() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(0);
+    publisher.publish(new FakeResult(1));
+    subscriber.subscription.request(1);
+
+    assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+    assertThat(subscriber.timestampsMs).isEmpty();
+  }
+
+  @Test
+  public void cancel_stopsTheDelivery() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    publisher.publish(new FakeResult(1));
+
+    subscriber.subscription.cancel();
+    publisher.publish(new FakeResult(2));
+    publisher.complete();
+
+    assertThat(subscriber.timestampsMs).containsExactly(1L);
+    assertThat(subscriber.completed).isFalse();
+  }
+
+  @Test
+  public void complete_completesTheSubscribers() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    publisher.publish(new FakeResult(1));
+
+    publisher.complete();
+    publisher.publish(new FakeResult(2));
+
+    assertThat(subscriber.timestampsMs).containsExactly(1L);
+    assertThat(subscriber.completed).isTrue();
+    assertThat(subscriber.error).isNull();
+  }
+
+  @Test
+  public void complete_dropsTheUnrequestedResult() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    publisher.publish(new FakeResult(1));
+
+    publisher.complete();
+
+    assertThat(subscriber.timestampsMs).isEmpty();
+    assertThat(subscriber.completed).isTrue();
+  }
+
+  @Test
+  public void subscribe_completesTheSubscribersOfACompletedPublisher() {
+    ResultPublisher<FakeResult> publisher = new ResultPublisher<>();
+    publisher.complete();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    publisher.subscribe(subscriber);
+
+    assertThat(subscriber.subscription).isNotNull();
+    assertThat(subscriber.completed).isTrue();
+  }
+}
@@ -0,0 +1,121 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TaskResultCache}. */
+@RunWith(AndroidJUnit4.class)
+public final class TaskResultCacheTest {
+  private static final String FINGERPRINT = "fingerprint";
+
+  /** A {@link TaskResult} with a timestamp only. */
+  private static final class FakeResult implements TaskResult {
+    private final long timestampMs;
+
+    FakeResult(long timestampMs) {
+      this.timestampMs = timestampMs;
+    }
+
+    @Override
+    public long timestampMs() {
+      return timestampMs;
+    }
+  }
+
+  /** {@link TaskOptions} that don't depend on the model. */
+  private static final class FakeOptions extends TaskOptions {
+    @Override
+    public CalculatorOptions convertToCalculatorOptionsProto() {
+      return CalculatorOptions.getDefaultInstance();
+    }
+  }
+
+  @Test
+  public void get_returnsThePutResult() {
+    TaskResultCache<FakeResult> cache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().build());
+    FakeResult result = new FakeResult(1);
+
+    assertThat(cache.get(FINGERPRINT, "input")).isNull();
+    cache.put(FINGERPRINT, "input", result, /* resultWeightBytes= */ 8);
+
+    assertThat(cache.get(FINGERPRINT, "input")).isSameInstanceAs(result);
+    assertThat(cache.get("otherFingerprint", "input")).isNull();
+    assertThat(cache.hitCount()).isEqualTo(1L);
+    assertThat(cache.missCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void put_ignoresNullResults() {
+    TaskResultCache<FakeResult> cache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().build());
+
+    cache.put(FINGERPRINT, "input", /* result= */ null, /* resultWeightBytes= */ 0);
+
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.weightBytes()).isEqualTo(0L);
+  }
+
+  @Test
+  public void put_evictsTheLeastRecentlyUsedResult() {
+    TaskResultCache<FakeResult> cache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().setMaxEntries(2).build());
+    cache.put(FINGERPRINT, "a", new FakeResult(1), /* resultWeightBytes= */ 8);
+    cache.put(FINGERPRINT, "b", new FakeResult(2), /* resultWeightBytes= */ 8);
+    cache.get(FINGERPRINT, "a");
+
+    cache.put(FINGERPRINT, "c", new FakeResult(3), /* resultWeightBytes= */ 8);
+
+    assertThat(cache.get(FINGERPRINT, "a")).isNotNull();
+    assertThat(cache.get(FINGERPRINT, "b")).isNull();
+    assertThat(cache.get(FINGERPRINT, "c")).isNotNull();
+    assertThat(cache.evictionCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void put_ignoresResultsLargerThanTheCache() {
+    TaskResultCache<FakeResult> cache =
+        TaskResultCache.create(
+            TaskResultCache.CacheOptions.builder().setMaxWeightBytes(1024).build());
+
+    cache.put(FINGERPRINT, "input", new FakeResult(1), /* resultWeightBytes= */ 2048);
+
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.evictionCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void fingerprint_dependsOnTheModelBufferContent() {
+    ByteBuffer model = ByteBuffer.allocateDirect(4);
+    model.put(new byte[] {1, 2, 3, 4});
+    BaseOptions baseOptions = BaseOptions.builder().setModelAssetBuffer(model).build();
+
+    String fingerprint = TaskResultCache.fingerprint("graph", new FakeOptions(), baseOptions);
+    assertThat(model.position()).isEqualTo(4);
+    assertThat(TaskResultCache.fingerprint("graph", new FakeOptions(), baseOptions))
+        .isEqualTo(fingerprint);
+
+    model.put(0, (byte) 5);
+    assertThat(TaskResultCache.fingerprint("graph", new FakeOptions(), baseOptions))
+        .isNotEqualTo(fingerprint);
+  }
+}
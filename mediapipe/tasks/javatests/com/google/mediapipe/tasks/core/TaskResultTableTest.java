@@ -0,0 +1,113 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TaskResultTable}. */
+@RunWith(AndroidJUnit4.class)
+public final class TaskResultTableTest {
+
+  private static final class FakeTaskResult implements TaskResult {
+    private final long timestampMs;
+
+    FakeTaskResult(long timestampMs) {
+      this.timestampMs = timestampMs;
+    }
+
+    @Override
+    public long timestampMs() {
+      return timestampMs;
+    }
+  }
+
+  @Test
+  public void create_failsWithNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new TaskResultTable<FakeTaskResult>(0));
+  }
+
+  @Test
+  public void claim_returnsTheResultAtTheExactTimestamp() {
+    TaskResultTable<FakeTaskResult> table = new TaskResultTable<>(/* capacity= */ 4);
+    FakeTaskResult first = new FakeTaskResult(1);
+    FakeTaskResult second = new FakeTaskResult(2);
+    table.put(1000, first);
+    table.put(2000, second);
+
+    assertThat(table.claim(2000)).isSameInstanceAs(second);
+    assertThat(table.claim(1000)).isSameInstanceAs(first);
+    assertThat(table.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void claim_doesNotReturnTheResultsOfOtherTimestamps() {
+    TaskResultTable<FakeTaskResult> table = new TaskResultTable<>(/* capacity= */ 4);
+    table.put(2000, new FakeTaskResult(2));
+
+    assertThat(table.claim(1000)).isNull();
+    assertThat(table.claim(3000)).isNull();
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void claim_returnsEachResultOnce() {
+    TaskResultTable<FakeTaskResult> table = new TaskResultTable<>(/* capacity= */ 4);
+    table.put(1000, new FakeTaskResult(1));
+
+    assertThat(table.claim(1000)).isNotNull();
+    assertThat(table.claim(1000)).isNull();
+  }
+
+  @Test
+  public void put_evictsTheOldestResultsWhenFull() {
+    TaskResultTable<FakeTaskResult> table = new TaskResultTable<>(/* capacity= */ 2);
+    table.put(1000, new FakeTaskResult(1));
+    table.put(2000, new FakeTaskResult(2));
+    table.put(3000, new FakeTaskResult(3));
+
+    assertThat(table.size()).isEqualTo(2);
+    assertThat(table.claim(1000)).isNull();
+    assertThat(table.claim(2000)).isNotNull();
+    assertThat(table.claim(3000)).isNotNull();
+  }
+
+  @Test
+  public void put_replacesTheResultAtTheSameTimestamp() {
+    TaskResultTable<FakeTaskResult> table = new TaskResultTable<>(/* capacity= */ 2);
+    FakeTaskResult replacement = new FakeTaskResult(1);
+    table.put(1000, new FakeTaskResult(1));
+    table.put(1000, replacement);
+
+    assertThat(table.size()).isEqualTo(1);
+    assertThat(table.claim(1000)).isSameInstanceAs(replacement);
+  }
+
+  @Test
+  public void claimLatest_returnsTheResultWithTheLargestTimestamp() {
+    TaskResultTable<FakeTaskResult> table = new TaskResultTable<>(/* capacity= */ 4);
+    FakeTaskResult latest = new FakeTaskResult(3);
+    table.put(1000, new FakeTaskResult(1));
+    table.put(3000, latest);
+    table.put(2000, new FakeTaskResult(2));
+
+    assertThat(table.claimLatest()).isSameInstanceAs(latest);
+    assertThat(table.size()).isEqualTo(2);
+  }
+}
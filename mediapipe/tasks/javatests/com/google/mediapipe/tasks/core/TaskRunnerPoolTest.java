@@ -0,0 +1,242 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.MediaPipeException;
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketGetter;
+import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TaskRunnerPool}. */
+@RunWith(AndroidJUnit4.class)
+public final class TaskRunnerPoolTest {
+  private static final String PASS_THROUGH_GRAPH_NAME = "PassThroughCalculator";
+
+  static {
+    System.loadLibrary("mediapipe_tasks_text_jni");
+  }
+
+  /** The integer that went through the pass-through graph. */
+  private static final class IntResult implements TaskResult {
+    private final int value;
+    private final long timestampMs;
+
+    IntResult(int value, long timestampMs) {
+      this.value = value;
+      this.timestampMs = timestampMs;
+    }
+
+    @Override
+    public long timestampMs() {
+      return timestampMs;
+    }
+  }
+
+  /** {@link TaskOptions} of a graph without calculator options. */
+  private static final class EmptyOptions extends TaskOptions {
+    @Override
+    public CalculatorOptions convertToCalculatorOptionsProto() {
+      return CalculatorOptions.getDefaultInstance();
+    }
+  }
+
+  @Test
+  public void create_createsTheMinimumNumberOfRunners() {
+    try (TaskRunnerPool pool =
+        createPool(
+            PASS_THROUGH_GRAPH_NAME,
+            TaskRunnerPool.PoolOptions.builder().setMinSize(2).setMaxSize(3).build())) {
+      assertThat(pool.size()).isEqualTo(2);
+      assertThat(pool.idleCount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void acquire_reusesTheMostRecentlyReleasedRunner() throws Exception {
+    try (TaskRunnerPool pool =
+        createPool(PASS_THROUGH_GRAPH_NAME, TaskRunnerPool.PoolOptions.builder().build())) {
+      TaskRunner runner = pool.acquire();
+      assertThat(process(runner, 42)).isEqualTo(42);
+      pool.release(runner);
+
+      TaskRunner reacquiredRunner = pool.acquire();
+
+      assertThat(reacquiredRunner).isSameInstanceAs(runner);
+      assertThat(process(reacquiredRunner, 7)).isEqualTo(7);
+      assertThat(pool.size()).isEqualTo(1);
+      pool.release(reacquiredRunner);
+    }
+  }
+
+  @Test
+  public void acquire_timesOutWhenAllRunnersAreAcquired() throws Exception {
+    try (TaskRunnerPool pool =
+        createPool(PASS_THROUGH_GRAPH_NAME, TaskRunnerPool.PoolOptions.builder().build())) {
+      TaskRunner runner = pool.acquire();
+
+      assertThrows(TimeoutException.class, () -> pool.acquire(10, TimeUnit.MILLISECONDS));
+
+      pool.release(runner);
+    }
+  }
+
+  @Test
+  public void acquire_releasesTheModelResourcesCacheWhenTheRunnerCreationFails() {
+    TaskRunnerPool pool =
+        createPool("NonExistentCalculator", TaskRunnerPool.PoolOptions.builder().build());
+
+    assertThrows(MediaPipeException.class, pool::acquire);
+    assertThat(pool.size()).isEqualTo(0);
+
+    pool.close();
+    assertThat(pool.sharedModelResourcesCache.isHandleValid()).isFalse();
+  }
+
+  @Test
+  public void release_evictsTheRunnersIdleForLongerThanTheTimeout() throws Exception {
+    try (TaskRunnerPool pool =
+        createPool(
+            PASS_THROUGH_GRAPH_NAME,
+            TaskRunnerPool.PoolOptions.builder()
+                .setMinSize(1)
+                .setMaxSize(2)
+                .setIdleTimeoutMs(0)
+                .build())) {
+      TaskRunner runner0 = pool.acquire();
+      TaskRunner runner1 = pool.acquire();
+      assertThat(pool.size()).isEqualTo(2);
+
+      pool.release(runner0);
+      // The released runner is evicted at once, but the pool keeps its minimum size.
+      assertThat(pool.size()).isEqualTo(1);
+      pool.release(runner1);
+      assertThat(pool.size()).isEqualTo(1);
+      assertThat(pool.idleCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void evictIdleRunners_keepsTheRunnersWithinTheTimeout() throws Exception {
+    try (TaskRunnerPool pool =
+        createPool(
+            PASS_THROUGH_GRAPH_NAME,
+            TaskRunnerPool.PoolOptions.builder().setMaxSize(2).setIdleTimeoutMs(60000).build())) {
+      TaskRunner runner = pool.acquire();
+      pool.release(runner);
+
+      pool.evictIdleRunners();
+
+      assertThat(pool.size()).isEqualTo(1);
+      assertThat(pool.idleCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void close_closesTheAcquiredRunnersWhenTheyAreReleased() throws Exception {
+    TaskRunnerPool pool =
+        createPool(PASS_THROUGH_GRAPH_NAME, TaskRunnerPool.PoolOptions.builder().build());
+    TaskRunner runner = pool.acquire();
+
+    pool.close();
+    assertThrows(IllegalStateException.class, pool::acquire);
+    // The acquired runner still holds a reference to the shared cache.
+    assertThat(pool.sharedModelResourcesCache.isHandleValid()).isTrue();
+    pool.release(runner);
+
+    assertThat(pool.size()).isEqualTo(0);
+    assertThat(pool.sharedModelResourcesCache.isHandleValid()).isFalse();
+  }
+
+  @Test
+  public void close_releasesTheSharedCacheWhenTheRunnerGraphFailed() throws Exception {
+    TaskRunnerPool pool =
+        createPool(PASS_THROUGH_GRAPH_NAME, TaskRunnerPool.PoolOptions.builder().build());
+    TaskRunner runner = pool.acquire();
+    List<RuntimeException> errors = new ArrayList<>();
+    runner.setErrorListener(errors::add);
+    send(runner, 1, /* inputTimestamp= */ 1);
+    // A packet that doesn't have a larger timestamp than the previous one fails the graph.
+    assertThrows(MediaPipeException.class, () -> send(runner, 2, /* inputTimestamp= */ 1));
+    pool.release(runner);
+    errors.clear();
+
+    pool.close();
+
+    // Closing the failed graph reports the error, but still releases the shared cache.
+    assertThat(errors).isNotEmpty();
+    assertThat(pool.size()).isEqualTo(0);
+    assertThat(pool.sharedModelResourcesCache.isHandleValid()).isFalse();
+  }
+
+  private static TaskRunnerPool createPool(
+      String taskGraphName, TaskRunnerPool.PoolOptions poolOptions) {
+    return TaskRunnerPool.create(
+        ApplicationProvider.getApplicationContext(),
+        TaskInfo.<EmptyOptions>builder()
+            .setTaskName(TaskRunnerPoolTest.class.getSimpleName())
+            .setTaskGraphName(taskGraphName)
+            .setInputStreams(Arrays.asList("in"))
+            .setOutputStreams(Arrays.asList("out"))
+            .setTaskOptions(new EmptyOptions())
+            .setEnableFlowLimiting(false)
+            .build(),
+        TaskRunnerPoolTest::createOutputHandler,
+        poolOptions);
+  }
+
+  private static OutputHandler<IntResult, Void> createOutputHandler() {
+    OutputHandler<IntResult, Void> handler = new OutputHandler<>();
+    handler.setOutputPacketConverter(
+        new OutputHandler.OutputPacketConverter<IntResult, Void>() {
+          @Override
+          public IntResult convertToTaskResult(List<Packet> packets) {
+            return new IntResult(
+                PacketGetter.getInt32(packets.get(0)), packets.get(0).getTimestamp());
+          }
+
+          @Override
+          public Void convertToTaskInput(List<Packet> packets) {
+            return null;
+          }
+        });
+    return handler;
+  }
+
+  private static int process(TaskRunner runner, int value) {
+    Map<String, Packet> inputs = new HashMap<>();
+    inputs.put("in", runner.getPacketCreator().createInt32(value));
+    return ((IntResult) runner.process(inputs)).value;
+  }
+
+  private static void send(TaskRunner runner, int value, long inputTimestamp) {
+    Map<String, Packet> inputs = new HashMap<>();
+    inputs.put("in", runner.getPacketCreator().createInt32(value));
+    runner.send(inputs, inputTimestamp);
+  }
+}
@@ -0,0 +1,143 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.MediaPipeException;
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TaskRunner}. */
+@RunWith(AndroidJUnit4.class)
+public final class TaskRunnerTest {
+  static {
+    System.loadLibrary("mediapipe_tasks_text_jni");
+  }
+
+  /** A result that only holds the timestamp of the pass-through graph output. */
+  private static final class TimestampResult implements TaskResult {
+    private final long timestampMs;
+
+    TimestampResult(long timestampMs) {
+      this.timestampMs = timestampMs;
+    }
+
+    @Override
+    public long timestampMs() {
+      return timestampMs;
+    }
+  }
+
+  /** {@link TaskOptions} of a graph without calculator options. */
+  private static final class EmptyOptions extends TaskOptions {
+    @Override
+    public CalculatorOptions convertToCalculatorOptionsProto() {
+      return CalculatorOptions.getDefaultInstance();
+    }
+  }
+
+  private TaskRunner runner;
+  private final List<RuntimeException> errors = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    runner =
+        TaskRunner.create(
+            ApplicationProvider.getApplicationContext(),
+            TaskInfo.<EmptyOptions>builder()
+                .setTaskName(TaskRunnerTest.class.getSimpleName())
+                .setTaskGraphName("PassThroughCalculator")
+                .setInputStreams(Arrays.asList("in"))
+                .setOutputStreams(Arrays.asList("out"))
+                .setTaskOptions(new EmptyOptions())
+                .setEnableFlowLimiting(false)
+                .build(),
+            createOutputHandler());
+    runner.setErrorListener(errors::add);
+  }
+
+  @After
+  public void tearDown() {
+    runner.close();
+  }
+
+  @Test
+  public void processPipelined_failsTheResultAtOnceWhenTheGraphFailedWithErrorListener() {
+    runner.send(createInputs(1), /* inputTimestamp= */ 1);
+    // A packet that doesn't have a larger timestamp than the previous one fails the graph.
+    assertThrows(
+        MediaPipeException.class, () -> runner.send(createInputs(2), /* inputTimestamp= */ 1));
+
+    CompletableFuture<TaskResult> result = runner.processPipelined(createInputs(3));
+
+    assertThat(result.isCompletedExceptionally()).isTrue();
+    ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+    assertThat(exception).hasCauseThat().isInstanceOf(MediaPipeException.class);
+  }
+
+  @Test
+  public void processPipelined_failsTheResultAtOnceWhenTheGraphIsNotRunningWithErrorListener() {
+    Map<String, Packet> inputs = createInputs(1);
+    runner.close();
+
+    CompletableFuture<TaskResult> result = runner.processPipelined(inputs);
+
+    assertThat(result.isCompletedExceptionally()).isTrue();
+    ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+    assertThat(exception).hasCauseThat().isInstanceOf(MediaPipeException.class);
+    assertThat(((MediaPipeException) exception.getCause()).getStatusCode())
+        .isEqualTo(MediaPipeException.StatusCode.FAILED_PRECONDITION);
+    // The failure is only reported through the result.
+    assertThat(errors).isEmpty();
+  }
+
+  private Map<String, Packet> createInputs(int value) {
+    Map<String, Packet> inputs = new HashMap<>();
+    inputs.put("in", runner.getPacketCreator().createInt32(value));
+    return inputs;
+  }
+
+  private static OutputHandler<TimestampResult, Void> createOutputHandler() {
+    OutputHandler<TimestampResult, Void> handler = new OutputHandler<>();
+    handler.setOutputPacketConverter(
+        new OutputHandler.OutputPacketConverter<TimestampResult, Void>() {
+          @Override
+          public TimestampResult convertToTaskResult(List<Packet> packets) {
+            return new TimestampResult(packets.get(0).getTimestamp());
+          }
+
+          @Override
+          public Void convertToTaskInput(List<Packet> packets) {
+            return null;
+          }
+        });
+    return handler;
+  }
+}
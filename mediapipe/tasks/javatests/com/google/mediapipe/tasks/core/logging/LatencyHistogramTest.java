@@ -0,0 +1,113 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link LatencyHistogram}. */
+@RunWith(AndroidJUnit4.class)
+public final class LatencyHistogramTest {
+
+  @Test
+  public void snapshot_isEmptyWithoutValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+    assertThat(snapshot.getTotalCount()).isEqualTo(0L);
+    assertThat(snapshot.getValueAtPercentile(50)).isEqualTo(0L);
+  }
+
+  @Test
+  public void getValueAtPercentile_isExactForSmallValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 100; ++value) {
+      histogram.record(value);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+    assertThat(snapshot.getTotalCount()).isEqualTo(100L);
+    assertThat(snapshot.getValueAtPercentile(0)).isEqualTo(1L);
+    assertThat(snapshot.getValueAtPercentile(50)).isEqualTo(50L);
+    assertThat(snapshot.getValueAtPercentile(90)).isEqualTo(90L);
+    assertThat(snapshot.getValueAtPercentile(99)).isEqualTo(99L);
+    assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(100L);
+  }
+
+  @Test
+  public void getValueAtPercentile_boundsTheRelativeErrorOfLargeValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 127; value < (1L << 36); value = value * 3 / 2 + 1) {
+      histogram.record(value);
+
+      long recordedValue = histogram.snapshotAndReset().getValueAtPercentile(100);
+
+      assertThat(recordedValue).isAtLeast(value);
+      assertThat(recordedValue - value).isAtMost(value / 64);
+    }
+  }
+
+  @Test
+  public void record_clampsTheValuesToTheRange() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.record(-5);
+    assertThat(histogram.snapshotAndReset().getValueAtPercentile(100)).isEqualTo(0L);
+    histogram.record(Long.MAX_VALUE);
+    long maxValue = histogram.snapshotAndReset().getValueAtPercentile(100);
+    assertThat(maxValue).isAtLeast((1L << 39));
+    assertThat(maxValue).isLessThan(1L << 40);
+  }
+
+  @Test
+  public void snapshotAndReset_startsANewInterval() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1000);
+    histogram.snapshotAndReset();
+
+    histogram.record(10);
+    LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+    assertThat(snapshot.getTotalCount()).isEqualTo(1L);
+    assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(10L);
+    assertThat(histogram.snapshotAndReset().getTotalCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void record_countsTheConcurrentValues() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] =
+          new Thread(
+              () -> {
+                for (int value = 0; value < 10000; ++value) {
+                  histogram.record(value);
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(histogram.snapshotAndReset().getTotalCount()).isEqualTo(40000L);
+  }
+}
@@ -0,0 +1,172 @@
+// Copyright 2022 The MediaPipe Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core.logging;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.tasks.core.logging.TasksStatsLogger.StatsSnapshot;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TasksStatsHistogramLogger}. */
+@RunWith(AndroidJUnit4.class)
+public final class TasksStatsHistogramLoggerTest {
+  private static final String TASK_NAME = "FakeTask";
+  private static final String RUNNING_MODE_NAME = "LIVE_STREAM";
+  // Long enough that only the final report of the session is exported.
+  private static final long REPORT_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+  private final AtomicLong nowNanos = new AtomicLong();
+  private final InMemoryTasksStatsExporter exporter = new InMemoryTasksStatsExporter();
+
+  @Test
+  public void create_failsWithNonPositiveReportInterval() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            TasksStatsHistogramLogger.create(
+                ApplicationProvider.getApplicationContext(),
+                TASK_NAME,
+                RUNNING_MODE_NAME,
+                exporter,
+                /* reportIntervalMs= */ 0));
+  }
+
+  @Test
+  public void logSessionEnd_exportsTheLatenciesOfTheSession() {
+    TasksStatsHistogramLogger logger = createLogger();
+    logger.logSessionStart();
+    for (int i = 1; i <= 100; ++i) {
+      logger.recordCpuInputArrival(i);
+      advanceMs(i);
+      logger.recordInvocationEnd(i);
+    }
+
+    logger.logSessionEnd();
+
+    List<StatsSnapshot> snapshots = exporter.getSnapshots();
+    assertThat(snapshots).hasSize(1);
+    StatsSnapshot snapshot = snapshots.get(0);
+    assertThat(snapshot.taskName()).isEqualTo(TASK_NAME);
+    assertThat(snapshot.taskRunningModeName()).isEqualTo(RUNNING_MODE_NAME);
+    assertThat(snapshot.cpuInputCount()).isEqualTo(100);
+    assertThat(snapshot.gpuInputCount()).isEqualTo(0);
+    assertThat(snapshot.finishedCount()).isEqualTo(100);
+    assertThat(snapshot.droppedCount()).isEqualTo(0);
+    assertThat(snapshot.totalLatencyMs()).isEqualTo(5050L);
+    assertThat(snapshot.peakLatencyMs()).isEqualTo(100L);
+    assertThat(snapshot.elapsedTimeMs()).isEqualTo(5050L);
+    assertThat(snapshot.p50LatencyMs()).isWithin(50.0 / 64).of(50);
+    assertThat(snapshot.p90LatencyMs()).isWithin(90.0 / 64).of(90);
+    assertThat(snapshot.p99LatencyMs()).isWithin(99.0 / 64).of(99);
+    assertThat(snapshot.p999LatencyMs()).isWithin(100.0 / 64).of(100);
+  }
+
+  @Test
+  public void recordInvocationEnd_countsTheInputsPassedWithoutAResultAsDropped() {
+    TasksStatsHistogramLogger logger = createLogger();
+    logger.logSessionStart();
+    logger.recordCpuInputArrival(1);
+    logger.recordGpuInputArrival(2);
+    logger.recordCpuInputArrival(3);
+    advanceMs(4);
+
+    logger.recordInvocationEnd(3);
+    // An output without a pending input is ignored.
+    logger.recordInvocationEnd(4);
+    logger.logSessionEnd();
+
+    StatsSnapshot snapshot = exporter.getSnapshots().get(0);
+    assertThat(snapshot.cpuInputCount()).isEqualTo(2);
+    assertThat(snapshot.gpuInputCount()).isEqualTo(1);
+    assertThat(snapshot.finishedCount()).isEqualTo(1);
+    assertThat(snapshot.droppedCount()).isEqualTo(2);
+    assertThat(snapshot.peakLatencyMs()).isEqualTo(4L);
+  }
+
+  @Test
+  public void recordInputArrival_dropsTheOldestInputBeyondThePendingLimit() {
+    TasksStatsHistogramLogger logger = createLogger();
+    logger.logSessionStart();
+    for (int i = 0; i <= 1024; ++i) {
+      logger.recordCpuInputArrival(i);
+    }
+
+    logger.logSessionEnd();
+
+    StatsSnapshot snapshot = exporter.getSnapshots().get(0);
+    assertThat(snapshot.cpuInputCount()).isEqualTo(1025);
+    assertThat(snapshot.droppedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void logSessionEnd_doesNotExportWithoutASession() {
+    TasksStatsHistogramLogger logger = createLogger();
+    logger.recordCpuInputArrival(1);
+
+    logger.logSessionEnd();
+
+    assertThat(exporter.getSnapshots()).isEmpty();
+  }
+
+  @Test
+  public void logInvocationReport_ignoresTheExporterFailures() {
+    TasksStatsHistogramLogger logger =
+        new TasksStatsHistogramLogger(
+            TASK_NAME,
+            RUNNING_MODE_NAME,
+            snapshot -> {
+              throw new IllegalStateException("The exporter failed.");
+            },
+            REPORT_INTERVAL_MS,
+            nowNanos::get);
+    logger.logSessionStart();
+
+    logger.logSessionEnd();
+  }
+
+  @Test
+  public void logSessionStart_exportsTheStatsPeriodically() throws Exception {
+    CountDownLatch exported = new CountDownLatch(2);
+    TasksStatsHistogramLogger logger =
+        new TasksStatsHistogramLogger(
+            TASK_NAME,
+            RUNNING_MODE_NAME,
+            snapshot -> exported.countDown(),
+            /* reportIntervalMs= */ 10,
+            System::nanoTime);
+
+    logger.logSessionStart();
+
+    assertThat(exported.await(10, TimeUnit.SECONDS)).isTrue();
+    logger.logSessionEnd();
+  }
+
+  private TasksStatsHistogramLogger createLogger() {
+    return new TasksStatsHistogramLogger(
+        TASK_NAME, RUNNING_MODE_NAME, exporter, REPORT_INTERVAL_MS, nowNanos::get);
+  }
+
+  private void advanceMs(long durationMs) {
+    nowNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(durationMs));
+  }
+}
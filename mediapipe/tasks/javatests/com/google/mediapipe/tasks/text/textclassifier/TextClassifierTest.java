@@ -22,6 +22,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.mediapipe.tasks.core.BaseOptions;
+import com.google.mediapipe.tasks.core.TaskResultCache;
 import com.google.mediapipe.tasks.core.TestUtils;
 import com.google.mediapipe.tasks.text.textclassifier.TextClassifier.TextClassifierOptions;
 import java.util.Arrays;
@@ -168,6 +169,119 @@ public class TextClassifierTest {
             Category.create(0.48799595f, 1, "Positive", "")));
   }
 
+  @Test
+  public void classifyAll_succeedsWithRegex() throws Exception {
+    TextClassifier textClassifier =
+        TextClassifier.createFromFile(
+            ApplicationProvider.getApplicationContext(), REGEX_MODEL_FILE);
+    List<TextClassifierResult> results =
+        textClassifier.classifyAll(Arrays.asList(NEGATIVE_TEXT, POSITIVE_TEXT, NEGATIVE_TEXT));
+
+    assertThat(results).hasSize(3);
+    for (TextClassifierResult result : results) {
+      assertHasOneHead(result);
+    }
+    assertCategoriesAre(
+        results.get(0),
+        Arrays.asList(
+            Category.create(0.6647746f, 0, "Negative", ""),
+            Category.create(0.33522537f, 1, "Positive", "")));
+    assertCategoriesAre(
+        results.get(1),
+        Arrays.asList(
+            Category.create(0.5120041f, 0, "Negative", ""),
+            Category.create(0.48799595f, 1, "Positive", "")));
+    assertCategoriesAre(
+        results.get(2),
+        results.get(0).classificationResult().classifications().get(0).categories());
+  }
+
+  @Test
+  public void classify_succeedsWithResultCache() throws Exception {
+    TaskResultCache<TextClassifierResult> resultCache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().build());
+    TextClassifier textClassifier =
+        TextClassifier.createFromOptions(
+            ApplicationProvider.getApplicationContext(),
+            TextClassifierOptions.builder()
+                .setBaseOptions(BaseOptions.builder().setModelAssetPath(REGEX_MODEL_FILE).build())
+                .setResultCache(resultCache)
+                .build());
+
+    TextClassifierResult result0 = textClassifier.classify(NEGATIVE_TEXT);
+    TextClassifierResult result1 = textClassifier.classify(NEGATIVE_TEXT);
+    assertCategoriesAre(
+        result1, result0.classificationResult().classifications().get(0).categories());
+    assertThat(resultCache.hitCount()).isEqualTo(1);
+    assertThat(resultCache.missCount()).isEqualTo(1);
+
+    // The batch invocation uses the cached result, and caches the new ones.
+    List<TextClassifierResult> results =
+        textClassifier.classifyAll(Arrays.asList(NEGATIVE_TEXT, POSITIVE_TEXT));
+    assertThat(results).hasSize(2);
+    assertCategoriesAre(
+        results.get(1),
+        Arrays.asList(
+            Category.create(0.5120041f, 0, "Negative", ""),
+            Category.create(0.48799595f, 1, "Positive", "")));
+    assertThat(resultCache.hitCount()).isEqualTo(2);
+    assertThat(resultCache.size()).isEqualTo(2);
+
+    // Classifiers with different options don't share the cached results.
+    TextClassifier topClassifier =
+        TextClassifier.createFromOptions(
+            ApplicationProvider.getApplicationContext(),
+            TextClassifierOptions.builder()
+                .setBaseOptions(BaseOptions.builder().setModelAssetPath(REGEX_MODEL_FILE).build())
+                .setMaxResults(1)
+                .setResultCache(resultCache)
+                .build());
+    TextClassifierResult topResult = topClassifier.classify(NEGATIVE_TEXT);
+    assertCategoriesAre(topResult, Arrays.asList(Category.create(0.6647746f, 0, "Negative", "")));
+    assertThat(resultCache.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void classify_doesNotShareTheResultCacheAcrossModelContents() throws Exception {
+    TaskResultCache<TextClassifierResult> resultCache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().build());
+    TextClassifier regexClassifier =
+        TextClassifier.createFromOptions(
+            ApplicationProvider.getApplicationContext(),
+            TextClassifierOptions.builder()
+                .setBaseOptions(
+                    BaseOptions.builder()
+                        .setModelAssetBuffer(
+                            TestUtils.loadToDirectByteBuffer(
+                                ApplicationProvider.getApplicationContext(), REGEX_MODEL_FILE))
+                        .build())
+                .setResultCache(resultCache)
+                .build());
+    TextClassifier bertClassifier =
+        TextClassifier.createFromOptions(
+            ApplicationProvider.getApplicationContext(),
+            TextClassifierOptions.builder()
+                .setBaseOptions(
+                    BaseOptions.builder()
+                        .setModelAssetBuffer(
+                            TestUtils.loadToDirectByteBuffer(
+                                ApplicationProvider.getApplicationContext(), BERT_MODEL_FILE))
+                        .build())
+                .setResultCache(resultCache)
+                .build());
+
+    regexClassifier.classify(NEGATIVE_TEXT);
+    TextClassifierResult bertResult = bertClassifier.classify(NEGATIVE_TEXT);
+
+    assertCategoriesAre(
+        bertResult,
+        Arrays.asList(
+            Category.create(0.95630914f, 0, "negative", ""),
+            Category.create(0.04369091f, 1, "positive", "")));
+    assertThat(resultCache.hitCount()).isEqualTo(0);
+    assertThat(resultCache.size()).isEqualTo(2);
+  }
+
   private static void assertHasOneHead(TextClassifierResult results) {
     assertThat(results.classificationResult().classifications()).hasSize(1);
     assertThat(results.classificationResult().classifications().get(0).headIndex()).isEqualTo(0);
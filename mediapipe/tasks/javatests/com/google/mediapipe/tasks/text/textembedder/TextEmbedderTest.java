@@ -20,6 +20,11 @@ import static org.junit.Assert.assertThrows;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.mediapipe.framework.MediaPipeException;
+import com.google.mediapipe.tasks.core.BaseOptions;
+import com.google.mediapipe.tasks.core.TaskResultCache;
+import com.google.mediapipe.tasks.text.textembedder.TextEmbedder.TextEmbedderOptions;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -123,6 +128,80 @@ public class TextEmbedderTest {
     assertThat(similarity).isWithin(DOUBLE_DIFF_TOLERANCE).of(0.999937);
   }
 
+  @Test
+  public void embed_succeedsWithResultCache() throws Exception {
+    TaskResultCache<TextEmbedderResult> resultCache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().build());
+    TextEmbedderOptions options =
+        TextEmbedderOptions.builder()
+            .setBaseOptions(BaseOptions.builder().setModelAssetPath(REGEX_MODEL_FILE).build())
+            .setResultCache(resultCache)
+            .build();
+    TextEmbedder textEmbedder =
+        TextEmbedder.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+
+    TextEmbedderResult result0 = textEmbedder.embed("it's a charming and often affecting journey");
+    float[] expectedEmbedding =
+        result0.embeddingResult().embeddings().get(0).floatEmbedding().clone();
+    // The cached result doesn't share its arrays with the returned results.
+    result0.embeddingResult().embeddings().get(0).floatEmbedding()[0] += 1.0f;
+    TextEmbedderResult result1 = textEmbedder.embed("it's a charming and often affecting journey");
+    assertThat(result1.embeddingResult().embeddings().get(0).floatEmbedding())
+        .isEqualTo(expectedEmbedding);
+    assertThat(resultCache.hitCount()).isEqualTo(1);
+    assertThat(resultCache.missCount()).isEqualTo(1);
+
+    // Embedders with different options don't share the cached results.
+    TextEmbedder quantizedTextEmbedder =
+        TextEmbedder.createFromOptions(
+            ApplicationProvider.getApplicationContext(),
+            TextEmbedderOptions.builder()
+                .setBaseOptions(BaseOptions.builder().setModelAssetPath(REGEX_MODEL_FILE).build())
+                .setQuantize(true)
+                .setResultCache(resultCache)
+                .build());
+    TextEmbedderResult result2 =
+        quantizedTextEmbedder.embed("it's a charming and often affecting journey");
+    assertThat(result2.embeddingResult().embeddings().get(0).quantizedEmbedding()).hasLength(16);
+    assertThat(resultCache.missCount()).isEqualTo(2);
+    assertThat(resultCache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void embedAll_succeedsWithRegexAndResultCache() throws Exception {
+    TaskResultCache<TextEmbedderResult> resultCache =
+        TaskResultCache.create(TaskResultCache.CacheOptions.builder().build());
+    TextEmbedderOptions options =
+        TextEmbedderOptions.builder()
+            .setBaseOptions(BaseOptions.builder().setModelAssetPath(REGEX_MODEL_FILE).build())
+            .setResultCache(resultCache)
+            .build();
+    TextEmbedder textEmbedder =
+        TextEmbedder.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+    List<String> inputTexts =
+        Arrays.asList(
+            "it's a charming and often affecting journey",
+            "what a great and fantastic trip",
+            "it's a charming and often affecting journey");
+
+    List<TextEmbedderResult> results = textEmbedder.embedAll(inputTexts);
+    assertThat(results).hasSize(3);
+    assertThat(floatEmbedding(results.get(0))[0]).isWithin(FLOAT_DIFF_TOLERANCE).of(0.030935612f);
+    assertThat(floatEmbedding(results.get(1))[0]).isWithin(FLOAT_DIFF_TOLERANCE).of(0.0312863f);
+    assertThat(floatEmbedding(results.get(2))).isEqualTo(floatEmbedding(results.get(0)));
+    assertThat(resultCache.size()).isEqualTo(2);
+
+    // Neither the cached results nor the results returned from the cache share their arrays.
+    float[] expectedEmbedding = floatEmbedding(results.get(0)).clone();
+    floatEmbedding(results.get(0))[0] += 1.0f;
+    floatEmbedding(results.get(2))[0] += 1.0f;
+    List<TextEmbedderResult> cachedResults = textEmbedder.embedAll(inputTexts);
+    assertThat(resultCache.hitCount()).isEqualTo(3);
+    assertThat(floatEmbedding(cachedResults.get(0))).isEqualTo(expectedEmbedding);
+    floatEmbedding(cachedResults.get(0))[0] += 1.0f;
+    assertThat(floatEmbedding(cachedResults.get(2))).isEqualTo(expectedEmbedding);
+  }
+
   @Test
   public void classify_succeedsWithBertAndDifferentThemes() throws Exception {
     TextEmbedder textEmbedder =
@@ -162,4 +241,8 @@ public class TextEmbedderTest {
             result1.embeddingResult().embeddings().get(0));
     assertThat(similarity).isWithin(DOUBLE_DIFF_TOLERANCE).of(0.7835510599396296);
   }
+
+  private static float[] floatEmbedding(TextEmbedderResult result) {
+    return result.embeddingResult().embeddings().get(0).floatEmbedding();
+  }
 }
@@ -18,6 +18,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
 import android.content.res.AssetManager;
+import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.RectF;
 import androidx.test.core.app.ApplicationProvider;
@@ -25,6 +26,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.truth.Correspondence;
 import com.google.mediapipe.formats.proto.ClassificationProto;
 import com.google.mediapipe.framework.MediaPipeException;
+import com.google.mediapipe.framework.image.BitmapExtractor;
 import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.components.containers.Category;
@@ -33,10 +35,13 @@ import com.google.mediapipe.tasks.components.containers.proto.LandmarksDetection
 import com.google.mediapipe.tasks.components.processors.ClassifierOptions;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
+import com.google.mediapipe.tasks.vision.core.InputImageMode;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.gesturerecognizer.GestureRecognizer.GestureRecognizerOptions;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -566,6 +571,88 @@ public class GestureRecognizerTest {
     }
   }
 
+  @Test
+  public void recognize_successWithLiveSteamModeKeepingInputImage() throws Exception {
+    MPImage image = getImageFromAsset(THUMB_UP_IMAGE);
+    List<MPImage> inputImages = new ArrayList<>();
+    GestureRecognizerOptions options =
+        GestureRecognizerOptions.builder()
+            .setBaseOptions(
+                BaseOptions.builder()
+                    .setModelAssetPath(GESTURE_RECOGNIZER_BUNDLE_ASSET_FILE)
+                    .build())
+            .setRunningMode(RunningMode.LIVE_STREAM)
+            .setResultListener((actualResult, inputImage) -> inputImages.add(inputImage))
+            .build();
+    try (GestureRecognizer gestureRecognizer =
+        GestureRecognizer.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+      for (int i = 0; i < 3; i++) {
+        gestureRecognizer.recognizeAsync(image, /*timestampsMs=*/ i);
+      }
+    }
+    // The input images are copied by default, so they outlive the result listener.
+    assertThat(inputImages).isNotEmpty();
+    for (MPImage inputImage : inputImages) {
+      Bitmap bitmap = BitmapExtractor.extract(inputImage);
+      assertThat(bitmap.getWidth()).isEqualTo(IMAGE_WIDTH);
+      assertThat(bitmap.getHeight()).isEqualTo(IMAGE_HEIGHT);
+    }
+  }
+
+  @Test
+  public void recognize_successWithLiveSteamModeAndLazyInputImage() throws Exception {
+    MPImage image = getImageFromAsset(THUMB_UP_IMAGE);
+    GestureRecognizerOptions options =
+        GestureRecognizerOptions.builder()
+            .setBaseOptions(
+                BaseOptions.builder()
+                    .setModelAssetPath(GESTURE_RECOGNIZER_BUNDLE_ASSET_FILE)
+                    .build())
+            .setRunningMode(RunningMode.LIVE_STREAM)
+            .setInputImageMode(InputImageMode.LAZY)
+            .setResultListener(
+                (actualResult, inputImage) -> {
+                  Bitmap bitmap = BitmapExtractor.extract(inputImage);
+                  assertThat(bitmap.getWidth()).isEqualTo(IMAGE_WIDTH);
+                  assertThat(bitmap.getHeight()).isEqualTo(IMAGE_HEIGHT);
+                })
+            .build();
+    try (GestureRecognizer gestureRecognizer =
+        GestureRecognizer.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+      for (int i = 0; i < 3; i++) {
+        gestureRecognizer.recognizeAsync(image, /*timestampsMs=*/ i);
+      }
+    }
+  }
+
+  @Test
+  public void recognize_successWithLiveSteamModeWithoutInputImage() throws Exception {
+    MPImage image = getImageFromAsset(THUMB_UP_IMAGE);
+    GestureRecognizerResult expectedResult =
+        getExpectedGestureRecognizerResult(THUMB_UP_LANDMARKS, THUMB_UP_LABEL);
+    GestureRecognizerOptions options =
+        GestureRecognizerOptions.builder()
+            .setBaseOptions(
+                BaseOptions.builder()
+                    .setModelAssetPath(GESTURE_RECOGNIZER_BUNDLE_ASSET_FILE)
+                    .build())
+            .setRunningMode(RunningMode.LIVE_STREAM)
+            .setInputImageMode(InputImageMode.NONE)
+            .setResultListener(
+                (actualResult, inputImage) -> {
+                  assertActualResultApproximatelyEqualsToExpectedResult(
+                      actualResult, expectedResult);
+                  assertThat(inputImage).isNull();
+                })
+            .build();
+    try (GestureRecognizer gestureRecognizer =
+        GestureRecognizer.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+      for (int i = 0; i < 3; i++) {
+        gestureRecognizer.recognizeAsync(image, /*timestampsMs=*/ i);
+      }
+    }
+  }
+
   private static MPImage getImageFromAsset(String filePath) throws Exception {
     AssetManager assetManager = ApplicationProvider.getApplicationContext().getAssets();
     InputStream istr = assetManager.open(filePath);
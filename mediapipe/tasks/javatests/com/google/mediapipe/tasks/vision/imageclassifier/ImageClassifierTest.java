@@ -33,8 +33,10 @@ import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.imageclassifier.ImageClassifier.ImageClassifierOptions;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -166,6 +168,30 @@ public class ImageClassifierTest {
           results, Arrays.asList(Category.create(0.97265625f, 934, "cheeseburger", "")));
     }
 
+    @Test
+    public void classifyPipelined_succeedsWithFloatModel() throws Exception {
+      ImageClassifierOptions options =
+          ImageClassifierOptions.builder()
+              .setBaseOptions(BaseOptions.builder().setModelAssetPath(FLOAT_MODEL_FILE).build())
+              .setMaxResults(1)
+              .build();
+      ImageClassifier imageClassifier =
+          ImageClassifier.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+      MPImage image = getImageFromAsset(BURGER_IMAGE);
+      List<CompletableFuture<ImageClassifierResult>> futures = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(imageClassifier.classifyPipelined(image));
+      }
+      imageClassifier.flushPipelinedResults();
+
+      for (CompletableFuture<ImageClassifierResult> future : futures) {
+        ImageClassifierResult results = future.get();
+        assertHasOneHead(results);
+        assertCategoriesAre(
+            results, Arrays.asList(Category.create(0.7952058f, 934, "cheeseburger", "")));
+      }
+    }
+
     @Test
     public void classify_succeedsWithScoreThreshold() throws Exception {
       ImageClassifierOptions options =
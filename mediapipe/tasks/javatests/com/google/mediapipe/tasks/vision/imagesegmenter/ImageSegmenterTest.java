@@ -23,6 +23,8 @@ import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.CallbackDispatcher;
+import com.google.mediapipe.framework.CallbackDispatcher.OverflowPolicy;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.image.BitmapExtractor;
 import com.google.mediapipe.framework.image.BitmapImageBuilder;
@@ -36,6 +38,10 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -324,6 +330,42 @@ public class ImageSegmenterTest {
       imageSegmenter.segmentWithResultListener(getImageFromAsset(inputImageName));
     }
 
+    @Test
+    public void segment_successWithResultListenerOnResultDispatcher() throws Exception {
+      final String inputImageName = "cat.jpg";
+      final String goldenImageName = "cat_mask.jpg";
+      MPImage expectedResult = getImageFromAsset(goldenImageName);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      CountDownLatch maskVerified = new CountDownLatch(1);
+      ImageSegmenterOptions options =
+          ImageSegmenterOptions.builder()
+              .setBaseOptions(
+                  BaseOptions.builder()
+                      .setModelAssetPath(DEEPLAB_MODEL_FILE)
+                      .setResultDispatcher(
+                          CallbackDispatcher.create(
+                              executor, /* capacity= */ 1, OverflowPolicy.BLOCK))
+                      .build())
+              .setOutputType(ImageSegmenterOptions.OutputType.CONFIDENCE_MASK)
+              .setRunningMode(RunningMode.IMAGE)
+              .setResultListener(
+                  (segmenterResult, inputImage) -> {
+                    // The masks are read after the graph callback returned.
+                    verifyConfidenceMask(
+                        segmenterResult.segmentations().get(8),
+                        expectedResult,
+                        GOLDEN_MASK_SIMILARITY);
+                    maskVerified.countDown();
+                  })
+              .build();
+      try (ImageSegmenter imageSegmenter =
+          ImageSegmenter.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+        imageSegmenter.segmentWithResultListener(getImageFromAsset(inputImageName));
+      }
+      assertThat(maskVerified.await(10, TimeUnit.SECONDS)).isTrue();
+      executor.shutdown();
+    }
+
     @Test
     public void segment_successWithVideoMode() throws Exception {
       final String inputImageName = "cat.jpg";
@@ -16,25 +16,43 @@ package com.google.mediapipe.tasks.vision.objectdetector;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
 
 import android.content.res.AssetManager;
 import android.graphics.BitmapFactory;
 import android.graphics.RectF;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.CallbackDispatcher;
+import com.google.mediapipe.framework.CallbackDispatcher.OverflowPolicy;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.image.BitmapImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.mediapipe.tasks.components.containers.Detection;
 import com.google.mediapipe.tasks.core.BaseOptions;
+import com.google.mediapipe.tasks.core.DroppedFrameListener;
+import com.google.mediapipe.tasks.core.FlowLimiterOptions;
+import com.google.mediapipe.tasks.core.MemoryBudget;
 import com.google.mediapipe.tasks.core.TestUtils;
+import com.google.mediapipe.tasks.core.logging.InMemoryTasksStatsExporter;
+import com.google.mediapipe.tasks.core.logging.TasksStatsLogger.StatsSnapshot;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.objectdetector.ObjectDetector.ObjectDetectorOptions;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -72,6 +90,61 @@ public class ObjectDetectorTest {
       assertContainsOnlyCat(results, CAT_BOUNDING_BOX, CAT_SCORE);
     }
 
+    @Test
+    public void detect_succeedsWithMemoryBudget() throws Exception {
+      MemoryBudget memoryBudget =
+          MemoryBudget.create(/* maxBytes= */ 1, MemoryBudget.OverflowPolicy.BLOCK);
+      ObjectDetectorOptions options =
+          ObjectDetectorOptions.builder()
+              .setBaseOptions(
+                  BaseOptions.builder()
+                      .setModelAssetPath(MODEL_FILE)
+                      .setMemoryBudget(memoryBudget)
+                      .build())
+              .setMaxResults(1)
+              .build();
+      ObjectDetector objectDetector =
+          ObjectDetector.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+      // The budget is smaller than a single image, which is admitted once nothing is in flight.
+      for (int i = 0; i < 2; i++) {
+        ObjectDetectionResult results =
+            objectDetector.detect(getImageFromAsset(CAT_AND_DOG_IMAGE));
+        assertContainsOnlyCat(results, CAT_BOUNDING_BOX, CAT_SCORE);
+      }
+      assertThat(memoryBudget.getInFlightBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void detect_succeedsWithStatsExporter() throws Exception {
+      InMemoryTasksStatsExporter statsExporter = new InMemoryTasksStatsExporter();
+      ObjectDetectorOptions options =
+          ObjectDetectorOptions.builder()
+              .setBaseOptions(
+                  BaseOptions.builder()
+                      .setModelAssetPath(MODEL_FILE)
+                      .setStatsExporter(statsExporter)
+                      .build())
+              .setMaxResults(1)
+              .build();
+      ObjectDetector objectDetector =
+          ObjectDetector.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+      for (int i = 0; i < 2; i++) {
+        ObjectDetectionResult results =
+            objectDetector.detect(getImageFromAsset(CAT_AND_DOG_IMAGE));
+        assertContainsOnlyCat(results, CAT_BOUNDING_BOX, CAT_SCORE);
+      }
+      // Closing the detector exports the stats of the last interval.
+      objectDetector.close();
+      List<StatsSnapshot> snapshots = statsExporter.getSnapshots();
+      assertThat(snapshots).isNotEmpty();
+      StatsSnapshot snapshot = snapshots.get(snapshots.size() - 1);
+      assertThat(snapshot.taskName()).isEqualTo("ObjectDetector");
+      assertThat(snapshot.cpuInputCount()).isEqualTo(2);
+      assertThat(snapshot.finishedCount()).isEqualTo(2);
+      assertThat(snapshot.droppedCount()).isEqualTo(0);
+      assertThat(snapshot.p50LatencyMs()).isGreaterThan(0.0);
+    }
+
     @Test
     public void detect_successWithNoOptions() throws Exception {
       ObjectDetector objectDetector =
@@ -352,6 +425,13 @@ public class ObjectDetectorTest {
               MediaPipeException.class,
               () -> objectDetector.detect(getImageFromAsset(CAT_AND_DOG_IMAGE)));
       assertThat(exception).hasMessageThat().contains("not initialized with the image mode");
+      exception =
+          assertThrows(
+              MediaPipeException.class,
+              () -> objectDetector.detectPipelined(getImageFromAsset(CAT_AND_DOG_IMAGE)));
+      assertThat(exception).hasMessageThat().contains("not initialized with the image mode");
+      exception = assertThrows(MediaPipeException.class, objectDetector::flushPipelinedResults);
+      assertThat(exception).hasMessageThat().contains("not initialized with the image mode");
       exception =
           assertThrows(
               MediaPipeException.class,
@@ -401,6 +481,32 @@ public class ObjectDetectorTest {
       assertContainsOnlyCat(results, CAT_BOUNDING_BOX, CAT_SCORE);
     }
 
+    @Test
+    public void detectPipelined_successWithImageMode() throws Exception {
+      ObjectDetectorOptions options =
+          ObjectDetectorOptions.builder()
+              .setBaseOptions(BaseOptions.builder().setModelAssetPath(MODEL_FILE).build())
+              .setRunningMode(RunningMode.IMAGE)
+              .setMaxResults(1)
+              .build();
+      ObjectDetector objectDetector =
+          ObjectDetector.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+      List<CompletableFuture<ObjectDetectionResult>> pendingResults = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        pendingResults.add(objectDetector.detectPipelined(getImageFromAsset(CAT_AND_DOG_IMAGE)));
+      }
+
+      objectDetector.flushPipelinedResults();
+
+      for (CompletableFuture<ObjectDetectionResult> pendingResult : pendingResults) {
+        assertThat(pendingResult.isDone()).isTrue();
+        assertContainsOnlyCat(pendingResult.get(), CAT_BOUNDING_BOX, CAT_SCORE);
+      }
+      // The synchronous API keeps working after the pipelined images.
+      ObjectDetectionResult results = objectDetector.detect(getImageFromAsset(CAT_AND_DOG_IMAGE));
+      assertContainsOnlyCat(results, CAT_BOUNDING_BOX, CAT_SCORE);
+    }
+
     @Test
     public void detect_successWithVideoMode() throws Exception {
       ObjectDetectorOptions options =
@@ -467,6 +573,140 @@ public class ObjectDetectorTest {
         }
       }
     }
+
+    @Test
+    public void detectAsync_succeedsWithAdaptiveFlowLimiter() throws Exception {
+      MPImage image = getImageFromAsset(CAT_AND_DOG_IMAGE);
+      ObjectDetectorOptions options =
+          ObjectDetectorOptions.builder()
+              .setBaseOptions(
+                  BaseOptions.builder()
+                      .setModelAssetPath(MODEL_FILE)
+                      .setFlowLimiterOptions(
+                          FlowLimiterOptions.builder()
+                              .setMaxInFlight(2)
+                              .setTargetLatencyMs(1000L)
+                              .build())
+                      .build())
+              .setRunningMode(RunningMode.LIVE_STREAM)
+              .setResultListener(
+                  (objectDetectionResult, inputImage) -> {
+                    assertContainsOnlyCat(objectDetectionResult, CAT_BOUNDING_BOX, CAT_SCORE);
+                    assertImageSizeIsExpected(inputImage);
+                  })
+              .setMaxResults(1)
+              .build();
+      List<Long> droppedTimestamps = new ArrayList<>();
+      try (ObjectDetector objectDetector =
+          ObjectDetector.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+        objectDetector.setDroppedFrameListener(
+            (timestampMs, reason) -> {
+              assertThat(reason).isEqualTo(DroppedFrameListener.Reason.IN_FLIGHT_LIMIT);
+              synchronized (droppedTimestamps) {
+                droppedTimestamps.add(timestampMs);
+              }
+            });
+        assertThat(objectDetector.tryAccept()).isTrue();
+        for (int i = 0; i < 3; i++) {
+          objectDetector.detectAsync(image, /*timestampsMs=*/ i);
+        }
+      }
+      // The first frames up to the initial depth are always admitted.
+      synchronized (droppedTimestamps) {
+        assertThat(droppedTimestamps).containsNoneOf(0L, 1L);
+      }
+    }
+
+    @Test
+    public void resultPublisher_publishesTheRequestedResults() throws Exception {
+      assumeTrue(VERSION.SDK_INT >= VERSION_CODES.R);
+      MPImage image = getImageFromAsset(CAT_AND_DOG_IMAGE);
+      ObjectDetectorOptions options =
+          ObjectDetectorOptions.builder()
+              .setBaseOptions(BaseOptions.builder().setModelAssetPath(MODEL_FILE).build())
+              .setRunningMode(RunningMode.LIVE_STREAM)
+              .setResultListener((objectDetectionResult, inputImage) -> {})
+              .setMaxResults(1)
+              .build();
+      List<ObjectDetectionResult> publishedResults = new ArrayList<>();
+      CountDownLatch completed = new CountDownLatch(1);
+      try (ObjectDetector objectDetector =
+          ObjectDetector.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+        objectDetector
+            .resultPublisher()
+            .subscribe(
+                new Flow.Subscriber<ObjectDetectionResult>() {
+                  @Override
+                  public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(1);
+                  }
+
+                  @Override
+                  public void onNext(ObjectDetectionResult result) {
+                    synchronized (publishedResults) {
+                      publishedResults.add(result);
+                    }
+                  }
+
+                  @Override
+                  public void onError(Throwable throwable) {}
+
+                  @Override
+                  public void onComplete() {
+                    completed.countDown();
+                  }
+                });
+        for (int i = 0; i < 3; i++) {
+          objectDetector.detectAsync(image, /*timestampsMs=*/ i);
+        }
+      }
+      assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+      synchronized (publishedResults) {
+        assertThat(publishedResults).hasSize(1);
+        assertContainsOnlyCat(publishedResults.get(0), CAT_BOUNDING_BOX, CAT_SCORE);
+      }
+    }
+
+    @Test
+    public void detectAsync_deliversResultsOnResultDispatcher() throws Exception {
+      MPImage image = getImageFromAsset(CAT_AND_DOG_IMAGE);
+      ExecutorService executor =
+          Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "result-listener"));
+      CallbackDispatcher dispatcher =
+          CallbackDispatcher.create(executor, /*capacity=*/ 2, OverflowPolicy.DROP_OLDEST);
+      CountDownLatch resultReceived = new CountDownLatch(1);
+      List<String> listenerThreadNames = new ArrayList<>();
+      ObjectDetectorOptions options =
+          ObjectDetectorOptions.builder()
+              .setBaseOptions(
+                  BaseOptions.builder()
+                      .setModelAssetPath(MODEL_FILE)
+                      .setResultDispatcher(dispatcher)
+                      .build())
+              .setRunningMode(RunningMode.LIVE_STREAM)
+              .setResultListener(
+                  (objectDetectionResult, inputImage) -> {
+                    assertContainsOnlyCat(objectDetectionResult, CAT_BOUNDING_BOX, CAT_SCORE);
+                    assertImageSizeIsExpected(inputImage);
+                    synchronized (listenerThreadNames) {
+                      listenerThreadNames.add(Thread.currentThread().getName());
+                    }
+                    resultReceived.countDown();
+                  })
+              .setMaxResults(1)
+              .build();
+      try (ObjectDetector objectDetector =
+          ObjectDetector.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+        objectDetector.detectAsync(image, /*timestampsMs=*/ 0);
+        assertThat(resultReceived.await(10, TimeUnit.SECONDS)).isTrue();
+      } finally {
+        executor.shutdown();
+      }
+      synchronized (listenerThreadNames) {
+        assertThat(listenerThreadNames).containsExactly("result-listener");
+      }
+      assertThat(dispatcher.getDroppedCallbackCount()).isEqualTo(0);
+    }
   }
 
   private static MPImage getImageFromAsset(String filePath) throws Exception {